@@ -0,0 +1,102 @@
+package com.tirisano.mmogo.school.manager.benchmarks;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.google.cloud.Timestamp;
+import com.tirisano.mmogo.school.manager.config.JacksonConfig;
+import com.tirisano.mmogo.school.manager.dto.ApiResponse;
+import com.tirisano.mmogo.school.manager.model.Student;
+import com.tirisano.mmogo.school.manager.util.TimestampCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-response cost of building and serializing the ApiResponse envelope.
+ * The legacy variant stamps Timestamp.now() and goes through the bean serializer with an
+ * Instant.toString timestamp serializer; the current variant uses the coarse clock and
+ * ApiResponseSerializer. Run with -prof gc to see per-response allocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ApiResponseBenchmark {
+
+    @Param({"0", "1", "50"})
+    public int students;
+
+    private ObjectMapper legacyMapper;
+    private ObjectMapper currentMapper;
+    private List<Student> data;
+
+    @Setup
+    public void setup() {
+        SimpleModule legacyModule = new SimpleModule();
+        legacyModule.addSerializer(Timestamp.class, new LegacyTimestampSerializer());
+        legacyMapper = Jackson2ObjectMapperBuilder.json().modules(legacyModule).build();
+
+        currentMapper = new JacksonConfig().objectMapper(new TimestampCodec("Africa/Johannesburg"));
+        data = SampleData.students(students);
+    }
+
+    @Benchmark
+    public byte[] legacyError() throws IOException {
+        ApiResponse<Object> response = ApiResponse.builder()
+                .success(false)
+                .message("Student not found with ID: abc")
+                .timestamp(Timestamp.now())
+                .build();
+        return legacyMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] currentError() throws IOException {
+        return currentMapper.writeValueAsBytes(ApiResponse.error("Student not found with ID: abc"));
+    }
+
+    @Benchmark
+    public byte[] legacySuccess() throws IOException {
+        ApiResponse<List<Student>> response = ApiResponse.<List<Student>>builder()
+                .success(true)
+                .data(data)
+                .timestamp(Timestamp.now())
+                .build();
+        return legacyMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] currentSuccess() throws IOException {
+        return currentMapper.writeValueAsBytes(ApiResponse.success(data));
+    }
+
+    /**
+     * TimestampSerializer as it was before TimestampCodec.
+     */
+    static final class LegacyTimestampSerializer extends JsonSerializer<Timestamp> {
+        @Override
+        public void serialize(Timestamp timestamp, JsonGenerator gen, SerializerProvider serializers)
+                throws IOException {
+            gen.writeString(Instant.ofEpochSecond(timestamp.getSeconds(), timestamp.getNanos()).toString());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.tirisano.mmogo.school.manager.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files (-rf json) benchmark by benchmark, including
+ * gc.alloc.rate.norm when both runs used -prof gc.
+ * A change counts as a regression when it is worse by more than the threshold and
+ * by more than the two runs' combined error; the exit status is 1 if any regressed.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.tirisano.mmogo.school.manager.benchmarks.BenchmarkDiff \
+ *     results/before.json results/after.json [--threshold=10]
+ * </pre>
+ */
+public final class BenchmarkDiff {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    private BenchmarkDiff() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<String> files = new ArrayList<>();
+        double threshold = 10;
+        for (String arg : args) {
+            if (arg.startsWith("--threshold=")) {
+                threshold = Double.parseDouble(arg.substring("--threshold=".length()));
+            } else {
+                files.add(arg);
+            }
+        }
+        if (files.size() != 2) {
+            System.err.println("Usage: BenchmarkDiff <before.json> <after.json> [--threshold=percent]");
+            System.exit(2);
+        }
+
+        Map<String, Result> before = read(new File(files.get(0)));
+        Map<String, Result> after = read(new File(files.get(1)));
+
+        int regressions = 0;
+        System.out.printf("%-70s %16s %16s %9s%n", "Benchmark", "Before", "After", "Change");
+        for (Map.Entry<String, Result> entry : after.entrySet()) {
+            Result was = before.get(entry.getKey());
+            Result now = entry.getValue();
+            if (was == null) {
+                System.out.printf("%-70s %16s %16s %9s%n", entry.getKey(), "-", now.format(), "new");
+                continue;
+            }
+            double change = (now.score - was.score) / was.score * 100;
+            // For throughput a drop is worse; for time and allocation a rise is
+            double worse = now.higherIsBetter ? -change : change;
+            boolean regressed = worse > threshold && Math.abs(now.score - was.score) > was.error + now.error;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-70s %16s %16s %+8.1f%%%s%n",
+                    entry.getKey(), was.format(), now.format(), change, regressed ? "  REGRESSION" : "");
+        }
+        before.keySet().stream()
+                .filter(key -> !after.containsKey(key))
+                .forEach(key -> System.out.printf("%-70s %16s %16s %9s%n", key, before.get(key).format(), "-", "removed"));
+
+        System.out.printf("%n%d regression(s) beyond %.0f%%%n", regressions, threshold);
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+
+    /**
+     * Results keyed by benchmark name and parameters, with allocation as its own entry
+     */
+    private static Map<String, Result> read(File file) throws IOException {
+        Map<String, Result> results = new TreeMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            String name = run.get("benchmark").asText();
+            name = name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1);
+            Map<String, String> params = new LinkedHashMap<>();
+            run.path("params").fields().forEachRemaining(p -> params.put(p.getKey(), p.getValue().asText()));
+            String key = params.isEmpty() ? name : name + params;
+
+            boolean throughput = "thrpt".equals(run.get("mode").asText());
+            results.put(key, Result.of(run.get("primaryMetric"), throughput));
+            JsonNode allocation = run.path("secondaryMetrics").path(ALLOCATION);
+            if (!allocation.isMissingNode()) {
+                results.put(key + " " + ALLOCATION, Result.of(allocation, false));
+            }
+        }
+        return results;
+    }
+
+    private record Result(double score, double error, String unit, boolean higherIsBetter) {
+
+        static Result of(JsonNode metric, boolean higherIsBetter) {
+            double error = metric.path("scoreError").asDouble(0);
+            return new Result(metric.get("score").asDouble(), Double.isNaN(error) ? 0 : error,
+                    metric.get("scoreUnit").asText(), higherIsBetter);
+        }
+
+        String format() {
+            return String.format("%.2f %s", score, unit);
+        }
+    }
+}
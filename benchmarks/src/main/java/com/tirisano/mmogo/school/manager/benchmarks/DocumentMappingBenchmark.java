@@ -0,0 +1,93 @@
+package com.tirisano.mmogo.school.manager.benchmarks;
+
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.tirisano.mmogo.school.manager.model.Payment;
+import com.tirisano.mmogo.school.manager.model.Student;
+import com.tirisano.mmogo.school.manager.model.Trip;
+import com.tirisano.mmogo.school.manager.repository.DocumentMappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-document mapping cost, from the same DocumentSnapshot each time: the SDK's reflective
+ * toObject versus getData plus the precompiled DocumentMappers, which is what FirebaseService
+ * does for registered models. The snapshots come from a real client over SnapshotFirestore.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DocumentMappingBenchmark {
+
+    private Firestore firestore;
+    private DocumentSnapshot student;
+    private DocumentSnapshot payment;
+    private DocumentSnapshot trip;
+
+    @Setup
+    public void setup() {
+        firestore = SnapshotFirestore.client();
+        student = SnapshotFirestore.snapshot(firestore, "students", SampleData.student(3));
+        payment = SnapshotFirestore.snapshot(firestore, "payments", SampleData.payment(3));
+        trip = SnapshotFirestore.snapshot(firestore, "trips", SampleData.trip(3));
+
+        check(studentReflective(), studentMapper());
+        check(paymentReflective(), paymentMapper());
+        check(tripReflective(), tripMapper());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        firestore.close();
+    }
+
+    @Benchmark
+    public Student studentReflective() {
+        return student.toObject(Student.class);
+    }
+
+    @Benchmark
+    public Student studentMapper() {
+        return DocumentMappers.student(student.getData());
+    }
+
+    @Benchmark
+    public Payment paymentReflective() {
+        return payment.toObject(Payment.class);
+    }
+
+    @Benchmark
+    public Payment paymentMapper() {
+        return DocumentMappers.payment(payment.getData());
+    }
+
+    @Benchmark
+    public Trip tripReflective() {
+        return trip.toObject(Trip.class);
+    }
+
+    @Benchmark
+    public Trip tripMapper() {
+        return DocumentMappers.trip(trip.getData());
+    }
+
+    private static void check(Object reflective, Object mapped) {
+        if (!reflective.equals(mapped)) {
+            throw new IllegalStateException("Mapper disagrees with toObject:\n" + reflective + "\n" + mapped);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.tirisano.mmogo.school.manager.benchmarks;
+
+import com.tirisano.mmogo.school.manager.model.Payment;
+import com.tirisano.mmogo.school.manager.model.Student;
+import com.tirisano.mmogo.school.manager.repository.EntityMetadata;
+import com.tirisano.mmogo.school.manager.repository.EntityRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Setting a generated ID on an entity before it is saved: the original FirebaseService.setIdOnEntity,
+ * which switched on the collection name and looked the setter up reflectively on every call, versus
+ * EntityMetadata.assignId, resolved once per class by the EntityRegistry.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntityIdBenchmark {
+
+    private static final String ID = "Xq3v9KpL2mN8rT4wYz1A";
+
+    private Student student;
+    private Payment payment;
+    private EntityMetadata<Student> students;
+    private EntityMetadata<Payment> payments;
+
+    @Setup
+    public void setup() {
+        student = SampleData.student(1);
+        payment = SampleData.payment(1);
+        EntityRegistry registry = new EntityRegistry();
+        students = registry.forClass(Student.class);
+        payments = registry.forClass(Payment.class);
+    }
+
+    @Benchmark
+    public Student studentLegacy() {
+        setIdOnEntity(student, "students", ID);
+        return student;
+    }
+
+    @Benchmark
+    public Student studentRegistry() {
+        students.assignId(student, ID);
+        return student;
+    }
+
+    @Benchmark
+    public Payment paymentLegacy() {
+        setIdOnEntity(payment, "payments", ID);
+        return payment;
+    }
+
+    @Benchmark
+    public Payment paymentRegistry() {
+        payments.assignId(payment, ID);
+        return payment;
+    }
+
+    // Copy of the original FirebaseService helpers, minus logging
+
+    private static void setIdOnEntity(Object entity, String collection, String id) {
+        try {
+            String idFieldName = getIdFieldName(collection);
+            if (idFieldName != null) {
+                Method setter = findSetter(entity.getClass(), idFieldName);
+                if (setter != null) {
+                    setter.invoke(entity, id);
+                }
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String getIdFieldName(String collection) {
+        return switch (collection) {
+            case "parents" -> "parentId";
+            case "students" -> "studentId";
+            case "announcements" -> "announcementId";
+            case "documentRequests" -> "requestId";
+            case "trips" -> "tripId";
+            case "meetings" -> "meetingId";
+            case "payments" -> "paymentId";
+            case "documents" -> "documentId";
+            default -> null;
+        };
+    }
+
+    private static Method findSetter(Class<?> clazz, String fieldName) {
+        try {
+            String setterName = "set" + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+            return clazz.getMethod(setterName, String.class);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.tirisano.mmogo.school.manager.benchmarks;
+
+import com.google.cloud.Timestamp;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Copy of the regex and exception-driven parsing that TimestampDeserializer used before
+ * TimestampParser, kept as the baseline for the parsing benchmarks.
+ */
+final class LegacyTimestampParsing {
+
+    private LegacyTimestampParsing() {
+    }
+
+    static Timestamp parse(String value) {
+        if (value.matches("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}$")) {
+            value = value + ":00";
+        }
+
+        try {
+            Instant instant = Instant.parse(value);
+            return Timestamp.ofTimeSecondsAndNanos(instant.getEpochSecond(), instant.getNano());
+        } catch (DateTimeParseException e1) {
+            // Continue to next format
+        }
+
+        try {
+            LocalDateTime dateTime = LocalDateTime.parse(value);
+            Instant instant = dateTime.toInstant(ZoneOffset.UTC);
+            return Timestamp.ofTimeSecondsAndNanos(instant.getEpochSecond(), instant.getNano());
+        } catch (DateTimeParseException e2) {
+            // Continue to next format
+        }
+
+        try {
+            LocalDate date = LocalDate.parse(value);
+            Instant instant = date.atStartOfDay().toInstant(ZoneOffset.UTC);
+            return Timestamp.ofTimeSecondsAndNanos(instant.getEpochSecond(), instant.getNano());
+        } catch (DateTimeParseException e3) {
+            // Continue to next format
+        }
+
+        long epochMilli = Long.parseLong(value);
+        Instant instant = Instant.ofEpochMilli(epochMilli);
+        return Timestamp.ofTimeSecondsAndNanos(instant.getEpochSecond(), instant.getNano());
+    }
+}
@@ -0,0 +1,80 @@
+package com.tirisano.mmogo.school.manager.benchmarks;
+
+import com.tirisano.mmogo.school.manager.model.Student;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * The in-memory part of TripService.getPaidStudentsByGrade, which loads every student, keeps those
+ * whose ID is in the trip's registeredStudents list (a linear List.contains per student) and groups
+ * the survivors with a collector. Measured against a candidate that would load only the registered
+ * students by ID and group them in one pass; the service itself is not changed here.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PaidStudentsBenchmark {
+
+    @Param({"1000"})
+    public int schoolSize;
+
+    @Param({"40", "400"})
+    public int registered;
+
+    private List<Student> allStudents;
+    private List<Student> registeredStudents;
+    private List<String> registeredIds;
+
+    @Setup
+    public void setup() {
+        allStudents = SampleData.students(schoolSize);
+        registeredStudents = new ArrayList<>();
+        registeredIds = new ArrayList<>();
+        // Spread registrations across the school, as sign-ups come from every grade
+        int step = Math.max(1, schoolSize / registered);
+        for (int i = 0; i < schoolSize && registeredIds.size() < registered; i += step) {
+            registeredStudents.add(allStudents.get(i));
+            registeredIds.add(allStudents.get(i).getStudentId());
+        }
+    }
+
+    @Benchmark
+    public Map<String, List<Student>> filterAndGroup() {
+        List<Student> paidStudents = allStudents.stream()
+                .filter(student -> registeredIds.contains(student.getStudentId()))
+                .collect(Collectors.toList());
+        return paidStudents.stream()
+                .collect(Collectors.groupingBy(
+                        student -> student.getGrade() != null ? student.getGrade() : "Unknown",
+                        Collectors.toList()));
+    }
+
+    @Benchmark
+    public Map<String, List<Student>> groupRegistered() {
+        Map<String, List<Student>> byGrade = new HashMap<>();
+        for (Student student : registeredStudents) {
+            String grade = student.getGrade() != null ? student.getGrade() : "Unknown";
+            byGrade.computeIfAbsent(grade, g -> new ArrayList<>()).add(student);
+        }
+        return byGrade;
+    }
+}
@@ -0,0 +1,109 @@
+package com.tirisano.mmogo.school.manager.benchmarks;
+
+import com.google.cloud.Timestamp;
+import com.tirisano.mmogo.school.manager.enums.Gender;
+import com.tirisano.mmogo.school.manager.enums.PaymentStatus;
+import com.tirisano.mmogo.school.manager.enums.StudentStatus;
+import com.tirisano.mmogo.school.manager.model.Grade;
+import com.tirisano.mmogo.school.manager.model.Payment;
+import com.tirisano.mmogo.school.manager.model.Student;
+import com.tirisano.mmogo.school.manager.model.Trip;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Realistic, deterministic model instances for the benchmarks.
+ */
+final class SampleData {
+
+    private static final String[] GRADES = {"R", "1", "2", "3", "4", "5", "6", "7"};
+    private static final long BASE_SECONDS = 1_760_183_400L;
+
+    private SampleData() {
+    }
+
+    static List<Student> students(int count) {
+        List<Student> students = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            students.add(student(i));
+        }
+        return students;
+    }
+
+    static Student student(int i) {
+        List<Grade> grades = new ArrayList<>();
+        for (int t = 1; t <= 2; t++) {
+            grades.add(Grade.builder()
+                    .subject(t == 1 ? "Mathematics" : "English Home Language")
+                    .score(String.valueOf(55 + (i * 7 + t) % 45))
+                    .term("Term " + t)
+                    .date(Timestamp.ofTimeSecondsAndNanos(BASE_SECONDS - t * 7_776_000L, 0))
+                    .comments("Steady progress")
+                    .build());
+        }
+        return Student.builder()
+                .studentId("stu" + String.format("%017d", i))
+                .name("Lerato" + i)
+                .surname("Mokoena")
+                .gender(i % 2 == 0 ? Gender.FEMALE : Gender.MALE)
+                .dateOfBirth(Timestamp.ofTimeSecondsAndNanos(1_420_070_400L + i * 86_400L, 0))
+                .birthCertificateId(String.format("%013d", 1_501_015_000_000L + i))
+                .nationality("South African")
+                .grade(GRADES[i % GRADES.length])
+                .yearOfAdmission(2020 + i % 6)
+                .previousSchool(i % 3 == 0 ? "Mamelodi Primary" : null)
+                .parentId("par" + String.format("%017d", i / 2))
+                .className(GRADES[i % GRADES.length] + "A")
+                .teacher("Mrs Dlamini")
+                .status(i % 5 == 0 ? StudentStatus.PENDING : StudentStatus.APPROVED)
+                .grades(grades)
+                .createdAt(Timestamp.ofTimeSecondsAndNanos(BASE_SECONDS + i, 0))
+                .build();
+    }
+
+    static List<Payment> payments(int count) {
+        List<Payment> payments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            payments.add(payment(i));
+        }
+        return payments;
+    }
+
+    static Payment payment(int i) {
+        return Payment.builder()
+                .paymentId("pay" + String.format("%017d", i))
+                .studentId("stu" + String.format("%017d", i))
+                .tripId("trp" + String.format("%017d", i % 4))
+                .parentId("par" + String.format("%017d", i / 2))
+                .amount(new BigDecimal("350.00"))
+                .status(i % 10 == 0 ? PaymentStatus.PENDING : PaymentStatus.COMPLETED)
+                .paymentMethod(i % 3 == 0 ? "Bank Transfer" : "Credit Card")
+                .transactionReference("TXN-" + String.format("%08X", i * 2654435761L & 0xFFFFFFFFL))
+                .paymentNote(i % 4 == 0 ? "Paid for both terms" : null)
+                .createdAt(Timestamp.ofTimeSecondsAndNanos(BASE_SECONDS + i, 0))
+                .paidAt(Timestamp.ofTimeSecondsAndNanos(BASE_SECONDS + i + 30, 0))
+                .build();
+    }
+
+    static Trip trip(int i) {
+        List<String> registered = new ArrayList<>();
+        for (int s = 0; s < 24; s++) {
+            registered.add("stu" + String.format("%017d", i * 24 + s));
+        }
+        return Trip.builder()
+                .tripId("trp" + String.format("%017d", i))
+                .title("Grade " + GRADES[i % GRADES.length] + " Science Centre Visit")
+                .description("Guided tour of the Sci-Bono Discovery Centre with an afternoon workshop")
+                .destination("Newtown, Johannesburg")
+                .imageUrl("https://storage.example.com/trips/" + i + ".jpg")
+                .price(new BigDecimal("350.00"))
+                .tripDate(Timestamp.ofTimeSecondsAndNanos(BASE_SECONDS + 30L * 86_400L, 0))
+                .eligibleGrades(new ArrayList<>(List.of("5", "6", "7")))
+                .registeredStudents(registered)
+                .active(true)
+                .createdAt(Timestamp.ofTimeSecondsAndNanos(BASE_SECONDS + i, 0))
+                .build();
+    }
+}
@@ -0,0 +1,83 @@
+package com.tirisano.mmogo.school.manager.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.google.cloud.Timestamp;
+import com.tirisano.mmogo.school.manager.config.JacksonConfig;
+import com.tirisano.mmogo.school.manager.config.TimestampSerializer;
+import com.tirisano.mmogo.school.manager.dto.ApiResponse;
+import com.tirisano.mmogo.school.manager.model.Payment;
+import com.tirisano.mmogo.school.manager.model.Student;
+import com.tirisano.mmogo.school.manager.util.TimestampCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization throughput of realistic list responses: a plain mapper with only the
+ * Timestamp module (the original JacksonConfig) versus the tuned JacksonConfig mapper
+ * (Blackbird, NON_NULL, ApiResponseSerializer).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    @Param({"25", "200"})
+    public int size;
+
+    private ObjectMapper baselineMapper;
+    private ObjectMapper tunedMapper;
+    private ApiResponse<List<Student>> students;
+    private ApiResponse<List<Payment>> payments;
+
+    @Setup
+    public void setup() {
+        TimestampCodec codec = new TimestampCodec("Africa/Johannesburg");
+
+        SimpleModule timestampModule = new SimpleModule();
+        timestampModule.addSerializer(Timestamp.class, new TimestampSerializer(codec));
+        baselineMapper = Jackson2ObjectMapperBuilder.json().modules(timestampModule).build();
+
+        tunedMapper = new JacksonConfig().objectMapper(codec);
+
+        students = ApiResponse.success(SampleData.students(size));
+        payments = ApiResponse.success(SampleData.payments(size));
+    }
+
+    @Benchmark
+    public byte[] studentsBaseline() throws IOException {
+        return baselineMapper.writeValueAsBytes(students);
+    }
+
+    @Benchmark
+    public byte[] studentsTuned() throws IOException {
+        return tunedMapper.writeValueAsBytes(students);
+    }
+
+    @Benchmark
+    public byte[] paymentsBaseline() throws IOException {
+        return baselineMapper.writeValueAsBytes(payments);
+    }
+
+    @Benchmark
+    public byte[] paymentsTuned() throws IOException {
+        return tunedMapper.writeValueAsBytes(payments);
+    }
+}
@@ -0,0 +1,227 @@
+package com.tirisano.mmogo.school.manager.benchmarks;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.rpc.ApiCallContext;
+import com.google.api.gax.rpc.BidiStreamingCallable;
+import com.google.api.gax.rpc.ResponseObserver;
+import com.google.api.gax.rpc.ServerStreamingCallable;
+import com.google.api.gax.rpc.StreamController;
+import com.google.api.gax.rpc.UnaryCallable;
+import com.google.cloud.NoCredentials;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.FirestoreOptions;
+import com.google.cloud.firestore.spi.v1.FirestoreRpc;
+import com.google.cloud.firestore.v1.FirestoreClient.ListCollectionIdsPagedResponse;
+import com.google.cloud.firestore.v1.FirestoreClient.ListDocumentsPagedResponse;
+import com.google.cloud.firestore.v1.FirestoreClient.PartitionQueryPagedResponse;
+import com.google.firestore.v1.BatchGetDocumentsRequest;
+import com.google.firestore.v1.BatchGetDocumentsResponse;
+import com.google.firestore.v1.BatchWriteRequest;
+import com.google.firestore.v1.BatchWriteResponse;
+import com.google.firestore.v1.BeginTransactionRequest;
+import com.google.firestore.v1.BeginTransactionResponse;
+import com.google.firestore.v1.CommitRequest;
+import com.google.firestore.v1.CommitResponse;
+import com.google.firestore.v1.Document;
+import com.google.firestore.v1.ListCollectionIdsRequest;
+import com.google.firestore.v1.ListDocumentsRequest;
+import com.google.firestore.v1.ListenRequest;
+import com.google.firestore.v1.ListenResponse;
+import com.google.firestore.v1.PartitionQueryRequest;
+import com.google.firestore.v1.RollbackRequest;
+import com.google.firestore.v1.RunAggregationQueryRequest;
+import com.google.firestore.v1.RunAggregationQueryResponse;
+import com.google.firestore.v1.RunQueryRequest;
+import com.google.firestore.v1.RunQueryResponse;
+import com.google.firestore.v1.Write;
+import com.google.firestore.v1.WriteResult;
+import com.google.protobuf.Empty;
+import com.google.protobuf.Timestamp;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Just enough of a Firestore backend for benchmarks to get real DocumentSnapshots through the
+ * public client API: a set() is stored as the SDK encoded it and a get() hands it back, so the
+ * snapshot is exactly what a read from Firestore would decode. Every other RPC is unsupported.
+ */
+final class SnapshotFirestore implements FirestoreRpc {
+
+    private final Map<String, Document> documents = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "snapshot-firestore");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private SnapshotFirestore() {
+    }
+
+    static Firestore client() {
+        return FirestoreOptions.newBuilder()
+                .setProjectId("benchmarks")
+                .setCredentials(NoCredentials.getInstance())
+                .setServiceRpcFactory(options -> new SnapshotFirestore())
+                .build()
+                .getService();
+    }
+
+    /**
+     * Writes the entity with the SDK's own encoding and reads it back as a snapshot
+     */
+    static DocumentSnapshot snapshot(Firestore firestore, String collection, Object entity) {
+        try {
+            firestore.collection(collection).document("benchmark").set(entity).get();
+            return firestore.collection(collection).document("benchmark").get().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public UnaryCallable<CommitRequest, CommitResponse> commitCallable() {
+        return new UnaryCallable<>() {
+            @Override
+            public ApiFuture<CommitResponse> futureCall(CommitRequest request, ApiCallContext context) {
+                Timestamp now = now();
+                CommitResponse.Builder response = CommitResponse.newBuilder().setCommitTime(now);
+                for (Write write : request.getWritesList()) {
+                    if (!write.hasUpdate()) {
+                        return unsupported("commit of " + write.getOperationCase());
+                    }
+                    documents.put(write.getUpdate().getName(), write.getUpdate().toBuilder()
+                            .setCreateTime(now)
+                            .setUpdateTime(now)
+                            .build());
+                    response.addWriteResults(WriteResult.newBuilder().setUpdateTime(now));
+                }
+                return ApiFutures.immediateFuture(response.build());
+            }
+        };
+    }
+
+    @Override
+    public ServerStreamingCallable<BatchGetDocumentsRequest, BatchGetDocumentsResponse> batchGetDocumentsCallable() {
+        return new ServerStreamingCallable<>() {
+            @Override
+            public void call(BatchGetDocumentsRequest request, ResponseObserver<BatchGetDocumentsResponse> observer,
+                             ApiCallContext context) {
+                observer.onStart(NO_FLOW_CONTROL);
+                for (String name : request.getDocumentsList()) {
+                    Document document = documents.get(name);
+                    BatchGetDocumentsResponse.Builder response = BatchGetDocumentsResponse.newBuilder().setReadTime(now());
+                    observer.onResponse(document != null
+                            ? response.setFound(document).build()
+                            : response.setMissing(name).build());
+                }
+                observer.onComplete();
+            }
+        };
+    }
+
+    @Override
+    public UnaryCallable<BatchWriteRequest, BatchWriteResponse> batchWriteCallable() {
+        return unsupported();
+    }
+
+    @Override
+    public ServerStreamingCallable<RunQueryRequest, RunQueryResponse> runQueryCallable() {
+        throw new UnsupportedOperationException("runQuery");
+    }
+
+    @Override
+    public ServerStreamingCallable<RunAggregationQueryRequest, RunAggregationQueryResponse> runAggregationQueryCallable() {
+        throw new UnsupportedOperationException("runAggregationQuery");
+    }
+
+    @Override
+    public UnaryCallable<BeginTransactionRequest, BeginTransactionResponse> beginTransactionCallable() {
+        return unsupported();
+    }
+
+    @Override
+    public UnaryCallable<RollbackRequest, Empty> rollbackCallable() {
+        return unsupported();
+    }
+
+    @Override
+    public UnaryCallable<ListCollectionIdsRequest, ListCollectionIdsPagedResponse> listCollectionIdsPagedCallable() {
+        return unsupported();
+    }
+
+    @Override
+    public UnaryCallable<PartitionQueryRequest, PartitionQueryPagedResponse> partitionQueryPagedCallable() {
+        return unsupported();
+    }
+
+    @Override
+    public UnaryCallable<ListDocumentsRequest, ListDocumentsPagedResponse> listDocumentsPagedCallable() {
+        return unsupported();
+    }
+
+    @Override
+    public BidiStreamingCallable<ListenRequest, ListenResponse> listenCallable() {
+        throw new UnsupportedOperationException("listen");
+    }
+
+    @Override
+    public ScheduledExecutorService getExecutor() {
+        return executor;
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public void shutdownNow() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void close() {
+        shutdown();
+    }
+
+    private static Timestamp now() {
+        long millis = System.currentTimeMillis();
+        return Timestamp.newBuilder().setSeconds(millis / 1000).setNanos((int) (millis % 1000) * 1_000_000).build();
+    }
+
+    private static <Q, R> UnaryCallable<Q, R> unsupported() {
+        return new UnaryCallable<>() {
+            @Override
+            public ApiFuture<R> futureCall(Q request, ApiCallContext context) {
+                return unsupported(request.getClass().getSimpleName());
+            }
+        };
+    }
+
+    private static <R> ApiFuture<R> unsupported(String what) {
+        return ApiFutures.immediateFailedFuture(new UnsupportedOperationException(what + " is not supported in benchmarks"));
+    }
+
+    private static final StreamController NO_FLOW_CONTROL = new StreamController() {
+        @Override
+        public void cancel() {
+        }
+
+        @Override
+        public void disableAutoInboundFlowControl() {
+        }
+
+        @Override
+        public void request(int count) {
+        }
+    };
+}
@@ -0,0 +1,65 @@
+package com.tirisano.mmogo.school.manager.benchmarks;
+
+import com.google.cloud.Timestamp;
+import com.tirisano.mmogo.school.manager.util.TimestampCodec;
+import com.tirisano.mmogo.school.manager.util.TimestampParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion cost on the request hot path: the shared TimestampCodec (zone resolved once,
+ * precomputed formatters) versus resolving the zone per call and formatting via Instant.toString.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TimestampCodecBenchmark {
+
+    @Param({"2025-10-11T11:50", "2025-10-11T11:50:00Z", "2025-10-11"})
+    public String input;
+
+    private TimestampCodec codec;
+    private Timestamp timestamp;
+
+    @Setup
+    public void setup() {
+        codec = new TimestampCodec("Africa/Johannesburg");
+        timestamp = Timestamp.ofTimeSecondsAndNanos(1_760_183_400L, 123_000_000);
+    }
+
+    @Benchmark
+    public Timestamp parsePerCallZoneLookup() {
+        return TimestampParser.parse(input, ZoneId.of("Africa/Johannesburg"));
+    }
+
+    @Benchmark
+    public Timestamp parseCodec() {
+        return codec.parse(input);
+    }
+
+    @Benchmark
+    public String formatInstantToString() {
+        return Instant.ofEpochSecond(timestamp.getSeconds(), timestamp.getNanos()).toString();
+    }
+
+    @Benchmark
+    public String formatCodec() {
+        return codec.format(timestamp);
+    }
+}
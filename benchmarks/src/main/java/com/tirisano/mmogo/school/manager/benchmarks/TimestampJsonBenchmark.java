@@ -0,0 +1,76 @@
+package com.tirisano.mmogo.school.manager.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.cloud.Timestamp;
+import com.tirisano.mmogo.school.manager.config.JacksonConfig;
+import com.tirisano.mmogo.school.manager.util.TimestampCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TimestampDeserializer and TimestampSerializer as Jackson runs them, through the JacksonConfig
+ * mapper, for every JSON shape a timestamp arrives in: each string format, epoch milliseconds as
+ * a number, and the {seconds, nanos} object the Firestore SDK's own serialization produces.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TimestampJsonBenchmark {
+
+    private static final Map<String, String> INPUTS = Map.of(
+            "localMinutes", "\"2025-10-11T11:50\"",
+            "localSeconds", "\"2025-10-11T11:50:00\"",
+            "utc", "\"2025-10-11T11:50:00Z\"",
+            "utcMillis", "\"2025-10-11T11:50:00.123Z\"",
+            "offset", "\"2025-10-11T13:50:00+02:00\"",
+            "date", "\"2025-10-11\"",
+            "epochMillis", "1760183400000",
+            "epochMillisString", "\"1760183400000\"",
+            "secondsNanos", "{\"seconds\":1760183400,\"nanos\":123000000}");
+
+    @Param({"localMinutes", "localSeconds", "utc", "utcMillis", "offset", "date",
+            "epochMillis", "epochMillisString", "secondsNanos"})
+    public String format;
+
+    private ObjectReader reader;
+    private ObjectWriter writer;
+    private String json;
+    private Timestamp timestamp;
+
+    @Setup
+    public void setup() throws IOException {
+        ObjectMapper mapper = new JacksonConfig().objectMapper(new TimestampCodec("Africa/Johannesburg"));
+        reader = mapper.readerFor(Timestamp.class);
+        writer = mapper.writerFor(Timestamp.class);
+        json = INPUTS.get(format);
+        timestamp = reader.readValue(json);
+    }
+
+    @Benchmark
+    public Timestamp deserialize() throws IOException {
+        return reader.readValue(json);
+    }
+
+    @Benchmark
+    public String serialize() throws IOException {
+        return writer.writeValueAsString(timestamp);
+    }
+}
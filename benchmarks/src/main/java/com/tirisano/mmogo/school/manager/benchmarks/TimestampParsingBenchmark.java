@@ -0,0 +1,50 @@
+package com.tirisano.mmogo.school.manager.benchmarks;
+
+import com.google.cloud.Timestamp;
+import com.tirisano.mmogo.school.manager.util.TimestampParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Legacy regex/exception parsing versus the single-pass TimestampParser,
+ * for every input format the API accepts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TimestampParsingBenchmark {
+
+    @Param({
+            "2025-10-11T11:50",
+            "2025-10-11T11:50:00",
+            "2025-10-11T11:50:00Z",
+            "2025-10-11T11:50:00.123Z",
+            "2025-10-11",
+            "1760183400000"
+    })
+    public String input;
+
+    @Benchmark
+    public Timestamp legacy() {
+        return LegacyTimestampParsing.parse(input);
+    }
+
+    @Benchmark
+    public Timestamp singlePass() {
+        return TimestampParser.parse(input, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,95 @@
+package com.tirisano.mmogo.school.manager.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+
+/**
+ * Stand-in for the Firebase Auth emulator, covering the two Identity Toolkit calls a login makes:
+ * the Admin SDK's accounts:lookup by email and the REST accounts:signInWithPassword check.
+ * Point both at it with FIREBASE_AUTH_EMULATOR_HOST.
+ */
+public class FakeIdentityToolkit implements AutoCloseable {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+    private final HttpServer server;
+
+    public FakeIdentityToolkit() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/identitytoolkit.googleapis.com/", this::handle);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+    }
+
+    /**
+     * host:port, the value for FIREBASE_AUTH_EMULATOR_HOST
+     */
+    public String host() {
+        return server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    public void addAccount(String uid, String email, String password) {
+        accounts.put(email, new Account(uid, email, password));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            JsonNode body = mapper.readTree(exchange.getRequestBody());
+
+            if (path.endsWith("/accounts:lookup")) {
+                Account account = body.has("email") ? accounts.get(body.get("email").get(0).asText()) : null;
+                Map<String, Object> response = account == null
+                        ? Map.of("kind", "identitytoolkit#GetAccountInfoResponse")
+                        : Map.of("kind", "identitytoolkit#GetAccountInfoResponse", "users", List.of(Map.of(
+                                "localId", account.uid(),
+                                "email", account.email(),
+                                "emailVerified", true,
+                                "disabled", false,
+                                "providerUserInfo", List.of())));
+                respond(exchange, 200, response);
+            } else if (path.endsWith("/accounts:signInWithPassword")) {
+                Account account = accounts.get(body.path("email").asText());
+                if (account == null || !account.password().equals(body.path("password").asText())) {
+                    respond(exchange, 400, Map.of("error", Map.of("code", 400, "message", "INVALID_LOGIN_CREDENTIALS")));
+                } else {
+                    respond(exchange, 200, Map.of(
+                            "localId", account.uid(),
+                            "email", account.email(),
+                            "idToken", "loadtest." + account.uid(),
+                            "registered", true));
+                }
+            } else {
+                respond(exchange, 404, Map.of("error", Map.of("code", 404, "message", "not supported: " + path)));
+            }
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private record Account(String uid, String email, String password) {
+    }
+}
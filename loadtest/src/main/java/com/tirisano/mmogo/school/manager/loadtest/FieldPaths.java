@@ -0,0 +1,72 @@
+package com.tirisano.mmogo.school.manager.loadtest;
+
+import com.google.firestore.v1.MapValue;
+import com.google.firestore.v1.Value;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dotted Firestore field paths (with `backquoted` segments) over protobuf field maps.
+ */
+final class FieldPaths {
+
+    private FieldPaths() {
+    }
+
+    static List<String> parse(String path) {
+        List<String> segments = new ArrayList<>();
+        StringBuilder segment = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c == '\\' && quoted && i + 1 < path.length()) {
+                segment.append(path.charAt(++i));
+            } else if (c == '`') {
+                quoted = !quoted;
+            } else if (c == '.' && !quoted) {
+                segments.add(segment.toString());
+                segment.setLength(0);
+            } else {
+                segment.append(c);
+            }
+        }
+        segments.add(segment.toString());
+        return segments;
+    }
+
+    /**
+     * The value at the path, or null when any segment is missing
+     */
+    static Value get(Map<String, Value> fields, List<String> path) {
+        Value value = fields.get(path.get(0));
+        for (int i = 1; i < path.size() && value != null; i++) {
+            value = value.hasMapValue() ? value.getMapValue().getFieldsMap().get(path.get(i)) : null;
+        }
+        return value;
+    }
+
+    /**
+     * Copy of the fields with the value set at the path, creating intermediate maps; a null value removes it
+     */
+    static Map<String, Value> put(Map<String, Value> fields, List<String> path, Value value) {
+        Map<String, Value> result = new HashMap<>(fields);
+        String head = path.get(0);
+        if (path.size() == 1) {
+            if (value == null) {
+                result.remove(head);
+            } else {
+                result.put(head, value);
+            }
+            return result;
+        }
+
+        Value child = fields.get(head);
+        Map<String, Value> nested = child != null && child.hasMapValue() ? child.getMapValue().getFieldsMap() : Map.of();
+        Map<String, Value> updated = put(nested, path.subList(1, path.size()), value);
+        result.put(head, Value.newBuilder().setMapValue(MapValue.newBuilder().putAllFields(updated)).build());
+        return result;
+    }
+}
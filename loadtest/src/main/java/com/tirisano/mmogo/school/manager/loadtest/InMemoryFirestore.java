@@ -0,0 +1,771 @@
+package com.tirisano.mmogo.school.manager.loadtest;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.api.gax.grpc.GrpcStatusCode;
+import com.google.api.gax.rpc.ApiCallContext;
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.ApiExceptionFactory;
+import com.google.api.gax.rpc.BidiStreamingCallable;
+import com.google.api.gax.rpc.ClientStream;
+import com.google.api.gax.rpc.ClientStreamReadyObserver;
+import com.google.api.gax.rpc.ResponseObserver;
+import com.google.api.gax.rpc.ServerStreamingCallable;
+import com.google.api.gax.rpc.StreamController;
+import com.google.api.gax.rpc.UnaryCallable;
+import com.google.cloud.firestore.FirestoreOptions;
+import com.google.cloud.firestore.FirestoreRpcFactory;
+import com.google.cloud.firestore.spi.v1.FirestoreRpc;
+import com.google.cloud.firestore.v1.FirestoreClient.ListCollectionIdsPagedResponse;
+import com.google.cloud.firestore.v1.FirestoreClient.ListDocumentsPagedResponse;
+import com.google.cloud.firestore.v1.FirestoreClient.PartitionQueryPagedResponse;
+import com.google.firestore.v1.AggregationResult;
+import com.google.firestore.v1.ArrayValue;
+import com.google.firestore.v1.BatchGetDocumentsRequest;
+import com.google.firestore.v1.BatchGetDocumentsResponse;
+import com.google.firestore.v1.BatchWriteRequest;
+import com.google.firestore.v1.BatchWriteResponse;
+import com.google.firestore.v1.BeginTransactionRequest;
+import com.google.firestore.v1.BeginTransactionResponse;
+import com.google.firestore.v1.CommitRequest;
+import com.google.firestore.v1.CommitResponse;
+import com.google.firestore.v1.Document;
+import com.google.firestore.v1.DocumentChange;
+import com.google.firestore.v1.DocumentRemove;
+import com.google.firestore.v1.DocumentTransform.FieldTransform;
+import com.google.firestore.v1.ListCollectionIdsRequest;
+import com.google.firestore.v1.ListDocumentsRequest;
+import com.google.firestore.v1.ListenRequest;
+import com.google.firestore.v1.ListenResponse;
+import com.google.firestore.v1.MapValue;
+import com.google.firestore.v1.PartitionQueryRequest;
+import com.google.firestore.v1.RollbackRequest;
+import com.google.firestore.v1.RunAggregationQueryRequest;
+import com.google.firestore.v1.RunAggregationQueryResponse;
+import com.google.firestore.v1.RunQueryRequest;
+import com.google.firestore.v1.RunQueryResponse;
+import com.google.firestore.v1.StructuredAggregationQuery;
+import com.google.firestore.v1.StructuredQuery;
+import com.google.firestore.v1.StructuredQuery.FieldFilter;
+import com.google.firestore.v1.StructuredQuery.Filter;
+import com.google.firestore.v1.StructuredQuery.UnaryFilter;
+import com.google.firestore.v1.Target;
+import com.google.firestore.v1.TargetChange;
+import com.google.firestore.v1.Value;
+import com.google.firestore.v1.Write;
+import com.google.firestore.v1.WriteResult;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Empty;
+import com.google.protobuf.Timestamp;
+import io.grpc.Status;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Firestore held in memory, plugged in underneath the real client through the RPC factory of
+ * FirestoreOptions, so FirebaseService, batches, mappers and precondition handling all run unchanged.
+ * It implements what the application sends: commits (set, merge, update, create/exists preconditions,
+ * delete, increment, array union/remove and server-time transforms), batch gets, equality queries with limit/offset,
+ * count(), and the watch stream behind snapshot listeners, so collection replicas stay live.
+ * Transactions are optimistic: a commit fails with ABORTED, which the SDK retries, when a document
+ * the transaction read has changed since. Range filters and ordering by fields fail with UNIMPLEMENTED.
+ * An optional fixed delay stands in for the network round trip of reads and commits, and
+ * {@link #setUnavailable(boolean)} simulates an outage: reads and commits then fail with UNAVAILABLE
+ * while open watch streams stay up, as the SDK would keep reconnecting them.
+ */
+public class InMemoryFirestore implements FirestoreRpc {
+
+    private static final String NAME_FIELD = "__name__";
+
+    private final NavigableMap<String, Document> documents = new ConcurrentSkipListMap<>();
+    private final Object commitLock = new Object();
+    private final long latencyNanos;
+    private volatile boolean unavailable;
+    private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "in-memory-firestore");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // One thread, so each listener sees its changes in commit order
+    private final ExecutorService watchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "in-memory-firestore-watch");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final List<ListenStream> listeners = new CopyOnWriteArrayList<>();
+    // Open transactions: document name to its update time when read, empty for a missing document
+    private final Map<ByteString, Map<String, Optional<Timestamp>>> transactions = new ConcurrentHashMap<>();
+    private final AtomicLong nextTransaction = new AtomicLong();
+
+    public InMemoryFirestore(Duration latency) {
+        this.latencyNanos = latency.toNanos();
+    }
+
+    /**
+     * Factory to pass to FirestoreOptions.Builder#setServiceRpcFactory
+     */
+    public FirestoreRpcFactory factory() {
+        return new FirestoreRpcFactory() {
+            @Override
+            public FirestoreRpc create(FirestoreOptions options) {
+                return InMemoryFirestore.this;
+            }
+        };
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    public void setUnavailable(boolean unavailable) {
+        this.unavailable = unavailable;
+    }
+
+    // ==================== RPCs ====================
+
+    @Override
+    public UnaryCallable<CommitRequest, CommitResponse> commitCallable() {
+        return unary(this::commit);
+    }
+
+    @Override
+    public ServerStreamingCallable<BatchGetDocumentsRequest, BatchGetDocumentsResponse> batchGetDocumentsCallable() {
+        return streaming(this::batchGet);
+    }
+
+    @Override
+    public ServerStreamingCallable<RunQueryRequest, RunQueryResponse> runQueryCallable() {
+        return streaming(this::runQuery);
+    }
+
+    @Override
+    public ServerStreamingCallable<RunAggregationQueryRequest, RunAggregationQueryResponse> runAggregationQueryCallable() {
+        return streaming(this::runAggregationQuery);
+    }
+
+    @Override
+    public UnaryCallable<BatchWriteRequest, BatchWriteResponse> batchWriteCallable() {
+        return unimplemented("batchWrite");
+    }
+
+    @Override
+    public UnaryCallable<BeginTransactionRequest, BeginTransactionResponse> beginTransactionCallable() {
+        return unary(request -> {
+            ByteString id = ByteString.copyFromUtf8("tx-" + nextTransaction.incrementAndGet());
+            transactions.put(id, new ConcurrentHashMap<>());
+            return BeginTransactionResponse.newBuilder().setTransaction(id).build();
+        });
+    }
+
+    @Override
+    public UnaryCallable<RollbackRequest, Empty> rollbackCallable() {
+        return unary(request -> {
+            transactions.remove(request.getTransaction());
+            return Empty.getDefaultInstance();
+        });
+    }
+
+    @Override
+    public UnaryCallable<ListCollectionIdsRequest, ListCollectionIdsPagedResponse> listCollectionIdsPagedCallable() {
+        return unimplemented("listCollectionIds");
+    }
+
+    @Override
+    public UnaryCallable<PartitionQueryRequest, PartitionQueryPagedResponse> partitionQueryPagedCallable() {
+        return unimplemented("partitionQuery");
+    }
+
+    @Override
+    public UnaryCallable<ListDocumentsRequest, ListDocumentsPagedResponse> listDocumentsPagedCallable() {
+        return unimplemented("listDocuments");
+    }
+
+    @Override
+    public BidiStreamingCallable<ListenRequest, ListenResponse> listenCallable() {
+        return new BidiStreamingCallable<>() {
+            @Override
+            public ClientStream<ListenRequest> internalCall(ResponseObserver<ListenResponse> observer,
+                                                            ClientStreamReadyObserver<ListenRequest> ready,
+                                                            ApiCallContext context) {
+                observer.onStart(NO_FLOW_CONTROL);
+                return new ListenStream(observer);
+            }
+        };
+    }
+
+    @Override
+    public ScheduledExecutorService getExecutor() {
+        return executor;
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdown();
+        watchExecutor.shutdown();
+    }
+
+    @Override
+    public void shutdownNow() {
+        executor.shutdownNow();
+        watchExecutor.shutdownNow();
+    }
+
+    @Override
+    public void close() {
+        shutdown();
+    }
+
+    // ==================== COMMIT ====================
+
+    private CommitResponse commit(CommitRequest request) {
+        synchronized (commitLock) {
+            if (!request.getTransaction().isEmpty()) {
+                Map<String, Optional<Timestamp>> reads = transactions.remove(request.getTransaction());
+                if (reads == null) {
+                    throw error(Status.Code.INVALID_ARGUMENT, "unknown transaction");
+                }
+                reads.forEach((name, readVersion) -> {
+                    Document current = documents.get(name);
+                    if (!readVersion.equals(Optional.ofNullable(current).map(Document::getUpdateTime))) {
+                        throw error(Status.Code.ABORTED, "transaction contention on " + name);
+                    }
+                });
+            }
+            Timestamp now = now();
+            // Empty marks a delete; writes see earlier writes of the same commit
+            Map<String, Optional<Document>> staged = new LinkedHashMap<>();
+            CommitResponse.Builder response = CommitResponse.newBuilder().setCommitTime(now);
+
+            for (Write write : request.getWritesList()) {
+                String name = write.hasUpdate() ? write.getUpdate().getName() : write.getDelete();
+                if (name.isEmpty()) {
+                    throw error(Status.Code.UNIMPLEMENTED, "only update and delete writes are supported in memory");
+                }
+                Document current = staged.containsKey(name) ? staged.get(name).orElse(null) : documents.get(name);
+
+                if (write.hasCurrentDocument()) {
+                    if (write.getCurrentDocument().hasExists()) {
+                        boolean exists = write.getCurrentDocument().getExists();
+                        if (exists && current == null) {
+                            throw error(Status.Code.NOT_FOUND, "No document to update: " + name);
+                        }
+                        if (!exists && current != null) {
+                            throw error(Status.Code.ALREADY_EXISTS, "Document already exists: " + name);
+                        }
+                    } else if (write.getCurrentDocument().hasUpdateTime()
+                            && (current == null || !current.getUpdateTime().equals(write.getCurrentDocument().getUpdateTime()))) {
+                        throw error(Status.Code.FAILED_PRECONDITION, "Document was modified: " + name);
+                    }
+                }
+
+                WriteResult.Builder result = WriteResult.newBuilder().setUpdateTime(now);
+                if (write.hasUpdate()) {
+                    Map<String, Value> fields;
+                    if (write.hasUpdateMask()) {
+                        fields = current == null ? new HashMap<>() : new HashMap<>(current.getFieldsMap());
+                        for (String path : write.getUpdateMask().getFieldPathsList()) {
+                            List<String> segments = FieldPaths.parse(path);
+                            Value value = FieldPaths.get(write.getUpdate().getFieldsMap(), segments);
+                            fields = FieldPaths.put(fields, segments, value);
+                        }
+                    } else {
+                        fields = new HashMap<>(write.getUpdate().getFieldsMap());
+                    }
+                    for (FieldTransform transform : write.getUpdateTransformsList()) {
+                        List<String> segments = FieldPaths.parse(transform.getFieldPath());
+                        Value value = transform(transform, FieldPaths.get(fields, segments), now);
+                        fields = FieldPaths.put(fields, segments, value);
+                        result.addTransformResults(value);
+                    }
+                    staged.put(name, Optional.of(Document.newBuilder()
+                            .setName(name)
+                            .putAllFields(fields)
+                            .setCreateTime(current == null ? now : current.getCreateTime())
+                            .setUpdateTime(now)
+                            .build()));
+                } else {
+                    staged.put(name, Optional.empty());
+                }
+                response.addWriteResults(result);
+            }
+
+            staged.forEach((name, document) -> {
+                if (document.isPresent()) {
+                    documents.put(name, document.get());
+                } else {
+                    documents.remove(name);
+                }
+            });
+            for (ListenStream listener : listeners) {
+                listener.changed(staged.keySet(), now);
+            }
+            return response.build();
+        }
+    }
+
+    private static Value transform(FieldTransform transform, Value current, Timestamp now) {
+        if (transform.getSetToServerValue() == FieldTransform.ServerValue.REQUEST_TIME) {
+            return Value.newBuilder().setTimestampValue(now).build();
+        }
+        if (transform.hasIncrement()) {
+            Value increment = transform.getIncrement();
+            if (current == null || !isNumber(current)) {
+                return increment;
+            }
+            if (current.hasIntegerValue() && increment.hasIntegerValue()) {
+                return Value.newBuilder().setIntegerValue(current.getIntegerValue() + increment.getIntegerValue()).build();
+            }
+            return Value.newBuilder().setDoubleValue(number(current) + number(increment)).build();
+        }
+        if (transform.hasAppendMissingElements() || transform.hasRemoveAllFromArray()) {
+            List<Value> values = new ArrayList<>(current != null && current.hasArrayValue()
+                    ? current.getArrayValue().getValuesList() : List.of());
+            if (transform.hasAppendMissingElements()) {
+                transform.getAppendMissingElements().getValuesList().stream()
+                        .filter(value -> !values.contains(value))
+                        .forEach(values::add);
+            } else {
+                values.removeAll(transform.getRemoveAllFromArray().getValuesList());
+            }
+            return Value.newBuilder().setArrayValue(ArrayValue.newBuilder().addAllValues(values)).build();
+        }
+        throw error(Status.Code.UNIMPLEMENTED, "transform on " + transform.getFieldPath() + " is not supported in memory");
+    }
+
+    // ==================== READS ====================
+
+    private List<BatchGetDocumentsResponse> batchGet(BatchGetDocumentsRequest request) {
+        Timestamp readTime = now();
+        List<BatchGetDocumentsResponse> responses = new ArrayList<>(request.getDocumentsCount());
+        for (String name : request.getDocumentsList()) {
+            Document document = documents.get(name);
+            if (!request.getTransaction().isEmpty()) {
+                Map<String, Optional<Timestamp>> reads = transactions.get(request.getTransaction());
+                if (reads != null) {
+                    reads.putIfAbsent(name, Optional.ofNullable(document).map(Document::getUpdateTime));
+                }
+            }
+            BatchGetDocumentsResponse.Builder response = BatchGetDocumentsResponse.newBuilder().setReadTime(readTime);
+            if (document != null) {
+                response.setFound(document);
+            } else {
+                response.setMissing(name);
+            }
+            responses.add(response.build());
+        }
+        return responses;
+    }
+
+    private List<RunQueryResponse> runQuery(RunQueryRequest request) {
+        Timestamp readTime = now();
+        List<RunQueryResponse> responses = new ArrayList<>();
+        for (Document document : execute(request.getParent(), request.getStructuredQuery())) {
+            responses.add(RunQueryResponse.newBuilder().setDocument(document).setReadTime(readTime).build());
+        }
+        if (responses.isEmpty()) {
+            responses.add(RunQueryResponse.newBuilder().setReadTime(readTime).build());
+        }
+        return responses;
+    }
+
+    private List<RunAggregationQueryResponse> runAggregationQuery(RunAggregationQueryRequest request) {
+        StructuredAggregationQuery aggregation = request.getStructuredAggregationQuery();
+        int matches = execute(request.getParent(), aggregation.getStructuredQuery()).size();
+
+        AggregationResult.Builder result = AggregationResult.newBuilder();
+        for (StructuredAggregationQuery.Aggregation aggregate : aggregation.getAggregationsList()) {
+            if (!aggregate.hasCount()) {
+                throw error(Status.Code.UNIMPLEMENTED, "only count() aggregations are supported in memory");
+            }
+            long count = matches;
+            if (aggregate.getCount().hasUpTo()) {
+                count = Math.min(count, aggregate.getCount().getUpTo().getValue());
+            }
+            result.putAggregateFields(aggregate.getAlias(), Value.newBuilder().setIntegerValue(count).build());
+        }
+        return List.of(RunAggregationQueryResponse.newBuilder().setResult(result).setReadTime(now()).build());
+    }
+
+    private List<Document> execute(String parent, StructuredQuery query) {
+        if (query.getFromCount() != 1 || query.getFrom(0).getAllDescendants()) {
+            throw error(Status.Code.UNIMPLEMENTED, "collection group queries are not supported in memory");
+        }
+        if (query.hasStartAt() || query.hasEndAt()) {
+            throw error(Status.Code.UNIMPLEMENTED, "query cursors are not supported in memory");
+        }
+        for (StructuredQuery.Order order : query.getOrderByList()) {
+            if (!NAME_FIELD.equals(order.getField().getFieldPath())) {
+                throw error(Status.Code.UNIMPLEMENTED, "ordering by fields is not supported in memory");
+            }
+        }
+
+        String prefix = parent + "/" + query.getFrom(0).getCollectionId() + "/";
+        List<Document> matches = new ArrayList<>();
+        for (Document document : documents.subMap(prefix, prefix + Character.MAX_VALUE).values()) {
+            if (matches(prefix, query, document)) {
+                matches.add(document);
+            }
+        }
+        if (query.getOrderByCount() > 0 && query.getOrderBy(0).getDirection() == StructuredQuery.Direction.DESCENDING) {
+            java.util.Collections.reverse(matches);
+        }
+
+        int from = Math.min(query.getOffset(), matches.size());
+        int to = query.hasLimit() ? Math.min(matches.size(), from + query.getLimit().getValue()) : matches.size();
+        List<Document> page = matches.subList(from, to);
+        if (query.hasSelect()) {
+            return page.stream().map(project(query.getSelect())).toList();
+        }
+        return page;
+    }
+
+    private static boolean matches(String prefix, StructuredQuery query, Document document) {
+        return document.getName().startsWith(prefix)
+                && document.getName().indexOf('/', prefix.length()) < 0
+                && (!query.hasWhere() || matches(query.getWhere(), document));
+    }
+
+    private static Function<Document, Document> project(StructuredQuery.Projection projection) {
+        return document -> {
+            Map<String, Value> fields = new HashMap<>();
+            for (StructuredQuery.FieldReference field : projection.getFieldsList()) {
+                List<String> segments = FieldPaths.parse(field.getFieldPath());
+                fields = FieldPaths.put(fields, segments, FieldPaths.get(document.getFieldsMap(), segments));
+            }
+            return document.toBuilder().clearFields().putAllFields(fields).build();
+        };
+    }
+
+    private static boolean matches(Filter filter, Document document) {
+        if (filter.hasCompositeFilter()) {
+            boolean and = filter.getCompositeFilter().getOp() != StructuredQuery.CompositeFilter.Operator.OR;
+            for (Filter child : filter.getCompositeFilter().getFiltersList()) {
+                if (matches(child, document) != and) {
+                    return !and;
+                }
+            }
+            return and;
+        }
+        if (filter.hasUnaryFilter()) {
+            UnaryFilter unary = filter.getUnaryFilter();
+            Value value = field(document, unary.getField().getFieldPath());
+            return switch (unary.getOp()) {
+                case IS_NULL -> value != null && value.hasNullValue();
+                case IS_NOT_NULL -> value != null && !value.hasNullValue();
+                case IS_NAN -> value != null && value.hasDoubleValue() && Double.isNaN(value.getDoubleValue());
+                case IS_NOT_NAN -> value != null && !(value.hasDoubleValue() && Double.isNaN(value.getDoubleValue()));
+                default -> throw error(Status.Code.UNIMPLEMENTED, "unary filter " + unary.getOp());
+            };
+        }
+
+        FieldFilter field = filter.getFieldFilter();
+        Value value = field(document, field.getField().getFieldPath());
+        Value operand = field.getValue();
+        return switch (field.getOp()) {
+            case EQUAL -> value != null && same(value, operand);
+            case NOT_EQUAL -> value != null && !value.hasNullValue() && !same(value, operand);
+            case IN -> value != null && contains(operand, value);
+            case NOT_IN -> value != null && !value.hasNullValue() && !contains(operand, value);
+            case ARRAY_CONTAINS -> value != null && value.hasArrayValue() && contains(value, operand);
+            case ARRAY_CONTAINS_ANY -> value != null && value.hasArrayValue()
+                    && operand.getArrayValue().getValuesList().stream().anyMatch(v -> contains(value, v));
+            default -> throw error(Status.Code.UNIMPLEMENTED, "range filters are not supported in memory");
+        };
+    }
+
+    private static Value field(Document document, String path) {
+        if (NAME_FIELD.equals(path)) {
+            return Value.newBuilder().setReferenceValue(document.getName()).build();
+        }
+        return FieldPaths.get(document.getFieldsMap(), FieldPaths.parse(path));
+    }
+
+    private static boolean contains(Value array, Value element) {
+        for (Value candidate : array.getArrayValue().getValuesList()) {
+            if (same(candidate, element)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Equality as Firestore applies it: integers and doubles compare by value, containers element-wise
+     */
+    private static boolean same(Value a, Value b) {
+        if (isNumber(a) && isNumber(b)) {
+            return a.hasIntegerValue() && b.hasIntegerValue()
+                    ? a.getIntegerValue() == b.getIntegerValue()
+                    : number(a) == number(b);
+        }
+        if (a.hasArrayValue() && b.hasArrayValue()) {
+            ArrayValue left = a.getArrayValue();
+            ArrayValue right = b.getArrayValue();
+            if (left.getValuesCount() != right.getValuesCount()) {
+                return false;
+            }
+            for (int i = 0; i < left.getValuesCount(); i++) {
+                if (!same(left.getValues(i), right.getValues(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (a.hasMapValue() && b.hasMapValue()) {
+            MapValue left = a.getMapValue();
+            MapValue right = b.getMapValue();
+            if (left.getFieldsCount() != right.getFieldsCount()) {
+                return false;
+            }
+            for (Map.Entry<String, Value> entry : left.getFieldsMap().entrySet()) {
+                Value other = right.getFieldsMap().get(entry.getKey());
+                if (other == null || !same(entry.getValue(), other)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return a.equals(b);
+    }
+
+    private static boolean isNumber(Value value) {
+        return value.hasIntegerValue() || value.hasDoubleValue();
+    }
+
+    private static double number(Value value) {
+        return value.hasIntegerValue() ? value.getIntegerValue() : value.getDoubleValue();
+    }
+
+    // ==================== LISTEN ====================
+
+    /**
+     * One watch stream with a single query target: the initial result set, then a change, removal or
+     * no-op per committed write, each batch closed by a global NO_CHANGE carrying the commit's read time
+     */
+    private final class ListenStream implements ClientStream<ListenRequest> {
+
+        private final ResponseObserver<ListenResponse> observer;
+        private final Set<String> current = new HashSet<>();
+        private int targetId;
+        private String prefix;
+        private StructuredQuery query;
+        private volatile boolean closed;
+
+        private ListenStream(ResponseObserver<ListenResponse> observer) {
+            this.observer = observer;
+        }
+
+        @Override
+        public void send(ListenRequest request) {
+            if (request.hasAddTarget()) {
+                Target target = request.getAddTarget();
+                if (!target.hasQuery()) {
+                    watchExecutor.execute(() -> observer.onError(
+                            error(Status.Code.UNIMPLEMENTED, "document targets are not supported in memory")));
+                    return;
+                }
+                synchronized (commitLock) {
+                    targetId = target.getTargetId();
+                    query = target.getQuery().getStructuredQuery();
+                    prefix = target.getQuery().getParent() + "/" + query.getFrom(0).getCollectionId() + "/";
+                    List<Document> initial = execute(target.getQuery().getParent(), query);
+                    Timestamp readTime = now();
+                    List<ListenResponse> responses = new ArrayList<>();
+                    responses.add(targetChange(TargetChange.TargetChangeType.ADD, null));
+                    for (Document document : initial) {
+                        current.add(document.getName());
+                        responses.add(documentChange(document));
+                    }
+                    responses.add(targetChange(TargetChange.TargetChangeType.CURRENT, null));
+                    responses.add(targetChange(TargetChange.TargetChangeType.NO_CHANGE, readTime));
+                    listeners.add(this);
+                    deliver(responses);
+                }
+            } else if (request.hasRemoveTarget()) {
+                listeners.remove(this);
+            }
+        }
+
+        /**
+         * Called under the commit lock with the names the commit wrote or deleted
+         */
+        private void changed(Set<String> names, Timestamp readTime) {
+            List<ListenResponse> responses = new ArrayList<>();
+            for (String name : names) {
+                Document document = documents.get(name);
+                if (document != null && matches(prefix, query, document)) {
+                    current.add(name);
+                    responses.add(documentChange(document));
+                } else if (current.remove(name)) {
+                    responses.add(ListenResponse.newBuilder()
+                            .setDocumentRemove(DocumentRemove.newBuilder()
+                                    .setDocument(name)
+                                    .addRemovedTargetIds(targetId)
+                                    .setReadTime(readTime))
+                            .build());
+                }
+            }
+            if (!responses.isEmpty()) {
+                responses.add(targetChange(TargetChange.TargetChangeType.NO_CHANGE, readTime));
+                deliver(responses);
+            }
+        }
+
+        private ListenResponse documentChange(Document document) {
+            return ListenResponse.newBuilder()
+                    .setDocumentChange(DocumentChange.newBuilder().setDocument(document).addTargetIds(targetId))
+                    .build();
+        }
+
+        /**
+         * A NO_CHANGE with a read time and no target IDs is the global "consistent snapshot" marker
+         */
+        private ListenResponse targetChange(TargetChange.TargetChangeType type, Timestamp readTime) {
+            TargetChange.Builder change = TargetChange.newBuilder().setTargetChangeType(type);
+            if (readTime != null) {
+                change.setReadTime(readTime);
+            } else {
+                change.addTargetIds(targetId);
+            }
+            return ListenResponse.newBuilder().setTargetChange(change).build();
+        }
+
+        private void deliver(List<ListenResponse> responses) {
+            watchExecutor.execute(() -> {
+                if (!closed) {
+                    responses.forEach(observer::onResponse);
+                }
+            });
+        }
+
+        @Override
+        public void closeSend() {
+            close();
+            watchExecutor.execute(observer::onComplete);
+        }
+
+        @Override
+        public void closeSendWithError(Throwable t) {
+            close();
+        }
+
+        private void close() {
+            closed = true;
+            listeners.remove(this);
+        }
+
+        @Override
+        public boolean isSendReady() {
+            return !closed;
+        }
+    }
+
+    // ==================== PLUMBING ====================
+
+    private static Timestamp now() {
+        Instant now = Instant.now();
+        return Timestamp.newBuilder().setSeconds(now.getEpochSecond()).setNanos(now.getNano()).build();
+    }
+
+    private static ApiException error(Status.Code code, String message) {
+        return ApiExceptionFactory.createException(message, null, GrpcStatusCode.of(code), false);
+    }
+
+    private void checkAvailable() {
+        if (unavailable) {
+            throw error(Status.Code.UNAVAILABLE, "simulated outage");
+        }
+    }
+
+    private <Q, R> UnaryCallable<Q, R> unary(Function<Q, R> handler) {
+        return new UnaryCallable<>() {
+            @Override
+            public ApiFuture<R> futureCall(Q request, ApiCallContext context) {
+                R response;
+                try {
+                    checkAvailable();
+                    response = handler.apply(request);
+                } catch (ApiException e) {
+                    return ApiFutures.immediateFailedFuture(e);
+                }
+                if (latencyNanos <= 0) {
+                    return ApiFutures.immediateFuture(response);
+                }
+                SettableApiFuture<R> future = SettableApiFuture.create();
+                executor.schedule(() -> future.set(response), latencyNanos, TimeUnit.NANOSECONDS);
+                return future;
+            }
+        };
+    }
+
+    private <Q, R> ServerStreamingCallable<Q, R> streaming(Function<Q, List<R>> handler) {
+        return new ServerStreamingCallable<>() {
+            @Override
+            public void call(Q request, ResponseObserver<R> observer, ApiCallContext context) {
+                Runnable deliver;
+                try {
+                    checkAvailable();
+                    List<R> responses = handler.apply(request);
+                    deliver = () -> {
+                        observer.onStart(NO_FLOW_CONTROL);
+                        responses.forEach(observer::onResponse);
+                        observer.onComplete();
+                    };
+                } catch (ApiException e) {
+                    deliver = () -> {
+                        observer.onStart(NO_FLOW_CONTROL);
+                        observer.onError(e);
+                    };
+                }
+                if (latencyNanos <= 0) {
+                    deliver.run();
+                } else {
+                    executor.schedule(deliver, latencyNanos, TimeUnit.NANOSECONDS);
+                }
+            }
+        };
+    }
+
+    private static <Q, R> UnaryCallable<Q, R> unimplemented(String rpc) {
+        return new UnaryCallable<>() {
+            @Override
+            public ApiFuture<R> futureCall(Q request, ApiCallContext context) {
+                return ApiFutures.immediateFailedFuture(error(Status.Code.UNIMPLEMENTED, rpc + " is not supported in memory"));
+            }
+        };
+    }
+
+    private static final StreamController NO_FLOW_CONTROL = new StreamController() {
+        @Override
+        public void cancel() {
+        }
+
+        @Override
+        public void disableAutoInboundFlowControl() {
+        }
+
+        @Override
+        public void request(int count) {
+        }
+    };
+}
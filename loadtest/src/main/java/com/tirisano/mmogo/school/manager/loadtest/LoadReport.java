@@ -0,0 +1,224 @@
+package com.tirisano.mmogo.school.manager.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms per endpoint, plus JVM-wide allocation, GC and CPU over the measured window.
+ * The app and the load generator share the JVM, so allocation and CPU include the HTTP client; the
+ * client's share is constant across runs, so before/after deltas still belong to the server.
+ */
+public class LoadReport {
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.SECONDS.toMicros(60);
+    private static final String ALL = "ALL";
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final Endpoint all = new Endpoint();
+    private final Map<String, Object> options;
+    private volatile boolean measuring;
+    private Snapshot start;
+    private Snapshot end;
+
+    public LoadReport(Map<String, Object> options) {
+        this.options = options;
+    }
+
+    /**
+     * One response; stale when it carried X-Data-Stale (served from cache during an outage)
+     */
+    public void record(String endpoint, long nanos, boolean ok, boolean stale) {
+        if (!measuring) {
+            return;
+        }
+        long micros = Math.min(MAX_LATENCY_MICROS, Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos)));
+        endpoints.computeIfAbsent(endpoint, e -> new Endpoint()).record(micros, ok, stale);
+        all.record(micros, ok, stale);
+    }
+
+    /**
+     * Drops anything recorded during warmup and starts the measured window
+     */
+    public void startMeasurement() {
+        endpoints.clear();
+        all.reset();
+        start = Snapshot.take();
+        measuring = true;
+    }
+
+    public void stopMeasurement() {
+        measuring = false;
+        end = Snapshot.take();
+    }
+
+    // ==================== OUTPUT ====================
+
+    public Map<String, Object> toMap() {
+        double seconds = (end.nanoTime - start.nanoTime) / 1e9;
+        long requests = all.requests.sum();
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("finishedAt", Instant.now().toString());
+        report.put("options", options);
+        report.put("seconds", round(seconds));
+        Map<String, Object> jvm = new LinkedHashMap<>();
+        jvm.put("allocatedMBPerSecond", round((end.allocatedBytes - start.allocatedBytes) / seconds / 1e6));
+        jvm.put("allocatedKBPerRequest", round(requests == 0 ? 0 : (end.allocatedBytes - start.allocatedBytes) / 1e3 / requests));
+        jvm.put("gcCount", end.gcCount - start.gcCount);
+        jvm.put("gcMillis", end.gcMillis - start.gcMillis);
+        jvm.put("cpuMillisPerRequest", round(requests == 0 ? 0 : (end.cpuNanos - start.cpuNanos) / 1e6 / requests));
+        report.put("jvm", jvm);
+        report.put(ALL, all.toMap(seconds));
+        Map<String, Object> byEndpoint = new LinkedHashMap<>();
+        endpoints.keySet().stream().sorted().forEach(name -> byEndpoint.put(name, endpoints.get(name).toMap(seconds)));
+        report.put("endpoints", byEndpoint);
+        return report;
+    }
+
+    public void print(PrintStream out) {
+        double seconds = (end.nanoTime - start.nanoTime) / 1e9;
+        out.println();
+        out.printf("%-42s %9s %7s %7s %8s %8s %8s %8s %8s%n",
+                "Endpoint", "Requests", "Errors", "Stale", "Req/s", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        endpoints.keySet().stream().sorted().forEach(name -> printRow(out, name, endpoints.get(name), seconds));
+        printRow(out, ALL, all, seconds);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> jvm = (Map<String, Object>) toMap().get("jvm");
+        out.printf("%nAllocation: %s MB/s, %s KB/request | GC: %s collections, %s ms | CPU: %s ms/request%n",
+                jvm.get("allocatedMBPerSecond"), jvm.get("allocatedKBPerRequest"),
+                jvm.get("gcCount"), jvm.get("gcMillis"), jvm.get("cpuMillisPerRequest"));
+    }
+
+    public void write(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), toMap());
+    }
+
+    /**
+     * Throughput and p50/p99 per endpoint against an earlier report; negative latency deltas are improvements
+     */
+    public void compare(Path baselineFile, PrintStream out) throws IOException {
+        JsonNode baseline = new ObjectMapper().readTree(baselineFile.toFile());
+        JsonNode current = new ObjectMapper().valueToTree(toMap());
+
+        out.printf("%nCompared with %s%n", baselineFile);
+        out.printf("%-42s %18s %18s %18s%n", "Endpoint", "Req/s", "p50 ms", "p99 ms");
+        current.get("endpoints").fieldNames().forEachRemaining(name ->
+                compareRow(out, name, baseline.path("endpoints").path(name), current.get("endpoints").get(name)));
+        compareRow(out, ALL, baseline.path(ALL), current.get(ALL));
+        out.printf("%-42s %18s%n", "Allocated KB/request",
+                delta(baseline.path("jvm").path("allocatedKBPerRequest"), current.get("jvm").get("allocatedKBPerRequest")));
+        out.printf("%-42s %18s%n", "CPU ms/request",
+                delta(baseline.path("jvm").path("cpuMillisPerRequest"), current.get("jvm").get("cpuMillisPerRequest")));
+    }
+
+    private static void printRow(PrintStream out, String name, Endpoint endpoint, double seconds) {
+        Histogram h = endpoint.latencies;
+        out.printf("%-42s %9d %7d %7d %8.1f %8.2f %8.2f %8.2f %8.2f%n",
+                name, endpoint.requests.sum(), endpoint.errors.sum(), endpoint.stale.sum(), endpoint.requests.sum() / seconds,
+                h.getValueAtPercentile(50) / 1e3, h.getValueAtPercentile(90) / 1e3,
+                h.getValueAtPercentile(99) / 1e3, h.getMaxValue() / 1e3);
+    }
+
+    private static void compareRow(PrintStream out, String name, JsonNode before, JsonNode after) {
+        out.printf("%-42s %18s %18s %18s%n", name,
+                delta(before.path("throughput"), after.get("throughput")),
+                delta(before.path("latencyMillis").path("p50"), after.get("latencyMillis").get("p50")),
+                delta(before.path("latencyMillis").path("p99"), after.get("latencyMillis").get("p99")));
+    }
+
+    private static String delta(JsonNode before, JsonNode after) {
+        if (before.isMissingNode() || before.asDouble() == 0) {
+            return after.asText() + " (new)";
+        }
+        double change = (after.asDouble() - before.asDouble()) / before.asDouble() * 100;
+        return String.format("%s (%+.1f%%)", after.asText(), change);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private static final class Endpoint {
+
+        private final Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder stale = new LongAdder();
+
+        void record(long micros, boolean ok, boolean stale) {
+            latencies.recordValue(micros);
+            requests.increment();
+            if (!ok) {
+                errors.increment();
+            }
+            if (stale) {
+                this.stale.increment();
+            }
+        }
+
+        void reset() {
+            latencies.reset();
+            requests.reset();
+            errors.reset();
+            stale.reset();
+        }
+
+        Map<String, Object> toMap(double seconds) {
+            Map<String, Object> latency = new LinkedHashMap<>();
+            latency.put("mean", round(latencies.getMean() / 1e3));
+            latency.put("p50", round(latencies.getValueAtPercentile(50) / 1e3));
+            latency.put("p90", round(latencies.getValueAtPercentile(90) / 1e3));
+            latency.put("p99", round(latencies.getValueAtPercentile(99) / 1e3));
+            latency.put("p999", round(latencies.getValueAtPercentile(99.9) / 1e3));
+            latency.put("max", round(latencies.getMaxValue() / 1e3));
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("requests", requests.sum());
+            result.put("errors", errors.sum());
+            result.put("stale", stale.sum());
+            result.put("throughput", round(requests.sum() / seconds));
+            result.put("latencyMillis", latency);
+            return result;
+        }
+    }
+
+    /**
+     * JVM-wide counters at one instant
+     */
+    private record Snapshot(long nanoTime, long allocatedBytes, long gcCount, long gcMillis, long cpuNanos) {
+
+        static Snapshot take() {
+            long gcCount = 0;
+            long gcMillis = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                gcCount += Math.max(0, gc.getCollectionCount());
+                gcMillis += Math.max(0, gc.getCollectionTime());
+            }
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            com.sun.management.OperatingSystemMXBean os =
+                    (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+            return new Snapshot(System.nanoTime(), threads.getTotalThreadAllocatedBytes(), gcCount, gcMillis,
+                    os.getProcessCpuTime());
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.tirisano.mmogo.school.manager.loadtest;
+
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.cloud.NoCredentials;
+import com.google.cloud.firestore.FirestoreOptions;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseOptions;
+import com.google.firebase.internal.FirebaseProcessEnvironment;
+import com.tirisano.mmogo.school.manager.SchoolManagerApplication;
+import com.tirisano.mmogo.school.manager.repository.CollectionReplicas;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Boots the application against in-memory Firestore and a fake Identity Toolkit, seeds a school,
+ * drives the workload, and reports throughput, latency percentiles and allocation.
+ *
+ * <pre>
+ * java -jar target/loadtest.jar --users=64 --duration=60s --out=target/before.json
+ * java -jar target/loadtest.jar --users=64 --duration=60s --baseline=target/before.json
+ * </pre>
+ * Options not listed in {@link #DEFAULTS} (e.g. --replica.collections=) are passed to the application.
+ */
+public class LoadTest {
+
+    private static final String PROJECT_ID = "school-manager-loadtest";
+
+    static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("users", "32");              // concurrent virtual users
+        DEFAULTS.put("think", "0ms");             // pause between a user's scenarios
+        DEFAULTS.put("warmup", "20s");
+        DEFAULTS.put("duration", "60s");
+        DEFAULTS.put("parents", "500");           // about 2 students per parent
+        DEFAULTS.put("trips", "12");
+        DEFAULTS.put("open-trips", "4");          // trips left empty for registration bursts
+        DEFAULTS.put("burst-size", "40");         // concurrent registrations per burst
+        DEFAULTS.put("burst-interval", "5s");
+        DEFAULTS.put("latency", "0ms");           // simulated Firestore round trip
+        DEFAULTS.put("outage-at", "");            // into the measured window, e.g. 20s: Firestore fails with UNAVAILABLE
+        DEFAULTS.put("outage-duration", "15s");
+        DEFAULTS.put("seed", "42");
+        DEFAULTS.put("out", "");                  // JSON report, default target/loadtest-<time>.json
+        DEFAULTS.put("baseline", "");             // earlier JSON report to compare against
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        List<String> appArgs = new ArrayList<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            String key = arg.startsWith("--") && eq > 2 ? arg.substring(2, eq) : null;
+            if (key != null && DEFAULTS.containsKey(key)) {
+                options.put(key, arg.substring(eq + 1));
+            } else {
+                appArgs.add(arg);
+            }
+        }
+
+        int users = Integer.parseInt(options.get("users"));
+        Duration warmup = DurationStyle.detectAndParse(options.get("warmup"));
+        Duration duration = DurationStyle.detectAndParse(options.get("duration"));
+        Duration burstInterval = DurationStyle.detectAndParse(options.get("burst-interval"));
+        int burstSize = Integer.parseInt(options.get("burst-size"));
+        long seed = Long.parseLong(options.get("seed"));
+
+        // Persistence and auth stand-ins, in place before Spring starts
+        FakeIdentityToolkit auth = new FakeIdentityToolkit();
+        System.setProperty("FIREBASE_AUTH_EMULATOR_HOST", auth.host());
+        FirebaseProcessEnvironment.setenv("FIREBASE_AUTH_EMULATOR_HOST", auth.host());
+        System.setProperty("FIREBASE_API_KEY", "loadtest");
+
+        InMemoryFirestore firestore = new InMemoryFirestore(DurationStyle.detectAndParse(options.get("latency")));
+        FirebaseApp.initializeApp(FirebaseOptions.builder()
+                .setProjectId(PROJECT_ID)
+                .setCredentials(GoogleCredentials.create(new AccessToken("loadtest", new Date(Long.MAX_VALUE))))
+                .setFirestoreOptions(FirestoreOptions.newBuilder()
+                        .setProjectId(PROJECT_ID)
+                        .setCredentials(NoCredentials.getInstance())
+                        .setServiceRpcFactory(firestore.factory())
+                        .build())
+                .build());
+
+        // Command-line arguments outrank application.properties; the caller's own values win
+        defaultArg(appArgs, "server.port", "0");
+        // Per-request INFO lines would dominate the console; pass --logging.level.root=INFO to include them
+        defaultArg(appArgs, "logging.level.root", "WARN");
+        defaultArg(appArgs, "logging.level.com.tirisano", "WARN");
+        SpringApplication application = new SpringApplication(SchoolManagerApplication.class);
+        ConfigurableApplicationContext context = application.run(appArgs.toArray(String[]::new));
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        String baseUrl = "http://localhost:" + port + context.getEnvironment().getProperty("server.servlet.context-path", "");
+
+        long seeding = System.nanoTime();
+        SchoolData data = SchoolData.seed(context, auth, Integer.parseInt(options.get("parents")),
+                Integer.parseInt(options.get("trips")), Integer.parseInt(options.get("open-trips")), seed);
+        System.out.printf("Seeded %d documents (%d parents, %d students) in %d ms; %s%n",
+                firestore.size(), data.parents().size(), data.studentIds().size(),
+                (System.nanoTime() - seeding) / 1_000_000, baseUrl);
+        awaitReplicas(context);
+
+        Map<String, Object> reported = new LinkedHashMap<>(options);
+        reported.put("app", appArgs);
+        reported.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        LoadReport report = new LoadReport(reported);
+
+        ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor();
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(threads)
+                .build();
+        Workload workload = new Workload(client, baseUrl, data, report, DurationStyle.detectAndParse(options.get("think")), seed);
+
+        for (int i = 0; i < users; i++) {
+            long userSeed = seed * 31 + i;
+            threads.submit(() -> workload.user(userSeed));
+        }
+        Thread bursts = Thread.ofVirtual().start(() -> {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    Thread.sleep(burstInterval);
+                    workload.burst(burstSize);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        System.out.printf("Warming up for %s with %d users...%n", warmup, users);
+        Thread.sleep(warmup);
+        report.startMeasurement();
+        System.out.printf("Measuring for %s...%n", duration);
+        if (!options.get("outage-at").isEmpty()) {
+            Thread outage = Thread.ofVirtual().start(() -> simulateOutage(firestore,
+                    DurationStyle.detectAndParse(options.get("outage-at")),
+                    DurationStyle.detectAndParse(options.get("outage-duration"))));
+            Thread.sleep(duration);
+            outage.interrupt();
+        } else {
+            Thread.sleep(duration);
+        }
+        report.stopMeasurement();
+
+        workload.stop();
+        bursts.interrupt();
+        threads.shutdown();
+
+        report.print(System.out);
+        if (workload.registrationsLeft() == 0) {
+            System.out.println("Registration pool ran out; later registrations repeated and failed. Raise --parents or --open-trips.");
+        }
+        Path out = Path.of(options.get("out").isEmpty()
+                ? "target/loadtest-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json"
+                : options.get("out"));
+        report.write(out);
+        System.out.println("Report written to " + out);
+        if (!options.get("baseline").isEmpty()) {
+            report.compare(Path.of(options.get("baseline")), System.out);
+        }
+
+        context.close();
+        auth.close();
+        System.exit(0);
+    }
+
+    private static void simulateOutage(InMemoryFirestore firestore, Duration at, Duration length) {
+        try {
+            Thread.sleep(at);
+            System.out.printf("Firestore outage for %s...%n", length);
+            firestore.setUnavailable(true);
+            Thread.sleep(length);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            firestore.setUnavailable(false);
+        }
+        System.out.println("Firestore back");
+    }
+
+    private static void defaultArg(List<String> args, String property, String value) {
+        if (args.stream().noneMatch(arg -> arg.startsWith("--" + property + "="))) {
+            args.add("--" + property + "=" + value);
+        }
+    }
+
+    /**
+     * Waits (up to 10s) for the collection replicas to load, so warmup starts from the steady state
+     */
+    private static void awaitReplicas(ConfigurableApplicationContext context) throws InterruptedException {
+        CollectionReplicas replicas = context.getBean(CollectionReplicas.class);
+        String[] collections = context.getEnvironment().getProperty("replica.collections", String[].class, new String[0]);
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        for (String collection : collections) {
+            while (replicas.documents(collection.trim()) == null && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+        }
+    }
+}
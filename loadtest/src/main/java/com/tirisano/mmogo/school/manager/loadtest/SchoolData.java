@@ -0,0 +1,285 @@
+package com.tirisano.mmogo.school.manager.loadtest;
+
+import com.google.cloud.Timestamp;
+import com.tirisano.mmogo.school.manager.enums.AnnouncementType;
+import com.tirisano.mmogo.school.manager.enums.DocumentType;
+import com.tirisano.mmogo.school.manager.enums.Gender;
+import com.tirisano.mmogo.school.manager.enums.MeetingStatus;
+import com.tirisano.mmogo.school.manager.enums.MeetingType;
+import com.tirisano.mmogo.school.manager.enums.PaymentStatus;
+import com.tirisano.mmogo.school.manager.enums.StudentStatus;
+import com.tirisano.mmogo.school.manager.enums.UserRole;
+import com.tirisano.mmogo.school.manager.model.Announcement;
+import com.tirisano.mmogo.school.manager.model.DocumentRequest;
+import com.tirisano.mmogo.school.manager.model.Meeting;
+import com.tirisano.mmogo.school.manager.model.Parent;
+import com.tirisano.mmogo.school.manager.model.Payment;
+import com.tirisano.mmogo.school.manager.model.Student;
+import com.tirisano.mmogo.school.manager.model.Trip;
+import com.tirisano.mmogo.school.manager.model.User;
+import com.tirisano.mmogo.school.manager.repository.AnnouncementRepository;
+import com.tirisano.mmogo.school.manager.repository.DocumentRequestRepository;
+import com.tirisano.mmogo.school.manager.repository.MeetingRepository;
+import com.tirisano.mmogo.school.manager.repository.ParentRepository;
+import com.tirisano.mmogo.school.manager.repository.PaymentRepository;
+import com.tirisano.mmogo.school.manager.repository.StudentRepository;
+import com.tirisano.mmogo.school.manager.repository.TripRepository;
+import com.tirisano.mmogo.school.manager.repository.UserRepository;
+import com.tirisano.mmogo.school.manager.service.FirebaseService;
+import com.tirisano.mmogo.school.manager.service.FirestoreBatch;
+import com.tirisano.mmogo.school.manager.service.PaymentLedger;
+import org.springframework.context.ApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A deterministic school for a given seed and size, written through the application's own repositories,
+ * so documents are encoded exactly as the app writes them. Parents have one to three children; a share of
+ * students are approved, paid up for earlier trips, or waiting on a document request. The last trips are
+ * left open with no registrations, for the registration bursts.
+ */
+public class SchoolData {
+
+    public static final String PASSWORD = "LoadTest#2024";
+
+    private static final String[] GRADES = {"Grade 8", "Grade 9", "Grade 10", "Grade 11", "Grade 12"};
+    private static final String[] NAMES = {"Thabo", "Lerato", "Sipho", "Naledi", "Kagiso", "Palesa", "Tumelo",
+            "Boitumelo", "Karabo", "Mpho", "Lesego", "Refilwe", "Tshepo", "Dineo", "Neo", "Kamogelo"};
+    private static final String[] SURNAMES = {"Mokoena", "Dlamini", "Nkosi", "Molefe", "Mahlangu", "Sithole",
+            "Khumalo", "Ndlovu", "Mthembu", "Baloyi", "Maluleke", "Mogale"};
+    private static final String[] METHODS = {"Credit Card", "Debit Card", "Bank Transfer"};
+
+    private final List<Account> parents = new ArrayList<>();
+    private final List<Account> admins = new ArrayList<>();
+    private final List<String> studentIds = new ArrayList<>();
+    private final List<String> openTripIds = new ArrayList<>();
+    private int documents;
+
+    private SchoolData() {
+    }
+
+    /**
+     * A parent or admin login; parentId and children are only set for parents
+     */
+    public record Account(String uid, String email, String parentId, List<String> children) {
+    }
+
+    public static SchoolData seed(ApplicationContext context, FakeIdentityToolkit auth, int parentCount,
+                                  int tripCount, int openTrips, long seed) {
+        SchoolData data = new SchoolData();
+        data.write(context, auth, parentCount, tripCount, openTrips, new Random(seed));
+        return data;
+    }
+
+    private void write(ApplicationContext context, FakeIdentityToolkit auth, int parentCount, int tripCount,
+                       int openTrips, Random random) {
+        FirebaseService firebaseService = context.getBean(FirebaseService.class);
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        ParentRepository parentRepository = context.getBean(ParentRepository.class);
+        StudentRepository studentRepository = context.getBean(StudentRepository.class);
+        TripRepository tripRepository = context.getBean(TripRepository.class);
+        PaymentRepository paymentRepository = context.getBean(PaymentRepository.class);
+        MeetingRepository meetingRepository = context.getBean(MeetingRepository.class);
+        DocumentRequestRepository documentRequestRepository = context.getBean(DocumentRequestRepository.class);
+        AnnouncementRepository announcementRepository = context.getBean(AnnouncementRepository.class);
+        PaymentLedger paymentLedger = context.getBean(PaymentLedger.class);
+
+        Batches batches = new Batches(firebaseService);
+        Instant now = Instant.now();
+
+        // Admins
+        for (int i = 0; i < 5; i++) {
+            String uid = "admin-" + i;
+            String email = "admin" + i + "@school.loadtest";
+            auth.addAccount(uid, email, PASSWORD);
+            userRepository.save(batches.next(1), User.builder()
+                    .uid(uid).email(email).fullName("Admin " + i).role(UserRole.ADMIN).build(), uid);
+            admins.add(new Account(uid, email, null, List.of()));
+        }
+
+        // Trips: the earlier ones take registrations while seeding, the last ones stay open for bursts
+        List<Trip> trips = new ArrayList<>();
+        for (int i = 0; i < tripCount; i++) {
+            Trip trip = Trip.builder()
+                    .title("Trip " + i)
+                    .description("Educational excursion " + i)
+                    .destination(SURNAMES[i % SURNAMES.length] + " Nature Reserve")
+                    .price(BigDecimal.valueOf(150 + 25L * (i % 8)))
+                    .tripDate(timestamp(now.plus(Duration.ofDays(14 + 7L * i))))
+                    .eligibleGrades(new ArrayList<>(List.of(GRADES)))
+                    .build();
+            tripRepository.save(batches.next(1), trip);
+            trips.add(trip);
+            if (i >= tripCount - openTrips) {
+                openTripIds.add(trip.getTripId());
+            }
+        }
+        List<Trip> seededTrips = trips.subList(0, Math.max(0, tripCount - openTrips));
+
+        // Parents, their children, payments and requests
+        for (int p = 0; p < parentCount; p++) {
+            String uid = "parent-uid-" + p;
+            String email = "parent" + p + "@school.loadtest";
+            String surname = SURNAMES[random.nextInt(SURNAMES.length)];
+            auth.addAccount(uid, email, PASSWORD);
+            userRepository.save(batches.next(1), User.builder()
+                    .uid(uid).email(email).fullName(NAMES[random.nextInt(NAMES.length)] + " " + surname)
+                    .phoneNumber(String.format("07%08d", p)).role(UserRole.PARENT).build(), uid);
+
+            Parent parent = Parent.builder()
+                    .uid(uid).email(email).fullName("Parent " + p + " " + surname)
+                    .phoneNumber(String.format("07%08d", p)).address(p + " Main Road, Polokwane")
+                    .build();
+            int childCount = 1 + random.nextInt(3);
+            List<Student> children = new ArrayList<>();
+            FirestoreBatch batch = batches.next(childCount + 1);
+            String parentId = parentRepository.save(batch, parent);
+            for (int c = 0; c < childCount; c++) {
+                Student student = Student.builder()
+                        .name(NAMES[random.nextInt(NAMES.length)])
+                        .surname(surname)
+                        .gender(random.nextBoolean() ? Gender.FEMALE : Gender.MALE)
+                        .dateOfBirth(timestamp(now.minus(Duration.ofDays(365L * (13 + random.nextInt(5))))))
+                        .birthCertificateId(String.format("LT%06d%02d", p, c))
+                        .nationality("South African")
+                        .grade(GRADES[random.nextInt(GRADES.length)])
+                        .yearOfAdmission(2020 + random.nextInt(5))
+                        .parentId(parentId)
+                        .status(random.nextInt(10) < 7 ? StudentStatus.APPROVED : StudentStatus.PENDING)
+                        .build();
+                studentRepository.save(batch, student);
+                children.add(student);
+                studentIds.add(student.getStudentId());
+            }
+            parent.setChildrenIds(new ArrayList<>(children.stream().map(Student::getStudentId).toList()));
+            parentRepository.save(batch, parent, parentId);
+
+            for (Student student : children) {
+                if (!seededTrips.isEmpty() && random.nextInt(10) < 4) {
+                    Trip trip = seededTrips.get(random.nextInt(seededTrips.size()));
+                    trip.getRegisteredStudents().add(student.getStudentId());
+                    Payment payment = Payment.builder()
+                            .studentId(student.getStudentId()).tripId(trip.getTripId()).parentId(parentId)
+                            .amount(trip.getPrice()).status(PaymentStatus.COMPLETED)
+                            .paymentMethod(METHODS[random.nextInt(METHODS.length)])
+                            .transactionReference(String.format("TXN-LT%06d", studentIds.size()))
+                            .paidAt(timestamp(now.minus(Duration.ofHours(random.nextInt(24 * 60)))))
+                            .build();
+                    // Payment plus its ledger rollups
+                    FirestoreBatch paymentBatch = batches.next(8);
+                    paymentRepository.save(paymentBatch, payment);
+                    paymentLedger.stage(paymentBatch, null, payment);
+                }
+            }
+
+            if (random.nextInt(4) == 0) {
+                meetingRepository.save(batches.next(1), Meeting.builder()
+                        .title("One-on-one with class teacher").description("Progress discussion")
+                        .scheduledTime(timestamp(now.plus(Duration.ofDays(1 + random.nextInt(30)))))
+                        .teacherId("teacher-" + random.nextInt(20)).teacherName("Teacher " + random.nextInt(20))
+                        .parentId(parentId).parentName(parent.getFullName())
+                        .type(MeetingType.ONE_ON_ONE)
+                        .status(random.nextBoolean() ? MeetingStatus.PENDING : MeetingStatus.APPROVED)
+                        .createdAt(timestamp(now)).build());
+            }
+            if (random.nextInt(10) == 0) {
+                documentRequestRepository.save(batches.next(1), DocumentRequest.builder()
+                        .parentId(parentId).studentId(children.get(0).getStudentId())
+                        .documentType(DocumentType.STUDENT_REPORT).reason("Bursary application").build());
+            }
+            parents.add(new Account(uid, email, parentId,
+                    List.copyOf(children.stream().map(Student::getStudentId).toList())));
+        }
+
+        for (Trip trip : seededTrips) {
+            tripRepository.save(batches.next(1), trip, trip.getTripId());
+        }
+        for (int i = 0; i < 30; i++) {
+            meetingRepository.save(batches.next(1), Meeting.builder()
+                    .title("Grade meeting " + i).description("Term planning for parents")
+                    .scheduledTime(timestamp(now.plus(Duration.ofDays(i))))
+                    .teacherId("teacher-" + (i % 20)).teacherName("Teacher " + (i % 20))
+                    .type(MeetingType.GROUP_MEETING).status(MeetingStatus.APPROVED)
+                    .createdAt(timestamp(now)).build());
+        }
+        for (int i = 0; i < 20; i++) {
+            announcementRepository.save(batches.next(1), Announcement.builder()
+                    .title("Announcement " + i).content("School notice number " + i)
+                    .type(AnnouncementType.values()[i % AnnouncementType.values().length]).build());
+        }
+        documents = batches.flush();
+    }
+
+    public List<Account> parents() {
+        return Collections.unmodifiableList(parents);
+    }
+
+    public List<Account> admins() {
+        return Collections.unmodifiableList(admins);
+    }
+
+    public List<String> studentIds() {
+        return Collections.unmodifiableList(studentIds);
+    }
+
+    /**
+     * Trips with no registrations, targeted by registration bursts
+     */
+    public List<String> openTripIds() {
+        return Collections.unmodifiableList(openTripIds);
+    }
+
+    /**
+     * Documents written while seeding, ledger rollups included
+     */
+    public int documents() {
+        return documents;
+    }
+
+    private static Timestamp timestamp(Instant instant) {
+        return Timestamp.ofTimeSecondsAndNanos(instant.getEpochSecond(), instant.getNano());
+    }
+
+    /**
+     * Hands out batches with room for the requested writes, committing the previous one when full
+     */
+    private static final class Batches {
+
+        private final FirebaseService firebaseService;
+        private FirestoreBatch batch;
+        private int written;
+
+        private Batches(FirebaseService firebaseService) {
+            this.firebaseService = firebaseService;
+        }
+
+        FirestoreBatch next(int writes) {
+            if (batch != null && batch.size() + writes > FirestoreBatch.MAX_WRITES) {
+                commit();
+            }
+            if (batch == null) {
+                batch = firebaseService.batch();
+            }
+            return batch;
+        }
+
+        int flush() {
+            commit();
+            return written;
+        }
+
+        private void commit() {
+            if (batch != null && !batch.isEmpty()) {
+                written += batch.size();
+                firebaseService.commit(batch).join();
+            }
+            batch = null;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.tirisano.mmogo.school.manager.loadtest;
+
+import com.tirisano.mmogo.school.manager.config.RequestCostHeaders;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The school's traffic: closed-loop virtual users, each repeatedly picking a weighted scenario, plus
+ * periodic bursts of concurrent registrations for one open trip, as when a trip is announced.
+ * Every HTTP call is recorded under its route template.
+ */
+public class Workload {
+
+    /**
+     * Scenario weights, out of 100
+     */
+    public enum Scenario {
+        /** POST /auth/login as a parent (9 in 10) or an admin */
+        LOGIN(15),
+        /** A parent opening the dashboard: children, meetings and payments */
+        PARENT_DASHBOARD(45),
+        /** A parent browsing trips, then opening one */
+        TRIP_BROWSING(15),
+        /** An admin opening the dashboard summary and one of the list views */
+        ADMIN_LISTS(25);
+
+        private final int weight;
+
+        Scenario(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    private static final String[] ADMIN_LISTS = {
+            "/students", "/students/pending", "/payments", "/meetings", "/meetings/pending",
+            "/admin/document-requests/pending", "/admin/announcements", "/parents"};
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final SchoolData data;
+    private final LoadReport report;
+    private final Duration thinkTime;
+    private final AtomicBoolean running = new AtomicBoolean(true);
+
+    // Registration pool: every (open trip, student) pair once, in a fixed shuffled order
+    private final List<String[]> registrations = new ArrayList<>();
+    private final AtomicInteger nextRegistration = new AtomicInteger();
+
+    public Workload(HttpClient client, String baseUrl, SchoolData data, LoadReport report, Duration thinkTime,
+                    long seed) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.data = data;
+        this.report = report;
+        this.thinkTime = thinkTime;
+
+        Map<String, String> parentOf = new HashMap<>();
+        for (SchoolData.Account parent : data.parents()) {
+            parent.children().forEach(child -> parentOf.put(child, parent.parentId()));
+        }
+        for (String tripId : data.openTripIds()) {
+            List<String> students = new ArrayList<>(data.studentIds());
+            Collections.shuffle(students, new Random(seed + tripId.hashCode()));
+            students.forEach(student -> registrations.add(new String[]{tripId, student, parentOf.get(student)}));
+        }
+    }
+
+    /**
+     * One virtual user's loop; returns once stop() is called
+     */
+    public void user(long seed) {
+        Random random = new Random(seed);
+        while (running.get()) {
+            switch (pick(random)) {
+                case LOGIN -> login(random);
+                case PARENT_DASHBOARD -> parentDashboard(random);
+                case TRIP_BROWSING -> tripBrowsing(random);
+                case ADMIN_LISTS -> adminLists(random);
+            }
+            think();
+        }
+    }
+
+    /**
+     * Fires size concurrent registrations, each for the next unused (trip, student) pair, and waits for all
+     */
+    public void burst(int size) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(size);
+        for (int i = 0; i < size; i++) {
+            Thread.startVirtualThread(() -> {
+                try {
+                    register();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+
+    /**
+     * Registrations left before the pool wraps around and repeats (and fails as already registered)
+     */
+    public int registrationsLeft() {
+        return Math.max(0, registrations.size() - nextRegistration.get());
+    }
+
+    public void stop() {
+        running.set(false);
+    }
+
+    // ==================== SCENARIOS ====================
+
+    private void login(Random random) {
+        SchoolData.Account account = random.nextInt(10) < 9
+                ? data.parents().get(random.nextInt(data.parents().size()))
+                : data.admins().get(random.nextInt(data.admins().size()));
+        post("/auth/login", "/auth/login", String.format("{\"email\":\"%s\",\"password\":\"%s\"}",
+                account.email(), SchoolData.PASSWORD), null);
+    }
+
+    private void parentDashboard(Random random) {
+        String parentId = data.parents().get(random.nextInt(data.parents().size())).parentId();
+        get("/students/parent/{id}", "/students/parent/" + parentId);
+        get("/meetings/parent/{id}", "/meetings/parent/" + parentId);
+        get("/payments/parent/{id}", "/payments/parent/" + parentId);
+    }
+
+    private void tripBrowsing(Random random) {
+        get("/trips", "/trips");
+        List<String> trips = data.openTripIds();
+        get("/trips/{id}", "/trips/" + trips.get(random.nextInt(trips.size())));
+    }
+
+    private void adminLists(Random random) {
+        get("/admin/dashboard/summary", "/admin/dashboard/summary");
+        String list = ADMIN_LISTS[random.nextInt(ADMIN_LISTS.length)];
+        get(list, list);
+    }
+
+    private void register() {
+        String[] registration = registrations.get(nextRegistration.getAndIncrement() % registrations.size());
+        String body = String.format("{\"studentId\":\"%s\",\"parentId\":\"%s\",\"paymentMethod\":\"Credit Card\"}",
+                registration[1], registration[2]);
+        // The web client sends an Idempotency-Key; older clients don't
+        String key = registration[1].hashCode() % 2 == 0 ? UUID.randomUUID().toString() : null;
+        post("/trips/{id}/register", "/trips/" + registration[0] + "/register", body, key);
+    }
+
+    // ==================== HTTP ====================
+
+    private void get(String route, String path) {
+        send("GET " + route, HttpRequest.newBuilder(URI.create(baseUrl + path)).GET());
+    }
+
+    private void post(String route, String path, String json, String idempotencyKey) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+        if (idempotencyKey != null) {
+            request.header("Idempotency-Key", idempotencyKey);
+        }
+        send("POST " + route, request);
+    }
+
+    private void send(String label, HttpRequest.Builder request) {
+        long start = System.nanoTime();
+        boolean ok;
+        boolean stale = false;
+        try {
+            HttpResponse<byte[]> response = client.send(request.timeout(Duration.ofSeconds(30)).build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            ok = response.statusCode() / 100 == 2;
+            stale = response.headers().firstValue(RequestCostHeaders.STALE_HEADER).isPresent();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            ok = false;
+        }
+        report.record(label, System.nanoTime() - start, ok, stale);
+    }
+
+    private static Scenario pick(Random random) {
+        int roll = random.nextInt(100);
+        for (Scenario scenario : Scenario.values()) {
+            roll -= scenario.weight;
+            if (roll < 0) {
+                return scenario;
+            }
+        }
+        return Scenario.PARENT_DASHBOARD;
+    }
+
+    private void think() {
+        if (!thinkTime.isZero()) {
+            try {
+                Thread.sleep(thinkTime);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running.set(false);
+            }
+        }
+    }
+}
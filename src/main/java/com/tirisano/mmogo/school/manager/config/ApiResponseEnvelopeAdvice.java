@@ -0,0 +1,56 @@
+package com.tirisano.mmogo.school.manager.config;
+
+import com.tirisano.mmogo.school.manager.dto.ApiResponse;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Lets clients skip the ApiResponse envelope with "X-Response-Envelope: none".
+ * Successful responses are then written as the bare data payload, or as 204 No Content from
+ * handlers declared to return no payload ({@code ApiResponse<Void>}); errors keep the envelope so
+ * the message is still available.
+ */
+@RestControllerAdvice
+public class ApiResponseEnvelopeAdvice implements ResponseBodyAdvice<Object> {
+
+    public static final String ENVELOPE_HEADER = "X-Response-Envelope";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return AbstractJackson2HttpMessageConverter.class.isAssignableFrom(converterType);
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (body instanceof ApiResponse<?> apiResponse
+                && apiResponse.isSuccess()
+                && "none".equalsIgnoreCase(request.getHeaders().getFirst(ENVELOPE_HEADER))) {
+            response.getHeaders().set(ENVELOPE_HEADER, "none");
+            // A handler that has data to return but found none, e.g. an empty lookup, keeps its status
+            if (returnsNoPayload(returnType)) {
+                response.setStatusCode(HttpStatus.NO_CONTENT);
+            }
+            return apiResponse.getData();
+        }
+        return body;
+    }
+
+    private static boolean returnsNoPayload(MethodParameter returnType) {
+        ResolvableType type = ResolvableType.forMethodParameter(returnType);
+        if (HttpEntity.class.isAssignableFrom(type.toClass())) {
+            type = type.getGeneric(0);
+        }
+        return ApiResponse.class.equals(type.toClass()) && Void.class.equals(type.getGeneric(0).toClass());
+    }
+}
@@ -0,0 +1,81 @@
+package com.tirisano.mmogo.school.manager.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.google.cloud.Timestamp;
+import com.tirisano.mmogo.school.manager.dto.ApiResponse;
+import com.tirisano.mmogo.school.manager.util.TimestampCodec;
+
+import java.io.IOException;
+
+/**
+ * Writes the ApiResponse envelope with pre-encoded field names.
+ * Envelope timestamps come from CoarseClock in whole milliseconds, so the text of the last one
+ * formatted is kept by epoch millisecond and reused for every response stamped in that millisecond.
+ */
+public class ApiResponseSerializer extends StdSerializer<ApiResponse<?>> {
+
+    private static final SerializedString SUCCESS = new SerializedString("success");
+    private static final SerializedString MESSAGE = new SerializedString("message");
+    private static final SerializedString DATA = new SerializedString("data");
+    private static final SerializedString TIMESTAMP = new SerializedString("timestamp");
+    private static final SerializedString STALE = new SerializedString("stale");
+
+    private final TimestampCodec timestampCodec;
+    private volatile FormattedMillis lastFormatted = new FormattedMillis(Long.MIN_VALUE, null);
+
+    @SuppressWarnings("unchecked")
+    public ApiResponseSerializer(TimestampCodec timestampCodec) {
+        super((Class<ApiResponse<?>>) (Class<?>) ApiResponse.class);
+        this.timestampCodec = timestampCodec;
+    }
+
+    @Override
+    public void serialize(ApiResponse<?> response, JsonGenerator gen, SerializerProvider provider)
+            throws IOException {
+        gen.writeStartObject(response);
+
+        gen.writeFieldName(SUCCESS);
+        gen.writeBoolean(response.isSuccess());
+
+        // Always present, null when absent, as clients read them unconditionally; the mapper's NON_NULL
+        // inclusion only applies to the fields inside data
+        gen.writeFieldName(MESSAGE);
+        gen.writeString(response.getMessage());
+
+        gen.writeFieldName(DATA);
+        provider.defaultSerializeValue(response.getData(), gen);
+
+        if (response.getTimestamp() != null) {
+            gen.writeFieldName(TIMESTAMP);
+            gen.writeString(format(response.getTimestamp()));
+        }
+
+        if (response.getStale() != null) {
+            gen.writeFieldName(STALE);
+            gen.writeBoolean(response.getStale());
+        }
+
+        gen.writeEndObject();
+    }
+
+    private String format(Timestamp timestamp) {
+        if (timestamp.getNanos() % 1_000_000 != 0) {
+            // Not from CoarseClock; sub-millisecond digits would be lost by the cache key
+            return timestampCodec.format(timestamp);
+        }
+        long millis = timestamp.getSeconds() * 1000 + timestamp.getNanos() / 1_000_000;
+        FormattedMillis last = lastFormatted;
+        if (last.millis() == millis) {
+            return last.text();
+        }
+        String text = timestampCodec.format(timestamp);
+        lastFormatted = new FormattedMillis(millis, text);
+        return text;
+    }
+
+    private record FormattedMillis(long millis, String text) {
+    }
+}
@@ -0,0 +1,104 @@
+package com.tirisano.mmogo.school.manager.config;
+
+import com.tirisano.mmogo.school.manager.repository.CollectionReplicas;
+import com.tirisano.mmogo.school.manager.service.CollectionGuards;
+import com.tirisano.mmogo.school.manager.service.FirestoreHealthProbe;
+import com.tirisano.mmogo.school.manager.service.IdentityCache;
+import com.tirisano.mmogo.school.manager.service.StaleReads;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Health indicators behind /actuator/health. None of them calls Firestore: each reads state
+ * the app already keeps (the scheduled probe's result, bulkhead permits, replica listeners),
+ * so liveness and readiness checks cost nothing however often they are polled.
+ */
+@Configuration
+public class HealthConfig {
+
+    /**
+     * Still serving, but short of headroom; mapped to 200 so it does not fail readiness
+     */
+    public static final Status DEGRADED = new Status("DEGRADED");
+
+    /**
+     * Firestore reachability as of the last scheduled check; part of the readiness group
+     */
+    @Bean
+    public HealthIndicator firestoreHealthIndicator(FirestoreHealthProbe probe) {
+        return () -> {
+            FirestoreHealthProbe.Result result = probe.result();
+            Health.Builder health = result.up() == null ? Health.unknown()
+                    : result.up() ? Health.up() : Health.down();
+            health.withDetail("source", result.source());
+            if (result.checkedAt() != null) {
+                health.withDetail("checkedAt", result.checkedAt().toString())
+                        .withDetail("latencyMillis", result.latencyMillis());
+            }
+            if (result.consecutiveFailures() > 0) {
+                health.withDetail("consecutiveFailures", result.consecutiveFailures())
+                        .withDetail("error", result.error());
+            }
+            return health.build();
+        };
+    }
+
+    /**
+     * Per-collection bulkhead occupancy and breaker state. DEGRADED when a bulkhead is nearly
+     * full or a breaker is not closed; left out of readiness, since a full bulkhead already sheds
+     * the excess and taking the instance out of rotation would only move the load elsewhere.
+     */
+    @Bean
+    public HealthIndicator persistenceHealthIndicator(CollectionGuards guards,
+                                                      @Value("${health.persistence.saturation-threshold:0.8}") double threshold) {
+        return () -> {
+            boolean degraded = false;
+            Map<String, Object> collections = new LinkedHashMap<>();
+            for (Map.Entry<String, CollectionGuards.Usage> entry : guards.usage().entrySet()) {
+                CollectionGuards.Usage usage = entry.getValue();
+                boolean saturated = usage.inFlight() >= threshold * usage.limit();
+                degraded |= saturated || usage.state() != CollectionGuards.State.CLOSED;
+                collections.put(entry.getKey(), Map.of(
+                        "circuit", usage.state().name(),
+                        "inFlight", usage.inFlight(),
+                        "limit", usage.limit()));
+            }
+            return Health.status(degraded ? DEGRADED : Status.UP)
+                    .withDetail("collections", collections)
+                    .build();
+        };
+    }
+
+    /**
+     * Replica listeners and in-memory cache fill. DEGRADED while a replica is disconnected,
+     * because its reads then go to Firestore
+     */
+    @Bean
+    public HealthIndicator cachesHealthIndicator(CollectionReplicas replicas, IdentityCache identityCache,
+                                                 StaleReads staleReads) {
+        return () -> {
+            boolean degraded = false;
+            Map<String, Object> replicaDetails = new LinkedHashMap<>();
+            for (Map.Entry<String, CollectionReplicas.Status> entry : replicas.status().entrySet()) {
+                CollectionReplicas.Status status = entry.getValue();
+                degraded |= !status.connected();
+                replicaDetails.put(entry.getKey(), Map.of(
+                        "connected", status.connected(),
+                        "documents", status.documents(),
+                        "stalenessSeconds", status.stalenessSeconds()));
+            }
+            return Health.status(degraded ? DEGRADED : Status.UP)
+                    .withDetail("replicas", replicaDetails)
+                    .withDetail("identityCache", Map.of("size", identityCache.size(), "maxEntries", identityCache.maxEntries()))
+                    .withDetail("staleReads", Map.of("size", staleReads.size(), "maxEntries", staleReads.maxEntries()))
+                    .build();
+        };
+    }
+}
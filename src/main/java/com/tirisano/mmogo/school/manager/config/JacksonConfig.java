@@ -1,8 +1,11 @@
 package com.tirisano.mmogo.school.manager.config;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
 import com.google.cloud.Timestamp;
+import com.tirisano.mmogo.school.manager.util.TimestampCodec;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
@@ -11,13 +14,17 @@ import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 public class JacksonConfig {
 
     @Bean
-    public ObjectMapper objectMapper() {
+    public ObjectMapper objectMapper(TimestampCodec timestampCodec) {
         SimpleModule module = new SimpleModule();
-        module.addSerializer(Timestamp.class, new TimestampSerializer());
-        module.addDeserializer(Timestamp.class, new TimestampDeserializer());
+        module.addSerializer(Timestamp.class, new TimestampSerializer(timestampCodec));
+        module.addDeserializer(Timestamp.class, new TimestampDeserializer(timestampCodec));
+        module.addSerializer(new ApiResponseSerializer(timestampCodec));
 
+        // Blackbird replaces reflective getter/setter calls on the Lombok models with
+        // generated lambdas; NON_NULL keeps unset optional fields out of the payload
         return Jackson2ObjectMapperBuilder.json()
-                .modules(module)
+                .modules(module, new BlackbirdModule())
+                .serializationInclusion(JsonInclude.Include.NON_NULL)
                 .build();
     }
 }
\ No newline at end of file
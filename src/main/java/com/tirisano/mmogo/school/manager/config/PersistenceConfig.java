@@ -0,0 +1,37 @@
+package com.tirisano.mmogo.school.manager.config;
+
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
+import io.opentelemetry.exporter.logging.LoggingSpanExporter;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class PersistenceConfig {
+
+    /**
+     * Runs FirebaseService's blocking Firestore calls. Virtual threads park cheaply while waiting
+     * on gRPC, and the context wrapper restores the caller's trace context (and so its log MDC)
+     * in each task, so Firestore spans nest under the request that issued them.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService persistenceExecutor() {
+        ExecutorService executor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("firestore-", 0).factory());
+        return ContextExecutorService.wrap(executor, ContextSnapshotFactory.builder().build());
+    }
+
+    /**
+     * Writes finished spans to the application log, for use without an OTLP collector
+     */
+    @Bean
+    @ConditionalOnProperty(name = "tracing.log-spans", havingValue = "true")
+    public SpanExporter loggingSpanExporter() {
+        return LoggingSpanExporter.create();
+    }
+}
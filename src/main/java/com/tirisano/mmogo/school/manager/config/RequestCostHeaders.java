@@ -0,0 +1,50 @@
+package com.tirisano.mmogo.school.manager.config;
+
+import com.tirisano.mmogo.school.manager.dto.ApiResponse;
+import com.tirisano.mmogo.school.manager.service.RequestCost;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Reports the request's Firestore cost so far in response headers, and flags responses that
+ * include stale data (X-Data-Stale: age in seconds, and stale: true on the ApiResponse). The body is written right
+ * after this runs, so headers are set here rather than once the request completes; writes that
+ * a handler leaves running in the background are not included.
+ */
+@RestControllerAdvice
+public class RequestCostHeaders implements ResponseBodyAdvice<Object> {
+
+    public static final String READS_HEADER = "X-Doc-Reads";
+    public static final String WRITES_HEADER = "X-Doc-Writes";
+    public static final String READ_BYTES_HEADER = "X-Doc-Read-Bytes";
+    public static final String STALE_HEADER = "X-Data-Stale";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        RequestCost cost = RequestCost.current();
+        HttpHeaders headers = response.getHeaders();
+        headers.set(READS_HEADER, Long.toString(cost.reads()));
+        headers.set(WRITES_HEADER, Long.toString(cost.writes()));
+        headers.set(READ_BYTES_HEADER, Long.toString(cost.readBytes()));
+        if (cost.isStale()) {
+            headers.set(STALE_HEADER, Long.toString(cost.staleMillis() / 1000));
+            if (body instanceof ApiResponse<?> apiResponse) {
+                apiResponse.setStale(true);
+            }
+        }
+        return body;
+    }
+}
@@ -0,0 +1,43 @@
+package com.tirisano.mmogo.school.manager.config;
+
+import com.tirisano.mmogo.school.manager.service.CostReport;
+import com.tirisano.mmogo.school.manager.service.RequestCost;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Opens a RequestCost accumulator for every controller call and adds its totals to the
+ * CostReport entry of the handler method once the request completes.
+ */
+@Component
+@RequiredArgsConstructor
+public class RequestCostInterceptor implements HandlerInterceptor {
+
+    private final CostReport costReport;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            // Only reads on behalf of GET may be answered stale; other methods act on what they read
+            RequestCost.begin(HttpMethod.GET.matches(request.getMethod()));
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestCost cost = RequestCost.end();
+        if (cost != null && handler instanceof HandlerMethod method) {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String route = request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+            String name = method.getBeanType().getSimpleName() + "#" + method.getMethod().getName();
+            costReport.record(route, name, cost);
+        }
+    }
+}
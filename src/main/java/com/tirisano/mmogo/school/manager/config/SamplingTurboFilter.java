@@ -0,0 +1,67 @@
+package com.tirisano.mmogo.school.manager.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps one of every N events per logger for high-frequency loggers, configured in logback-spring.xml.
+ * Only events at or below maxLevel are sampled, so warnings and errors are never dropped, and
+ * isDebugEnabled()-style checks are left alone. Denied events are dropped before a LoggingEvent
+ * is built, so they cost a counter increment.
+ */
+public class SamplingTurboFilter extends TurboFilter {
+
+    // Marks loggers outside the configured prefixes, so the prefix scan runs once per logger
+    private static final AtomicLong NOT_SAMPLED = new AtomicLong();
+
+    private final List<String> loggers = new ArrayList<>();
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private int every = 100;
+    private Level maxLevel = Level.INFO;
+
+    /**
+     * A logger name or package prefix to sample; repeatable
+     */
+    public void addLogger(String logger) {
+        loggers.add(logger);
+    }
+
+    public void setEvery(int every) {
+        this.every = every;
+    }
+
+    public void setMaxLevel(String maxLevel) {
+        this.maxLevel = Level.toLevel(maxLevel, Level.INFO);
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (!isStarted() || format == null || every <= 1 || level.toInt() > maxLevel.toInt()
+                || level.toInt() < logger.getEffectiveLevel().toInt()) {
+            return FilterReply.NEUTRAL;
+        }
+        AtomicLong counter = counters.computeIfAbsent(logger.getName(), this::counterFor);
+        if (counter == NOT_SAMPLED) {
+            return FilterReply.NEUTRAL;
+        }
+        return counter.getAndIncrement() % every == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    private AtomicLong counterFor(String name) {
+        for (String prefix : loggers) {
+            if (name.equals(prefix) || name.startsWith(prefix + ".")) {
+                return new AtomicLong();
+            }
+        }
+        return NOT_SAMPLED;
+    }
+}
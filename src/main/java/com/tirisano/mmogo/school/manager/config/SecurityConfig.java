@@ -44,6 +44,12 @@ public class SecurityConfig {
         ));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
+        configuration.setExposedHeaders(Arrays.asList(
+                RequestCostHeaders.READS_HEADER,
+                RequestCostHeaders.WRITES_HEADER,
+                RequestCostHeaders.READ_BYTES_HEADER,
+                RequestCostHeaders.STALE_HEADER
+        ));
         configuration.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -4,11 +4,18 @@ import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import com.google.cloud.Timestamp;
+import com.tirisano.mmogo.school.manager.util.TimestampCodec;
 
 import java.io.IOException;
-import java.time.Instant;
 
 public class TimestampSerializer extends JsonSerializer<Timestamp> {
+
+    private final TimestampCodec timestampCodec;
+
+    public TimestampSerializer(TimestampCodec timestampCodec) {
+        this.timestampCodec = timestampCodec;
+    }
+
     @Override
     public void serialize(Timestamp timestamp, JsonGenerator gen, SerializerProvider serializers)
             throws IOException {
@@ -16,8 +23,7 @@ public class TimestampSerializer extends JsonSerializer<Timestamp> {
             gen.writeNull();
         } else {
             // Convert Timestamp to ISO-8601 string
-            Instant instant = Instant.ofEpochSecond(timestamp.getSeconds(), timestamp.getNanos());
-            gen.writeString(instant.toString());
+            gen.writeString(timestampCodec.format(timestamp));
         }
     }
-}
\ No newline at end of file
+}
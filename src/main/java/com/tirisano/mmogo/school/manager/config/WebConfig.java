@@ -1,13 +1,25 @@
 package com.tirisano.mmogo.school.manager.config;
 
+import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.filter.CorsFilter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
-public class WebConfig {
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final RequestCostInterceptor requestCostInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Per-request Firestore read/write accounting (X-Doc-* headers, /admin/cost-report)
+        registry.addInterceptor(requestCostInterceptor);
+    }
 
     @Bean
     public CorsFilter corsFilter() {
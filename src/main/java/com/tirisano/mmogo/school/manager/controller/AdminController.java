@@ -2,9 +2,12 @@ package com.tirisano.mmogo.school.manager.controller;
 
 
 import com.tirisano.mmogo.school.manager.dto.ApiResponse;
+import com.tirisano.mmogo.school.manager.dto.DashboardSummary;
+import com.tirisano.mmogo.school.manager.dto.EndpointCost;
 import com.tirisano.mmogo.school.manager.model.Announcement;
 import com.tirisano.mmogo.school.manager.model.DocumentRequest;
 import com.tirisano.mmogo.school.manager.service.AdminService;
+import com.tirisano.mmogo.school.manager.service.CostReport;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -18,6 +21,7 @@ import java.util.List;
 public class AdminController {
 
     private final AdminService adminService;
+    private final CostReport costReport;
 
     @GetMapping("/announcements")
     public ResponseEntity<ApiResponse<List<Announcement>>> getAllAnnouncements() {
@@ -103,4 +107,32 @@ public class AdminController {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
+
+    @GetMapping("/dashboard/summary")
+    public ResponseEntity<ApiResponse<DashboardSummary>> getDashboardSummary() {
+        try {
+            DashboardSummary summary = adminService.getDashboardSummary();
+            return ResponseEntity.ok(ApiResponse.success(summary));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    // Most expensive endpoints by Firestore documents read/written since startup or the last reset
+    @GetMapping("/cost-report")
+    public ResponseEntity<ApiResponse<List<EndpointCost>>> getCostReport(
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = "reads") String sort) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(costReport.top(limit, sort)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/cost-report")
+    public ResponseEntity<ApiResponse<Void>> resetCostReport() {
+        costReport.reset();
+        return ResponseEntity.ok(ApiResponse.success(null, "Cost report reset"));
+    }
 }
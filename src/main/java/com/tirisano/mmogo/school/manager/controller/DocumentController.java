@@ -1,6 +1,8 @@
 package com.tirisano.mmogo.school.manager.controller;
 
 import com.tirisano.mmogo.school.manager.dto.ApiResponse;
+import com.tirisano.mmogo.school.manager.dto.BulkOperationResult;
+import com.tirisano.mmogo.school.manager.dto.BulkStatusRequest;
 import com.tirisano.mmogo.school.manager.enums.DocumentType;
 import com.tirisano.mmogo.school.manager.model.Document;
 import com.tirisano.mmogo.school.manager.service.DocumentService;
@@ -122,6 +124,18 @@ public class DocumentController {
         }
     }
 
+    // UPDATE - Verify many documents at once (Admin only)
+    @PutMapping("/bulk/verify")
+    public ResponseEntity<ApiResponse<BulkOperationResult>> verifyDocuments(@RequestBody BulkStatusRequest request) {
+        try {
+            BulkOperationResult result = documentService.verifyDocuments(request.getIds(), request.getVerifiedBy());
+            return ResponseEntity.ok(ApiResponse.success(result,
+                    "Verified " + result.getUpdated() + " of " + result.getRequested() + " documents"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
     // UPDATE - Update document
     @PutMapping("/{documentId}")
     public ResponseEntity<ApiResponse<Document>> updateDocument(
@@ -1,9 +1,11 @@
 package com.tirisano.mmogo.school.manager.controller;
 
 import com.tirisano.mmogo.school.manager.dto.ApiResponse;
+import com.tirisano.mmogo.school.manager.dto.BulkOperationResult;
+import com.tirisano.mmogo.school.manager.dto.BulkStatusRequest;
 import com.tirisano.mmogo.school.manager.model.Meeting;
 import com.tirisano.mmogo.school.manager.service.MeetingService;
-import com.tirisano.mmogo.school.manager.util.TimestampUtil;
+import com.tirisano.mmogo.school.manager.util.TimestampCodec;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -19,6 +21,7 @@ import java.util.Map;
 public class MeetingController {
 
     private final MeetingService meetingService;
+    private final TimestampCodec timestampCodec;
 
     @GetMapping
     public ResponseEntity<ApiResponse<List<Meeting>>> getAllMeetings() {
@@ -61,8 +64,8 @@ public class MeetingController {
             String description = (String) request.get("description");
             String scheduledTimeStr = (String) request.get("scheduledTime");
 
-            // Use TimestampUtil to handle datetime-local format
-            Timestamp scheduledTime = TimestampUtil.fromIsoString(scheduledTimeStr);
+            // datetime-local values are interpreted in the school time zone
+            Timestamp scheduledTime = timestampCodec.parse(scheduledTimeStr);
 
             Meeting meeting = meetingService.requestOneOnOneMeeting(
                     parentId, teacherId, title, description, scheduledTime, teacherName, parentName
@@ -166,4 +169,15 @@ public class MeetingController {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
-}
\ No newline at end of file
+
+    @PutMapping("/bulk/status")
+    public ResponseEntity<ApiResponse<BulkOperationResult>> bulkUpdateStatus(@RequestBody BulkStatusRequest request) {
+        try {
+            BulkOperationResult result = meetingService.bulkUpdateStatus(request);
+            return ResponseEntity.ok(ApiResponse.success(result,
+                    "Updated " + result.getUpdated() + " of " + result.getRequested() + " meetings"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+}
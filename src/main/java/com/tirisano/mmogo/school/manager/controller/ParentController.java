@@ -4,7 +4,6 @@ import com.tirisano.mmogo.school.manager.dto.ApiResponse;
 import com.tirisano.mmogo.school.manager.model.DocumentRequest;
 import com.tirisano.mmogo.school.manager.model.Parent;
 import com.tirisano.mmogo.school.manager.model.Student;
-import com.tirisano.mmogo.school.manager.service.FirebaseService;
 import com.tirisano.mmogo.school.manager.service.ParentService;
 import com.tirisano.mmogo.school.manager.service.StudentService;
 import jakarta.validation.Valid;
@@ -22,7 +21,6 @@ public class ParentController {
 
     private final ParentService parentService;
     private final StudentService studentService;
-    private final FirebaseService firebaseService;
 
     // ==================== CRUD ENDPOINTS ====================
 
@@ -150,10 +148,8 @@ public class ParentController {
             @PathVariable String parentId,
             @RequestBody DocumentRequest request) {
         try {
-            request.setParentId(parentId);
-            firebaseService.save("documentRequests", request).join();
-            // FirebaseService automatically sets requestId on the request object
-            return ResponseEntity.ok(ApiResponse.success(request, "Document request submitted"));
+            DocumentRequest submitted = parentService.submitDocumentRequest(parentId, request);
+            return ResponseEntity.ok(ApiResponse.success(submitted, "Document request submitted"));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
@@ -1,8 +1,11 @@
 package com.tirisano.mmogo.school.manager.controller;
 
 import com.tirisano.mmogo.school.manager.dto.ApiResponse;
+import com.tirisano.mmogo.school.manager.dto.LedgerTotals;
 import com.tirisano.mmogo.school.manager.enums.PaymentStatus;
 import com.tirisano.mmogo.school.manager.model.Payment;
+import com.tirisano.mmogo.school.manager.service.IdempotencyService;
+import com.tirisano.mmogo.school.manager.service.PaymentLedger;
 import com.tirisano.mmogo.school.manager.service.PaymentService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -10,6 +13,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Map;
 
@@ -19,16 +24,21 @@ import java.util.Map;
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final PaymentLedger paymentLedger;
 
     // ==================== CRUD ENDPOINTS ====================
 
     // CREATE - Mock payment (for parents)
     @PostMapping("/mock")
-    public ResponseEntity<ApiResponse<Payment>> createMockPayment(@Valid @RequestBody Payment payment) {
+    public ResponseEntity<ApiResponse<Payment>> createMockPayment(
+            @Valid @RequestBody Payment payment,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         try {
-            Payment savedPayment = paymentService.createMockPayment(payment);
+            Payment savedPayment = paymentService.createMockPayment(payment, idempotencyKey);
             return ResponseEntity.status(HttpStatus.CREATED)
                     .body(ApiResponse.success(savedPayment, "Payment processed successfully"));
+        } catch (IdempotencyService.ResultGoneException e) {
+            return ResponseEntity.status(HttpStatus.GONE).body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
@@ -162,4 +172,57 @@ public class PaymentController {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
+
+    // ==================== LEDGER REPORTS ====================
+
+    // READ - Collected and outstanding totals for a trip
+    @GetMapping("/ledger/trips/{tripId}")
+    public ResponseEntity<ApiResponse<LedgerTotals>> getTripTotals(@PathVariable String tripId) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(paymentLedger.getTripTotals(tripId)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    // READ - Collected and outstanding totals for a parent
+    @GetMapping("/ledger/parents/{parentId}")
+    public ResponseEntity<ApiResponse<LedgerTotals>> getParentTotals(@PathVariable String parentId) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(paymentLedger.getParentTotals(parentId)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    // READ - Revenue for a day (yyyy-MM-dd, school time zone), split by payment method
+    @GetMapping("/ledger/days/{day}")
+    public ResponseEntity<ApiResponse<LedgerTotals>> getDailyTotals(@PathVariable String day) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(paymentLedger.getDailyTotals(LocalDate.parse(day))));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    // READ - Revenue for a month (yyyy-MM), split by payment method
+    @GetMapping("/ledger/months/{month}")
+    public ResponseEntity<ApiResponse<LedgerTotals>> getMonthlyTotals(@PathVariable String month) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(paymentLedger.getMonthlyTotals(YearMonth.parse(month))));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    // UPDATE - Recompute the ledger from all payments (Admin only)
+    @PostMapping("/ledger/rebuild")
+    public ResponseEntity<ApiResponse<Map<String, Integer>>> rebuildLedger() {
+        try {
+            Map<String, Integer> report = paymentLedger.rebuild();
+            return ResponseEntity.ok(ApiResponse.success(report, "Payment ledger rebuilt"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
 }
@@ -1,13 +1,19 @@
 package com.tirisano.mmogo.school.manager.controller;
 
 import com.tirisano.mmogo.school.manager.dto.ApiResponse;
+import com.tirisano.mmogo.school.manager.dto.BulkImportReport;
+import com.tirisano.mmogo.school.manager.dto.BulkOperationResult;
+import com.tirisano.mmogo.school.manager.dto.BulkStatusRequest;
 import com.tirisano.mmogo.school.manager.model.Student;
+import com.tirisano.mmogo.school.manager.service.StudentImportService;
 import com.tirisano.mmogo.school.manager.service.StudentService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -17,6 +23,7 @@ import java.util.Map;
 public class StudentController {
 
     private final StudentService studentService;
+    private final StudentImportService studentImportService;
 
     // ==================== ADMIN ENDPOINTS ====================
 
@@ -118,6 +125,18 @@ public class StudentController {
         }
     }
 
+    // APPROVE or REJECT many students at once (Admin)
+    @PutMapping("/bulk/status")
+    public ResponseEntity<ApiResponse<BulkOperationResult>> bulkUpdateStatus(@RequestBody BulkStatusRequest request) {
+        try {
+            BulkOperationResult result = studentService.bulkUpdateStatus(request);
+            return ResponseEntity.ok(ApiResponse.success(result,
+                    "Updated " + result.getUpdated() + " of " + result.getRequested() + " students"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
     // ==================== PARENT ENDPOINTS ====================
 
     // GET students by parent ID (Parent)
@@ -145,6 +164,20 @@ public class StudentController {
         }
     }
 
+    // CREATE students in bulk from a CSV (with header row) or NDJSON stream
+    @PostMapping(value = "/bulk", consumes = {"text/csv", "application/x-ndjson", "application/jsonl"})
+    public ResponseEntity<ApiResponse<BulkImportReport>> bulkImport(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) {
+        try {
+            BulkImportReport report = studentImportService.importStudents(body, contentType);
+            return ResponseEntity.ok(ApiResponse.success(report,
+                    "Imported " + report.getCreated() + " of " + report.getTotal() + " students"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
     // READ single student by ID
     @GetMapping("/{studentId}")
     public ResponseEntity<ApiResponse<Student>> getStudentById(@PathVariable String studentId) {
@@ -183,4 +216,4 @@ public class StudentController {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
-}
\ No newline at end of file
+}
@@ -2,6 +2,7 @@ package com.tirisano.mmogo.school.manager.controller;
 
 import com.tirisano.mmogo.school.manager.dto.ApiResponse;
 import com.tirisano.mmogo.school.manager.service.FirebaseService;
+import com.tirisano.mmogo.school.manager.service.FirestoreHealthProbe;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -16,19 +17,24 @@ import java.util.Map;
 public class TestController {
 
     private final FirebaseService firebaseService;
+    private final FirestoreHealthProbe healthProbe;
 
-    public TestController(FirebaseService firebaseService) {
+    public TestController(FirebaseService firebaseService, FirestoreHealthProbe healthProbe) {
         this.firebaseService = firebaseService;
+        this.healthProbe = healthProbe;
     }
 
-    // Simple health check - just visit in browser
+    // Simple health check - just visit in browser. Firebase status comes from the last
+    // scheduled probe; orchestrators should use /actuator/health/liveness and /readiness
     @GetMapping("/health")
     public ResponseEntity<Map<String, Object>> healthCheck() {
         Map<String, Object> response = new HashMap<>();
         response.put("status", "UP");
         response.put("timestamp", Timestamp.now().toString());
         response.put("message", "Backend is running!");
-        response.put("firebase", firebaseService.isHealthy() ? "CONNECTED" : "DISCONNECTED");
+        FirestoreHealthProbe.Result firestore = healthProbe.result();
+        response.put("firebase", firestore.up() == null ? "UNKNOWN" : firestore.up() ? "CONNECTED" : "DISCONNECTED");
+        response.put("firebaseCheckedAt", firestore.checkedAt() == null ? null : firestore.checkedAt().toString());
         return ResponseEntity.ok(response);
     }
 
@@ -2,8 +2,10 @@ package com.tirisano.mmogo.school.manager.controller;
 
 
 import com.tirisano.mmogo.school.manager.dto.ApiResponse;
+import com.tirisano.mmogo.school.manager.model.Payment;
 import com.tirisano.mmogo.school.manager.model.Student;
 import com.tirisano.mmogo.school.manager.model.Trip;
+import com.tirisano.mmogo.school.manager.service.IdempotencyService;
 import com.tirisano.mmogo.school.manager.service.TripService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -89,9 +91,10 @@ public class TripController {
 
     // Register student for trip (with mock payment)
     @PostMapping("/{tripId}/register")
-    public ResponseEntity<ApiResponse<String>> registerForTrip(
+    public ResponseEntity<ApiResponse<Payment>> registerForTrip(
             @PathVariable String tripId,
-            @RequestBody Map<String, String> body) {
+            @RequestBody Map<String, String> body,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         try {
             String studentId = body.get("studentId");
             String parentId = body.get("parentId");
@@ -106,8 +109,10 @@ public class TripController {
                         .body(ApiResponse.error("parentId is required"));
             }
 
-            tripService.registerStudent(tripId, studentId, parentId, paymentMethod);
-            return ResponseEntity.ok(ApiResponse.success("Student registered and payment processed successfully"));
+            Payment payment = tripService.registerStudent(tripId, studentId, parentId, paymentMethod, idempotencyKey);
+            return ResponseEntity.ok(ApiResponse.success(payment, "Student registered and payment processed successfully"));
+        } catch (IdempotencyService.ResultGoneException e) {
+            return ResponseEntity.status(HttpStatus.GONE).body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
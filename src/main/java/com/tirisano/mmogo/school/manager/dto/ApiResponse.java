@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import com.google.cloud.Timestamp;
+import com.tirisano.mmogo.school.manager.util.CoarseClock;
 
 @Data
 @NoArgsConstructor
@@ -16,12 +17,16 @@ public class ApiResponse<T> {
     private String message;
     private T data;
     private Timestamp timestamp;
+    /**
+     * True when some of the data was served from cache while Firestore was unreachable; omitted otherwise
+     */
+    private Boolean stale;
 
     public static <T> ApiResponse<T> success(T data) {
         return ApiResponse.<T>builder()
                 .success(true)
                 .data(data)
-                .timestamp(Timestamp.now())
+                .timestamp(CoarseClock.now())
                 .build();
     }
 
@@ -30,7 +35,7 @@ public class ApiResponse<T> {
                 .success(true)
                 .message(message)
                 .data(data)
-                .timestamp(Timestamp.now())
+                .timestamp(CoarseClock.now())
                 .build();
     }
 
@@ -38,7 +43,7 @@ public class ApiResponse<T> {
         return ApiResponse.<T>builder()
                 .success(false)
                 .message(message)
-                .timestamp(Timestamp.now())
+                .timestamp(CoarseClock.now())
                 .build();
     }
 }
@@ -0,0 +1,21 @@
+package com.tirisano.mmogo.school.manager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkImportReport {
+    private int total;
+    private int created;
+    private int rejected;
+    private boolean truncated; // Rows followed the max-rows limit and were not read
+    private long elapsedMillis;
+    private List<ImportRowResult> rows;
+}
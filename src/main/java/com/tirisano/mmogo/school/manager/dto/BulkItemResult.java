@@ -0,0 +1,17 @@
+package com.tirisano.mmogo.school.manager.dto;
+
+import com.tirisano.mmogo.school.manager.enums.BulkItemOutcome;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkItemResult {
+    private String id;
+    private BulkItemOutcome outcome;
+    private String message; // Why the item was not updated
+}
@@ -0,0 +1,21 @@
+package com.tirisano.mmogo.school.manager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkOperationResult {
+    private int requested;
+    private int updated;
+    private int skipped; // Unchanged, not found or not allowed
+    private int failed;
+    private long elapsedMillis;
+    private List<BulkItemResult> results;
+}
@@ -0,0 +1,21 @@
+package com.tirisano.mmogo.school.manager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkStatusRequest {
+    private List<String> ids;
+    private String status; // Target state, e.g. APPROVED or REJECTED
+    private String reason; // Required when rejecting
+    private String className; // Optional class assignment when approving students
+    private String teacher; // Optional teacher assignment when approving students
+    private String verifiedBy; // Required when verifying documents
+}
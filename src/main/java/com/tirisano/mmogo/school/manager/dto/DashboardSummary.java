@@ -0,0 +1,23 @@
+package com.tirisano.mmogo.school.manager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Counts for the admin dashboard, each produced by a Firestore count() aggregation
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DashboardSummary {
+    private long totalStudents;
+    private long pendingStudents;
+    private long totalParents;
+    private long unverifiedDocuments;
+    private long pendingMeetings;
+    private long pendingDocumentRequests;
+    private long activeTrips;
+}
@@ -0,0 +1,23 @@
+package com.tirisano.mmogo.school.manager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EndpointCost {
+    private String route; // e.g. GET /meetings/parent/{parentId}
+    private String handler; // Controller#method
+    private long requests;
+    private long reads;
+    private long writes;
+    private long readBytes;
+    private double avgReads;
+    private double avgWrites;
+    private double avgReadBytes;
+    private long maxReads; // Most documents read by a single request
+}
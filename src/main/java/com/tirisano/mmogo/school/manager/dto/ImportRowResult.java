@@ -0,0 +1,21 @@
+package com.tirisano.mmogo.school.manager.dto;
+
+import com.tirisano.mmogo.school.manager.enums.ImportRowStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportRowResult {
+    private int row; // 1-based data row, excluding any CSV header
+    private ImportRowStatus status;
+    private String studentId; // Set when created
+    private String birthCertificateId;
+    private List<String> errors;
+}
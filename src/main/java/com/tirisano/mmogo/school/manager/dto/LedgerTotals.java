@@ -0,0 +1,25 @@
+package com.tirisano.mmogo.school.manager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Running payment totals for one ledger key: a trip, a parent, a day or a month
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LedgerTotals {
+    private String key;
+    private BigDecimal collected;
+    private BigDecimal outstanding;
+    private long completedPayments;
+    private long pendingPayments;
+    private Map<String, BigDecimal> collectedByMethod; // Only kept for day and month keys
+}
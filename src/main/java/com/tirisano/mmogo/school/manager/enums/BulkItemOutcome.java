@@ -0,0 +1,3 @@
+package com.tirisano.mmogo.school.manager.enums;
+
+public enum BulkItemOutcome { UPDATED, UNCHANGED, NOT_FOUND, INVALID_TRANSITION, FAILED }
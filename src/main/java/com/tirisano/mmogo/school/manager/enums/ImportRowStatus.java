@@ -0,0 +1,3 @@
+package com.tirisano.mmogo.school.manager.enums;
+
+public enum ImportRowStatus { CREATED, INVALID, DUPLICATE_IN_FILE, ALREADY_EXISTS, FAILED }
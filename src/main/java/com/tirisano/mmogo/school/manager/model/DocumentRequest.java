@@ -1,5 +1,6 @@
 package com.tirisano.mmogo.school.manager.model;
 
+import com.tirisano.mmogo.school.manager.enums.DocumentType;
 import com.tirisano.mmogo.school.manager.enums.RequestStatus;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
@@ -7,7 +8,6 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.w3c.dom.DocumentType;
 
 import com.google.cloud.Timestamp;
 
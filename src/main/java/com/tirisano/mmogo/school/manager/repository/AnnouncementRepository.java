@@ -0,0 +1,14 @@
+package com.tirisano.mmogo.school.manager.repository;
+
+import com.tirisano.mmogo.school.manager.model.Announcement;
+import com.tirisano.mmogo.school.manager.service.FirebaseService;
+import org.springframework.stereotype.Component;
+
+@Component
+public class AnnouncementRepository extends FirestoreRepository<Announcement> {
+
+    public AnnouncementRepository(FirebaseService firebaseService, EntityRegistry entityRegistry,
+                                  CollectionReplicas replicas) {
+        super(firebaseService, entityRegistry, replicas, Announcement.class);
+    }
+}
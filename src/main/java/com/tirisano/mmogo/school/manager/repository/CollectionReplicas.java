@@ -0,0 +1,242 @@
+package com.tirisano.mmogo.school.manager.repository;
+
+import com.google.cloud.firestore.FirestoreException;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.tirisano.mmogo.school.manager.service.FirebaseService;
+import com.tirisano.mmogo.school.manager.service.RequestCost;
+import com.tirisano.mmogo.school.manager.service.StaleReads;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory replicas of small, hot collections, kept current by Firestore snapshot listeners.
+ * Each replica holds an immutable map of document ID to raw document data that is swapped
+ * whole on every listener event, so readers never lock and always see one consistent snapshot.
+ * A replica is only served while its listener is connected and no local write is settling;
+ * otherwise {@link #documents(String)} returns null and callers read Firestore directly.
+ */
+@Component
+@Slf4j
+public class CollectionReplicas {
+
+    private final FirebaseService firebaseService;
+    private final StaleReads staleReads;
+    private final MeterRegistry meterRegistry;
+    private final List<String> collections;
+    private final long writeGraceNanos;
+    private final Duration reconnectDelay;
+    private final Map<String, Replica> replicas = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService reconnects = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "replica-reconnect");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CollectionReplicas(FirebaseService firebaseService,
+                              StaleReads staleReads,
+                              MeterRegistry meterRegistry,
+                              @Value("${replica.collections:announcements,trips,meetings}") List<String> collections,
+                              @Value("${replica.write-grace:2s}") Duration writeGrace,
+                              @Value("${replica.reconnect-delay:5s}") Duration reconnectDelay) {
+        this.firebaseService = firebaseService;
+        this.staleReads = staleReads;
+        this.meterRegistry = meterRegistry;
+        this.collections = collections;
+        this.writeGraceNanos = writeGrace.toNanos();
+        this.reconnectDelay = reconnectDelay;
+    }
+
+    @PostConstruct
+    public void start() {
+        for (String collection : collections) {
+            if (collection.isBlank()) {
+                continue;
+            }
+            Replica replica = new Replica(collection.trim());
+            replicas.put(replica.collection, replica);
+            registerMetrics(replica);
+            attach(replica);
+        }
+        log.info("Replicating collections {} from snapshot listeners", replicas.keySet());
+    }
+
+    @PreDestroy
+    public void stop() {
+        reconnects.shutdownNow();
+        replicas.values().forEach(Replica::detach);
+    }
+
+    /**
+     * Current documents of a replicated collection in document ID order, or null when the
+     * collection is not replicated or the replica cannot be trusted right now
+     */
+    public Map<String, Map<String, Object>> documents(String collection) {
+        Replica replica = replicas.get(collection);
+        if (replica == null) {
+            return null;
+        }
+        Map<String, Map<String, Object>> documents = replica.readable();
+        (documents != null ? replica.replicaReads : replica.directReads).increment();
+        return documents;
+    }
+
+    public boolean isReplicated(String collection) {
+        return replicas.containsKey(collection);
+    }
+
+    /**
+     * The replica's last snapshot, however old or unsettled, when a direct read failed in a way
+     * StaleReads may paper over for this request and the snapshot is within its max age; else null
+     */
+    public Map<String, Map<String, Object>> lastKnown(String collection, Throwable error, RequestCost cost) {
+        Replica replica = replicas.get(collection);
+        if (replica == null || replica.documents == null || !staleReads.mayServe(error, cost)) {
+            return null;
+        }
+        long ageNanos = replica.connected ? 0 : System.nanoTime() - replica.lastSnapshotNanos;
+        if (ageNanos > staleReads.maxAgeNanos()) {
+            return null;
+        }
+        staleReads.served(collection, ageNanos, cost);
+        return replica.documents;
+    }
+
+    /**
+     * Listener state of every replica, by collection
+     */
+    public Map<String, Status> status() {
+        Map<String, Status> status = new TreeMap<>();
+        replicas.forEach((collection, replica) -> status.put(collection, new Status(replica.connected,
+                replica.documents == null ? 0 : replica.documents.size(), replica.stalenessSeconds())));
+        return status;
+    }
+
+    public record Status(boolean connected, int documents, double stalenessSeconds) {
+    }
+
+    /**
+     * Called around local writes so reads go to Firestore until the listener has caught up
+     */
+    public void markDirty(String collection) {
+        Replica replica = replicas.get(collection);
+        if (replica != null) {
+            replica.dirtyUntilNanos = System.nanoTime() + writeGraceNanos;
+        }
+    }
+
+    private void attach(Replica replica) {
+        try {
+            replica.registration = firebaseService.listen(replica.collection,
+                    (snapshot, error) -> onEvent(replica, snapshot, error));
+        } catch (Exception e) {
+            log.warn("Could not attach listener for '{}': {}", replica.collection, e.getMessage());
+            scheduleReconnect(replica);
+        }
+    }
+
+    private void onEvent(Replica replica, QuerySnapshot snapshot, FirestoreException error) {
+        if (error != null) {
+            log.warn("Snapshot listener for '{}' failed, serving direct reads: {}", replica.collection, error.getMessage());
+            replica.connected = false;
+            replica.detach();
+            scheduleReconnect(replica);
+            return;
+        }
+
+        Map<String, Map<String, Object>> documents = new LinkedHashMap<>();
+        for (QueryDocumentSnapshot document : snapshot.getDocuments()) {
+            documents.put(document.getId(), Collections.unmodifiableMap(document.getData()));
+        }
+        replica.documents = Collections.unmodifiableMap(documents);
+        replica.lastSnapshotNanos = System.nanoTime();
+        if (!replica.connected) {
+            log.info("Replica of '{}' synced with {} documents", replica.collection, documents.size());
+        }
+        replica.connected = true;
+    }
+
+    private void scheduleReconnect(Replica replica) {
+        if (reconnects.isShutdown()) {
+            return;
+        }
+        reconnects.schedule(() -> attach(replica), reconnectDelay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void registerMetrics(Replica replica) {
+        Gauge.builder("replica.connected", replica, r -> r.connected ? 1 : 0)
+                .tag("collection", replica.collection)
+                .description("1 while the snapshot listener is attached and synced")
+                .register(meterRegistry);
+        Gauge.builder("replica.documents", replica, r -> r.documents == null ? 0 : r.documents.size())
+                .tag("collection", replica.collection)
+                .register(meterRegistry);
+        Gauge.builder("replica.staleness", replica, Replica::stalenessSeconds)
+                .tag("collection", replica.collection)
+                .description("Seconds since the last snapshot while the listener is disconnected, 0 while connected")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        replica.replicaReads = Counter.builder("replica.reads")
+                .tags("collection", replica.collection, "source", "replica")
+                .register(meterRegistry);
+        replica.directReads = Counter.builder("replica.reads")
+                .tags("collection", replica.collection, "source", "firestore")
+                .register(meterRegistry);
+    }
+
+    private static final class Replica {
+
+        private final String collection;
+        private volatile Map<String, Map<String, Object>> documents;
+        private volatile boolean connected;
+        private volatile long lastSnapshotNanos;
+        private volatile long dirtyUntilNanos = System.nanoTime();
+        private volatile ListenerRegistration registration;
+        private Counter replicaReads;
+        private Counter directReads;
+
+        private Replica(String collection) {
+            this.collection = collection;
+        }
+
+        private Map<String, Map<String, Object>> readable() {
+            if (!connected || System.nanoTime() - dirtyUntilNanos < 0) {
+                return null;
+            }
+            return documents;
+        }
+
+        private double stalenessSeconds() {
+            if (connected || documents == null) {
+                return 0;
+            }
+            return (System.nanoTime() - lastSnapshotNanos) / 1e9;
+        }
+
+        private void detach() {
+            ListenerRegistration current = registration;
+            registration = null;
+            if (current != null) {
+                current.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.tirisano.mmogo.school.manager.repository;
+
+import java.util.Map;
+
+/**
+ * Maps the decoded field map of a Firestore document straight onto a model instance.
+ * Fields absent from the map keep the model's defaults and unknown fields are ignored,
+ * matching DocumentSnapshot.toObject without its per-document reflection.
+ */
+@FunctionalInterface
+public interface DocumentMapper<T> {
+
+    T map(Map<String, Object> data);
+}
@@ -0,0 +1,246 @@
+package com.tirisano.mmogo.school.manager.repository;
+
+import com.tirisano.mmogo.school.manager.enums.AnnouncementType;
+import com.tirisano.mmogo.school.manager.enums.DocumentType;
+import com.tirisano.mmogo.school.manager.enums.Gender;
+import com.tirisano.mmogo.school.manager.enums.MeetingStatus;
+import com.tirisano.mmogo.school.manager.enums.MeetingType;
+import com.tirisano.mmogo.school.manager.enums.PaymentStatus;
+import com.tirisano.mmogo.school.manager.enums.RequestStatus;
+import com.tirisano.mmogo.school.manager.enums.StudentStatus;
+import com.tirisano.mmogo.school.manager.enums.UserRole;
+import com.tirisano.mmogo.school.manager.model.Announcement;
+import com.tirisano.mmogo.school.manager.model.Document;
+import com.tirisano.mmogo.school.manager.model.DocumentRequest;
+import com.tirisano.mmogo.school.manager.model.Grade;
+import com.tirisano.mmogo.school.manager.model.Meeting;
+import com.tirisano.mmogo.school.manager.model.Parent;
+import com.tirisano.mmogo.school.manager.model.Payment;
+import com.tirisano.mmogo.school.manager.model.Student;
+import com.tirisano.mmogo.school.manager.model.Trip;
+import com.tirisano.mmogo.school.manager.model.User;
+
+import java.util.Map;
+
+import static com.tirisano.mmogo.school.manager.repository.DocumentValues.*;
+
+/**
+ * Hand-written document mappers for every registered model.
+ * Each mapper walks the document's entries once and switches on the field name, so a new
+ * model field needs a case here or it will be silently left at its default on reads.
+ */
+public final class DocumentMappers {
+
+    private DocumentMappers() {
+    }
+
+    public static Parent parent(Map<String, Object> data) {
+        Parent parent = new Parent();
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            Object value = entry.getValue();
+            switch (entry.getKey()) {
+                case "parentId" -> parent.setParentId(string(value));
+                case "uid" -> parent.setUid(string(value));
+                case "fullName" -> parent.setFullName(string(value));
+                case "email" -> parent.setEmail(string(value));
+                case "phoneNumber" -> parent.setPhoneNumber(string(value));
+                case "address" -> parent.setAddress(string(value));
+                case "childrenIds" -> parent.setChildrenIds(stringList(value));
+                case "createdAt" -> parent.setCreatedAt(timestamp(value));
+                default -> { }
+            }
+        }
+        return parent;
+    }
+
+    public static Student student(Map<String, Object> data) {
+        Student student = new Student();
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            Object value = entry.getValue();
+            switch (entry.getKey()) {
+                case "studentId" -> student.setStudentId(string(value));
+                case "name" -> student.setName(string(value));
+                case "surname" -> student.setSurname(string(value));
+                case "gender" -> student.setGender(enumValue(value, Gender.class));
+                case "dateOfBirth" -> student.setDateOfBirth(timestamp(value));
+                case "birthCertificateId" -> student.setBirthCertificateId(string(value));
+                case "nationality" -> student.setNationality(string(value));
+                case "grade" -> student.setGrade(string(value));
+                case "yearOfAdmission" -> student.setYearOfAdmission(integer(value));
+                case "previousSchool" -> student.setPreviousSchool(string(value));
+                case "latestSchoolReport" -> student.setLatestSchoolReport(string(value));
+                case "parentId" -> student.setParentId(string(value));
+                case "className" -> student.setClassName(string(value));
+                case "teacher" -> student.setTeacher(string(value));
+                case "status" -> student.setStatus(enumValue(value, StudentStatus.class));
+                case "rejectionReason" -> student.setRejectionReason(string(value));
+                case "grades" -> student.setGrades(objectList(value, DocumentMappers::grade));
+                case "createdAt" -> student.setCreatedAt(timestamp(value));
+                default -> { }
+            }
+        }
+        return student;
+    }
+
+    public static Grade grade(Map<String, Object> data) {
+        Grade grade = new Grade();
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            Object value = entry.getValue();
+            switch (entry.getKey()) {
+                case "subject" -> grade.setSubject(string(value));
+                case "score" -> grade.setScore(string(value));
+                case "term" -> grade.setTerm(string(value));
+                case "date" -> grade.setDate(timestamp(value));
+                case "comments" -> grade.setComments(string(value));
+                default -> { }
+            }
+        }
+        return grade;
+    }
+
+    public static Announcement announcement(Map<String, Object> data) {
+        Announcement announcement = new Announcement();
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            Object value = entry.getValue();
+            switch (entry.getKey()) {
+                case "announcementId" -> announcement.setAnnouncementId(string(value));
+                case "title" -> announcement.setTitle(string(value));
+                case "content" -> announcement.setContent(string(value));
+                case "type" -> announcement.setType(enumValue(value, AnnouncementType.class));
+                case "active" -> announcement.setActive(bool(value, announcement.isActive()));
+                case "createdAt" -> announcement.setCreatedAt(timestamp(value));
+                default -> { }
+            }
+        }
+        return announcement;
+    }
+
+    public static DocumentRequest documentRequest(Map<String, Object> data) {
+        DocumentRequest request = new DocumentRequest();
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            Object value = entry.getValue();
+            switch (entry.getKey()) {
+                case "requestId" -> request.setRequestId(string(value));
+                case "parentId" -> request.setParentId(string(value));
+                case "studentId" -> request.setStudentId(string(value));
+                case "documentType" -> request.setDocumentType(enumValue(value, DocumentType.class));
+                case "reason" -> request.setReason(string(value));
+                case "status" -> request.setStatus(enumValue(value, RequestStatus.class));
+                case "createdAt" -> request.setCreatedAt(timestamp(value));
+                default -> { }
+            }
+        }
+        return request;
+    }
+
+    public static Trip trip(Map<String, Object> data) {
+        Trip trip = new Trip();
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            Object value = entry.getValue();
+            switch (entry.getKey()) {
+                case "tripId" -> trip.setTripId(string(value));
+                case "title" -> trip.setTitle(string(value));
+                case "description" -> trip.setDescription(string(value));
+                case "destination" -> trip.setDestination(string(value));
+                case "imageUrl" -> trip.setImageUrl(string(value));
+                case "price" -> trip.setPrice(decimal(value));
+                case "tripDate" -> trip.setTripDate(timestamp(value));
+                case "eligibleGrades" -> trip.setEligibleGrades(stringList(value));
+                case "registeredStudents" -> trip.setRegisteredStudents(stringList(value));
+                case "active" -> trip.setActive(bool(value, trip.isActive()));
+                case "createdAt" -> trip.setCreatedAt(timestamp(value));
+                default -> { }
+            }
+        }
+        return trip;
+    }
+
+    public static Meeting meeting(Map<String, Object> data) {
+        Meeting meeting = new Meeting();
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            Object value = entry.getValue();
+            switch (entry.getKey()) {
+                case "meetingId" -> meeting.setMeetingId(string(value));
+                case "title" -> meeting.setTitle(string(value));
+                case "description" -> meeting.setDescription(string(value));
+                case "scheduledTime" -> meeting.setScheduledTime(timestamp(value));
+                case "teacherId" -> meeting.setTeacherId(string(value));
+                case "teacherName" -> meeting.setTeacherName(string(value));
+                case "parentId" -> meeting.setParentId(string(value));
+                case "type" -> meeting.setType(enumValue(value, MeetingType.class));
+                case "status" -> meeting.setStatus(enumValue(value, MeetingStatus.class));
+                case "createdAt" -> meeting.setCreatedAt(timestamp(value));
+                case "rejectionReason" -> meeting.setRejectionReason(string(value));
+                case "parentName" -> meeting.setParentName(string(value));
+                default -> { }
+            }
+        }
+        return meeting;
+    }
+
+    public static Payment payment(Map<String, Object> data) {
+        Payment payment = new Payment();
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            Object value = entry.getValue();
+            switch (entry.getKey()) {
+                case "paymentId" -> payment.setPaymentId(string(value));
+                case "studentId" -> payment.setStudentId(string(value));
+                case "tripId" -> payment.setTripId(string(value));
+                case "parentId" -> payment.setParentId(string(value));
+                case "amount" -> payment.setAmount(decimal(value));
+                case "status" -> payment.setStatus(enumValue(value, PaymentStatus.class));
+                case "paymentMethod" -> payment.setPaymentMethod(string(value));
+                case "transactionReference" -> payment.setTransactionReference(string(value));
+                case "paymentNote" -> payment.setPaymentNote(string(value));
+                case "createdAt" -> payment.setCreatedAt(timestamp(value));
+                case "paidAt" -> payment.setPaidAt(timestamp(value));
+                default -> { }
+            }
+        }
+        return payment;
+    }
+
+    public static Document document(Map<String, Object> data) {
+        Document document = new Document();
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            Object value = entry.getValue();
+            switch (entry.getKey()) {
+                case "documentId" -> document.setDocumentId(string(value));
+                case "fileName" -> document.setFileName(string(value));
+                case "fileUrl" -> document.setFileUrl(string(value));
+                case "documentType" -> document.setDocumentType(enumValue(value, DocumentType.class));
+                case "studentId" -> document.setStudentId(string(value));
+                case "parentId" -> document.setParentId(string(value));
+                case "uploadedBy" -> document.setUploadedBy(string(value));
+                case "uploadedByRole" -> document.setUploadedByRole(string(value));
+                case "mimeType" -> document.setMimeType(string(value));
+                case "fileSize" -> document.setFileSize(longValue(value));
+                case "description" -> document.setDescription(string(value));
+                case "uploadedAt" -> document.setUploadedAt(timestamp(value));
+                case "verified" -> document.setVerified(bool(value, document.isVerified()));
+                case "verifiedBy" -> document.setVerifiedBy(string(value));
+                case "verifiedAt" -> document.setVerifiedAt(timestamp(value));
+                default -> { }
+            }
+        }
+        return document;
+    }
+
+    public static User user(Map<String, Object> data) {
+        User user = new User();
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            Object value = entry.getValue();
+            switch (entry.getKey()) {
+                case "uid" -> user.setUid(string(value));
+                case "email" -> user.setEmail(string(value));
+                case "fullName" -> user.setFullName(string(value));
+                case "phoneNumber" -> user.setPhoneNumber(string(value));
+                case "role" -> user.setRole(enumValue(value, UserRole.class));
+                case "createdAt" -> user.setCreatedAt(timestamp(value));
+                case "active" -> user.setActive(bool(value, user.isActive()));
+                default -> { }
+            }
+        }
+        return user;
+    }
+}
@@ -0,0 +1,14 @@
+package com.tirisano.mmogo.school.manager.repository;
+
+import com.tirisano.mmogo.school.manager.model.Document;
+import com.tirisano.mmogo.school.manager.service.FirebaseService;
+import org.springframework.stereotype.Component;
+
+@Component
+public class DocumentRepository extends FirestoreRepository<Document> {
+
+    public DocumentRepository(FirebaseService firebaseService, EntityRegistry entityRegistry,
+                              CollectionReplicas replicas) {
+        super(firebaseService, entityRegistry, replicas, Document.class);
+    }
+}
@@ -0,0 +1,14 @@
+package com.tirisano.mmogo.school.manager.repository;
+
+import com.tirisano.mmogo.school.manager.model.DocumentRequest;
+import com.tirisano.mmogo.school.manager.service.FirebaseService;
+import org.springframework.stereotype.Component;
+
+@Component
+public class DocumentRequestRepository extends FirestoreRepository<DocumentRequest> {
+
+    public DocumentRequestRepository(FirebaseService firebaseService, EntityRegistry entityRegistry,
+                                     CollectionReplicas replicas) {
+        super(firebaseService, entityRegistry, replicas, DocumentRequest.class);
+    }
+}
@@ -0,0 +1,136 @@
+package com.tirisano.mmogo.school.manager.repository;
+
+import com.google.cloud.Timestamp;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Conversions from Firestore field values to model property types.
+ * Firestore returns whole numbers as Long and the SDK writes BigDecimal as a String,
+ * so each converter accepts the same inputs as the SDK's reflective mapper.
+ */
+public final class DocumentValues {
+
+    private DocumentValues() {
+    }
+
+    public static String string(Object value) {
+        if (value == null || value instanceof String) {
+            return (String) value;
+        }
+        throw mismatch(value, String.class);
+    }
+
+    public static boolean bool(Object value, boolean defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value instanceof Boolean b) {
+            return b;
+        }
+        throw mismatch(value, Boolean.class);
+    }
+
+    public static Integer integer(Object value) {
+        if (value == null || value instanceof Integer) {
+            return (Integer) value;
+        }
+        if (value instanceof Number n) {
+            return Math.toIntExact(n.longValue());
+        }
+        throw mismatch(value, Integer.class);
+    }
+
+    public static Long longValue(Object value) {
+        if (value == null || value instanceof Long) {
+            return (Long) value;
+        }
+        if (value instanceof Number n) {
+            return n.longValue();
+        }
+        throw mismatch(value, Long.class);
+    }
+
+    public static BigDecimal decimal(Object value) {
+        if (value == null || value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        if (value instanceof String s) {
+            return new BigDecimal(s);
+        }
+        if (value instanceof Long || value instanceof Integer) {
+            return BigDecimal.valueOf(((Number) value).longValue());
+        }
+        if (value instanceof Double d) {
+            return BigDecimal.valueOf(d);
+        }
+        throw mismatch(value, BigDecimal.class);
+    }
+
+    public static Timestamp timestamp(Object value) {
+        if (value == null || value instanceof Timestamp) {
+            return (Timestamp) value;
+        }
+        if (value instanceof java.util.Date date) {
+            return Timestamp.of(date);
+        }
+        throw mismatch(value, Timestamp.class);
+    }
+
+    public static <E extends Enum<E>> E enumValue(Object value, Class<E> type) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof String s) {
+            return Enum.valueOf(type, s);
+        }
+        throw mismatch(value, type);
+    }
+
+    /**
+     * Copies into a mutable list, as the models expose their lists for in-place edits
+     */
+    public static List<String> stringList(Object value) {
+        if (value == null) {
+            return null;
+        }
+        List<?> source = list(value);
+        List<String> result = new ArrayList<>(source.size());
+        for (Object item : source) {
+            result.add(string(item));
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> List<T> objectList(Object value, Function<Map<String, Object>, T> mapper) {
+        if (value == null) {
+            return null;
+        }
+        List<?> source = list(value);
+        List<T> result = new ArrayList<>(source.size());
+        for (Object item : source) {
+            if (item != null && !(item instanceof Map)) {
+                throw mismatch(item, Map.class);
+            }
+            result.add(item == null ? null : mapper.apply((Map<String, Object>) item));
+        }
+        return result;
+    }
+
+    private static List<?> list(Object value) {
+        if (value instanceof List<?> list) {
+            return list;
+        }
+        throw mismatch(value, List.class);
+    }
+
+    private static IllegalArgumentException mismatch(Object value, Class<?> target) {
+        return new IllegalArgumentException("Cannot map value of type " + value.getClass().getName()
+                + " to " + target.getSimpleName());
+    }
+}
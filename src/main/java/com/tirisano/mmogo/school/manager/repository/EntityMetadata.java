@@ -0,0 +1,30 @@
+package com.tirisano.mmogo.school.manager.repository;
+
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Persistence metadata for one model class: its collection, ID field, direct ID accessors
+ * and the mapper used to build instances from document data.
+ */
+public record EntityMetadata<T>(
+        Class<T> type,
+        String collection,
+        String idField,
+        Function<T, String> idGetter,
+        BiConsumer<T, String> idSetter,
+        DocumentMapper<T> mapper) {
+
+    public String idOf(Object entity) {
+        return idGetter.apply(type.cast(entity));
+    }
+
+    public T fromData(Map<String, Object> data) {
+        return mapper.map(data);
+    }
+
+    public void assignId(Object entity, String id) {
+        idSetter.accept(type.cast(entity), id);
+    }
+}
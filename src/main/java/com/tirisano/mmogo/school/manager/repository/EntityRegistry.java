@@ -0,0 +1,88 @@
+package com.tirisano.mmogo.school.manager.repository;
+
+import com.tirisano.mmogo.school.manager.model.Announcement;
+import com.tirisano.mmogo.school.manager.model.Document;
+import com.tirisano.mmogo.school.manager.model.DocumentRequest;
+import com.tirisano.mmogo.school.manager.model.Meeting;
+import com.tirisano.mmogo.school.manager.model.Parent;
+import com.tirisano.mmogo.school.manager.model.Payment;
+import com.tirisano.mmogo.school.manager.model.Student;
+import com.tirisano.mmogo.school.manager.model.Trip;
+import com.tirisano.mmogo.school.manager.model.User;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Registry of persisted model classes, built once at startup and keyed by class.
+ * Registration validates every entry, so a missing or mistyped ID field fails the boot
+ * instead of surfacing as a warning on the first insert.
+ */
+@Component
+@Slf4j
+public class EntityRegistry {
+
+    private final Map<Class<?>, EntityMetadata<?>> byType = new HashMap<>();
+    private final Map<String, EntityMetadata<?>> byCollection = new HashMap<>();
+
+    public EntityRegistry() {
+        register(Parent.class, "parents", "parentId", Parent::getParentId, Parent::setParentId,
+                DocumentMappers::parent);
+        register(Student.class, "students", "studentId", Student::getStudentId, Student::setStudentId,
+                DocumentMappers::student);
+        register(Announcement.class, "announcements", "announcementId",
+                Announcement::getAnnouncementId, Announcement::setAnnouncementId, DocumentMappers::announcement);
+        register(DocumentRequest.class, "documentRequests", "requestId",
+                DocumentRequest::getRequestId, DocumentRequest::setRequestId, DocumentMappers::documentRequest);
+        register(Trip.class, "trips", "tripId", Trip::getTripId, Trip::setTripId, DocumentMappers::trip);
+        register(Meeting.class, "meetings", "meetingId", Meeting::getMeetingId, Meeting::setMeetingId,
+                DocumentMappers::meeting);
+        register(Payment.class, "payments", "paymentId", Payment::getPaymentId, Payment::setPaymentId,
+                DocumentMappers::payment);
+        register(Document.class, "documents", "documentId", Document::getDocumentId, Document::setDocumentId,
+                DocumentMappers::document);
+        register(User.class, "users", "uid", User::getUid, User::setUid, DocumentMappers::user);
+        log.info("Entity registry initialized with {} entity types", byType.size());
+    }
+
+    /**
+     * Metadata for an entity class, or null if the class is not a registered model (e.g. a Map)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> EntityMetadata<T> forClass(Class<T> type) {
+        return (EntityMetadata<T>) byType.get(type);
+    }
+
+    public EntityMetadata<?> forCollection(String collection) {
+        return byCollection.get(collection);
+    }
+
+    private <T> void register(Class<T> type, String collection, String idField,
+                              Function<T, String> idGetter, BiConsumer<T, String> idSetter,
+                              DocumentMapper<T> mapper) {
+        validateIdField(type, idField);
+        EntityMetadata<T> metadata = new EntityMetadata<>(type, collection, idField, idGetter, idSetter, mapper);
+        if (byType.putIfAbsent(type, metadata) != null) {
+            throw new IllegalStateException("Entity type registered twice: " + type.getName());
+        }
+        if (byCollection.putIfAbsent(collection, metadata) != null) {
+            throw new IllegalStateException("Collection registered twice: " + collection);
+        }
+    }
+
+    private void validateIdField(Class<?> type, String idField) {
+        try {
+            Field field = type.getDeclaredField(idField);
+            if (field.getType() != String.class) {
+                throw new IllegalStateException("ID field " + type.getSimpleName() + "." + idField + " must be a String");
+            }
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException("Missing ID field " + idField + " on " + type.getName(), e);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.tirisano.mmogo.school.manager.repository;
+
+import com.tirisano.mmogo.school.manager.service.FirebaseService;
+import com.tirisano.mmogo.school.manager.service.FirestoreBatch;
+import com.tirisano.mmogo.school.manager.service.RequestCost;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Repository backed by a Firestore collection. Subclasses only name their entity class;
+ * collection and ID metadata are resolved from the EntityRegistry once at construction.
+ * Reads of replicated collections are answered from the listener replica when it is current,
+ * and from its last snapshot when it is not and Firestore cannot be reached either.
+ */
+public abstract class FirestoreRepository<T> implements Repository<T, String> {
+
+    protected final FirebaseService firebaseService;
+    private final CollectionReplicas replicas;
+    private final EntityMetadata<T> metadata;
+
+    protected FirestoreRepository(FirebaseService firebaseService, EntityRegistry entityRegistry,
+                                  CollectionReplicas replicas, Class<T> type) {
+        this.firebaseService = firebaseService;
+        this.replicas = replicas;
+        this.metadata = entityRegistry.forClass(type);
+        if (metadata == null) {
+            throw new IllegalStateException("No entity metadata registered for " + type.getName());
+        }
+    }
+
+    @Override
+    public EntityMetadata<T> metadata() {
+        return metadata;
+    }
+
+    public String collection() {
+        return metadata.collection();
+    }
+
+    @Override
+    public CompletableFuture<String> save(T entity) {
+        replicas.markDirty(metadata.collection());
+        return firebaseService.save(metadata.collection(), entity)
+                .whenComplete((id, error) -> replicas.markDirty(metadata.collection()));
+    }
+
+    @Override
+    public CompletableFuture<Void> save(T entity, String id) {
+        replicas.markDirty(metadata.collection());
+        return firebaseService.save(metadata.collection(), entity, id)
+                .whenComplete((ignored, error) -> replicas.markDirty(metadata.collection()));
+    }
+
+    /**
+     * Stages an insert with a generated ID in the batch; the ID is set on the entity immediately
+     */
+    public String save(FirestoreBatch batch, T entity) {
+        replicas.markDirty(metadata.collection());
+        batch.afterCommit(() -> replicas.markDirty(metadata.collection()));
+        return batch.save(metadata.collection(), entity);
+    }
+
+    public void save(FirestoreBatch batch, T entity, String id) {
+        replicas.markDirty(metadata.collection());
+        batch.afterCommit(() -> replicas.markDirty(metadata.collection()));
+        batch.save(metadata.collection(), entity, id);
+    }
+
+    /**
+     * Stages a partial update of the given fields; the document must still exist at commit
+     */
+    public void update(FirestoreBatch batch, String id, Map<String, Object> fields) {
+        replicas.markDirty(metadata.collection());
+        batch.afterCommit(() -> replicas.markDirty(metadata.collection()));
+        batch.update(metadata.collection(), id, fields);
+    }
+
+    public void deleteById(FirestoreBatch batch, String id) {
+        replicas.markDirty(metadata.collection());
+        batch.afterCommit(() -> replicas.markDirty(metadata.collection()));
+        batch.delete(metadata.collection(), id);
+    }
+
+    @Override
+    public CompletableFuture<T> findById(String id) {
+        Map<String, Map<String, Object>> documents = replicas.documents(metadata.collection());
+        if (documents != null) {
+            return CompletableFuture.completedFuture(byId(documents, id));
+        }
+        return orLastKnown(firebaseService.findById(metadata.collection(), id, metadata.type()),
+                replica -> byId(replica, id));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, T>> findAllById(Collection<String> ids) {
+        Map<String, Map<String, Object>> documents = replicas.documents(metadata.collection());
+        if (documents != null) {
+            return CompletableFuture.completedFuture(byIds(documents, ids));
+        }
+        return orLastKnown(firebaseService.findByIds(metadata.collection(), ids, metadata.type()),
+                replica -> byIds(replica, ids));
+    }
+
+    @Override
+    public CompletableFuture<List<T>> findAll() {
+        Map<String, Map<String, Object>> documents = replicas.documents(metadata.collection());
+        if (documents != null) {
+            return CompletableFuture.completedFuture(decode(documents.values(), null, null));
+        }
+        return orLastKnown(firebaseService.findAll(metadata.collection(), metadata.type()),
+                replica -> decode(replica.values(), null, null));
+    }
+
+    @Override
+    public CompletableFuture<List<T>> findByField(String field, Object value) {
+        Map<String, Map<String, Object>> documents = replicas.documents(metadata.collection());
+        if (documents != null) {
+            return CompletableFuture.completedFuture(decode(documents.values(), field, value));
+        }
+        return orLastKnown(firebaseService.findByField(metadata.collection(), field, value, metadata.type()),
+                replica -> decode(replica.values(), field, value));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteById(String id) {
+        replicas.markDirty(metadata.collection());
+        return firebaseService.delete(metadata.collection(), id)
+                .whenComplete((ignored, error) -> replicas.markDirty(metadata.collection()));
+    }
+
+    @Override
+    public CompletableFuture<Long> count() {
+        Map<String, Map<String, Object>> documents = replicas.documents(metadata.collection());
+        if (documents != null) {
+            return CompletableFuture.completedFuture((long) documents.size());
+        }
+        return orLastKnown(firebaseService.count(metadata.collection()), replica -> (long) replica.size());
+    }
+
+    @Override
+    public CompletableFuture<Long> countByField(String field, Object value) {
+        Map<String, Map<String, Object>> documents = replicas.documents(metadata.collection());
+        if (documents != null) {
+            return CompletableFuture.completedFuture(countMatching(documents, field, value));
+        }
+        return orLastKnown(firebaseService.countByField(metadata.collection(), field, value),
+                replica -> countMatching(replica, field, value));
+    }
+
+    /**
+     * A direct read that, when Firestore cannot be reached, is answered from the replica's last
+     * snapshot instead, if StaleReads allows it for this request
+     */
+    private <R> CompletableFuture<R> orLastKnown(CompletableFuture<R> direct,
+                                                 Function<Map<String, Map<String, Object>>, R> fromReplica) {
+        if (!replicas.isReplicated(metadata.collection())) {
+            return direct;
+        }
+        RequestCost cost = RequestCost.current();
+        return direct.exceptionallyCompose(error -> {
+            Map<String, Map<String, Object>> documents = replicas.lastKnown(metadata.collection(), error, cost);
+            return documents != null
+                    ? CompletableFuture.completedFuture(fromReplica.apply(documents))
+                    : CompletableFuture.failedFuture(error);
+        });
+    }
+
+    private T byId(Map<String, Map<String, Object>> documents, String id) {
+        Map<String, Object> data = documents.get(id);
+        return data == null ? null : metadata.fromData(data);
+    }
+
+    private Map<String, T> byIds(Map<String, Map<String, Object>> documents, Collection<String> ids) {
+        Map<String, T> results = new LinkedHashMap<>();
+        for (String id : ids) {
+            Map<String, Object> data = documents.get(id);
+            if (data != null) {
+                results.put(id, metadata.fromData(data));
+            }
+        }
+        return results;
+    }
+
+    private static long countMatching(Map<String, Map<String, Object>> documents, String field, Object value) {
+        return documents.values().stream().filter(data -> matches(data.get(field), value)).count();
+    }
+
+    /**
+     * Decodes replica documents into fresh instances, optionally keeping only those where field equals value
+     */
+    private List<T> decode(Collection<Map<String, Object>> documents, String field, Object value) {
+        List<T> results = new ArrayList<>(documents.size());
+        for (Map<String, Object> data : documents) {
+            if (field == null || matches(data.get(field), value)) {
+                results.add(metadata.fromData(data));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Equality as whereEqualTo sees it: enums are stored by name and all numbers compare by value
+     */
+    private static boolean matches(Object stored, Object value) {
+        Object expected = value instanceof Enum<?> e ? e.name() : value;
+        if (stored instanceof Number a && expected instanceof Number b) {
+            if (isIntegral(a) && isIntegral(b)) {
+                return a.longValue() == b.longValue();
+            }
+            return a.doubleValue() == b.doubleValue();
+        }
+        return Objects.equals(stored, expected);
+    }
+
+    private static boolean isIntegral(Number number) {
+        return number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte;
+    }
+}
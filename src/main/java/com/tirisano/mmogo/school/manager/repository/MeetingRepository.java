@@ -0,0 +1,14 @@
+package com.tirisano.mmogo.school.manager.repository;
+
+import com.tirisano.mmogo.school.manager.model.Meeting;
+import com.tirisano.mmogo.school.manager.service.FirebaseService;
+import org.springframework.stereotype.Component;
+
+@Component
+public class MeetingRepository extends FirestoreRepository<Meeting> {
+
+    public MeetingRepository(FirebaseService firebaseService, EntityRegistry entityRegistry,
+                             CollectionReplicas replicas) {
+        super(firebaseService, entityRegistry, replicas, Meeting.class);
+    }
+}
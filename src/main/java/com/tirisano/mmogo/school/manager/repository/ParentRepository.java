@@ -0,0 +1,14 @@
+package com.tirisano.mmogo.school.manager.repository;
+
+import com.tirisano.mmogo.school.manager.model.Parent;
+import com.tirisano.mmogo.school.manager.service.FirebaseService;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ParentRepository extends FirestoreRepository<Parent> {
+
+    public ParentRepository(FirebaseService firebaseService, EntityRegistry entityRegistry,
+                            CollectionReplicas replicas) {
+        super(firebaseService, entityRegistry, replicas, Parent.class);
+    }
+}
@@ -0,0 +1,14 @@
+package com.tirisano.mmogo.school.manager.repository;
+
+import com.tirisano.mmogo.school.manager.model.Payment;
+import com.tirisano.mmogo.school.manager.service.FirebaseService;
+import org.springframework.stereotype.Component;
+
+@Component
+public class PaymentRepository extends FirestoreRepository<Payment> {
+
+    public PaymentRepository(FirebaseService firebaseService, EntityRegistry entityRegistry,
+                             CollectionReplicas replicas) {
+        super(firebaseService, entityRegistry, replicas, Payment.class);
+    }
+}
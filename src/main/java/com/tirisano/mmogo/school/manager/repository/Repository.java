@@ -0,0 +1,47 @@
+package com.tirisano.mmogo.school.manager.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Typed persistence operations for one entity type.
+ * Implementations carry the entity's collection and mapping metadata, so callers never
+ * pass collection names or classes, and there is one place per entity to hook in
+ * caching, batching, metrics and indexing.
+ */
+public interface Repository<T, ID> {
+
+    EntityMetadata<T> metadata();
+
+    /**
+     * Insert with a generated ID, which is also set on the entity
+     */
+    CompletableFuture<ID> save(T entity);
+
+    /**
+     * Create or overwrite the document with the given ID
+     */
+    CompletableFuture<Void> save(T entity, ID id);
+
+    /**
+     * Returns null when no document exists with the given ID
+     */
+    CompletableFuture<T> findById(ID id);
+
+    /**
+     * The existing entities among the given IDs, keyed by ID; missing IDs are absent from the map
+     */
+    CompletableFuture<Map<ID, T>> findAllById(Collection<ID> ids);
+
+    CompletableFuture<List<T>> findAll();
+
+    CompletableFuture<List<T>> findByField(String field, Object value);
+
+    CompletableFuture<Void> deleteById(ID id);
+
+    CompletableFuture<Long> count();
+
+    CompletableFuture<Long> countByField(String field, Object value);
+}
@@ -0,0 +1,14 @@
+package com.tirisano.mmogo.school.manager.repository;
+
+import com.tirisano.mmogo.school.manager.model.Student;
+import com.tirisano.mmogo.school.manager.service.FirebaseService;
+import org.springframework.stereotype.Component;
+
+@Component
+public class StudentRepository extends FirestoreRepository<Student> {
+
+    public StudentRepository(FirebaseService firebaseService, EntityRegistry entityRegistry,
+                             CollectionReplicas replicas) {
+        super(firebaseService, entityRegistry, replicas, Student.class);
+    }
+}
@@ -0,0 +1,14 @@
+package com.tirisano.mmogo.school.manager.repository;
+
+import com.tirisano.mmogo.school.manager.model.Trip;
+import com.tirisano.mmogo.school.manager.service.FirebaseService;
+import org.springframework.stereotype.Component;
+
+@Component
+public class TripRepository extends FirestoreRepository<Trip> {
+
+    public TripRepository(FirebaseService firebaseService, EntityRegistry entityRegistry,
+                          CollectionReplicas replicas) {
+        super(firebaseService, entityRegistry, replicas, Trip.class);
+    }
+}
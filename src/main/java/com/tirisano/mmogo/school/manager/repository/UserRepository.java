@@ -0,0 +1,14 @@
+package com.tirisano.mmogo.school.manager.repository;
+
+import com.tirisano.mmogo.school.manager.model.User;
+import com.tirisano.mmogo.school.manager.service.FirebaseService;
+import org.springframework.stereotype.Component;
+
+@Component
+public class UserRepository extends FirestoreRepository<User> {
+
+    public UserRepository(FirebaseService firebaseService, EntityRegistry entityRegistry,
+                          CollectionReplicas replicas) {
+        super(firebaseService, entityRegistry, replicas, User.class);
+    }
+}
@@ -1,70 +1,116 @@
 package com.tirisano.mmogo.school.manager.service;
 
+import com.tirisano.mmogo.school.manager.dto.DashboardSummary;
+import com.tirisano.mmogo.school.manager.enums.MeetingStatus;
 import com.tirisano.mmogo.school.manager.enums.RequestStatus;
+import com.tirisano.mmogo.school.manager.enums.StudentStatus;
 import com.tirisano.mmogo.school.manager.model.Announcement;
 import com.tirisano.mmogo.school.manager.model.DocumentRequest;
+import com.tirisano.mmogo.school.manager.repository.AnnouncementRepository;
+import com.tirisano.mmogo.school.manager.repository.DocumentRepository;
+import com.tirisano.mmogo.school.manager.repository.DocumentRequestRepository;
+import com.tirisano.mmogo.school.manager.repository.MeetingRepository;
+import com.tirisano.mmogo.school.manager.repository.ParentRepository;
+import com.tirisano.mmogo.school.manager.repository.StudentRepository;
+import com.tirisano.mmogo.school.manager.repository.TripRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
 public class AdminService {
 
-    private final FirebaseService firebaseService;
+    private final AnnouncementRepository announcementRepository;
+    private final DocumentRequestRepository documentRequestRepository;
+    private final StudentRepository studentRepository;
+    private final ParentRepository parentRepository;
+    private final DocumentRepository documentRepository;
+    private final MeetingRepository meetingRepository;
+    private final TripRepository tripRepository;
     private final StudentService studentService;
+    private final FirebaseService firebaseService;
 
     public List<Announcement> getAllAnnouncements() {
-        return firebaseService.findAll("announcements", Announcement.class).join();
+        return announcementRepository.findAll().join();
     }
 
     public Announcement createAnnouncement(Announcement announcement) {
-        firebaseService.save("announcements", announcement).join();
-        // FirebaseService automatically sets announcementId on the announcement object
+        announcementRepository.save(announcement).join();
+        // The repository sets the generated announcementId on the announcement object
         return announcement;
     }
 
     public Announcement getAnnouncementById(String announcementId) {
-        return firebaseService.findById("announcements", announcementId, Announcement.class).join();
+        return announcementRepository.findById(announcementId).join();
     }
 
     public Announcement updateAnnouncement(String announcementId, Announcement announcement) {
-        Announcement existing = firebaseService.findById("announcements", announcementId, Announcement.class).join();
+        Announcement existing = announcementRepository.findById(announcementId).join();
         if (existing != null) {
             announcement.setAnnouncementId(announcementId);
             if (announcement.getCreatedAt() == null) {
                 announcement.setCreatedAt(existing.getCreatedAt());
             }
-            firebaseService.save("announcements", announcement, announcementId).join();
+            announcementRepository.save(announcement, announcementId).join();
             return announcement;
         }
         throw new RuntimeException("Announcement not found with ID: " + announcementId);
     }
 
     public void deleteAnnouncement(String announcementId) {
-        Announcement existing = firebaseService.findById("announcements", announcementId, Announcement.class).join();
+        Announcement existing = announcementRepository.findById(announcementId).join();
         if (existing != null) {
-            firebaseService.delete("announcements", announcementId).join();
+            announcementRepository.deleteById(announcementId).join();
         } else {
             throw new RuntimeException("Announcement not found with ID: " + announcementId);
         }
     }
 
     public List<DocumentRequest> getAllDocumentRequests() {
-        return firebaseService.findAll("documentRequests", DocumentRequest.class).join();
+        return documentRequestRepository.findAll().join();
     }
 
     public List<DocumentRequest> getPendingDocumentRequests() {
-        return firebaseService.findByField("documentRequests", "status", RequestStatus.PENDING, DocumentRequest.class).join();
+        return documentRequestRepository.findByField("status", RequestStatus.PENDING).join();
     }
 
     public DocumentRequest approveDocumentRequest(String requestId) {
-        DocumentRequest request = firebaseService.findById("documentRequests", requestId, DocumentRequest.class).join();
+        DocumentRequest request = documentRequestRepository.findById(requestId).join();
         if (request != null) {
             request.setStatus(RequestStatus.APPROVED);
-            firebaseService.save("documentRequests", request, requestId);
+            FirestoreBatch batch = firebaseService.batch();
+            documentRequestRepository.update(batch, requestId, Map.of("status", RequestStatus.APPROVED.name()));
+            firebaseService.commit(batch).join();
         }
         return request;
     }
+
+    // Issues every count at once and waits for all of them, so latency is the slowest single count
+    public DashboardSummary getDashboardSummary() {
+        CompletableFuture<Long> totalStudents = studentRepository.count();
+        CompletableFuture<Long> pendingStudents = studentRepository.countByField("status", StudentStatus.PENDING);
+        CompletableFuture<Long> totalParents = parentRepository.count();
+        CompletableFuture<Long> unverifiedDocuments = documentRepository.countByField("verified", false);
+        CompletableFuture<Long> pendingMeetings = meetingRepository.countByField("status", MeetingStatus.PENDING);
+        CompletableFuture<Long> pendingDocumentRequests =
+                documentRequestRepository.countByField("status", RequestStatus.PENDING);
+        CompletableFuture<Long> activeTrips = tripRepository.countByField("active", true);
+
+        CompletableFuture.allOf(totalStudents, pendingStudents, totalParents, unverifiedDocuments,
+                pendingMeetings, pendingDocumentRequests, activeTrips).join();
+
+        return DashboardSummary.builder()
+                .totalStudents(totalStudents.join())
+                .pendingStudents(pendingStudents.join())
+                .totalParents(totalParents.join())
+                .unverifiedDocuments(unverifiedDocuments.join())
+                .pendingMeetings(pendingMeetings.join())
+                .pendingDocumentRequests(pendingDocumentRequests.join())
+                .activeTrips(activeTrips.join())
+                .build();
+    }
 }
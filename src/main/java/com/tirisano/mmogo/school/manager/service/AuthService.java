@@ -9,18 +9,24 @@ import com.tirisano.mmogo.school.manager.dto.UserDto;
 import com.tirisano.mmogo.school.manager.enums.UserRole;
 import com.tirisano.mmogo.school.manager.model.Parent;
 import com.tirisano.mmogo.school.manager.model.User;
+import com.tirisano.mmogo.school.manager.repository.ParentRepository;
+import com.tirisano.mmogo.school.manager.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Optional;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class AuthService {
 
-    private final FirebaseService firebaseService;
+    private final ParentRepository parentRepository;
+    private final UserRepository userRepository;
+    private final ParentService parentService;
+    private final IdentityCache identityCache;
 
     public UserDto registerUser(RegisterRequest request) {
         try {
@@ -46,7 +52,8 @@ public class AuthService {
                     .active(true)                // Add this line
                     .build();
 
-            firebaseService.save("users", user, userRecord.getUid()).join();
+            userRepository.save(user, userRecord.getUid()).join();
+            identityCache.putUser(user);
             log.info("User document saved to Firestore");
 
             String parentId = null;
@@ -60,8 +67,9 @@ public class AuthService {
                         .address(request.getAddress())
                         .build();
 
-                parentId = firebaseService.save("parents", parent).join();
-                // FirebaseService automatically sets parentId on the parent object
+                parentId = parentRepository.save(parent).join();
+                // The repository sets the generated parentId on the parent object
+                identityCache.putParent(parent);
                 log.info("Parent document saved with ID: {}", parentId);
             }
 
@@ -101,14 +109,14 @@ public class AuthService {
             // In production, you should verify ID tokens or use Firebase REST API
 
             // Verify user exists in Firestore
-            List<User> users = firebaseService.findByField("users", "email", request.getEmail(), User.class).join();
+            Optional<User> existingUser = lookupUserByEmail(request.getEmail());
 
-            if (users.isEmpty()) {
+            if (existingUser.isEmpty()) {
                 log.warn("User not found in Firestore: {}", request.getEmail());
                 throw new RuntimeException("Invalid email or password");
             }
 
-            User user = users.get(0);
+            User user = existingUser.get();
 
             // Verify password using Firebase REST API
             if (!verifyPasswordWithFirebaseAuth(request.getEmail(), request.getPassword())) {
@@ -119,9 +127,9 @@ public class AuthService {
             String parentId = null;
 
             if (user.getRole() == UserRole.PARENT) {
-                List<Parent> parents = firebaseService.findByField("parents", "uid", user.getUid(), Parent.class).join();
-                if (!parents.isEmpty()) {
-                    parentId = parents.get(0).getParentId();
+                Parent parent = parentService.findByUid(user.getUid());
+                if (parent != null) {
+                    parentId = parent.getParentId();
                 }
             }
 
@@ -166,7 +174,7 @@ public class AuthService {
             );
 
             java.net.http.HttpRequest httpRequest = java.net.http.HttpRequest.newBuilder()
-                .uri(java.net.URI.create("https://identitytoolkit.googleapis.com/v1/accounts:signInWithPassword?key=" + apiKey))
+                .uri(java.net.URI.create(identityToolkitUrl() + "/v1/accounts:signInWithPassword?key=" + apiKey))
                 .header("Content-Type", "application/json")
                 .POST(java.net.http.HttpRequest.BodyPublishers.ofString(requestBody))
                 .build();
@@ -189,6 +197,21 @@ public class AuthService {
         }
     }
 
+    /**
+     * Identity Toolkit base URL; when FIREBASE_AUTH_EMULATOR_HOST is set (as the Admin SDK honours it),
+     * password checks go to the Auth emulator too
+     */
+    private String identityToolkitUrl() {
+        String emulatorHost = System.getProperty("FIREBASE_AUTH_EMULATOR_HOST");
+        if (emulatorHost == null || emulatorHost.isEmpty()) {
+            emulatorHost = System.getenv("FIREBASE_AUTH_EMULATOR_HOST");
+        }
+        if (emulatorHost == null || emulatorHost.isEmpty()) {
+            return "https://identitytoolkit.googleapis.com";
+        }
+        return "http://" + emulatorHost + "/identitytoolkit.googleapis.com";
+    }
+
     /**
      * Send password reset email using Firebase Auth
      */
@@ -197,8 +220,7 @@ public class AuthService {
             log.info("Sending password reset email to: {}", email);
 
             // Verify user exists in Firestore
-            List<User> users = firebaseService.findByField("users", "email", email, User.class).join();
-            if (users.isEmpty()) {
+            if (lookupUserByEmail(email).isEmpty()) {
                 log.warn("User not found: {}", email);
                 throw new RuntimeException("No user found with this email address");
             }
@@ -245,14 +267,30 @@ public class AuthService {
      */
     public User getUserByEmail(String email) {
         try {
-            List<User> users = firebaseService.findByField("users", "email", email, User.class).join();
-            if (users.isEmpty()) {
-                throw new RuntimeException("User not found");
-            }
-            return users.get(0);
+            return lookupUserByEmail(email)
+                    .orElseThrow(() -> new RuntimeException("User not found"));
         } catch (Exception e) {
             log.error("Error getting user by email: {}", email, e);
             throw new RuntimeException("Failed to get user: " + e.getMessage());
         }
     }
+
+    /**
+     * Resolve a user by email, consulting the identity cache before querying Firestore
+     */
+    private Optional<User> lookupUserByEmail(String email) {
+        Optional<User> cached = identityCache.findUserByEmail(email);
+        if (cached.isPresent()) {
+            return cached;
+        }
+
+        List<User> users = userRepository.findByField("email", email).join();
+        if (users.isEmpty()) {
+            return Optional.empty();
+        }
+
+        User user = users.get(0);
+        identityCache.putUser(user);
+        return Optional.of(user);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,173 @@
+package com.tirisano.mmogo.school.manager.service;
+
+import com.tirisano.mmogo.school.manager.dto.BulkItemResult;
+import com.tirisano.mmogo.school.manager.dto.BulkOperationResult;
+import com.tirisano.mmogo.school.manager.enums.BulkItemOutcome;
+import com.tirisano.mmogo.school.manager.repository.FirestoreRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Applies one state change to many documents: a single batched read, then partial-field
+ * updates committed in full WriteBatches. Every requested ID gets its own outcome, and a
+ * failed batch only fails the IDs it carried; one failed by a document deleted since the read
+ * is retried one ID at a time, so only that ID is reported NOT_FOUND.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BulkTransitions {
+
+    private final FirebaseService firebaseService;
+
+    @Value("${bulk.max-ids:1000}")
+    private int maxIds;
+
+    /**
+     * @param unchanged    entities already in the target state, reported without a write
+     * @param notAllowed   the reason an entity may not make this transition, or null when it may
+     * @param fields       the partial update written to every other entity
+     */
+    public <T> BulkOperationResult apply(FirestoreRepository<T> repository, List<String> ids,
+                                         Predicate<T> unchanged, Function<T, String> notAllowed,
+                                         Map<String, Object> fields) {
+        long started = System.nanoTime();
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("At least one ID is required");
+        }
+        Set<String> unique = new LinkedHashSet<>(ids);
+        if (unique.size() > maxIds) {
+            throw new IllegalArgumentException("Bulk updates are limited to " + maxIds + " IDs per request");
+        }
+
+        List<BulkItemResult> results = new ArrayList<>(unique.size());
+        List<BulkItemResult> toWrite = new ArrayList<>();
+        List<String> lookup = new ArrayList<>(unique.size());
+        for (String id : unique) {
+            if (id == null || id.isBlank()) {
+                results.add(result(id, BulkItemOutcome.NOT_FOUND, "ID is blank"));
+            } else {
+                lookup.add(id);
+            }
+        }
+
+        // READ - one batched read for every ID instead of one round trip each
+        Map<String, T> existing = repository.findAllById(lookup).join();
+        for (String id : lookup) {
+            T entity = existing.get(id);
+            if (entity == null) {
+                results.add(result(id, BulkItemOutcome.NOT_FOUND, "Not found"));
+                continue;
+            }
+            String reason = notAllowed.apply(entity);
+            if (reason != null) {
+                results.add(result(id, BulkItemOutcome.INVALID_TRANSITION, reason));
+            } else if (unchanged.test(entity)) {
+                results.add(result(id, BulkItemOutcome.UNCHANGED, "Already in the requested state"));
+            } else {
+                BulkItemResult pending = result(id, null, null);
+                results.add(pending);
+                toWrite.add(pending);
+            }
+        }
+
+        // WRITE - full batches committed concurrently; each result is only touched by its own batch
+        List<CompletableFuture<Void>> commits = new ArrayList<>();
+        for (int start = 0; start < toWrite.size(); start += FirestoreBatch.MAX_WRITES) {
+            commits.add(commitChunk(repository, toWrite.subList(start, Math.min(start + FirestoreBatch.MAX_WRITES, toWrite.size())), fields));
+        }
+        CompletableFuture.allOf(commits.toArray(CompletableFuture[]::new)).join();
+
+        int updated = 0;
+        int failed = 0;
+        for (BulkItemResult result : results) {
+            if (result.getOutcome() == BulkItemOutcome.UPDATED) {
+                updated++;
+            } else if (result.getOutcome() == BulkItemOutcome.FAILED) {
+                failed++;
+            }
+        }
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        log.info("Bulk update of '{}': {} requested, {} updated, {} failed in {} ms",
+                repository.collection(), results.size(), updated, failed, elapsedMillis);
+        return BulkOperationResult.builder()
+                .requested(results.size())
+                .updated(updated)
+                .skipped(results.size() - updated - failed)
+                .failed(failed)
+                .elapsedMillis(elapsedMillis)
+                .results(results)
+                .build();
+    }
+
+    private <T> CompletableFuture<Void> commitChunk(FirestoreRepository<T> repository, List<BulkItemResult> chunk,
+                                                    Map<String, Object> fields) {
+        FirestoreBatch batch = firebaseService.batch();
+        for (BulkItemResult item : chunk) {
+            repository.update(batch, item.getId(), fields);
+        }
+        return firebaseService.commit(batch)
+                .thenRun(() -> chunk.forEach(item -> item.setOutcome(BulkItemOutcome.UPDATED)))
+                .exceptionally(error -> {
+                    if (FirestoreErrors.isNotFound(error)) {
+                        // A document deleted since the read fails its whole batch; isolate it item by item
+                        chunk.forEach(item -> commitSingle(repository, item, fields));
+                    } else {
+                        log.error("Error committing bulk update batch of {} documents in '{}'",
+                                chunk.size(), repository.collection(), error);
+                        chunk.forEach(item -> {
+                            item.setOutcome(BulkItemOutcome.FAILED);
+                            item.setMessage("Write failed: " + FirestoreErrors.rootMessage(error));
+                        });
+                    }
+                    return null;
+                });
+    }
+
+    private <T> void commitSingle(FirestoreRepository<T> repository, BulkItemResult item, Map<String, Object> fields) {
+        FirestoreBatch batch = firebaseService.batch();
+        repository.update(batch, item.getId(), fields);
+        try {
+            firebaseService.commit(batch).join();
+            item.setOutcome(BulkItemOutcome.UPDATED);
+        } catch (RuntimeException e) {
+            if (FirestoreErrors.isNotFound(e)) {
+                item.setOutcome(BulkItemOutcome.NOT_FOUND);
+                item.setMessage("Not found");
+            } else {
+                item.setOutcome(BulkItemOutcome.FAILED);
+                item.setMessage("Write failed: " + FirestoreErrors.rootMessage(e));
+            }
+        }
+    }
+
+    /**
+     * Parses the target of a bulk approve/reject request into the entity's status enum, which
+     * must have APPROVED and REJECTED constants
+     */
+    public static <E extends Enum<E>> E parseDecision(Class<E> statusType, String status) {
+        if (status != null) {
+            String name = status.trim().toUpperCase(Locale.ROOT);
+            if (name.equals("APPROVED") || name.equals("REJECTED")) {
+                return Enum.valueOf(statusType, name);
+            }
+        }
+        throw new IllegalArgumentException("Status must be APPROVED or REJECTED");
+    }
+
+    private static BulkItemResult result(String id, BulkItemOutcome outcome, String message) {
+        return BulkItemResult.builder().id(id).outcome(outcome).message(message).build();
+    }
+}
@@ -0,0 +1,309 @@
+package com.tirisano.mmogo.school.manager.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bulkhead and a circuit breaker per Firestore collection, so trouble in one collection
+ * cannot tie up the calls of every other.
+ * <ul>
+ *   <li>The bulkhead caps concurrent calls on the collection; a call that cannot get a permit
+ *       within the wait is rejected instead of queueing behind the slow ones.</li>
+ *   <li>The breaker watches the outcome of the last window-size attempts. Once at least min-calls
+ *       have been seen and the share of timeouts and UNAVAILABLE-type failures reaches the failure
+ *       rate, it opens and rejects calls for open-duration, then lets a few trial calls through:
+ *       if they all succeed it closes, if any fails it opens again.</li>
+ * </ul>
+ * Rejections are thrown as a REJECTED PersistenceException without calling Firestore.
+ */
+@Component
+@Slf4j
+public class CollectionGuards {
+
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final int maxConcurrent;
+    private final Map<String, Integer> limits = new HashMap<>();
+    private final Duration maxWait;
+    private final int windowSize;
+    private final int minCalls;
+    private final double failureRate;
+    private final Duration openDuration;
+    private final int halfOpenCalls;
+    private final Map<String, Guard> guards = new ConcurrentHashMap<>();
+
+    public CollectionGuards(MeterRegistry meterRegistry,
+                            @Value("${persistence.bulkhead.max-concurrent:32}") int maxConcurrent,
+                            @Value("${persistence.bulkhead.limits:}") List<String> limits,
+                            @Value("${persistence.bulkhead.max-wait:250ms}") Duration maxWait,
+                            @Value("${persistence.circuit.window-size:20}") int windowSize,
+                            @Value("${persistence.circuit.min-calls:10}") int minCalls,
+                            @Value("${persistence.circuit.failure-rate:0.5}") double failureRate,
+                            @Value("${persistence.circuit.open-duration:10s}") Duration openDuration,
+                            @Value("${persistence.circuit.half-open-calls:3}") int halfOpenCalls) {
+        this.meterRegistry = meterRegistry;
+        this.maxConcurrent = maxConcurrent;
+        for (String limit : limits) {
+            // collection=limit, e.g. payments=8
+            String[] parts = limit.split("=");
+            if (parts.length == 2) {
+                this.limits.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+            }
+        }
+        this.maxWait = maxWait;
+        this.windowSize = windowSize;
+        this.minCalls = Math.min(minCalls, windowSize);
+        this.failureRate = failureRate;
+        this.openDuration = openDuration;
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    /**
+     * Takes a bulkhead permit for one call on the collection; release it with {@link Guard#release()}
+     *
+     * @throws PersistenceException of kind REJECTED when the breaker is open or no permit came free in time
+     */
+    public Guard acquire(String collection, String operation) {
+        Guard guard = guards.computeIfAbsent(collection, this::register);
+        if (!guard.allowsCall()) {
+            guard.rejected("circuit_open");
+            throw new PersistenceException(PersistenceException.Kind.REJECTED, collection, operation, 0,
+                    "Circuit open for " + collection, null);
+        }
+        boolean permitted;
+        try {
+            permitted = guard.permits.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            permitted = false;
+        }
+        if (!permitted) {
+            guard.abandoned();
+            guard.rejected("bulkhead_full");
+            throw new PersistenceException(PersistenceException.Kind.REJECTED, collection, operation, 0,
+                    "Too many concurrent calls on " + collection, null);
+        }
+        return guard;
+    }
+
+    /**
+     * Takes a permit on every collection a call touches, e.g. a batch writing to several. They are taken
+     * in name order, so two batches over the same collections never each hold one the other waits for.
+     *
+     * @throws PersistenceException of kind REJECTED when any of them rejects; the permits already taken are given back
+     */
+    public Permit acquire(Collection<String> collections, String operation) {
+        List<Guard> held = new ArrayList<>(collections.size());
+        try {
+            for (String collection : new TreeSet<>(collections)) {
+                held.add(acquire(collection, operation));
+            }
+        } catch (RuntimeException e) {
+            for (Guard guard : held) {
+                guard.abandoned();
+                guard.release();
+            }
+            throw e;
+        }
+        return new Permit(held);
+    }
+
+    public State state(String collection) {
+        Guard guard = guards.get(collection);
+        return guard == null ? State.CLOSED : guard.state;
+    }
+
+    /**
+     * Breaker state and bulkhead occupancy of every collection called so far
+     */
+    public Map<String, Usage> usage() {
+        Map<String, Usage> usage = new TreeMap<>();
+        guards.forEach((collection, guard) ->
+                usage.put(collection, new Usage(guard.state, guard.limit - guard.permits.availablePermits(), guard.limit)));
+        return usage;
+    }
+
+    public record Usage(State state, int inFlight, int limit) {
+    }
+
+    /**
+     * The guards of the collections one call touches: the call goes out only if all allow it,
+     * and its outcome counts against each breaker
+     */
+    public static final class Permit {
+
+        private final List<Guard> guards;
+
+        private Permit(List<Guard> guards) {
+            this.guards = guards;
+        }
+
+        public boolean allowsCall() {
+            for (int i = 0; i < guards.size(); i++) {
+                if (!guards.get(i).allowsCall()) {
+                    for (int j = 0; j < i; j++) {
+                        guards.get(j).abandoned();
+                    }
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public void record(boolean failed) {
+            for (Guard guard : guards) {
+                guard.record(failed);
+            }
+        }
+
+        public void release() {
+            for (Guard guard : guards) {
+                guard.release();
+            }
+        }
+    }
+
+    private Guard register(String collection) {
+        Guard guard = new Guard(collection, limits.getOrDefault(collection, maxConcurrent));
+        Gauge.builder("firestore.circuit.state", guard, g -> g.state.ordinal())
+                .tag("collection", collection)
+                .description("0 closed, 1 half-open, 2 open")
+                .register(meterRegistry);
+        Gauge.builder("firestore.bulkhead.in-flight", guard, g -> g.limit - g.permits.availablePermits())
+                .tag("collection", collection)
+                .register(meterRegistry);
+        return guard;
+    }
+
+    /**
+     * The bulkhead and breaker of one collection
+     */
+    public final class Guard {
+
+        private final String collection;
+        private final int limit;
+        private final Semaphore permits;
+        // Ring of the last windowSize attempt outcomes, true for a failure
+        private final boolean[] outcomes = new boolean[windowSize];
+        private int next;
+        private int recorded;
+        private int failures;
+        private volatile State state = State.CLOSED;
+        private long openedAtNanos;
+        private int trialsStarted;
+        private int trialsSucceeded;
+
+        private Guard(String collection, int limit) {
+            this.collection = collection;
+            this.limit = limit;
+            this.permits = new Semaphore(limit);
+        }
+
+        /**
+         * Whether a further attempt may go out, e.g. a retry after the breaker may have opened
+         */
+        public synchronized boolean allowsCall() {
+            if (state == State.OPEN) {
+                if (System.nanoTime() - openedAtNanos < openDuration.toNanos()) {
+                    return false;
+                }
+                transition(State.HALF_OPEN);
+                trialsStarted = 0;
+                trialsSucceeded = 0;
+            }
+            if (state == State.HALF_OPEN) {
+                if (trialsStarted >= halfOpenCalls) {
+                    return false;
+                }
+                trialsStarted++;
+            }
+            return true;
+        }
+
+        /**
+         * One attempt's outcome: failed means it timed out or Firestore was unavailable
+         */
+        public synchronized void record(boolean failed) {
+            if (state == State.HALF_OPEN) {
+                if (failed) {
+                    open();
+                } else if (++trialsSucceeded >= halfOpenCalls) {
+                    reset();
+                    transition(State.CLOSED);
+                }
+                return;
+            }
+            if (state == State.OPEN) {
+                return;
+            }
+            if (recorded == windowSize && outcomes[next]) {
+                failures--;
+            }
+            outcomes[next] = failed;
+            if (failed) {
+                failures++;
+            }
+            next = (next + 1) % windowSize;
+            recorded = Math.min(recorded + 1, windowSize);
+            if (recorded >= minCalls && failures >= failureRate * recorded) {
+                open();
+            }
+        }
+
+        /**
+         * Gives back a half-open trial slot taken by a call that never reached Firestore
+         */
+        private synchronized void abandoned() {
+            if (state == State.HALF_OPEN && trialsStarted > 0) {
+                trialsStarted--;
+            }
+        }
+
+        public void release() {
+            permits.release();
+        }
+
+        private void open() {
+            openedAtNanos = System.nanoTime();
+            reset();
+            transition(State.OPEN);
+        }
+
+        private void reset() {
+            Arrays.fill(outcomes, false);
+            next = 0;
+            recorded = 0;
+            failures = 0;
+        }
+
+        private void transition(State to) {
+            if (state != to) {
+                log.warn("Circuit for '{}' {} -> {}", collection, state, to);
+                state = to;
+            }
+        }
+
+        private void rejected(String reason) {
+            meterRegistry.counter("firestore.rejected", "collection", collection, "reason", reason).increment();
+        }
+    }
+}
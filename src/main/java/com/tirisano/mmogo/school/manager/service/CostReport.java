@@ -0,0 +1,87 @@
+package com.tirisano.mmogo.school.manager.service;
+
+import com.tirisano.mmogo.school.manager.dto.EndpointCost;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Firestore cost totals per controller method since startup, fed by RequestCostInterceptor.
+ * Keys are handler methods, so the number of entries is bounded by the application's routes.
+ */
+@Component
+public class CostReport {
+
+    private final Map<String, Totals> totals = new ConcurrentHashMap<>();
+
+    public void record(String route, String handler, RequestCost cost) {
+        Totals entry = totals.computeIfAbsent(handler, h -> new Totals(route, h));
+        entry.requests.increment();
+        entry.reads.add(cost.reads());
+        entry.writes.add(cost.writes());
+        entry.readBytes.add(cost.readBytes());
+        entry.maxReads.accumulate(cost.reads());
+    }
+
+    /**
+     * Most expensive endpoints first, ranked by total reads, writes or bytes, or by reads per request ("avgReads")
+     */
+    public List<EndpointCost> top(int limit, String sortBy) {
+        Comparator<EndpointCost> order = switch (sortBy == null ? "reads" : sortBy) {
+            case "writes" -> Comparator.comparingLong(EndpointCost::getWrites);
+            case "bytes" -> Comparator.comparingLong(EndpointCost::getReadBytes);
+            case "avgReads" -> Comparator.comparingDouble(EndpointCost::getAvgReads);
+            case "reads" -> Comparator.comparingLong(EndpointCost::getReads);
+            default -> throw new IllegalArgumentException("sort must be one of reads, writes, bytes, avgReads");
+        };
+        return totals.values().stream()
+                .map(Totals::snapshot)
+                .sorted(order.reversed())
+                .limit(Math.max(0, limit))
+                .toList();
+    }
+
+    public void reset() {
+        totals.clear();
+    }
+
+    private static final class Totals {
+
+        private final String route;
+        private final String handler;
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder reads = new LongAdder();
+        private final LongAdder writes = new LongAdder();
+        private final LongAdder readBytes = new LongAdder();
+        private final LongAccumulator maxReads = new LongAccumulator(Math::max, 0);
+
+        private Totals(String route, String handler) {
+            this.route = route;
+            this.handler = handler;
+        }
+
+        private EndpointCost snapshot() {
+            long count = requests.sum();
+            long totalReads = reads.sum();
+            long totalWrites = writes.sum();
+            long totalBytes = readBytes.sum();
+            return EndpointCost.builder()
+                    .route(route)
+                    .handler(handler)
+                    .requests(count)
+                    .reads(totalReads)
+                    .writes(totalWrites)
+                    .readBytes(totalBytes)
+                    .avgReads(count == 0 ? 0 : (double) totalReads / count)
+                    .avgWrites(count == 0 ? 0 : (double) totalWrites / count)
+                    .avgReadBytes(count == 0 ? 0 : (double) totalBytes / count)
+                    .maxReads(maxReads.get())
+                    .build();
+        }
+    }
+}
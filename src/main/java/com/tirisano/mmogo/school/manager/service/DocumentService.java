@@ -1,20 +1,25 @@
 package com.tirisano.mmogo.school.manager.service;
 
 import com.google.cloud.Timestamp;
+import com.tirisano.mmogo.school.manager.dto.BulkOperationResult;
 import com.tirisano.mmogo.school.manager.enums.DocumentType;
 import com.tirisano.mmogo.school.manager.model.Document;
+import com.tirisano.mmogo.school.manager.repository.DocumentRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class DocumentService {
 
-    private final FirebaseService firebaseService;
+    private final DocumentRepository documentRepository;
+    private final BulkTransitions bulkTransitions;
 
     // CREATE - Upload document
     public Document uploadDocument(Document document) {
@@ -22,7 +27,7 @@ public class DocumentService {
             if (document.getUploadedAt() == null) {
                 document.setUploadedAt(Timestamp.now());
             }
-            firebaseService.save("documents", document).join();
+            documentRepository.save(document).join();
             log.info("Document uploaded successfully with ID: {}", document.getDocumentId());
             return document;
         } catch (Exception e) {
@@ -34,7 +39,7 @@ public class DocumentService {
     // READ - Get all documents
     public List<Document> getAllDocuments() {
         try {
-            return firebaseService.findAll("documents", Document.class).join();
+            return documentRepository.findAll().join();
         } catch (Exception e) {
             log.error("Error fetching all documents", e);
             throw new RuntimeException("Failed to fetch documents: " + e.getMessage());
@@ -44,7 +49,7 @@ public class DocumentService {
     // READ - Get document by ID
     public Document getDocumentById(String documentId) {
         try {
-            return firebaseService.findById("documents", documentId, Document.class).join();
+            return documentRepository.findById(documentId).join();
         } catch (Exception e) {
             log.error("Error fetching document by ID: {}", documentId, e);
             throw new RuntimeException("Failed to fetch document: " + e.getMessage());
@@ -54,7 +59,7 @@ public class DocumentService {
     // READ - Get documents by student ID
     public List<Document> getDocumentsByStudentId(String studentId) {
         try {
-            return firebaseService.findByField("documents", "studentId", studentId, Document.class).join();
+            return documentRepository.findByField("studentId", studentId).join();
         } catch (Exception e) {
             log.error("Error fetching documents for student: {}", studentId, e);
             throw new RuntimeException("Failed to fetch documents: " + e.getMessage());
@@ -64,7 +69,7 @@ public class DocumentService {
     // READ - Get documents by parent ID
     public List<Document> getDocumentsByParentId(String parentId) {
         try {
-            return firebaseService.findByField("documents", "parentId", parentId, Document.class).join();
+            return documentRepository.findByField("parentId", parentId).join();
         } catch (Exception e) {
             log.error("Error fetching documents for parent: {}", parentId, e);
             throw new RuntimeException("Failed to fetch documents: " + e.getMessage());
@@ -74,7 +79,7 @@ public class DocumentService {
     // READ - Get documents by type
     public List<Document> getDocumentsByType(DocumentType documentType) {
         try {
-            return firebaseService.findByField("documents", "documentType", documentType, Document.class).join();
+            return documentRepository.findByField("documentType", documentType).join();
         } catch (Exception e) {
             log.error("Error fetching documents by type: {}", documentType, e);
             throw new RuntimeException("Failed to fetch documents: " + e.getMessage());
@@ -84,7 +89,7 @@ public class DocumentService {
     // READ - Get unverified documents (for admin review)
     public List<Document> getUnverifiedDocuments() {
         try {
-            return firebaseService.findByField("documents", "verified", false, Document.class).join();
+            return documentRepository.findByField("verified", false).join();
         } catch (Exception e) {
             log.error("Error fetching unverified documents", e);
             throw new RuntimeException("Failed to fetch documents: " + e.getMessage());
@@ -103,7 +108,7 @@ public class DocumentService {
             document.setVerifiedBy(verifiedBy);
             document.setVerifiedAt(Timestamp.now());
 
-            firebaseService.save("documents", document, documentId).join();
+            documentRepository.save(document, documentId).join();
             log.info("Document verified successfully: {}", documentId);
             return document;
         } catch (Exception e) {
@@ -112,6 +117,19 @@ public class DocumentService {
         }
     }
 
+    // UPDATE - Verify many documents in batched partial updates (admin only)
+    public BulkOperationResult verifyDocuments(List<String> documentIds, String verifiedBy) {
+        if (verifiedBy == null || verifiedBy.trim().isEmpty()) {
+            throw new IllegalArgumentException("verifiedBy field is required");
+        }
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("verified", true);
+        fields.put("verifiedBy", verifiedBy);
+        fields.put("verifiedAt", Timestamp.now());
+        // Already verified documents keep their original verifier and time
+        return bulkTransitions.apply(documentRepository, documentIds, Document::isVerified, document -> null, fields);
+    }
+
     // UPDATE - Update document
     public Document updateDocument(String documentId, Document updatedDocument) {
         try {
@@ -126,7 +144,7 @@ public class DocumentService {
                 updatedDocument.setUploadedAt(existingDocument.getUploadedAt());
             }
 
-            firebaseService.save("documents", updatedDocument, documentId).join();
+            documentRepository.save(updatedDocument, documentId).join();
             log.info("Document updated successfully: {}", documentId);
             return updatedDocument;
         } catch (Exception e) {
@@ -143,7 +161,7 @@ public class DocumentService {
                 throw new RuntimeException("Document not found with ID: " + documentId);
             }
 
-            firebaseService.delete("documents", documentId).join();
+            documentRepository.deleteById(documentId).join();
             log.info("Document deleted successfully: {}", documentId);
         } catch (Exception e) {
             log.error("Error deleting document: {}", documentId, e);
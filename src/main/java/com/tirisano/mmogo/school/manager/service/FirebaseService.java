@@ -1,15 +1,28 @@
 package com.tirisano.mmogo.school.manager.service;
 
 import com.google.api.core.ApiFuture;
+import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.*;
+import com.google.cloud.firestore.EventListener;
 import com.google.firebase.cloud.FirestoreClient;
+import com.tirisano.mmogo.school.manager.repository.EntityMetadata;
+import com.tirisano.mmogo.school.manager.repository.EntityRegistry;
+import com.tirisano.mmogo.school.manager.util.DocumentSizes;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -17,8 +30,20 @@ import java.util.stream.Collectors;
 public class FirebaseService {
 
     private final Firestore firestore;
+    private final EntityRegistry entityRegistry;
+    private final FirestoreMetrics metrics;
+    private final FirestoreResilience resilience;
+    private final StaleReads staleReads;
+    private final ExecutorService executor;
+    private final Map<String, CollectionReference> collections = new ConcurrentHashMap<>();
 
-    public FirebaseService() {
+    public FirebaseService(EntityRegistry entityRegistry, FirestoreMetrics metrics, FirestoreResilience resilience,
+                           StaleReads staleReads, @Qualifier("persistenceExecutor") ExecutorService executor) {
+        this.entityRegistry = entityRegistry;
+        this.metrics = metrics;
+        this.resilience = resilience;
+        this.staleReads = staleReads;
+        this.executor = executor;
         try {
             this.firestore = FirestoreClient.getFirestore();
             log.info("✅ Firestore client initialized successfully");
@@ -28,199 +53,519 @@ public class FirebaseService {
         }
     }
 
-    public <T> CompletableFuture<String> save(String collection, T entity) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                DocumentReference docRef = firestore.collection(collection).document();
-                String generatedId = docRef.getId();
-
-                // Try to set the ID on the entity using reflection
-                setIdOnEntity(entity, collection, generatedId);
-
-                ApiFuture<WriteResult> future = docRef.set(entity);
-                WriteResult result = future.get(10, TimeUnit.SECONDS); // Add timeout
+    /**
+     * CollectionReferences are immutable, so one per collection name is built and reused
+     */
+    private CollectionReference collection(String name) {
+        return collections.computeIfAbsent(name, firestore::collection);
+    }
 
-                log.debug("Document saved to collection '{}' with ID: {}", collection, generatedId);
-                return generatedId;
-            } catch (TimeoutException e) {
-                log.error("Timeout saving document to collection: {}", collection, e);
-                throw new RuntimeException("Timeout saving document to Firestore", e);
-            } catch (Exception e) {
-                log.error("Error saving document to collection: {}", collection, e);
-                throw new RuntimeException("Error saving document to Firestore", e);
-            }
-        });
+    public FirestoreBatch batch() {
+        return new FirestoreBatch(firestore.batch(), this::collection, entityRegistry);
     }
 
     /**
-     * Helper method to set the ID field on an entity based on the collection name
+     * Commits every staged write atomically, then runs the batch's after-commit actions.
+     * Retried only when the batch is repeatable (no create preconditions or increments).
      */
-    private <T> void setIdOnEntity(T entity, String collection, String id) {
-        try {
-            String idFieldName = getIdFieldName(collection);
-            if (idFieldName != null) {
-                java.lang.reflect.Method setter = findSetter(entity.getClass(), idFieldName);
-                if (setter != null) {
-                    setter.invoke(entity, id);
-                    log.debug("Set {} to {} on entity", idFieldName, id);
-                }
+    public CompletableFuture<Void> commit(FirestoreBatch batch) {
+        RequestCost cost = RequestCost.current();
+        return CompletableFuture.runAsync(() -> {
+            if (batch.isEmpty()) {
+                return;
             }
-        } catch (Exception e) {
-            log.warn("Could not set ID field on entity for collection {}: {}", collection, e.getMessage());
-        }
+            Map<String, Integer> writes = batch.writesByCollection();
+            String collection = writes.size() == 1 ? writes.keySet().iterator().next() : FirestoreMetrics.MULTIPLE_COLLECTIONS;
+            FirestoreMetrics.Sample sample = metrics.start();
+            try {
+                // Each touched collection's own bulkhead and breaker; metrics label cross-collection batches as one
+                resilience.call(collection, writes.keySet(), "commit",
+                        batch.isRepeatable() ? FirestoreResilience.Call.IDEMPOTENT_WRITE : FirestoreResilience.Call.WRITE,
+                        () -> batch.writeBatch().commit());
+                metrics.committed(sample, collection, writes);
+                cost.written(batch.size());
+                batch.afterCommitActions().forEach(Runnable::run);
+
+                log.debug("Batch of {} writes committed", batch.size());
+            } catch (Exception e) {
+                PersistenceException failure = PersistenceException.of(e, collection, "commit", "committing batch to Firestore");
+                metrics.record(sample, collection, "commit", failure);
+                log.error("{} committing batch of {} writes", failure.getKind(), batch.size(), e);
+                throw failure;
+            }
+        }, executor);
     }
 
     /**
-     * Maps collection names to their corresponding ID field names
+     * Runs body in a Firestore transaction, for read-modify-writes whose writes depend on what was
+     * read, e.g. ledger deltas. If a document it read changes before the commit, Firestore runs the
+     * body again on fresh data, so it must have no effects beyond its reads and staged writes.
+     * The call is guarded and timed under the given primary collection and never retried here.
+     * The body runs on the persistence executor: on the SDK's default, a blocked read would hold
+     * the transport thread its own response needs.
      */
-    private String getIdFieldName(String collection) {
-        return switch (collection) {
-            case "parents" -> "parentId";
-            case "students" -> "studentId";
-            case "announcements" -> "announcementId";
-            case "documentRequests" -> "requestId";
-            case "trips" -> "tripId";
-            case "meetings" -> "meetingId";
-            case "payments" -> "paymentId";
-            case "documents" -> "documentId";
-            default -> null;
-        };
+    public <R> CompletableFuture<R> transaction(String collection, Function<FirestoreTransaction, R> body) {
+        RequestCost cost = RequestCost.current();
+        return CompletableFuture.supplyAsync(() -> {
+            FirestoreMetrics.Sample sample = metrics.start();
+            AtomicReference<FirestoreBatch> lastAttempt = new AtomicReference<>();
+            try {
+                R result = resilience.call(collection, "transaction", FirestoreResilience.Call.WRITE,
+                        () -> firestore.runTransaction(transaction -> {
+                            FirestoreBatch writes = new FirestoreBatch(transaction, this::collection, entityRegistry);
+                            lastAttempt.set(writes);
+                            return body.apply(new FirestoreTransaction(this, transaction, writes, cost));
+                        }, TransactionOptions.createReadWriteOptionsBuilder().setExecutor(executor).build()));
+                FirestoreBatch writes = lastAttempt.get();
+                metrics.committed(sample, collection, writes.writesByCollection());
+                cost.written(writes.size());
+                writes.afterCommitActions().forEach(Runnable::run);
+                return result;
+            } catch (Exception e) {
+                PersistenceException failure = PersistenceException.of(e, collection, "transaction", "running transaction in Firestore");
+                metrics.record(sample, collection, "transaction", failure);
+                log.error("{} running transaction on collection: {}", failure.getKind(), collection, e);
+                throw failure;
+            }
+        }, executor);
     }
 
     /**
-     * Finds the setter method for a given field name
+     * A transactional read; runs on the transaction's thread, which may block on it
      */
-    private java.lang.reflect.Method findSetter(Class<?> clazz, String fieldName) {
+    <T> T read(Transaction transaction, String collection, String id, Class<T> type, RequestCost cost) {
         try {
-            String setterName = "set" + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
-            return clazz.getMethod(setterName, String.class);
-        } catch (NoSuchMethodException e) {
-            return null;
+            DocumentSnapshot document = transaction.get(collection(collection).document(id)).get();
+            metrics.documentsRead(collection, 1);
+            cost.read(1);
+            return document.exists() ? toEntity(document, type, cost, null) : null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted reading " + collection + "/" + id, e);
+        } catch (ExecutionException e) {
+            throw new CompletionException(e.getCause());
         }
     }
 
+    public <T> CompletableFuture<String> save(String collection, T entity) {
+        RequestCost cost = RequestCost.current();
+        return CompletableFuture.supplyAsync(() -> {
+            FirestoreMetrics.Sample sample = metrics.start();
+            try {
+                // The ID is generated once, so a retried set() overwrites the same document
+                DocumentReference docRef = collection(collection).document();
+                String generatedId = docRef.getId();
+
+                // Set the generated ID on registered model classes
+                EntityMetadata<?> metadata = entityRegistry.forClass(entity.getClass());
+                if (metadata != null) {
+                    metadata.assignId(entity, generatedId);
+                }
+
+                resilience.call(collection, "save", FirestoreResilience.Call.IDEMPOTENT_WRITE, () -> docRef.set(entity));
+                metrics.written(sample, collection, "save", 1);
+                cost.written(1);
+
+                log.debug("Document saved to collection '{}' with ID: {}", collection, generatedId);
+                return generatedId;
+            } catch (Exception e) {
+                PersistenceException failure = PersistenceException.of(e, collection, "save", "saving document to Firestore");
+                metrics.record(sample, collection, "save", failure);
+                log.error("{} saving document to collection: {}", failure.getKind(), collection, e);
+                throw failure;
+            }
+        }, executor);
+    }
+
     public <T> CompletableFuture<Void> save(String collection, T entity, String documentId) {
+        RequestCost cost = RequestCost.current();
         return CompletableFuture.runAsync(() -> {
+            FirestoreMetrics.Sample sample = metrics.start();
             try {
-                DocumentReference docRef = firestore.collection(collection).document(documentId);
-                ApiFuture<WriteResult> future = docRef.set(entity);
-                WriteResult result = future.get(10, TimeUnit.SECONDS); // Add timeout
+                DocumentReference docRef = collection(collection).document(documentId);
+                resilience.call(collection, "save", FirestoreResilience.Call.IDEMPOTENT_WRITE, () -> docRef.set(entity));
+                metrics.written(sample, collection, "save", 1);
+                cost.written(1);
 
                 log.debug("Document saved to collection '{}' with ID: {}", collection, documentId);
-            } catch (TimeoutException e) {
-                log.error("Timeout saving document with ID {} to collection: {}", documentId, collection, e);
-                throw new RuntimeException("Timeout saving document to Firestore", e);
             } catch (Exception e) {
-                log.error("Error saving document with ID {} to collection: {}", documentId, collection, e);
-                throw new RuntimeException("Error saving document to Firestore", e);
+                PersistenceException failure = PersistenceException.of(e, collection, "save", "saving document to Firestore");
+                metrics.record(sample, collection, "save", failure);
+                log.error("{} saving document with ID {} to collection: {}", failure.getKind(), documentId, collection, e);
+                throw failure;
             }
-        });
+        }, executor);
     }
 
     public <T> CompletableFuture<T> findById(String collection, String id, Class<T> type) {
+        RequestCost cost = RequestCost.current();
         return CompletableFuture.supplyAsync(() -> {
+            FirestoreMetrics.Sample sample = metrics.start();
             try {
-                DocumentReference docRef = firestore.collection(collection).document(id);
-                ApiFuture<DocumentSnapshot> future = docRef.get();
-                DocumentSnapshot document = future.get(10, TimeUnit.SECONDS); // Add timeout
+                DocumentReference docRef = collection(collection).document(id);
+                DocumentSnapshot document = resilience.call(collection, "findById", FirestoreResilience.Call.READ, docRef::get);
+                metrics.read(sample, collection, "findById", 1);
+                cost.read(1);
 
                 if (document.exists()) {
-                    T result = document.toObject(type);
+                    T result = toEntity(document, type, cost,
+                            remembers(type) ? data -> staleReads.document(collection, id, data) : null);
                     log.debug("Document found in collection '{}' with ID: {}", collection, id);
                     return result;
                 } else {
+                    if (remembers(type)) {
+                        staleReads.document(collection, id, null);
+                    }
                     log.debug("Document not found in collection '{}' with ID: {}", collection, id);
                     return null;
                 }
-            } catch (TimeoutException e) {
-                log.error("Timeout finding document by ID {} in collection: {}", id, collection, e);
-                throw new RuntimeException("Timeout finding document in Firestore", e);
             } catch (Exception e) {
-                log.error("Error finding document by ID {} in collection: {}", id, collection, e);
-                throw new RuntimeException("Error finding document in Firestore", e);
+                PersistenceException failure = PersistenceException.of(e, collection, "findById", "finding document in Firestore");
+                metrics.record(sample, collection, "findById", failure);
+                EntityMetadata<T> metadata = entityRegistry.forClass(type);
+                StaleReads.Entry stale = metadata == null ? null : staleReads.document(collection, id, failure, cost);
+                if (stale != null) {
+                    log.warn("{} finding document by ID {} in collection: {}, serving last known copy",
+                            failure.getKind(), id, collection);
+                    return stale.data() == null ? null : metadata.fromData(stale.data());
+                }
+                log.error("{} finding document by ID {} in collection: {}", failure.getKind(), id, collection, e);
+                throw failure;
             }
-        });
+        }, executor);
+    }
+
+    /**
+     * A document's raw data with its update time, for a later write that must not overwrite a newer
+     * version (FirestoreBatch#updateIfUnchanged); null when it does not exist. Never served stale.
+     */
+    public CompletableFuture<Versioned> findVersionedById(String collection, String id) {
+        RequestCost cost = RequestCost.current();
+        return CompletableFuture.supplyAsync(() -> {
+            FirestoreMetrics.Sample sample = metrics.start();
+            try {
+                DocumentReference docRef = collection(collection).document(id);
+                DocumentSnapshot document = resilience.call(collection, "findById", FirestoreResilience.Call.READ, docRef::get);
+                metrics.read(sample, collection, "findById", 1);
+                cost.read(1);
+                if (!document.exists()) {
+                    return null;
+                }
+                Map<String, Object> data = document.getData();
+                if (cost.isTracking()) {
+                    cost.readBytes(DocumentSizes.estimate(docRef.getPath(), data));
+                }
+                return new Versioned(data, document.getUpdateTime());
+            } catch (Exception e) {
+                PersistenceException failure = PersistenceException.of(e, collection, "findById", "finding document in Firestore");
+                metrics.record(sample, collection, "findById", failure);
+                log.error("{} finding document by ID {} in collection: {}", failure.getKind(), id, collection, e);
+                throw failure;
+            }
+        }, executor);
     }
 
     public <T> CompletableFuture<List<T>> findAll(String collection, Class<T> type) {
+        RequestCost cost = RequestCost.current();
         return CompletableFuture.supplyAsync(() -> {
+            FirestoreMetrics.Sample sample = metrics.start();
             try {
-                CollectionReference collectionRef = firestore.collection(collection);
-                ApiFuture<QuerySnapshot> future = collectionRef.get();
-                QuerySnapshot querySnapshot = future.get(10, TimeUnit.SECONDS); // Add timeout
+                CollectionReference collectionRef = collection(collection);
+                QuerySnapshot querySnapshot = resilience.call(collection, "findAll", FirestoreResilience.Call.READ, collectionRef::get);
+                metrics.read(sample, collection, "findAll", Math.max(1, querySnapshot.size()));
+                cost.read(Math.max(1, querySnapshot.size()));
 
-                List<T> results = querySnapshot.getDocuments().stream()
-                        .map(doc -> doc.toObject(type))
-                        .collect(Collectors.toList());
+                List<T> results = toEntities(querySnapshot, type, cost, collection, null, null);
 
                 log.debug("Found {} documents in collection '{}'", results.size(), collection);
                 return results;
-            } catch (TimeoutException e) {
-                log.error("Timeout finding all documents in collection: {}", collection, e);
-                throw new RuntimeException("Timeout finding documents in Firestore", e);
             } catch (Exception e) {
-                log.error("Error finding all documents in collection: {}", collection, e);
-                throw new RuntimeException("Error finding documents in Firestore", e);
+                PersistenceException failure = PersistenceException.of(e, collection, "findAll", "finding documents in Firestore");
+                metrics.record(sample, collection, "findAll", failure);
+                List<T> stale = staleQuery(collection, null, null, type, failure, cost);
+                if (stale != null) {
+                    return stale;
+                }
+                log.error("{} finding all documents in collection: {}", failure.getKind(), collection, e);
+                throw failure;
             }
-        });
+        }, executor);
     }
 
     public <T> CompletableFuture<List<T>> findByField(String collection, String field, Object value, Class<T> type) {
+        RequestCost cost = RequestCost.current();
         return CompletableFuture.supplyAsync(() -> {
+            FirestoreMetrics.Sample sample = metrics.start();
             try {
-                CollectionReference collectionRef = firestore.collection(collection);
-                Query query = collectionRef.whereEqualTo(field, value);
-                ApiFuture<QuerySnapshot> future = query.get();
-                QuerySnapshot querySnapshot = future.get(10, TimeUnit.SECONDS); // Add timeout
+                Query query = collection(collection).whereEqualTo(field, value);
+                QuerySnapshot querySnapshot = resilience.call(collection, "findByField", FirestoreResilience.Call.READ, query::get);
+                metrics.read(sample, collection, "findByField", Math.max(1, querySnapshot.size()));
+                cost.read(Math.max(1, querySnapshot.size()));
 
-                List<T> results = querySnapshot.getDocuments().stream()
-                        .map(doc -> doc.toObject(type))
-                        .collect(Collectors.toList());
+                List<T> results = toEntities(querySnapshot, type, cost, collection, field, value);
 
                 log.debug("Found {} documents in collection '{}' where {} = {}",
                         results.size(), collection, field, value);
                 return results;
-            } catch (TimeoutException e) {
-                log.error("Timeout querying documents in collection: {} with field: {} = {}",
-                        collection, field, value, e);
-                throw new RuntimeException("Timeout querying documents in Firestore", e);
             } catch (Exception e) {
-                log.error("Error querying documents in collection: {} with field: {} = {}",
-                        collection, field, value, e);
-                throw new RuntimeException("Error querying documents in Firestore", e);
+                PersistenceException failure = PersistenceException.of(e, collection, "findByField", "querying documents in Firestore");
+                metrics.record(sample, collection, "findByField", failure);
+                List<T> stale = staleQuery(collection, field, value, type, failure, cost);
+                if (stale != null) {
+                    return stale;
+                }
+                log.error("{} querying documents in collection: {} with field: {} = {}",
+                        failure.getKind(), collection, field, value, e);
+                throw failure;
             }
-        });
+        }, executor);
+    }
+
+    /**
+     * Which of the given document IDs exist, fetched in one batched read
+     */
+    public CompletableFuture<Set<String>> findExistingIds(String collection, Collection<String> ids) {
+        RequestCost cost = RequestCost.current();
+        if (ids.isEmpty()) {
+            return CompletableFuture.completedFuture(Set.of());
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            FirestoreMetrics.Sample sample = metrics.start();
+            try {
+                DocumentReference[] refs = ids.stream()
+                        .map(id -> collection(collection).document(id))
+                        .toArray(DocumentReference[]::new);
+                List<DocumentSnapshot> snapshots = resilience.call(collection, "getAll", FirestoreResilience.Call.READ,
+                        () -> firestore.getAll(refs));
+                metrics.read(sample, collection, "getAll", snapshots.size());
+                cost.read(snapshots.size());
+                if (cost.isTracking()) {
+                    // The existence check still transfers whole documents
+                    snapshots.stream().filter(DocumentSnapshot::exists)
+                            .forEach(snapshot -> cost.readBytes(DocumentSizes.estimate(snapshot.getReference().getPath(), snapshot.getData())));
+                }
+
+                Set<String> existing = snapshots.stream()
+                        .filter(DocumentSnapshot::exists)
+                        .map(DocumentSnapshot::getId)
+                        .collect(Collectors.toSet());
+                log.debug("{} of {} documents exist in collection '{}'", existing.size(), ids.size(), collection);
+                return existing;
+            } catch (Exception e) {
+                PersistenceException failure = PersistenceException.of(e, collection, "getAll", "reading documents from Firestore");
+                metrics.record(sample, collection, "getAll", failure);
+                log.error("{} checking {} documents in collection: {}", failure.getKind(), ids.size(), collection, e);
+                throw failure;
+            }
+        }, executor);
+    }
+
+    /**
+     * The existing documents among the given IDs, keyed by ID in request order, fetched in one batched read
+     */
+    public <T> CompletableFuture<Map<String, T>> findByIds(String collection, Collection<String> ids, Class<T> type) {
+        RequestCost cost = RequestCost.current();
+        if (ids.isEmpty()) {
+            return CompletableFuture.completedFuture(Map.of());
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            FirestoreMetrics.Sample sample = metrics.start();
+            try {
+                DocumentReference[] refs = ids.stream()
+                        .map(id -> collection(collection).document(id))
+                        .toArray(DocumentReference[]::new);
+                List<DocumentSnapshot> snapshots = resilience.call(collection, "getAll", FirestoreResilience.Call.READ,
+                        () -> firestore.getAll(refs));
+                metrics.read(sample, collection, "getAll", snapshots.size());
+                cost.read(snapshots.size());
+
+                boolean remember = remembers(type);
+                Map<String, T> results = new LinkedHashMap<>();
+                for (DocumentSnapshot snapshot : snapshots) {
+                    if (snapshot.exists()) {
+                        results.put(snapshot.getId(), toEntity(snapshot, type, cost,
+                                remember ? data -> staleReads.document(collection, snapshot.getId(), data) : null));
+                    } else if (remember) {
+                        staleReads.document(collection, snapshot.getId(), null);
+                    }
+                }
+                log.debug("Found {} of {} documents in collection '{}'", results.size(), ids.size(), collection);
+                return results;
+            } catch (Exception e) {
+                PersistenceException failure = PersistenceException.of(e, collection, "getAll", "reading documents from Firestore");
+                metrics.record(sample, collection, "getAll", failure);
+                EntityMetadata<T> metadata = entityRegistry.forClass(type);
+                Map<String, Map<String, Object>> stale = metadata == null ? null : staleReads.documents(collection, ids, failure, cost);
+                if (stale != null) {
+                    log.warn("{} reading {} documents from collection: {}, serving last known copies",
+                            failure.getKind(), ids.size(), collection);
+                    Map<String, T> results = new LinkedHashMap<>();
+                    stale.forEach((id, data) -> results.put(id, metadata.fromData(data)));
+                    return results;
+                }
+                log.error("{} reading {} documents from collection: {}", failure.getKind(), ids.size(), collection, e);
+                throw failure;
+            }
+        }, executor);
     }
 
     public CompletableFuture<Void> delete(String collection, String documentId) {
+        RequestCost cost = RequestCost.current();
         return CompletableFuture.runAsync(() -> {
+            FirestoreMetrics.Sample sample = metrics.start();
             try {
-                DocumentReference docRef = firestore.collection(collection).document(documentId);
-                ApiFuture<WriteResult> future = docRef.delete();
-                WriteResult result = future.get(10, TimeUnit.SECONDS); // Add timeout
+                DocumentReference docRef = collection(collection).document(documentId);
+                resilience.call(collection, "delete", FirestoreResilience.Call.IDEMPOTENT_WRITE, docRef::delete);
+                metrics.written(sample, collection, "delete", 1);
+                cost.written(1);
 
                 log.debug("Document deleted from collection '{}' with ID: {}", collection, documentId);
-            } catch (TimeoutException e) {
-                log.error("Timeout deleting document with ID {} from collection: {}", documentId, collection, e);
-                throw new RuntimeException("Timeout deleting document from Firestore", e);
             } catch (Exception e) {
-                log.error("Error deleting document with ID {} from collection: {}", documentId, collection, e);
-                throw new RuntimeException("Error deleting document from Firestore", e);
+                PersistenceException failure = PersistenceException.of(e, collection, "delete", "deleting document from Firestore");
+                metrics.record(sample, collection, "delete", failure);
+                log.error("{} deleting document with ID {} from collection: {}", failure.getKind(), documentId, collection, e);
+                throw failure;
+            }
+        }, executor);
+    }
+
+    /**
+     * Server-side count() aggregation: only the number of matching documents crosses the wire
+     */
+    public CompletableFuture<Long> count(String collection) {
+        return count(collection, collection(collection), "*", null);
+    }
+
+    public CompletableFuture<Long> countByField(String collection, String field, Object value) {
+        return count(collection, collection(collection).whereEqualTo(field, value), field, value);
+    }
+
+    /**
+     * Runs on the persistence executor like every other call; its virtual threads make waiting on
+     * the aggregation cheap, so a batch of counts issued together still runs concurrently
+     */
+    private CompletableFuture<Long> count(String collection, Query query, String field, Object value) {
+        RequestCost cost = RequestCost.current();
+        return CompletableFuture.supplyAsync(() -> {
+            FirestoreMetrics.Sample sample = metrics.start();
+            try {
+                AggregateQuerySnapshot snapshot = resilience.call(collection, "count", FirestoreResilience.Call.READ,
+                        () -> query.count().get());
+                // Aggregations bill one read per 1000 index entries counted, with a minimum of one
+                metrics.read(sample, collection, "count", billedReads(snapshot.getCount()));
+                cost.read(billedReads(snapshot.getCount()));
+                staleReads.count(collection, value == null ? null : field, value, snapshot.getCount());
+                log.debug("Counted {} documents in collection '{}' where {} = {}",
+                        snapshot.getCount(), collection, field, value);
+                return snapshot.getCount();
+            } catch (Exception e) {
+                PersistenceException failure = PersistenceException.of(e, collection, "count", "counting documents in Firestore");
+                metrics.record(sample, collection, "count", failure);
+                Long stale = staleReads.count(collection, value == null ? null : field, value, failure, cost);
+                if (stale != null) {
+                    log.warn("{} counting documents in collection: {} with field: {} = {}, serving last known count",
+                            failure.getKind(), collection, field, value);
+                    return stale;
+                }
+                log.error("{} counting documents in collection: {} with field: {} = {}",
+                        failure.getKind(), collection, field, value, e);
+                throw failure;
+            }
+        }, executor);
+    }
+
+    private static long billedReads(long counted) {
+        return Math.max(1, (counted + 999) / 1000);
+    }
+
+    /**
+     * Attaches a snapshot listener to a whole collection; the caller owns the returned registration
+     */
+    public ListenerRegistration listen(String collection, EventListener<QuerySnapshot> listener) {
+        return collection(collection).addSnapshotListener((snapshot, error) -> {
+            if (snapshot != null) {
+                // Listeners bill a read per added, modified or removed document
+                metrics.documentsRead(collection, snapshot.getDocumentChanges().size());
             }
+            listener.onEvent(snapshot, error);
         });
     }
 
-    // Health check method
-    public boolean isHealthy() {
-        try {
-            // Try a simple read operation to test connectivity
-            CollectionReference testRef = firestore.collection("health_check");
-            ApiFuture<QuerySnapshot> future = testRef.limit(1).get();
-            future.get(5, TimeUnit.SECONDS);
-            return true;
-        } catch (Exception e) {
-            log.warn("Firestore health check failed: {}", e.getMessage());
-            return false;
+    /**
+     * Registered models go through their precompiled mapper; a Map gets the document data as is, since the SDK
+     * mapper rejects raw generic types; anything else uses the SDK's reflective mapper.
+     * The raw data of registered models is also handed to remember, when given, for stale-read fallback.
+     */
+    private <T> T toEntity(DocumentSnapshot document, Class<T> type, RequestCost cost, Consumer<Map<String, Object>> remember) {
+        EntityMetadata<T> metadata = entityRegistry.forClass(type);
+        if (metadata == null) {
+            if (cost.isTracking()) {
+                cost.readBytes(DocumentSizes.estimate(document.getReference().getPath(), document.getData()));
+            }
+            if (Map.class.isAssignableFrom(type)) {
+                return type.cast(document.getData());
+            }
+            return document.toObject(type);
+        }
+        // Decoded once and shared by the size estimate, the stale-read copy and the mapper
+        Map<String, Object> data = document.getData();
+        if (cost.isTracking()) {
+            cost.readBytes(DocumentSizes.estimate(document.getReference().getPath(), data));
+        }
+        if (data != null && remember != null) {
+            remember.accept(data);
+        }
+        return data == null ? null : metadata.fromData(data);
+    }
+
+    /**
+     * Decodes a findAll (null field) or findByField result, keeping its raw data for stale-read fallback
+     */
+    private <T> List<T> toEntities(QuerySnapshot querySnapshot, Class<T> type, RequestCost cost,
+                                   String collection, String field, Object value) {
+        List<Map<String, Object>> raw = remembers(type) ? new ArrayList<>(querySnapshot.size()) : null;
+        List<T> results = new ArrayList<>(querySnapshot.size());
+        for (QueryDocumentSnapshot document : querySnapshot.getDocuments()) {
+            results.add(toEntity(document, type, cost, raw == null ? null : raw::add));
         }
+        if (raw != null) {
+            staleReads.query(collection, field, value, raw);
+        }
+        return results;
+    }
+
+    private <T> List<T> staleQuery(String collection, String field, Object value, Class<T> type,
+                                   PersistenceException failure, RequestCost cost) {
+        EntityMetadata<T> metadata = entityRegistry.forClass(type);
+        List<Map<String, Object>> stale = metadata == null ? null : staleReads.query(collection, field, value, failure, cost);
+        if (stale == null) {
+            return null;
+        }
+        log.warn("{} querying collection: {} with field: {} = {}, serving last known result",
+                failure.getKind(), collection, field, value);
+        List<T> results = new ArrayList<>(stale.size());
+        stale.forEach(data -> results.add(metadata.fromData(data)));
+        return results;
+    }
+
+    /**
+     * Reads are kept for stale-read fallback only for registered models, whose raw data decodes back into entities
+     */
+    private boolean remembers(Class<?> type) {
+        return staleReads.isEnabled() && entityRegistry.forClass(type) != null;
+    }
+
+    /**
+     * A one-document query against health_check, straight to Firestore (no retries, breaker or bulkhead);
+     * throws when it fails or takes longer than the timeout. Bills one read, so callers should probe sparingly.
+     */
+    public void ping(Duration timeout) throws Exception {
+        firestore.collection("health_check").limit(1).get().get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Document data as of its update time
+     */
+    public record Versioned(Map<String, Object> data, Timestamp updateTime) {
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,187 @@
+package com.tirisano.mmogo.school.manager.service;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Precondition;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.UpdateBuilder;
+import com.google.cloud.firestore.WriteBatch;
+import com.tirisano.mmogo.school.manager.repository.EntityMetadata;
+import com.tirisano.mmogo.school.manager.repository.EntityRegistry;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A set of writes committed atomically through {@link FirebaseService#commit(FirestoreBatch)}.
+ * Obtain one from {@link FirebaseService#batch()}; writes are only staged until the commit.
+ * Inside {@link FirebaseService#transaction} the writes are staged in the transaction instead,
+ * and commit with it.
+ */
+public class FirestoreBatch {
+
+    /**
+     * Firestore rejects batches with more writes than this
+     */
+    public static final int MAX_WRITES = 500;
+
+    private final UpdateBuilder<?> batch;
+    private final Function<String, CollectionReference> collections;
+    private final EntityRegistry entityRegistry;
+    private final List<Runnable> afterCommit = new ArrayList<>();
+    private final Map<String, Integer> writesByCollection = new LinkedHashMap<>();
+    private int writes;
+    private boolean repeatable = true;
+
+    FirestoreBatch(UpdateBuilder<?> batch, Function<String, CollectionReference> collections, EntityRegistry entityRegistry) {
+        this.batch = batch;
+        this.collections = collections;
+        this.entityRegistry = entityRegistry;
+    }
+
+    /**
+     * Stages an insert with a generated ID, which is set on the entity immediately
+     */
+    public <T> String save(String collection, T entity) {
+        DocumentReference docRef = collections.apply(collection).document();
+        EntityMetadata<?> metadata = entityRegistry.forClass(entity.getClass());
+        if (metadata != null) {
+            metadata.assignId(entity, docRef.getId());
+        }
+        batch.set(docRef, entity);
+        counted(collection);
+        return docRef.getId();
+    }
+
+    public <T> FirestoreBatch save(String collection, T entity, String documentId) {
+        batch.set(collections.apply(collection).document(documentId), entity);
+        counted(collection);
+        return this;
+    }
+
+    /**
+     * Stages a write that fails the whole batch with ALREADY_EXISTS if the document exists
+     */
+    public FirestoreBatch create(String collection, String documentId, Map<String, Object> fields) {
+        batch.create(collections.apply(collection).document(documentId), fields);
+        counted(collection);
+        // A retry after a commit that did land would fail with ALREADY_EXISTS
+        repeatable = false;
+        return this;
+    }
+
+    /**
+     * Merges the given fields into the document, creating it if needed; values may be FieldValue sentinels
+     */
+    public FirestoreBatch merge(String collection, String documentId, Map<String, Object> fields) {
+        batch.set(collections.apply(collection).document(documentId), fields, SetOptions.merge());
+        counted(collection);
+        checkRepeatable(fields);
+        return this;
+    }
+
+    /**
+     * Overwrites only the given fields; fails the whole batch with NOT_FOUND if the document is gone
+     */
+    public FirestoreBatch update(String collection, String documentId, Map<String, Object> fields) {
+        batch.update(collections.apply(collection).document(documentId), fields);
+        counted(collection);
+        checkRepeatable(fields);
+        return this;
+    }
+
+    /**
+     * Overwrites the given fields only if the document is still at the given update time; fails the
+     * whole batch with FAILED_PRECONDITION if it changed or is gone
+     */
+    public FirestoreBatch updateIfUnchanged(String collection, String documentId, Map<String, Object> fields,
+                                            Timestamp updateTime) {
+        batch.update(collections.apply(collection).document(documentId), fields, Precondition.updatedAt(updateTime));
+        counted(collection);
+        // A retry after a commit that did land would fail the precondition
+        repeatable = false;
+        return this;
+    }
+
+    /**
+     * Deletes the document only if it is still at the given update time; fails the whole batch with
+     * FAILED_PRECONDITION if it changed or is gone
+     */
+    public FirestoreBatch deleteIfUnchanged(String collection, String documentId, Timestamp updateTime) {
+        batch.delete(collections.apply(collection).document(documentId), Precondition.updatedAt(updateTime));
+        counted(collection);
+        // A retry after a commit that did land would fail the precondition
+        repeatable = false;
+        return this;
+    }
+
+    public FirestoreBatch delete(String collection, String documentId) {
+        batch.delete(collections.apply(collection).document(documentId));
+        counted(collection);
+        return this;
+    }
+
+    /**
+     * Runs after a successful commit, e.g. to invalidate caches of the touched collections
+     */
+    public FirestoreBatch afterCommit(Runnable action) {
+        afterCommit.add(action);
+        return this;
+    }
+
+    public int size() {
+        return writes;
+    }
+
+    public boolean isEmpty() {
+        return writes == 0;
+    }
+
+    /**
+     * True when committing the batch twice leaves the same state as committing it once,
+     * so FirebaseService may retry a commit whose outcome is unknown
+     */
+    public boolean isRepeatable() {
+        return repeatable;
+    }
+
+    /**
+     * Sentinels other than serverTimestamp and delete (increment, arrayUnion, arrayRemove)
+     * are treated as not repeatable, including inside nested maps; increment and arrayUnion are the ones this codebase uses
+     */
+    private void checkRepeatable(Map<?, ?> fields) {
+        for (Object value : fields.values()) {
+            if (value instanceof Map<?, ?> nested) {
+                checkRepeatable(nested);
+            } else if (value instanceof FieldValue && !value.equals(FieldValue.serverTimestamp())
+                    && !value.equals(FieldValue.delete())) {
+                repeatable = false;
+            }
+        }
+    }
+
+    private void counted(String collection) {
+        writes++;
+        writesByCollection.merge(collection, 1, Integer::sum);
+    }
+
+    WriteBatch writeBatch() {
+        if (!(batch instanceof WriteBatch writeBatch)) {
+            throw new IllegalStateException("Writes staged in a transaction commit with the transaction");
+        }
+        return writeBatch;
+    }
+
+    Map<String, Integer> writesByCollection() {
+        return writesByCollection;
+    }
+
+    List<Runnable> afterCommitActions() {
+        return afterCommit;
+    }
+}
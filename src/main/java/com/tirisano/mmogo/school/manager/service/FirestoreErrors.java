@@ -0,0 +1,72 @@
+package com.tirisano.mmogo.school.manager.service;
+
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode;
+import com.google.cloud.firestore.FirestoreException;
+
+/**
+ * Classifies failures surfaced by FirebaseService, which arrive wrapped in RuntimeException
+ * and ExecutionException layers.
+ */
+public final class FirestoreErrors {
+
+    private FirestoreErrors() {
+    }
+
+    /**
+     * True when a create() precondition failed because the document already exists
+     */
+    public static boolean isAlreadyExists(Throwable error) {
+        return hasStatus(error, StatusCode.Code.ALREADY_EXISTS);
+    }
+
+    /**
+     * True when an update-time precondition failed because the document changed since it was read
+     */
+    public static boolean isPreconditionFailed(Throwable error) {
+        return hasStatus(error, StatusCode.Code.FAILED_PRECONDITION);
+    }
+
+    /**
+     * True when an update failed because the document does not exist, e.g. it was deleted since it was read
+     */
+    public static boolean isNotFound(Throwable error) {
+        return hasStatus(error, StatusCode.Code.NOT_FOUND);
+    }
+
+    private static boolean hasStatus(Throwable error, StatusCode.Code code) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (statusCode(t) == code) {
+                return true;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The status code carried by this exception itself (not its causes), or null if it has none
+     */
+    public static StatusCode.Code statusCode(Throwable t) {
+        if (t instanceof FirestoreException fe && fe.getStatus() != null) {
+            return StatusCode.Code.valueOf(fe.getStatus().getCode().name());
+        }
+        if (t instanceof ApiException ae) {
+            return ae.getStatusCode().getCode();
+        }
+        return null;
+    }
+
+    /**
+     * The innermost cause's message, which carries the Firestore status text
+     */
+    public static String rootMessage(Throwable error) {
+        Throwable root = error;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+}
@@ -0,0 +1,81 @@
+package com.tirisano.mmogo.school.manager.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Firestore reachability, checked on a schedule so health endpoints only read a cached result.
+ * When some call succeeded within the last interval, that counts as the check and no query is
+ * made; otherwise one health_check read is issued with a short timeout. Firestore is reported
+ * down only after failure-threshold consecutive failed checks, so one slow probe does not flap
+ * readiness.
+ */
+@Component
+@Slf4j
+public class FirestoreHealthProbe {
+
+    private final FirebaseService firebaseService;
+    private final FirestoreResilience resilience;
+    private final TaskScheduler scheduler;
+    private final Duration interval;
+    private final Duration timeout;
+    private final int failureThreshold;
+    private volatile Result result = new Result(null, "none", null, 0, 0, null);
+
+    public FirestoreHealthProbe(FirebaseService firebaseService, FirestoreResilience resilience, TaskScheduler scheduler,
+                                @Value("${health.firestore.interval:10s}") Duration interval,
+                                @Value("${health.firestore.timeout:2s}") Duration timeout,
+                                @Value("${health.firestore.failure-threshold:2}") int failureThreshold) {
+        this.firebaseService = firebaseService;
+        this.resilience = resilience;
+        this.scheduler = scheduler;
+        this.interval = interval;
+        this.timeout = timeout;
+        this.failureThreshold = failureThreshold;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::check, interval);
+    }
+
+    public void check() {
+        long lastSuccess = resilience.lastSuccessNanos();
+        if (lastSuccess != 0 && System.nanoTime() - lastSuccess < interval.toNanos()) {
+            result = new Result(true, "traffic", Instant.now(), 0, 0, null);
+            return;
+        }
+
+        long started = System.nanoTime();
+        try {
+            firebaseService.ping(timeout);
+            result = new Result(true, "probe", Instant.now(), Duration.ofNanos(System.nanoTime() - started).toMillis(), 0, null);
+        } catch (Exception e) {
+            int failures = result.consecutiveFailures() + 1;
+            // Stay at the previous verdict until the threshold is crossed
+            Boolean up = failures >= failureThreshold ? Boolean.FALSE : result.up();
+            String error = FirestoreErrors.rootMessage(e);
+            result = new Result(up, "probe", Instant.now(), Duration.ofNanos(System.nanoTime() - started).toMillis(),
+                    failures, error != null ? error : e.getClass().getSimpleName());
+            log.warn("Firestore health check failed ({} in a row): {}", failures, result.error());
+        }
+    }
+
+    public Result result() {
+        return result;
+    }
+
+    /**
+     * The latest check. up is null until the first check has decided; source is "traffic" when a
+     * recent call stood in for the query, "probe" when the query ran
+     */
+    public record Result(Boolean up, String source, Instant checkedAt, long latencyMillis,
+                         int consecutiveFailures, String error) {
+    }
+}
@@ -0,0 +1,175 @@
+package com.tirisano.mmogo.school.manager.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Latency, billed-document meters and trace spans for every Firestore call made by FirebaseService.
+ * Timers carry collection, operation and outcome tags and publish percentile histograms,
+ * so per-collection p95/p99 can be aggregated across instances in Prometheus. Each call is also
+ * a span, a child of whatever span is current on the persistence thread (normally the HTTP request's).
+ */
+@Component
+public class FirestoreMetrics {
+
+    /**
+     * Collection tag for batches that write to more than one collection
+     */
+    public static final String MULTIPLE_COLLECTIONS = "multiple";
+
+    private final MeterRegistry meterRegistry;
+    private final Tracer tracer;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> reads = new ConcurrentHashMap<>();
+    private final Map<String, Counter> writes = new ConcurrentHashMap<>();
+
+    public FirestoreMetrics(MeterRegistry meterRegistry, ObjectProvider<Tracer> tracer) {
+        this.meterRegistry = meterRegistry;
+        this.tracer = tracer.getIfAvailable(() -> Tracer.NOOP);
+    }
+
+    /**
+     * Starts timing a call and opens its span; finish it with exactly one of read, written, committed or record
+     */
+    public Sample start() {
+        return new Sample(Timer.start(meterRegistry), tracer.nextSpan().name("firestore").start());
+    }
+
+    /**
+     * A successful call that read the given number of billed documents
+     */
+    public void read(Sample sample, String collection, String operation, long documents) {
+        documentsRead(collection, documents);
+        sample.span.tag("db.firestore.documents_read", documents);
+        record(sample, collection, operation, null);
+    }
+
+    /**
+     * A successful call that wrote the given number of documents
+     */
+    public void written(Sample sample, String collection, String operation, long documents) {
+        documentsWritten(collection, documents);
+        sample.span.tag("db.firestore.documents_written", documents);
+        record(sample, collection, operation, null);
+    }
+
+    /**
+     * A successful batch commit, with its writes counted against each collection they touched
+     */
+    public void committed(Sample sample, String collection, Map<String, Integer> writesByCollection) {
+        long total = 0;
+        for (Map.Entry<String, Integer> entry : writesByCollection.entrySet()) {
+            documentsWritten(entry.getKey(), entry.getValue());
+            total += entry.getValue();
+        }
+        sample.span.tag("db.firestore.documents_written", total);
+        record(sample, collection, "commit", null);
+    }
+
+    /**
+     * Stops the sample; the outcome is success when error is null, rejected when a guard shed the call,
+     * timeout for a TIMEOUT PersistenceException or a TimeoutException in its cause chain
+     */
+    public void record(Sample sample, String collection, String operation, Throwable error) {
+        String outcome = error == null ? "success"
+                : error instanceof PersistenceException pe && pe.getKind() == PersistenceException.Kind.REJECTED ? "rejected"
+                : isTimeout(error) ? "timeout" : "error";
+        Timer timer = timers.computeIfAbsent(collection + '|' + operation + '|' + outcome,
+                key -> Timer.builder("firestore.operation")
+                        .description("Latency of Firestore calls made by FirebaseService")
+                        .tags("collection", collection, "operation", operation, "outcome", outcome)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry));
+        sample.timer.stop(timer);
+
+        Span span = sample.span.name(operation + " " + collection)
+                .tag("db.system", "firestore")
+                .tag("db.collection.name", collection)
+                .tag("db.operation.name", operation)
+                .tag("outcome", outcome);
+        if (error != null) {
+            span.error(error);
+        }
+        span.end();
+    }
+
+    /**
+     * Documents Firestore bills as read; a query that matches nothing still bills one
+     */
+    public void documentsRead(String collection, long count) {
+        if (count > 0) {
+            reads.computeIfAbsent(collection, c -> Counter.builder("firestore.documents.read")
+                    .tag("collection", c)
+                    .register(meterRegistry)).increment(count);
+        }
+    }
+
+    public void documentsWritten(String collection, long count) {
+        if (count > 0) {
+            writes.computeIfAbsent(collection, c -> Counter.builder("firestore.documents.written")
+                    .tag("collection", c)
+                    .register(meterRegistry)).increment(count);
+        }
+    }
+
+    /**
+     * A transient failure about to be retried
+     */
+    public void retried(String collection, String operation, PersistenceException.Kind reason) {
+        meterRegistry.counter("firestore.retries", "collection", collection, "operation", operation,
+                "reason", reason.name().toLowerCase()).increment();
+    }
+
+    /**
+     * A retry or hedge that was skipped because the retry budget was spent
+     */
+    public void retryThrottled(String collection, String operation) {
+        meterRegistry.counter("firestore.retries.throttled", "collection", collection, "operation", operation).increment();
+    }
+
+    /**
+     * A read that was issued twice, and whether the duplicate answered first
+     */
+    public void hedged(String collection, String operation, boolean hedgeWon) {
+        meterRegistry.counter("firestore.hedges", "collection", collection, "operation", operation,
+                "winner", hedgeWon ? "hedge" : "primary").increment();
+    }
+
+    private static boolean isTimeout(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof PersistenceException pe) {
+                return pe.getKind() == PersistenceException.Kind.TIMEOUT;
+            }
+            if (t instanceof TimeoutException) {
+                return true;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * One in-flight Firestore call
+     */
+    public static final class Sample {
+
+        private final Timer.Sample timer;
+        private final Span span;
+
+        private Sample(Timer.Sample timer, Span span) {
+            this.timer = timer;
+            this.span = span;
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package com.tirisano.mmogo.school.manager.service;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Timeouts, retries and hedging for the Firestore RPCs FirebaseService issues.
+ * Every call first passes its collection's bulkhead and circuit breaker (CollectionGuards).
+ * <ul>
+ *   <li>Each collection/operation pair gets a latency budget of its recent p99 times a multiplier,
+ *       clamped between a floor and a ceiling; until enough calls have been seen, the ceiling.
+ *       A whole call, retries included, never runs past the ceiling. Writes that may not be
+ *       repeated always wait out the full ceiling: giving up early on a commit that did land
+ *       would report it failed and invite the caller to apply it a second time.</li>
+ *   <li>Reads and idempotent writes are retried on timeouts and transient status codes, after an
+ *       exponential backoff with full jitter. Writes that may not be repeated (create preconditions,
+ *       increments) are attempted once.</li>
+ *   <li>With hedging enabled, a read still running at its recent p95 is issued a second time and
+ *       the first response wins. The duplicate is billed, so it is off by default.</li>
+ *   <li>Retries and hedges draw from a shared token bucket refilled by successful calls, so when
+ *       Firestore itself is struggling extra attempts stop instead of multiplying its load.</li>
+ * </ul>
+ * Callers run on the persistence executor's virtual threads, so waiting out a backoff is cheap.
+ */
+@Component
+@Slf4j
+public class FirestoreResilience {
+
+    public enum Call {
+        /**
+         * Retried, and hedged when hedging is enabled
+         */
+        READ,
+        /**
+         * Retried: repeating it leaves the same state (set, update without increments, delete)
+         */
+        IDEMPOTENT_WRITE,
+        /**
+         * Attempted once, and waited on for the full ceiling
+         */
+        WRITE
+    }
+
+    private final FirestoreMetrics metrics;
+    private final CollectionGuards guards;
+    private final Duration floor;
+    private final Duration ceiling;
+    private final double multiplier;
+    private final int minSamples;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final boolean hedging;
+    private final Duration minHedgeDelay;
+    private final RetryBudget budget;
+    private final Map<String, LatencyWindow> windows = new ConcurrentHashMap<>();
+    private volatile long lastSuccessNanos;
+
+    public FirestoreResilience(FirestoreMetrics metrics, CollectionGuards guards, MeterRegistry meterRegistry,
+                               @Value("${persistence.timeout.floor:1s}") Duration floor,
+                               @Value("${persistence.timeout.ceiling:10s}") Duration ceiling,
+                               @Value("${persistence.timeout.p99-multiplier:4}") double multiplier,
+                               @Value("${persistence.timeout.min-samples:50}") int minSamples,
+                               @Value("${persistence.retry.max-attempts:3}") int maxAttempts,
+                               @Value("${persistence.retry.initial-backoff:50ms}") Duration initialBackoff,
+                               @Value("${persistence.retry.max-backoff:1s}") Duration maxBackoff,
+                               @Value("${persistence.retry.budget-ratio:0.1}") double budgetRatio,
+                               @Value("${persistence.retry.budget-burst:10}") int budgetBurst,
+                               @Value("${persistence.hedging.enabled:false}") boolean hedging,
+                               @Value("${persistence.hedging.min-delay:20ms}") Duration minHedgeDelay) {
+        this.metrics = metrics;
+        this.guards = guards;
+        this.floor = floor;
+        this.ceiling = ceiling;
+        this.multiplier = multiplier;
+        this.minSamples = minSamples;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.hedging = hedging;
+        this.minHedgeDelay = minHedgeDelay;
+        this.budget = new RetryBudget(budgetRatio, budgetBurst);
+        Gauge.builder("firestore.retry.budget", budget, RetryBudget::tokens)
+                .description("Tokens left for Firestore retries and hedged reads")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the RPC the supplier issues inside the collection's bulkhead and circuit breaker,
+     * retrying or hedging it as the call type allows. The supplier is invoked once per attempt
+     * and must build an equivalent request each time.
+     *
+     * @throws PersistenceException when the call was shed, every allowed attempt failed or the ceiling was reached
+     */
+    public <R> R call(String collection, String operation, Call call, Supplier<ApiFuture<R>> rpc) {
+        return call(collection, List.of(collection), operation, call, rpc);
+    }
+
+    /**
+     * As above, for a call touching several collections, e.g. a batch: it passes the bulkhead and breaker
+     * of each, while its latency budget, metrics and errors go under the given collection label
+     */
+    public <R> R call(String collection, Collection<String> guarded, String operation, Call call,
+                      Supplier<ApiFuture<R>> rpc) {
+        CollectionGuards.Permit permit = guards.acquire(guarded, operation);
+        try {
+            return attempt(permit, collection, operation, call, rpc);
+        } finally {
+            permit.release();
+        }
+    }
+
+    private <R> R attempt(CollectionGuards.Permit permit, String collection, String operation, Call call,
+                          Supplier<ApiFuture<R>> rpc) {
+        LatencyWindow window = windows.computeIfAbsent(collection + '|' + operation, key -> new LatencyWindow());
+        long deadline = System.nanoTime() + ceiling.toNanos();
+        int attempts = call == Call.WRITE ? 1 : maxAttempts;
+
+        for (int attempt = 1; ; attempt++) {
+            long remaining = deadline - System.nanoTime();
+            long timeout = call == Call.WRITE ? remaining : Math.min(window.budgetNanos(), remaining);
+            long started = System.nanoTime();
+            try {
+                R result = call == Call.READ && hedging && window.isWarm()
+                        ? hedged(collection, operation, rpc, window.hedgeDelayNanos(), timeout)
+                        : await(rpc.get(), timeout);
+                window.record(System.nanoTime() - started);
+                permit.record(false);
+                budget.succeeded();
+                lastSuccessNanos = System.nanoTime();
+                return result;
+            } catch (Exception e) {
+                PersistenceException.Kind kind = PersistenceException.classify(e);
+                if (kind == PersistenceException.Kind.TIMEOUT) {
+                    // The call took at least this long, which lets the budget grow when Firestore slows down
+                    window.record(System.nanoTime() - started);
+                }
+                // Only outages count against the breaker; a refused precondition is a healthy answer
+                permit.record(kind.isTransient());
+                long backoff = backoffNanos(attempt);
+                boolean retry = kind.isTransient() && attempt < attempts
+                        && deadline - System.nanoTime() > backoff + floor.toNanos();
+                if (retry && !budget.tryAcquire()) {
+                    metrics.retryThrottled(collection, operation);
+                    retry = false;
+                }
+                if (!retry || !permit.allowsCall()) {
+                    throw new PersistenceException(kind, collection, operation, attempt,
+                            kind + " after " + attempt + " attempt(s) on " + operation + " " + collection, cause(e));
+                }
+                metrics.retried(collection, operation, kind);
+                log.debug("Retrying {} on '{}' after {} (attempt {})", operation, collection, kind, attempt);
+                sleep(backoff);
+            }
+        }
+    }
+
+    /**
+     * When an RPC last succeeded, in System.nanoTime() terms, or 0 before the first; live traffic doubles as a health signal
+     */
+    public long lastSuccessNanos() {
+        return lastSuccessNanos;
+    }
+
+    /**
+     * Issues the read, and a duplicate if the first has not answered by the hedge delay; the first success wins
+     */
+    private <R> R hedged(String collection, String operation, Supplier<ApiFuture<R>> rpc,
+                         long hedgeDelay, long timeout) throws Exception {
+        long started = System.nanoTime();
+        ApiFuture<R> primary = rpc.get();
+        if (hedgeDelay >= timeout) {
+            return await(primary, timeout);
+        }
+        try {
+            return primary.get(hedgeDelay, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException slow) {
+            if (!budget.tryAcquire()) {
+                metrics.retryThrottled(collection, operation);
+                return await(primary, timeout - (System.nanoTime() - started));
+            }
+        }
+
+        ApiFuture<R> hedge = rpc.get();
+        CompletableFuture<R> winner = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        AtomicInteger winnerIndex = new AtomicInteger(-1);
+        List<ApiFuture<R>> attempts = List.of(primary, hedge);
+        for (int i = 0; i < attempts.size(); i++) {
+            int attemptIndex = i;
+            ApiFutures.addCallback(attempts.get(i), new ApiFutureCallback<>() {
+                @Override
+                public void onSuccess(R result) {
+                    if (winner.complete(result)) {
+                        winnerIndex.set(attemptIndex);
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    if (failures.incrementAndGet() == 2) {
+                        winner.completeExceptionally(t);
+                    }
+                }
+            }, Runnable::run);
+        }
+        try {
+            R result = winner.get(timeout - (System.nanoTime() - started), TimeUnit.NANOSECONDS);
+            metrics.hedged(collection, operation, winnerIndex.get() == 1);
+            return result;
+        } finally {
+            primary.cancel(true);
+            hedge.cancel(true);
+        }
+    }
+
+    private static <R> R await(ApiFuture<R> future, long timeoutNanos) throws Exception {
+        try {
+            return future.get(Math.max(0, timeoutNanos), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // Stop waiting on the RPC too, rather than leaving it to run out the SDK's own deadline
+            future.cancel(true);
+            throw e;
+        }
+    }
+
+    /**
+     * Full jitter: uniformly random up to the exponential backoff for this attempt
+     */
+    private long backoffNanos(int attempt) {
+        long exponential = initialBackoff.toNanos() << Math.min(attempt - 1, 20);
+        long cap = Math.min(maxBackoff.toNanos(), exponential);
+        return cap <= 0 ? 0 : ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    private static void sleep(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while backing off a Firestore retry", e);
+        }
+    }
+
+    private static Throwable cause(Throwable error) {
+        return error instanceof ExecutionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * The most recent successful (or timed-out) latencies of one collection/operation pair,
+     * with percentiles recomputed every few samples rather than on every call
+     */
+    private final class LatencyWindow {
+
+        private static final int SIZE = 256;
+        private static final int RECOMPUTE_EVERY = 16;
+
+        private final long[] samples = new long[SIZE];
+        private int next;
+        private long count;
+        private volatile long p95 = -1;
+        private volatile long p99 = -1;
+
+        synchronized void record(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % SIZE;
+            count++;
+            if (count >= minSamples && count % RECOMPUTE_EVERY == 0) {
+                long[] sorted = Arrays.copyOf(samples, (int) Math.min(count, SIZE));
+                Arrays.sort(sorted);
+                p95 = sorted[(int) Math.ceil(sorted.length * 0.95) - 1];
+                p99 = sorted[(int) Math.ceil(sorted.length * 0.99) - 1];
+            }
+        }
+
+        boolean isWarm() {
+            return p99 >= 0;
+        }
+
+        long budgetNanos() {
+            if (!isWarm()) {
+                return ceiling.toNanos();
+            }
+            long budget = (long) (p99 * multiplier);
+            return Math.max(floor.toNanos(), Math.min(ceiling.toNanos(), budget));
+        }
+
+        long hedgeDelayNanos() {
+            return Math.max(minHedgeDelay.toNanos(), p95);
+        }
+    }
+
+    /**
+     * Each success deposits a fraction of a token, each retry or hedge spends a whole one: extra attempts
+     * stay under roughly that fraction of traffic, with a small burst allowance for isolated failures
+     */
+    private static final class RetryBudget {
+
+        private static final long SCALE = 1000;
+
+        private final long deposit;
+        private final long max;
+        private final AtomicLong milliTokens;
+
+        RetryBudget(double ratio, int burst) {
+            this.deposit = Math.round(ratio * SCALE);
+            this.max = burst * SCALE;
+            this.milliTokens = new AtomicLong(max);
+        }
+
+        void succeeded() {
+            milliTokens.accumulateAndGet(deposit, (current, add) -> Math.min(max, current + add));
+        }
+
+        boolean tryAcquire() {
+            long current;
+            do {
+                current = milliTokens.get();
+                if (current < SCALE) {
+                    return false;
+                }
+            } while (!milliTokens.compareAndSet(current, current - SCALE));
+            return true;
+        }
+
+        double tokens() {
+            return milliTokens.get() / (double) SCALE;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.tirisano.mmogo.school.manager.service;
+
+import com.google.cloud.firestore.Transaction;
+
+/**
+ * One attempt of a {@link FirebaseService#transaction} body: documents read through it are
+ * locked for the transaction, and the writes staged in {@link #writes()} commit only if none of
+ * them changed meanwhile.
+ */
+public class FirestoreTransaction {
+
+    private final FirebaseService firebaseService;
+    private final Transaction transaction;
+    private final FirestoreBatch writes;
+    private final RequestCost cost;
+
+    FirestoreTransaction(FirebaseService firebaseService, Transaction transaction, FirestoreBatch writes, RequestCost cost) {
+        this.firebaseService = firebaseService;
+        this.transaction = transaction;
+        this.writes = writes;
+        this.cost = cost;
+    }
+
+    /**
+     * Reads a document as of the transaction; null when it does not exist. All reads must come before any write.
+     */
+    public <T> T get(String collection, String id, Class<T> type) {
+        return firebaseService.read(transaction, collection, id, type, cost);
+    }
+
+    public FirestoreBatch writes() {
+        return writes;
+    }
+}
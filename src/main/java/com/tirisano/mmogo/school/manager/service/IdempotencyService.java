@@ -0,0 +1,174 @@
+package com.tirisano.mmogo.school.manager.service;
+
+import com.google.cloud.Timestamp;
+import com.tirisano.mmogo.school.manager.util.BoundedCache;
+import com.tirisano.mmogo.school.manager.util.Hashes;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Idempotency-Key support for endpoints that create records.
+ * The key document is created in the same batch as the operation's own writes, so either both
+ * commit or neither does, and a concurrent duplicate on another instance fails with
+ * ALREADY_EXISTS instead of writing twice. A retried request is answered from the recorded
+ * result ID: from memory when this instance saw the original, otherwise from the key document,
+ * and in both cases with no new writes. Key documents carry an expiresAt field for a
+ * Firestore TTL policy; expired keys are treated as unused, and reclaimed only if the key
+ * document is unchanged since it was read, so two requests cannot both take over the same one.
+ * A retry whose recorded result has since been deleted fails with {@link ResultGoneException}.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    public static final String COLLECTION = "idempotencyKeys";
+
+    private final FirebaseService firebaseService;
+    private final BoundedCache<String, Record> recent;
+    private final Map<String, CompletableFuture<Record>> inFlight = new ConcurrentHashMap<>();
+    private final Duration ttl;
+
+    public IdempotencyService(FirebaseService firebaseService,
+                              @Value("${idempotency.max-entries:10000}") int maxEntries,
+                              @Value("${idempotency.ttl:24h}") Duration ttl) {
+        this.firebaseService = firebaseService;
+        this.recent = new BoundedCache<>(maxEntries);
+        this.ttl = ttl;
+    }
+
+    /**
+     * Runs the operation once per (scope, key).
+     *
+     * @param fingerprint identifies the request body; reusing a key with a different body is rejected
+     * @param stageWrites stages the operation's writes into the batch and returns its result
+     * @param resultId    extracts the ID recorded for the result
+     * @param loadResult  loads a recorded result by ID when the request is replayed
+     */
+    public <T> T execute(String scope, String key, String fingerprint,
+                         Function<FirestoreBatch, T> stageWrites,
+                         Function<T, String> resultId,
+                         Function<String, T> loadResult) {
+        String documentId = Hashes.sha256Hex(scope + "\n" + key);
+        String requestHash = Hashes.sha256Hex(fingerprint);
+
+        Record known = recent.get(documentId);
+        if (known != null && !known.isExpired()) {
+            return replay(known, requestHash, loadResult);
+        }
+
+        CompletableFuture<Record> mine = new CompletableFuture<>();
+        CompletableFuture<Record> running = inFlight.putIfAbsent(documentId, mine);
+        if (running != null) {
+            // Same key already being processed here: wait for it instead of racing it
+            return replay(running.join(), requestHash, loadResult);
+        }
+
+        try {
+            Record persisted = readRecord(documentId);
+            if (persisted != null && !persisted.isExpired()) {
+                recent.put(documentId, persisted);
+                mine.complete(persisted);
+                return replay(persisted, requestHash, loadResult);
+            }
+
+            FirestoreBatch batch = firebaseService.batch();
+            T result = stageWrites.apply(batch);
+            Record record = new Record(resultId.apply(result), requestHash,
+                    Timestamp.ofTimeMicroseconds((System.currentTimeMillis() + ttl.toMillis()) * 1000), null);
+            Map<String, Object> fields = record.toFields(scope);
+            if (persisted == null) {
+                batch.create(COLLECTION, documentId, fields);
+            } else {
+                // An expired key the TTL policy has not deleted yet
+                batch.updateIfUnchanged(COLLECTION, documentId, fields, persisted.updateTime());
+            }
+
+            try {
+                firebaseService.commit(batch).join();
+            } catch (RuntimeException e) {
+                if (!FirestoreErrors.isAlreadyExists(e) && !FirestoreErrors.isPreconditionFailed(e)) {
+                    throw e;
+                }
+                // Another request committed this key first; its writes stand and ours were discarded
+                Record winner = readRecord(documentId);
+                if (winner == null) {
+                    throw e;
+                }
+                recent.put(documentId, winner);
+                mine.complete(winner);
+                return replay(winner, requestHash, loadResult);
+            }
+
+            recent.put(documentId, record);
+            mine.complete(record);
+            log.debug("Idempotency key recorded for scope '{}' with result ID: {}", scope, record.resultId());
+            return result;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(documentId, mine);
+        }
+    }
+
+    private <T> T replay(Record record, String requestHash, Function<String, T> loadResult) {
+        if (!record.requestHash().equals(requestHash)) {
+            throw new IllegalStateException("Idempotency-Key has already been used for a different request");
+        }
+        log.debug("Replaying idempotent request with result ID: {}", record.resultId());
+        T result = loadResult.apply(record.resultId());
+        if (result == null) {
+            // Running it again would repeat what the key exists to prevent, e.g. a second charge
+            throw new ResultGoneException(record.resultId());
+        }
+        return result;
+    }
+
+    private Record readRecord(String documentId) {
+        FirebaseService.Versioned document = firebaseService.findVersionedById(COLLECTION, documentId).join();
+        if (document == null) {
+            return null;
+        }
+        Map<String, Object> data = document.data();
+        return new Record((String) data.get("resultId"), (String) data.get("requestHash"),
+                (Timestamp) data.get("expiresAt"), document.updateTime());
+    }
+
+    /**
+     * The key was used, but the result it recorded no longer exists
+     */
+    public static class ResultGoneException extends RuntimeException {
+
+        public ResultGoneException(String resultId) {
+            super("The result of this Idempotency-Key (" + resultId + ") no longer exists");
+        }
+    }
+
+    /**
+     * updateTime is that of the key document as read, null for a record not yet committed
+     */
+    private record Record(String resultId, String requestHash, Timestamp expiresAt, Timestamp updateTime) {
+
+        boolean isExpired() {
+            return expiresAt != null && expiresAt.compareTo(Timestamp.now()) < 0;
+        }
+
+        Map<String, Object> toFields(String scope) {
+            Map<String, Object> fields = new HashMap<>();
+            fields.put("scope", scope);
+            fields.put("resultId", resultId);
+            fields.put("requestHash", requestHash);
+            fields.put("createdAt", Timestamp.now());
+            fields.put("expiresAt", expiresAt);
+            return fields;
+        }
+    }
+}
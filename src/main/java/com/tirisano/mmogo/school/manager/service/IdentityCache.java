@@ -0,0 +1,151 @@
+package com.tirisano.mmogo.school.manager.service;
+
+import com.tirisano.mmogo.school.manager.model.Parent;
+import com.tirisano.mmogo.school.manager.model.User;
+import com.tirisano.mmogo.school.manager.util.BoundedCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory index of user and parent identities (email -> uid, uid -> User, uid -> Parent).
+ * Populated on read and kept current on registration and profile changes so that
+ * login and lookup endpoints can resolve identities without querying Firestore.
+ * Changes made through another instance are not seen here, so every entry expires a fixed time
+ * after it was written and the next lookup reads Firestore again. Emails are keyed trimmed and
+ * lower-cased, as Firebase Auth treats them.
+ */
+@Component
+@Slf4j
+public class IdentityCache {
+
+    private final BoundedCache<String, Timed<String>> uidByEmail;
+    private final BoundedCache<String, Timed<User>> userByUid;
+    private final BoundedCache<String, Timed<Parent>> parentByUid;
+    private final long ttlNanos;
+    private final LongSupplier nanoTime;
+
+    @Autowired
+    public IdentityCache(@Value("${identity-cache.max-entries:10000}") int maxEntries,
+                         @Value("${identity-cache.ttl:5m}") Duration ttl) {
+        this(maxEntries, ttl, System::nanoTime);
+    }
+
+    IdentityCache(int maxEntries, Duration ttl, LongSupplier nanoTime) {
+        this.uidByEmail = new BoundedCache<>(maxEntries);
+        this.userByUid = new BoundedCache<>(maxEntries);
+        this.parentByUid = new BoundedCache<>(maxEntries);
+        this.ttlNanos = ttl.toNanos();
+        this.nanoTime = nanoTime;
+        log.info("Identity cache initialized with a bound of {} entries per index and a TTL of {}", maxEntries, ttl);
+    }
+
+    public Optional<User> findUserByEmail(String email) {
+        String key = emailKey(email);
+        if (key == null) {
+            return Optional.empty();
+        }
+        String uid = get(uidByEmail, key);
+        if (uid == null) {
+            return Optional.empty();
+        }
+        User user = get(userByUid, uid);
+        if (user == null || !key.equals(emailKey(user.getEmail()))) {
+            // Email index outlived the user entry, or the user changed email
+            uidByEmail.remove(key);
+            return Optional.empty();
+        }
+        return Optional.of(user.toBuilder().build());
+    }
+
+    public void putUser(User user) {
+        if (user == null || user.getUid() == null) {
+            return;
+        }
+        String key = emailKey(user.getEmail());
+        User previous = get(userByUid, user.getUid());
+        String previousKey = previous == null ? null : emailKey(previous.getEmail());
+        if (previousKey != null && !previousKey.equals(key)) {
+            uidByEmail.remove(previousKey);
+        }
+        if (key != null) {
+            put(uidByEmail, key, user.getUid());
+        }
+        put(userByUid, user.getUid(), user.toBuilder().build());
+    }
+
+    public Optional<Parent> findParentByUid(String uid) {
+        if (uid == null) {
+            return Optional.empty();
+        }
+        Parent parent = get(parentByUid, uid);
+        return parent == null ? Optional.empty() : Optional.of(copy(parent));
+    }
+
+    public Optional<String> findParentIdByUid(String uid) {
+        return findParentByUid(uid).map(Parent::getParentId);
+    }
+
+    public void putParent(Parent parent) {
+        if (parent == null || parent.getUid() == null) {
+            return;
+        }
+        put(parentByUid, parent.getUid(), copy(parent));
+    }
+
+    public void evictParent(String uid) {
+        if (uid != null) {
+            parentByUid.remove(uid);
+        }
+    }
+
+    private Parent copy(Parent parent) {
+        return parent.toBuilder()
+                .childrenIds(parent.getChildrenIds() == null ? null : new ArrayList<>(parent.getChildrenIds()))
+                .build();
+    }
+
+    private static String emailKey(String email) {
+        if (email == null || email.isBlank()) {
+            return null;
+        }
+        return email.strip().toLowerCase(Locale.ROOT);
+    }
+
+    private <V> V get(BoundedCache<String, Timed<V>> cache, String key) {
+        Timed<V> entry = cache.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (nanoTime.getAsLong() - entry.expiresAt() >= 0) {
+            cache.remove(key);
+            return null;
+        }
+        return entry.value();
+    }
+
+    private <V> void put(BoundedCache<String, Timed<V>> cache, String key, V value) {
+        cache.put(key, new Timed<>(value, nanoTime.getAsLong() + ttlNanos));
+    }
+
+    /**
+     * Entries held by the user index, against the per-index bound; expired entries count until they are next read
+     */
+    public int size() {
+        return userByUid.size();
+    }
+
+    public int maxEntries() {
+        return userByUid.maxEntries();
+    }
+
+    private record Timed<V>(V value, long expiresAt) {
+    }
+}
@@ -1,25 +1,32 @@
 package com.tirisano.mmogo.school.manager.service;
 
+import com.tirisano.mmogo.school.manager.dto.BulkOperationResult;
+import com.tirisano.mmogo.school.manager.dto.BulkStatusRequest;
 import com.tirisano.mmogo.school.manager.enums.MeetingStatus;
 import com.tirisano.mmogo.school.manager.enums.MeetingType;
 import com.tirisano.mmogo.school.manager.model.Meeting;
+import com.tirisano.mmogo.school.manager.repository.MeetingRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import com.google.cloud.Timestamp;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class MeetingService {
 
-    private final FirebaseService firebaseService;
+    private final MeetingRepository meetingRepository;
+    private final BulkTransitions bulkTransitions;
 
     public List<Meeting> findAll() {
         try {
-            return firebaseService.findAll("meetings", Meeting.class).join();
+            return meetingRepository.findAll().join();
         } catch (Exception e) {
             log.error("Error fetching all meetings", e);
             throw new RuntimeException("Failed to fetch meetings: " + e.getMessage());
@@ -39,8 +46,8 @@ public class MeetingService {
             }
 
             log.info("Creating meeting: {}", meeting.getTitle());
-            firebaseService.save("meetings", meeting).join();
-            // FirebaseService automatically sets meetingId on the meeting object
+            meetingRepository.save(meeting).join();
+            // The repository sets the generated meetingId on the meeting object
 
             log.info("✅ Meeting created successfully with ID: {}", meeting.getMeetingId());
             return meeting;
@@ -53,7 +60,7 @@ public class MeetingService {
     public List<Meeting> findByParentId(String parentId) {
         try {
             // Get all meetings
-            List<Meeting> allMeetings = firebaseService.findAll("meetings", Meeting.class).join();
+            List<Meeting> allMeetings = meetingRepository.findAll().join();
 
             // Filter to show:
             // 1. ONE_ON_ONE meetings where this parent is the requester
@@ -101,7 +108,7 @@ public class MeetingService {
 
     public Meeting findById(String meetingId) {
         try {
-            return firebaseService.findById("meetings", meetingId, Meeting.class).join();
+            return meetingRepository.findById(meetingId).join();
         } catch (Exception e) {
             log.error("Error finding meeting by ID: {}", meetingId, e);
             throw new RuntimeException("Failed to find meeting: " + e.getMessage());
@@ -121,7 +128,7 @@ public class MeetingService {
                 meeting.setCreatedAt(existingMeeting.getCreatedAt());
             }
 
-            firebaseService.save("meetings", meeting, meetingId).join();
+            meetingRepository.save(meeting, meetingId).join();
             log.info("✅ Meeting updated successfully: {}", meetingId);
             return meeting;
         } catch (Exception e) {
@@ -137,7 +144,7 @@ public class MeetingService {
                 throw new RuntimeException("Meeting not found with ID: " + meetingId);
             }
 
-            firebaseService.delete("meetings", meetingId).join();
+            meetingRepository.deleteById(meetingId).join();
             log.info("✅ Meeting deleted successfully: {}", meetingId);
         } catch (Exception e) {
             log.error("❌ Error deleting meeting: {}", meetingId, e);
@@ -148,7 +155,7 @@ public class MeetingService {
     // Get pending meetings (for admin approval)
     public List<Meeting> findPendingMeetings() {
         try {
-            return firebaseService.findByField("meetings", "status", MeetingStatus.PENDING, Meeting.class).join();
+            return meetingRepository.findByField("status", MeetingStatus.PENDING).join();
         } catch (Exception e) {
             log.error("Error fetching pending meetings", e);
             throw new RuntimeException("Failed to fetch pending meetings: " + e.getMessage());
@@ -158,7 +165,7 @@ public class MeetingService {
     // Get approved meetings
     public List<Meeting> findApprovedMeetings() {
         try {
-            return firebaseService.findByField("meetings", "status", MeetingStatus.APPROVED, Meeting.class).join();
+            return meetingRepository.findByField("status", MeetingStatus.APPROVED).join();
         } catch (Exception e) {
             log.error("Error fetching approved meetings", e);
             throw new RuntimeException("Failed to fetch approved meetings: " + e.getMessage());
@@ -168,7 +175,7 @@ public class MeetingService {
     // Get rejected meetings
     public List<Meeting> findRejectedMeetings() {
         try {
-            return firebaseService.findByField("meetings", "status", MeetingStatus.REJECTED, Meeting.class).join();
+            return meetingRepository.findByField("status", MeetingStatus.REJECTED).join();
         } catch (Exception e) {
             log.error("Error fetching rejected meetings", e);
             throw new RuntimeException("Failed to fetch rejected meetings: " + e.getMessage());
@@ -185,7 +192,7 @@ public class MeetingService {
 
             meeting.setStatus(MeetingStatus.APPROVED);
             meeting.setRejectionReason(null); // Clear any previous rejection reason
-            firebaseService.save("meetings", meeting, meetingId).join();
+            meetingRepository.save(meeting, meetingId).join();
 
             log.info("✅ Meeting approved successfully: {}", meetingId);
             return meeting;
@@ -205,7 +212,7 @@ public class MeetingService {
 
             meeting.setStatus(MeetingStatus.REJECTED);
             meeting.setRejectionReason(reason);
-            firebaseService.save("meetings", meeting, meetingId).join();
+            meetingRepository.save(meeting, meetingId).join();
 
             log.info("✅ Meeting rejected successfully: {}", meetingId);
             return meeting;
@@ -214,4 +221,23 @@ public class MeetingService {
             throw new RuntimeException("Failed to reject meeting: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // Approve or reject many meetings in batched partial updates
+    public BulkOperationResult bulkUpdateStatus(BulkStatusRequest request) {
+        MeetingStatus target = BulkTransitions.parseDecision(MeetingStatus.class, request.getStatus());
+        String reason = target == MeetingStatus.REJECTED ? request.getReason() : null;
+        if (target == MeetingStatus.REJECTED && (reason == null || reason.trim().isEmpty())) {
+            throw new IllegalArgumentException("Rejection reason is required");
+        }
+
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("status", target.name());
+        fields.put("rejectionReason", reason); // Clears any previous rejection reason on approval
+        return bulkTransitions.apply(meetingRepository, request.getIds(),
+                meeting -> meeting.getStatus() == target && Objects.equals(meeting.getRejectionReason(), reason),
+                meeting -> meeting.getStatus() == MeetingStatus.COMPLETED || meeting.getStatus() == MeetingStatus.CANCELLED
+                        ? "Meeting is already " + meeting.getStatus()
+                        : null,
+                fields);
+    }
+}
@@ -1,23 +1,30 @@
 package com.tirisano.mmogo.school.manager.service;
 
+import com.tirisano.mmogo.school.manager.model.DocumentRequest;
 import com.tirisano.mmogo.school.manager.model.Parent;
+import com.tirisano.mmogo.school.manager.repository.DocumentRequestRepository;
+import com.tirisano.mmogo.school.manager.repository.ParentRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ParentService {
 
-    private final FirebaseService firebaseService;
+    private final ParentRepository parentRepository;
+    private final DocumentRequestRepository documentRequestRepository;
+    private final IdentityCache identityCache;
 
     // CREATE
     public Parent createParent(Parent parent) {
         try {
-            firebaseService.save("parents", parent).join();
+            parentRepository.save(parent).join();
+            identityCache.putParent(parent);
             log.info("Parent created successfully with ID: {}", parent.getParentId());
             return parent;
         } catch (Exception e) {
@@ -29,7 +36,7 @@ public class ParentService {
     // READ - Get all parents
     public List<Parent> getAllParents() {
         try {
-            return firebaseService.findAll("parents", Parent.class).join();
+            return parentRepository.findAll().join();
         } catch (Exception e) {
             log.error("Error fetching all parents", e);
             throw new RuntimeException("Failed to fetch parents: " + e.getMessage());
@@ -39,7 +46,7 @@ public class ParentService {
     // READ - Get parent by ID
     public Parent findById(String parentId) {
         try {
-            return firebaseService.findById("parents", parentId, Parent.class).join();
+            return parentRepository.findById(parentId).join();
         } catch (Exception e) {
             log.error("Error finding parent by ID: {}", parentId, e);
             throw new RuntimeException("Failed to find parent: " + e.getMessage());
@@ -49,8 +56,17 @@ public class ParentService {
     // READ - Get parent by UID
     public Parent findByUid(String uid) {
         try {
-            List<Parent> parents = firebaseService.findByField("parents", "uid", uid, Parent.class).join();
-            return parents.isEmpty() ? null : parents.get(0);
+            Optional<Parent> cached = identityCache.findParentByUid(uid);
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+
+            List<Parent> parents = parentRepository.findByField("uid", uid).join();
+            if (parents.isEmpty()) {
+                return null;
+            }
+            identityCache.putParent(parents.get(0));
+            return parents.get(0);
         } catch (Exception e) {
             log.error("Error finding parent by UID: {}", uid, e);
             throw new RuntimeException("Failed to find parent: " + e.getMessage());
@@ -71,7 +87,11 @@ public class ParentService {
                 parent.setCreatedAt(existingParent.getCreatedAt());
             }
 
-            firebaseService.save("parents", parent, parentId).join();
+            parentRepository.save(parent, parentId).join();
+            if (existingParent.getUid() != null && !existingParent.getUid().equals(parent.getUid())) {
+                identityCache.evictParent(existingParent.getUid());
+            }
+            identityCache.putParent(parent);
             log.info("Parent updated successfully: {}", parentId);
             return parent;
         } catch (Exception e) {
@@ -88,11 +108,25 @@ public class ParentService {
                 throw new RuntimeException("Parent not found with ID: " + parentId);
             }
 
-            firebaseService.delete("parents", parentId).join();
+            parentRepository.deleteById(parentId).join();
+            identityCache.evictParent(parent.getUid());
             log.info("Parent deleted successfully: {}", parentId);
         } catch (Exception e) {
             log.error("Error deleting parent: {}", parentId, e);
             throw new RuntimeException("Failed to delete parent: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // CREATE - Submit document request
+    public DocumentRequest submitDocumentRequest(String parentId, DocumentRequest request) {
+        try {
+            request.setParentId(parentId);
+            documentRequestRepository.save(request).join();
+            log.info("Document request submitted with ID: {}", request.getRequestId());
+            return request;
+        } catch (Exception e) {
+            log.error("Error submitting document request for parent: {}", parentId, e);
+            throw new RuntimeException("Failed to submit document request: " + e.getMessage());
+        }
+    }
+}
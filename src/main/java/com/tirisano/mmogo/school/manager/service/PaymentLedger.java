@@ -0,0 +1,264 @@
+package com.tirisano.mmogo.school.manager.service;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.FieldValue;
+import com.tirisano.mmogo.school.manager.dto.LedgerTotals;
+import com.tirisano.mmogo.school.manager.enums.PaymentStatus;
+import com.tirisano.mmogo.school.manager.model.Payment;
+import com.tirisano.mmogo.school.manager.repository.PaymentRepository;
+import com.tirisano.mmogo.school.manager.util.TimestampCodec;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Incrementally maintained payment rollups in the paymentLedger collection.
+ * Every payment write stages the difference between the payment's old and new contribution
+ * into the same batch, as FieldValue.increment merges on per-trip, per-parent, per-day and
+ * per-month documents, so reports read one document instead of summing every payment.
+ * Amounts are kept as whole cents so increments stay exact.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentLedger {
+
+    public static final String COLLECTION = "paymentLedger";
+
+    private static final String COLLECTED = "collectedCents";
+    private static final String OUTSTANDING = "outstandingCents";
+    private static final String COMPLETED_COUNT = "completedCount";
+    private static final String PENDING_COUNT = "pendingCount";
+    private static final String BY_METHOD = "collectedCentsByMethod";
+    private static final String KEY = "key";
+
+    private final FirebaseService firebaseService;
+    private final PaymentRepository paymentRepository;
+    private final TimestampCodec timestampCodec;
+
+    /**
+     * Stages the ledger changes for a payment going from before to after; either may be null
+     * for a create or a delete. Deltas are summed per document first, so each touched
+     * document costs a single write in the batch.
+     */
+    public void stage(FirestoreBatch batch, Payment before, Payment after) {
+        Map<String, DocumentDelta> deltas = new LinkedHashMap<>();
+        accumulate(deltas, before, -1);
+        accumulate(deltas, after, 1);
+
+        for (Map.Entry<String, DocumentDelta> entry : deltas.entrySet()) {
+            Map<String, Object> fields = entry.getValue().toIncrements();
+            if (fields.isEmpty()) {
+                continue;
+            }
+            fields.put(KEY, entry.getKey());
+            fields.put("updatedAt", FieldValue.serverTimestamp());
+            batch.merge(COLLECTION, entry.getKey(), fields);
+        }
+    }
+
+    public LedgerTotals getTripTotals(String tripId) {
+        return read("trip_" + tripId);
+    }
+
+    public LedgerTotals getParentTotals(String parentId) {
+        return read("parent_" + parentId);
+    }
+
+    public LedgerTotals getDailyTotals(LocalDate day) {
+        return read("day_" + day);
+    }
+
+    public LedgerTotals getMonthlyTotals(YearMonth month) {
+        return read("month_" + month);
+    }
+
+    /**
+     * Recomputes every ledger document from the payments collection and removes stale ones.
+     * Not atomic across chunks: payments written while this runs may need another rebuild.
+     */
+    public Map<String, Integer> rebuild() {
+        try {
+            List<Payment> payments = paymentRepository.findAll().join();
+            Map<String, DocumentDelta> totals = new TreeMap<>();
+            for (Payment payment : payments) {
+                accumulate(totals, payment, 1);
+            }
+
+            List<String> staleKeys = new ArrayList<>();
+            for (Map<?, ?> existing : firebaseService.findAll(COLLECTION, Map.class).join()) {
+                Object key = existing.get(KEY);
+                if (key instanceof String k && !totals.containsKey(k)) {
+                    staleKeys.add(k);
+                }
+            }
+
+            FirestoreBatch batch = firebaseService.batch();
+            for (Map.Entry<String, DocumentDelta> entry : totals.entrySet()) {
+                Map<String, Object> fields = entry.getValue().toValues();
+                fields.put(KEY, entry.getKey());
+                fields.put("updatedAt", Timestamp.now());
+                batch.save(COLLECTION, fields, entry.getKey());
+                batch = flushIfFull(batch);
+            }
+            for (String key : staleKeys) {
+                batch.delete(COLLECTION, key);
+                batch = flushIfFull(batch);
+            }
+            firebaseService.commit(batch).join();
+
+            log.info("Payment ledger rebuilt from {} payments: {} documents written, {} removed",
+                    payments.size(), totals.size(), staleKeys.size());
+            Map<String, Integer> report = new LinkedHashMap<>();
+            report.put("payments", payments.size());
+            report.put("documentsWritten", totals.size());
+            report.put("documentsRemoved", staleKeys.size());
+            return report;
+        } catch (Exception e) {
+            log.error("Error rebuilding payment ledger", e);
+            throw new RuntimeException("Failed to rebuild payment ledger: " + e.getMessage());
+        }
+    }
+
+    private FirestoreBatch flushIfFull(FirestoreBatch batch) {
+        if (batch.size() < FirestoreBatch.MAX_WRITES) {
+            return batch;
+        }
+        firebaseService.commit(batch).join();
+        return firebaseService.batch();
+    }
+
+    private LedgerTotals read(String key) {
+        try {
+            Map<?, ?> data = firebaseService.findById(COLLECTION, key, Map.class).join();
+            LedgerTotals totals = LedgerTotals.builder()
+                    .key(key)
+                    .collected(toAmount(data == null ? null : data.get(COLLECTED)))
+                    .outstanding(toAmount(data == null ? null : data.get(OUTSTANDING)))
+                    .completedPayments(toLong(data == null ? null : data.get(COMPLETED_COUNT)))
+                    .pendingPayments(toLong(data == null ? null : data.get(PENDING_COUNT)))
+                    .build();
+            if (data != null && data.get(BY_METHOD) instanceof Map<?, ?> byMethod) {
+                Map<String, BigDecimal> collectedByMethod = new TreeMap<>();
+                byMethod.forEach((method, cents) -> collectedByMethod.put(String.valueOf(method), toAmount(cents)));
+                totals.setCollectedByMethod(collectedByMethod);
+            }
+            return totals;
+        } catch (Exception e) {
+            log.error("Error reading payment ledger entry: {}", key, e);
+            throw new RuntimeException("Failed to read payment ledger: " + e.getMessage());
+        }
+    }
+
+    private void accumulate(Map<String, DocumentDelta> deltas, Payment payment, int sign) {
+        if (payment == null || payment.getStatus() == null || payment.getStatus() == PaymentStatus.FAILED) {
+            return;
+        }
+        long cents = sign * toCents(payment.getAmount());
+        long count = sign;
+
+        if (payment.getStatus() == PaymentStatus.PENDING) {
+            if (payment.getTripId() != null) {
+                deltas.computeIfAbsent("trip_" + payment.getTripId(), k -> new DocumentDelta())
+                        .add(OUTSTANDING, cents).add(PENDING_COUNT, count);
+            }
+            if (payment.getParentId() != null) {
+                deltas.computeIfAbsent("parent_" + payment.getParentId(), k -> new DocumentDelta())
+                        .add(OUTSTANDING, cents).add(PENDING_COUNT, count);
+            }
+            return;
+        }
+
+        // COMPLETED
+        if (payment.getTripId() != null) {
+            deltas.computeIfAbsent("trip_" + payment.getTripId(), k -> new DocumentDelta())
+                    .add(COLLECTED, cents).add(COMPLETED_COUNT, count);
+        }
+        if (payment.getParentId() != null) {
+            deltas.computeIfAbsent("parent_" + payment.getParentId(), k -> new DocumentDelta())
+                    .add(COLLECTED, cents).add(COMPLETED_COUNT, count);
+        }
+
+        Timestamp when = payment.getPaidAt() != null ? payment.getPaidAt() : payment.getCreatedAt();
+        if (when != null) {
+            LocalDate day = timestampCodec.toLocalDate(when);
+            String method = payment.getPaymentMethod() != null ? payment.getPaymentMethod() : "Unknown";
+            deltas.computeIfAbsent("day_" + day, k -> new DocumentDelta())
+                    .add(COLLECTED, cents).add(COMPLETED_COUNT, count).addMethod(method, cents);
+            deltas.computeIfAbsent("month_" + YearMonth.from(day), k -> new DocumentDelta())
+                    .add(COLLECTED, cents).add(COMPLETED_COUNT, count).addMethod(method, cents);
+        }
+    }
+
+    static long toCents(BigDecimal amount) {
+        if (amount == null) {
+            return 0;
+        }
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static BigDecimal toAmount(Object cents) {
+        return BigDecimal.valueOf(toLong(cents), 2);
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number n ? n.longValue() : 0;
+    }
+
+    /**
+     * Summed changes for one ledger document
+     */
+    private static final class DocumentDelta {
+
+        private final Map<String, Long> fields = new LinkedHashMap<>();
+        private final Map<String, Long> byMethod = new TreeMap<>();
+
+        DocumentDelta add(String field, long delta) {
+            fields.merge(field, delta, Long::sum);
+            return this;
+        }
+
+        DocumentDelta addMethod(String method, long delta) {
+            byMethod.merge(method, delta, Long::sum);
+            return this;
+        }
+
+        Map<String, Object> toIncrements() {
+            Map<String, Object> result = new HashMap<>();
+            fields.forEach((field, delta) -> {
+                if (delta != 0) {
+                    result.put(field, FieldValue.increment(delta));
+                }
+            });
+            Map<String, Object> methods = new HashMap<>();
+            byMethod.forEach((method, delta) -> {
+                if (delta != 0) {
+                    methods.put(method, FieldValue.increment(delta));
+                }
+            });
+            if (!methods.isEmpty()) {
+                result.put(BY_METHOD, methods);
+            }
+            return result;
+        }
+
+        Map<String, Object> toValues() {
+            Map<String, Object> result = new HashMap<>(fields);
+            if (!byMethod.isEmpty()) {
+                result.put(BY_METHOD, new HashMap<>(byMethod));
+            }
+            return result;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.tirisano.mmogo.school.manager.service;
 import com.google.cloud.Timestamp;
 import com.tirisano.mmogo.school.manager.enums.PaymentStatus;
 import com.tirisano.mmogo.school.manager.model.Payment;
+import com.tirisano.mmogo.school.manager.repository.PaymentRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -15,33 +16,63 @@ import java.util.UUID;
 @Slf4j
 public class PaymentService {
 
+    private final PaymentRepository paymentRepository;
+    private final PaymentLedger paymentLedger;
     private final FirebaseService firebaseService;
+    private final IdempotencyService idempotencyService;
 
     // CREATE - Mock payment
     public Payment createMockPayment(Payment payment) {
+        return createMockPayment(payment, null);
+    }
+
+    // CREATE - Mock payment; a retry with the same idempotency key returns the original payment
+    public Payment createMockPayment(Payment payment, String idempotencyKey) {
         try {
-            // Generate mock transaction reference
-            if (payment.getTransactionReference() == null || payment.getTransactionReference().isEmpty()) {
-                payment.setTransactionReference("TXN-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase());
+            if (idempotencyKey != null && !idempotencyKey.isBlank()) {
+                return idempotencyService.execute("payments.mock", idempotencyKey, fingerprint(payment),
+                        batch -> stageMockPayment(batch, payment), Payment::getPaymentId, this::getPaymentById);
             }
 
-            // Set payment as completed for mock payment
-            payment.setStatus(PaymentStatus.COMPLETED);
-            payment.setPaidAt(Timestamp.now());
-
-            firebaseService.save("payments", payment).join();
+            // Payment and ledger rollups are written atomically
+            FirestoreBatch batch = firebaseService.batch();
+            stageMockPayment(batch, payment);
+            firebaseService.commit(batch).join();
             log.info("Mock payment created successfully with ID: {}", payment.getPaymentId());
             return payment;
+        } catch (IdempotencyService.ResultGoneException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error creating mock payment", e);
             throw new RuntimeException("Failed to create payment: " + e.getMessage());
         }
     }
 
+    private Payment stageMockPayment(FirestoreBatch batch, Payment payment) {
+        // Generate mock transaction reference
+        if (payment.getTransactionReference() == null || payment.getTransactionReference().isEmpty()) {
+            payment.setTransactionReference("TXN-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase());
+        }
+
+        // Set payment as completed for mock payment
+        payment.setStatus(PaymentStatus.COMPLETED);
+        payment.setPaidAt(Timestamp.now());
+
+        paymentRepository.save(batch, payment);
+        paymentLedger.stage(batch, null, payment);
+        return payment;
+    }
+
+    private static String fingerprint(Payment payment) {
+        return String.join("|", payment.getStudentId(), payment.getTripId(), payment.getParentId(),
+                payment.getAmount() == null ? null : payment.getAmount().toPlainString(),
+                payment.getPaymentMethod(), payment.getTransactionReference(), payment.getPaymentNote());
+    }
+
     // READ - Get all payments
     public List<Payment> getAllPayments() {
         try {
-            return firebaseService.findAll("payments", Payment.class).join();
+            return paymentRepository.findAll().join();
         } catch (Exception e) {
             log.error("Error fetching all payments", e);
             throw new RuntimeException("Failed to fetch payments: " + e.getMessage());
@@ -51,7 +82,7 @@ public class PaymentService {
     // READ - Get payment by ID
     public Payment getPaymentById(String paymentId) {
         try {
-            return firebaseService.findById("payments", paymentId, Payment.class).join();
+            return paymentRepository.findById(paymentId).join();
         } catch (Exception e) {
             log.error("Error fetching payment by ID: {}", paymentId, e);
             throw new RuntimeException("Failed to fetch payment: " + e.getMessage());
@@ -61,7 +92,7 @@ public class PaymentService {
     // READ - Get payments by student ID
     public List<Payment> getPaymentsByStudentId(String studentId) {
         try {
-            return firebaseService.findByField("payments", "studentId", studentId, Payment.class).join();
+            return paymentRepository.findByField("studentId", studentId).join();
         } catch (Exception e) {
             log.error("Error fetching payments for student: {}", studentId, e);
             throw new RuntimeException("Failed to fetch payments: " + e.getMessage());
@@ -71,7 +102,7 @@ public class PaymentService {
     // READ - Get payments by parent ID
     public List<Payment> getPaymentsByParentId(String parentId) {
         try {
-            return firebaseService.findByField("payments", "parentId", parentId, Payment.class).join();
+            return paymentRepository.findByField("parentId", parentId).join();
         } catch (Exception e) {
             log.error("Error fetching payments for parent: {}", parentId, e);
             throw new RuntimeException("Failed to fetch payments: " + e.getMessage());
@@ -81,7 +112,7 @@ public class PaymentService {
     // READ - Get payments by trip ID
     public List<Payment> getPaymentsByTripId(String tripId) {
         try {
-            return firebaseService.findByField("payments", "tripId", tripId, Payment.class).join();
+            return paymentRepository.findByField("tripId", tripId).join();
         } catch (Exception e) {
             log.error("Error fetching payments for trip: {}", tripId, e);
             throw new RuntimeException("Failed to fetch payments: " + e.getMessage());
@@ -91,7 +122,7 @@ public class PaymentService {
     // READ - Get payments by status
     public List<Payment> getPaymentsByStatus(PaymentStatus status) {
         try {
-            return firebaseService.findByField("payments", "status", status, Payment.class).join();
+            return paymentRepository.findByField("status", status).join();
         } catch (Exception e) {
             log.error("Error fetching payments by status: {}", status, e);
             throw new RuntimeException("Failed to fetch payments: " + e.getMessage());
@@ -99,19 +130,26 @@ public class PaymentService {
     }
 
     // UPDATE - Update payment status
+    // Read and write share a transaction, so concurrent or repeated changes cannot apply the same ledger delta twice
     public Payment updatePaymentStatus(String paymentId, PaymentStatus newStatus) {
         try {
-            Payment payment = getPaymentById(paymentId);
+            Payment payment = firebaseService.transaction(paymentRepository.collection(), transaction -> {
+                Payment current = transaction.get(paymentRepository.collection(), paymentId, Payment.class);
+                if (current == null) {
+                    return null;
+                }
+                Payment before = current.toBuilder().build();
+                current.setStatus(newStatus);
+                if (newStatus == PaymentStatus.COMPLETED && current.getPaidAt() == null) {
+                    current.setPaidAt(Timestamp.now());
+                }
+                paymentRepository.save(transaction.writes(), current, paymentId);
+                paymentLedger.stage(transaction.writes(), before, current);
+                return current;
+            }).join();
             if (payment == null) {
                 throw new RuntimeException("Payment not found with ID: " + paymentId);
             }
-
-            payment.setStatus(newStatus);
-            if (newStatus == PaymentStatus.COMPLETED && payment.getPaidAt() == null) {
-                payment.setPaidAt(Timestamp.now());
-            }
-
-            firebaseService.save("payments", payment, paymentId).join();
             log.info("Payment status updated successfully: {}", paymentId);
             return payment;
         } catch (Exception e) {
@@ -123,20 +161,25 @@ public class PaymentService {
     // UPDATE - Update payment
     public Payment updatePayment(String paymentId, Payment updatedPayment) {
         try {
-            Payment existingPayment = getPaymentById(paymentId);
-            if (existingPayment == null) {
+            Payment saved = firebaseService.transaction(paymentRepository.collection(), transaction -> {
+                Payment existingPayment = transaction.get(paymentRepository.collection(), paymentId, Payment.class);
+                if (existingPayment == null) {
+                    return null;
+                }
+                updatedPayment.setPaymentId(paymentId);
+                // Preserve original creation timestamp
+                if (updatedPayment.getCreatedAt() == null) {
+                    updatedPayment.setCreatedAt(existingPayment.getCreatedAt());
+                }
+                paymentRepository.save(transaction.writes(), updatedPayment, paymentId);
+                paymentLedger.stage(transaction.writes(), existingPayment, updatedPayment);
+                return updatedPayment;
+            }).join();
+            if (saved == null) {
                 throw new RuntimeException("Payment not found with ID: " + paymentId);
             }
-
-            updatedPayment.setPaymentId(paymentId);
-            // Preserve original creation timestamp
-            if (updatedPayment.getCreatedAt() == null) {
-                updatedPayment.setCreatedAt(existingPayment.getCreatedAt());
-            }
-
-            firebaseService.save("payments", updatedPayment, paymentId).join();
             log.info("Payment updated successfully: {}", paymentId);
-            return updatedPayment;
+            return saved;
         } catch (Exception e) {
             log.error("Error updating payment: {}", paymentId, e);
             throw new RuntimeException("Failed to update payment: " + e.getMessage());
@@ -146,12 +189,18 @@ public class PaymentService {
     // DELETE - Delete payment
     public void deletePayment(String paymentId) {
         try {
-            Payment payment = getPaymentById(paymentId);
-            if (payment == null) {
+            Payment deleted = firebaseService.transaction(paymentRepository.collection(), transaction -> {
+                Payment payment = transaction.get(paymentRepository.collection(), paymentId, Payment.class);
+                if (payment == null) {
+                    return null;
+                }
+                paymentRepository.deleteById(transaction.writes(), paymentId);
+                paymentLedger.stage(transaction.writes(), payment, null);
+                return payment;
+            }).join();
+            if (deleted == null) {
                 throw new RuntimeException("Payment not found with ID: " + paymentId);
             }
-
-            firebaseService.delete("payments", paymentId).join();
             log.info("Payment deleted successfully: {}", paymentId);
         } catch (Exception e) {
             log.error("Error deleting payment: {}", paymentId, e);
@@ -0,0 +1,122 @@
+package com.tirisano.mmogo.school.manager.service;
+
+import com.google.api.gax.rpc.StatusCode;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A failed Firestore call made by FirebaseService, after any retries. The kind says whether it
+ * ran out of time, found Firestore unavailable, or was refused outright; the original SDK
+ * exception stays in the cause chain, so FirestoreErrors still classifies it.
+ */
+public class PersistenceException extends RuntimeException {
+
+    public enum Kind {
+        /**
+         * The call's latency budget ran out, or Firestore returned DEADLINE_EXCEEDED
+         */
+        TIMEOUT,
+        /**
+         * UNAVAILABLE, RESOURCE_EXHAUSTED or ABORTED: transient, worth retrying later
+         */
+        UNAVAILABLE,
+        /**
+         * A precondition failed: ALREADY_EXISTS or FAILED_PRECONDITION
+         */
+        CONFLICT,
+        NOT_FOUND,
+        /**
+         * Anything else, e.g. PERMISSION_DENIED, INVALID_ARGUMENT or a mapping error
+         */
+        FAILED,
+        /**
+         * Shed without calling Firestore: the collection's circuit is open or its bulkhead is full
+         */
+        REJECTED;
+
+        boolean isTransient() {
+            return this == TIMEOUT || this == UNAVAILABLE;
+        }
+
+        /**
+         * Firestore could not be reached in time, as opposed to answering with an error
+         */
+        public boolean isOutage() {
+            return isTransient() || this == REJECTED;
+        }
+    }
+
+    private final Kind kind;
+    private final String collection;
+    private final String operation;
+    private final int attempts;
+
+    public PersistenceException(Kind kind, String collection, String operation, int attempts,
+                                String message, Throwable cause) {
+        super(message, cause);
+        this.kind = kind;
+        this.collection = collection;
+        this.operation = operation;
+        this.attempts = attempts;
+    }
+
+    /**
+     * The given failure as a PersistenceException whose message reads "Timeout|Error {description}"
+     * (or says why it was shed), keeping the kind and attempt count when it already is one
+     */
+    public static PersistenceException of(Throwable error, String collection, String operation, String description) {
+        Kind kind = error instanceof PersistenceException pe ? pe.kind : classify(error);
+        int attempts = error instanceof PersistenceException pe ? pe.attempts : 1;
+        Throwable cause = error instanceof PersistenceException pe ? pe.getCause() : error;
+        String message = switch (kind) {
+            case TIMEOUT -> "Timeout " + description;
+            case REJECTED -> "Temporarily unavailable: " + FirestoreErrors.rootMessage(error);
+            default -> "Error " + description;
+        };
+        return new PersistenceException(kind, collection, operation, attempts, message, cause);
+    }
+
+    /**
+     * Classifies by our own TimeoutException or the first gRPC status found in the cause chain
+     */
+    public static Kind classify(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof PersistenceException pe) {
+                return pe.kind;
+            }
+            if (t instanceof TimeoutException) {
+                return Kind.TIMEOUT;
+            }
+            StatusCode.Code code = FirestoreErrors.statusCode(t);
+            if (code != null) {
+                return switch (code) {
+                    case DEADLINE_EXCEEDED -> Kind.TIMEOUT;
+                    case UNAVAILABLE, RESOURCE_EXHAUSTED, ABORTED -> Kind.UNAVAILABLE;
+                    case ALREADY_EXISTS, FAILED_PRECONDITION -> Kind.CONFLICT;
+                    case NOT_FOUND -> Kind.NOT_FOUND;
+                    default -> Kind.FAILED;
+                };
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return Kind.FAILED;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+}
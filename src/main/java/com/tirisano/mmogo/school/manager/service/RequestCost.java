@@ -0,0 +1,117 @@
+package com.tirisano.mmogo.school.manager.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Firestore documents read and written, and bytes read, on behalf of one HTTP request, and
+ * whether any of its reads was answered with stale data while Firestore was unreachable.
+ * The accumulator is bound to the request thread; FirebaseService captures it before handing
+ * work to another thread, so reads and writes completed asynchronously are still attributed.
+ * Outside a request, {@link #current()} returns an instance that ignores everything.
+ */
+public final class RequestCost {
+
+    private static final RequestCost NONE = new RequestCost(false, false);
+    private static final ThreadLocal<RequestCost> CURRENT = new ThreadLocal<>();
+
+    private final boolean tracking;
+    private final boolean staleReadsAllowed;
+    private final AtomicLong staleMillis = new AtomicLong(-1);
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong readBytes = new AtomicLong();
+
+    private RequestCost(boolean tracking, boolean staleReadsAllowed) {
+        this.tracking = tracking;
+        this.staleReadsAllowed = staleReadsAllowed;
+    }
+
+    /**
+     * Binds a fresh accumulator to the calling thread
+     */
+    public static RequestCost begin() {
+        return begin(false);
+    }
+
+    /**
+     * Binds a fresh accumulator, allowing reads to fall back to stale data (for safe requests such as GET)
+     */
+    public static RequestCost begin(boolean staleReadsAllowed) {
+        RequestCost cost = new RequestCost(true, staleReadsAllowed);
+        CURRENT.set(cost);
+        return cost;
+    }
+
+    /**
+     * Unbinds and returns the calling thread's accumulator, or null when none was bound
+     */
+    public static RequestCost end() {
+        RequestCost cost = CURRENT.get();
+        CURRENT.remove();
+        return cost;
+    }
+
+    public static RequestCost current() {
+        RequestCost cost = CURRENT.get();
+        return cost != null ? cost : NONE;
+    }
+
+    /**
+     * False outside a request; lets callers skip work, like size estimates, that only feeds the accumulator
+     */
+    public boolean isTracking() {
+        return tracking;
+    }
+
+    public void read(long documents) {
+        if (tracking) {
+            reads.addAndGet(documents);
+        }
+    }
+
+    public void readBytes(long bytes) {
+        if (tracking) {
+            readBytes.addAndGet(bytes);
+        }
+    }
+
+    public void written(long documents) {
+        if (tracking) {
+            writes.addAndGet(documents);
+        }
+    }
+
+    public boolean staleReadsAllowed() {
+        return staleReadsAllowed;
+    }
+
+    /**
+     * A read answered from data the given number of milliseconds old; the oldest is kept
+     */
+    public void servedStale(long ageMillis) {
+        staleMillis.accumulateAndGet(ageMillis, Math::max);
+    }
+
+    public boolean isStale() {
+        return staleMillis.get() >= 0;
+    }
+
+    /**
+     * Age of the oldest stale data served, or -1 when everything was current
+     */
+    public long staleMillis() {
+        return staleMillis.get();
+    }
+
+    public long reads() {
+        return reads.get();
+    }
+
+    public long writes() {
+        return writes.get();
+    }
+
+    public long readBytes() {
+        return readBytes.get();
+    }
+}
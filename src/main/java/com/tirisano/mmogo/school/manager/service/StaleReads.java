@@ -0,0 +1,182 @@
+package com.tirisano.mmogo.school.manager.service;
+
+import com.tirisano.mmogo.school.manager.util.BoundedCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The last successful result of each read, kept as raw document data so a fallback decodes
+ * fresh entities. When Firestore cannot be reached (timeout, UNAVAILABLE, open circuit or full
+ * bulkhead), a GET request gets that result instead of an error, provided it is no older than
+ * max-age; the request's RequestCost is marked stale so the response says so.
+ * Writes never fall back: a read-modify-write must not act on stale data.
+ */
+@Component
+public class StaleReads {
+
+    private final boolean enabled;
+    private final long maxAgeNanos;
+    private final BoundedCache<String, Entry> entries;
+    private final MeterRegistry meterRegistry;
+
+    public StaleReads(MeterRegistry meterRegistry,
+                      @Value("${persistence.stale-reads.enabled:true}") boolean enabled,
+                      @Value("${persistence.stale-reads.max-age:15m}") Duration maxAge,
+                      @Value("${persistence.stale-reads.max-entries:5000}") int maxEntries) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.maxAgeNanos = maxAge.toNanos();
+        this.entries = new BoundedCache<>(maxEntries);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // ==================== RECORDING ====================
+
+    /**
+     * A document as last read; null data records that it did not exist
+     */
+    public void document(String collection, String id, Map<String, Object> data) {
+        if (enabled) {
+            entries.put(documentKey(collection, id), new Entry(data, System.nanoTime()));
+        }
+    }
+
+    /**
+     * The documents a findAll (null field) or findByField returned
+     */
+    public void query(String collection, String field, Object value, List<Map<String, Object>> documents) {
+        if (enabled) {
+            entries.put(queryKey(collection, field, value), new Entry(documents, System.nanoTime()));
+        }
+    }
+
+    public void count(String collection, String field, Object value, long count) {
+        if (enabled) {
+            entries.put("count|" + queryKey(collection, field, value), new Entry(count, System.nanoTime()));
+        }
+    }
+
+    // ==================== FALLBACK ====================
+
+    /**
+     * Whether this failure, on this request, may be answered with stale data
+     */
+    public boolean mayServe(Throwable error, RequestCost cost) {
+        return enabled && cost.staleReadsAllowed() && PersistenceException.classify(error).isOutage();
+    }
+
+    /**
+     * The last known document, or null when there is none recent enough; a hit marks the request stale.
+     * An entry with null data means the document was known not to exist.
+     */
+    public Entry document(String collection, String id, Throwable error, RequestCost cost) {
+        return serve(collection, documentKey(collection, id), error, cost);
+    }
+
+    /**
+     * The last known documents among the IDs, keyed by ID in request order; null unless every ID is known
+     */
+    public Map<String, Map<String, Object>> documents(String collection, Collection<String> ids,
+                                                      Throwable error, RequestCost cost) {
+        if (!mayServe(error, cost)) {
+            return null;
+        }
+        Map<String, Map<String, Object>> documents = new LinkedHashMap<>();
+        long oldest = System.nanoTime();
+        for (String id : ids) {
+            Entry entry = entries.get(documentKey(collection, id));
+            if (entry == null || entry.ageNanos() > maxAgeNanos) {
+                return null;
+            }
+            oldest = Math.min(oldest, entry.storedNanos);
+            if (entry.value != null) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> data = (Map<String, Object>) entry.value;
+                documents.put(id, data);
+            }
+        }
+        served(collection, System.nanoTime() - oldest, cost);
+        return documents;
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<Map<String, Object>> query(String collection, String field, Object value, Throwable error, RequestCost cost) {
+        Entry entry = serve(collection, queryKey(collection, field, value), error, cost);
+        return entry == null ? null : (List<Map<String, Object>>) entry.value;
+    }
+
+    public Long count(String collection, String field, Object value, Throwable error, RequestCost cost) {
+        Entry entry = serve(collection, "count|" + queryKey(collection, field, value), error, cost);
+        return entry == null ? null : (Long) entry.value;
+    }
+
+    /**
+     * Records that data of the given age was served in place of a failed read
+     */
+    public void served(String collection, long ageNanos, RequestCost cost) {
+        cost.servedStale(Duration.ofNanos(ageNanos).toMillis());
+        meterRegistry.counter("firestore.stale.reads", "collection", collection).increment();
+    }
+
+    public long maxAgeNanos() {
+        return maxAgeNanos;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int maxEntries() {
+        return entries.maxEntries();
+    }
+
+    private Entry serve(String collection, String key, Throwable error, RequestCost cost) {
+        if (!mayServe(error, cost)) {
+            return null;
+        }
+        Entry entry = entries.get(key);
+        if (entry == null || entry.ageNanos() > maxAgeNanos) {
+            return null;
+        }
+        served(collection, entry.ageNanos(), cost);
+        return entry;
+    }
+
+    private static String documentKey(String collection, String id) {
+        return collection + '/' + id;
+    }
+
+    private static String queryKey(String collection, String field, Object value) {
+        if (field == null) {
+            return collection;
+        }
+        // Enum values are stored by name, so a query by the enum and by its name share an entry
+        Object stored = value instanceof Enum<?> e ? e.name() : value;
+        return collection + '?' + field + '=' + (stored == null ? "null" : stored.getClass().getSimpleName() + ':' + stored);
+    }
+
+    /**
+     * A cached result and when it was read
+     */
+    public record Entry(Object value, long storedNanos) {
+
+        long ageNanos() {
+            return System.nanoTime() - storedNanos;
+        }
+
+        @SuppressWarnings("unchecked")
+        public Map<String, Object> data() {
+            return (Map<String, Object>) value;
+        }
+    }
+}
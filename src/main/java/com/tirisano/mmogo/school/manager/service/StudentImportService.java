@@ -0,0 +1,368 @@
+package com.tirisano.mmogo.school.manager.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.tirisano.mmogo.school.manager.dto.BulkImportReport;
+import com.tirisano.mmogo.school.manager.dto.ImportRowResult;
+import com.tirisano.mmogo.school.manager.enums.ImportRowStatus;
+import com.tirisano.mmogo.school.manager.enums.StudentStatus;
+import com.tirisano.mmogo.school.manager.model.Student;
+import com.tirisano.mmogo.school.manager.repository.StudentRepository;
+import com.tirisano.mmogo.school.manager.util.CsvReader;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Bulk student onboarding from CSV or NDJSON.
+ * The body is read as a stream, one WriteBatch worth of rows at a time: each chunk is validated
+ * in parallel, de-duplicated by normalized birth certificate ID against the rest of the file and,
+ * in one batched read, against existing reservations, then committed as student + reservation
+ * pairs while the next chunk is read. Only the chunks being committed are held in memory, plus a
+ * small outcome per row for the report. Every row gets an outcome; one bad row never fails the
+ * import. Reading stops after max-rows rows and the report is marked truncated.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StudentImportService {
+
+    // Each student costs two writes: the student and its birth certificate reservation
+    private static final int STUDENTS_PER_BATCH = FirestoreBatch.MAX_WRITES / 2;
+
+    // Chunks committing while the next is read; reading waits on the oldest beyond this
+    private static final int MAX_CHUNKS_IN_FLIGHT = 4;
+
+    private static final List<String> COLUMNS = List.of(
+            "name", "surname", "gender", "dateOfBirth", "birthCertificateId", "nationality", "grade",
+            "yearOfAdmission", "previousSchool", "latestSchoolReport", "parentId", "className", "teacher");
+
+    private final StudentRepository studentRepository;
+    private final FirebaseService firebaseService;
+    private final UniqueKeys uniqueKeys;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    @Value("${students.bulk.max-rows:5000}")
+    private int maxRows;
+
+    public BulkImportReport importStudents(InputStream body, String contentType) {
+        long started = System.nanoTime();
+        try {
+            RowParser parser = parser(body, contentType);
+            List<ImportRowResult> results = new ArrayList<>();
+            Set<String> seen = new HashSet<>();
+            Deque<CompletableFuture<Void>> commits = new ArrayDeque<>();
+            List<Row> chunk = new ArrayList<>(STUDENTS_PER_BATCH);
+            boolean truncated = false;
+            while (true) {
+                Row row = new Row(results.size() + 1);
+                boolean more;
+                try {
+                    more = parser.next(row);
+                } catch (IOException e) {
+                    // Malformed input, e.g. an unterminated quote, makes the rest of the body unreadable
+                    row.reject(ImportRowStatus.INVALID, e.getMessage());
+                    results.add(row.result);
+                    break;
+                }
+                if (!more) {
+                    break;
+                }
+                if (results.size() >= maxRows) {
+                    truncated = true;
+                    break;
+                }
+                results.add(row.result);
+                chunk.add(row);
+                if (chunk.size() == STUDENTS_PER_BATCH) {
+                    commits.add(process(chunk, seen));
+                    chunk = new ArrayList<>(STUDENTS_PER_BATCH);
+                    if (commits.size() >= MAX_CHUNKS_IN_FLIGHT) {
+                        commits.poll().join();
+                    }
+                }
+            }
+            commits.add(process(chunk, seen));
+            CompletableFuture.allOf(commits.toArray(CompletableFuture[]::new)).join();
+
+            int created = (int) results.stream().filter(r -> r.getStatus() == ImportRowStatus.CREATED).count();
+            long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+            log.info("Bulk student import: {} of {} rows created in {} ms{}", created, results.size(), elapsedMillis,
+                    truncated ? ", stopped at the " + maxRows + "-row limit" : "");
+            return BulkImportReport.builder()
+                    .total(results.size())
+                    .created(created)
+                    .rejected(results.size() - created)
+                    .truncated(truncated)
+                    .elapsedMillis(elapsedMillis)
+                    .rows(results)
+                    .build();
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error importing students", e);
+            throw new RuntimeException("Failed to import students: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Validates and de-duplicates one chunk, then starts committing what is left of it
+     */
+    private CompletableFuture<Void> process(List<Row> chunk, Set<String> seen) {
+        // VALIDATE - independent per row, so spread across cores
+        chunk.parallelStream().filter(row -> row.student != null).forEach(this::validate);
+
+        // DE-DUPLICATE - within the file, first occurrence wins
+        List<Row> candidates = new ArrayList<>();
+        for (Row row : chunk) {
+            if (row.result.getStatus() != null) {
+                continue;
+            }
+            if (!seen.add(UniqueKeys.normalize(row.student.getBirthCertificateId()))) {
+                row.reject(ImportRowStatus.DUPLICATE_IN_FILE, "Birth certificate ID appears earlier in the file");
+                continue;
+            }
+            candidates.add(row);
+        }
+        if (candidates.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // DE-DUPLICATE - against existing students, one batched read of their reservations
+        Map<String, Row> byReservation = new HashMap<>();
+        for (Row row : candidates) {
+            byReservation.put(reservationId(row.student), row);
+        }
+        Set<String> taken = firebaseService.findExistingIds(UniqueKeys.COLLECTION, byReservation.keySet()).join();
+        List<Row> toCreate = new ArrayList<>(candidates.size());
+        for (Row row : candidates) {
+            if (taken.contains(reservationId(row.student))) {
+                row.reject(ImportRowStatus.ALREADY_EXISTS, "A student with this birth certificate ID already exists");
+            } else {
+                toCreate.add(row);
+            }
+        }
+
+        // COMMIT - one full batch, left running while the next chunk is read
+        return toCreate.isEmpty() ? CompletableFuture.completedFuture(null) : commitChunk(toCreate);
+    }
+
+    private CompletableFuture<Void> commitChunk(List<Row> chunk) {
+        FirestoreBatch batch = firebaseService.batch();
+        for (Row row : chunk) {
+            studentRepository.save(batch, row.student);
+            uniqueKeys.reserve(batch, UniqueKeys.STUDENT_BIRTH_CERTIFICATE,
+                    row.student.getBirthCertificateId(), row.student.getStudentId());
+        }
+        return firebaseService.commit(batch)
+                .thenRun(() -> chunk.forEach(Row::created))
+                .exceptionally(error -> {
+                    if (FirestoreErrors.isAlreadyExists(error)) {
+                        // A concurrent submission took one of these IDs; isolate it row by row
+                        chunk.forEach(this::commitSingle);
+                    } else {
+                        log.error("Error committing import batch of {} students", chunk.size(), error);
+                        chunk.forEach(row -> row.reject(ImportRowStatus.FAILED, "Write failed: " + FirestoreErrors.rootMessage(error)));
+                    }
+                    return null;
+                });
+    }
+
+    private void commitSingle(Row row) {
+        FirestoreBatch batch = firebaseService.batch();
+        studentRepository.save(batch, row.student, row.student.getStudentId());
+        uniqueKeys.reserve(batch, UniqueKeys.STUDENT_BIRTH_CERTIFICATE,
+                row.student.getBirthCertificateId(), row.student.getStudentId());
+        try {
+            firebaseService.commit(batch).join();
+            row.created();
+        } catch (RuntimeException e) {
+            if (FirestoreErrors.isAlreadyExists(e)) {
+                row.reject(ImportRowStatus.ALREADY_EXISTS, "A student with this birth certificate ID already exists");
+            } else {
+                row.reject(ImportRowStatus.FAILED, "Write failed: " + FirestoreErrors.rootMessage(e));
+            }
+        }
+    }
+
+    private void validate(Row row) {
+        Set<ConstraintViolation<Student>> violations = validator.validate(row.student);
+        if (!violations.isEmpty()) {
+            List<String> errors = violations.stream()
+                    .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                    .sorted()
+                    .toList();
+            row.reject(ImportRowStatus.INVALID, errors);
+        }
+    }
+
+    // ==================== PARSING ====================
+
+    private RowParser parser(InputStream body, String contentType) throws IOException {
+        String type = contentType == null ? "" : contentType.toLowerCase(Locale.ROOT);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        if (type.contains("csv")) {
+            return csvParser(reader);
+        }
+        if (type.contains("ndjson") || type.contains("jsonl")) {
+            return ndjsonParser(reader);
+        }
+        throw new IllegalArgumentException("Unsupported content type for bulk import: " + contentType
+                + " (use text/csv or application/x-ndjson)");
+    }
+
+    /**
+     * Reads the header at once, so an unknown column rejects the file before any row is written
+     */
+    private RowParser csvParser(BufferedReader reader) throws IOException {
+        CsvReader csv = new CsvReader(reader);
+        List<String> header = csv.next();
+        if (header == null) {
+            return row -> false;
+        }
+
+        Map<String, String> known = new HashMap<>();
+        COLUMNS.forEach(column -> known.put(column.toLowerCase(Locale.ROOT), column));
+        List<String> columns = new ArrayList<>(header.size());
+        List<String> unknown = new ArrayList<>();
+        for (String name : header) {
+            String column = known.get(name.replace("\uFEFF", "").strip().toLowerCase(Locale.ROOT));
+            if (column == null) {
+                unknown.add(name);
+            }
+            columns.add(column);
+        }
+        if (!unknown.isEmpty()) {
+            throw new IllegalArgumentException("Unknown CSV columns " + unknown + "; expected any of " + COLUMNS);
+        }
+
+        return row -> {
+            List<String> record;
+            do {
+                record = csv.next();
+                if (record == null) {
+                    return false;
+                }
+            } while (record.stream().allMatch(String::isBlank));
+
+            if (record.size() != columns.size()) {
+                row.reject(ImportRowStatus.INVALID,
+                        "Expected " + columns.size() + " fields but found " + record.size());
+                return true;
+            }
+            ObjectNode node = objectMapper.createObjectNode();
+            for (int i = 0; i < columns.size(); i++) {
+                String value = record.get(i).strip();
+                if (!value.isEmpty()) {
+                    node.put(columns.get(i), value);
+                }
+            }
+            try {
+                row.parsed(objectMapper.treeToValue(node, Student.class));
+            } catch (JsonProcessingException e) {
+                row.reject(ImportRowStatus.INVALID, e.getOriginalMessage());
+            } catch (IllegalArgumentException e) {
+                // Raised as-is by value deserializers, e.g. an unparseable dateOfBirth
+                row.reject(ImportRowStatus.INVALID, e.getMessage());
+            }
+            return true;
+        };
+    }
+
+    private RowParser ndjsonParser(BufferedReader reader) {
+        return row -> {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) {
+                    return false;
+                }
+            } while (line.isBlank());
+
+            try {
+                row.parsed(objectMapper.readValue(line, Student.class));
+            } catch (JsonProcessingException e) {
+                row.reject(ImportRowStatus.INVALID, e.getOriginalMessage());
+            } catch (IllegalArgumentException e) {
+                // Raised as-is by value deserializers, e.g. an unparseable dateOfBirth
+                row.reject(ImportRowStatus.INVALID, e.getMessage());
+            }
+            return true;
+        };
+    }
+
+    /**
+     * Reads the next non-blank record of the body into the row
+     */
+    @FunctionalInterface
+    private interface RowParser {
+
+        /**
+         * @return false at the end of the body, leaving the row untouched
+         * @throws IOException when the body cannot be read further
+         */
+        boolean next(Row row) throws IOException;
+    }
+
+    private static String reservationId(Student student) {
+        return UniqueKeys.documentId(UniqueKeys.STUDENT_BIRTH_CERTIFICATE, student.getBirthCertificateId());
+    }
+
+    /**
+     * One input row and its outcome; written by one thread at a time (parse, validate, then commit).
+     * The report keeps only the outcome, so the student is released once its chunk is committed.
+     */
+    private static final class Row {
+
+        private final ImportRowResult result;
+        private Student student;
+
+        private Row(int number) {
+            this.result = ImportRowResult.builder().row(number).build();
+        }
+
+        private void parsed(Student parsed) {
+            parsed.setStudentId(null);
+            // Imported students go through approval like any other new student
+            parsed.setStatus(StudentStatus.PENDING);
+            parsed.setRejectionReason(null);
+            this.student = parsed;
+            result.setBirthCertificateId(parsed.getBirthCertificateId());
+        }
+
+        private void reject(ImportRowStatus status, String error) {
+            reject(status, List.of(error));
+        }
+
+        private void reject(ImportRowStatus status, List<String> errors) {
+            result.setStatus(status);
+            result.setErrors(errors);
+        }
+
+        private void created() {
+            result.setStatus(ImportRowStatus.CREATED);
+            result.setStudentId(student.getStudentId());
+        }
+    }
+}
@@ -1,90 +1,102 @@
 package com.tirisano.mmogo.school.manager.service;
 
+import com.tirisano.mmogo.school.manager.dto.BulkOperationResult;
+import com.tirisano.mmogo.school.manager.dto.BulkStatusRequest;
 import com.tirisano.mmogo.school.manager.enums.StudentStatus;
 import com.tirisano.mmogo.school.manager.model.Student;
+import com.tirisano.mmogo.school.manager.repository.StudentRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class StudentService {
 
+    private static final String DUPLICATE_BIRTH_CERTIFICATE = "A student with this birth certificate ID already exists";
+
+    private final StudentRepository studentRepository;
     private final FirebaseService firebaseService;
+    private final UniqueKeys uniqueKeys;
+    private final BulkTransitions bulkTransitions;
 
     // CREATE
     public Student addStudent(Student student) {
-        // Check if birth certificate ID already exists
-        List<Student> existingStudents = firebaseService.findByField(
-                "students",
-                "birthCertificateId",
-                student.getBirthCertificateId(),
-                Student.class
-        ).join();
+        student.setStatus(StudentStatus.PENDING);
 
-        if (!existingStudents.isEmpty()) {
-            throw new RuntimeException("A student with this birth certificate ID already exists");
+        // The birth certificate reservation commits with the student or not at all
+        FirestoreBatch batch = firebaseService.batch();
+        studentRepository.save(batch, student);
+        // The repository sets the generated studentId on the student object
+        if (student.getBirthCertificateId() != null) {
+            uniqueKeys.reserve(batch, UniqueKeys.STUDENT_BIRTH_CERTIFICATE,
+                    student.getBirthCertificateId(), student.getStudentId());
         }
-
-        student.setStatus(StudentStatus.PENDING);
-        firebaseService.save("students", student).join();
-        // FirebaseService automatically sets studentId on the student object
+        commitRejectingDuplicates(batch);
         return student;
     }
 
     // READ - Get all students (for admin)
     public List<Student> getAllStudents() {
-        return firebaseService.findAll("students", Student.class).join();
+        return studentRepository.findAll().join();
     }
 
     // READ - Get student by ID
     public Student getStudentById(String studentId) {
-        return firebaseService.findById("students", studentId, Student.class).join();
+        return studentRepository.findById(studentId).join();
     }
 
     // READ - Get students by parent ID (for parents)
     public List<Student> findByParentId(String parentId) {
-        return firebaseService.findByField("students", "parentId", parentId, Student.class).join();
+        return studentRepository.findByField("parentId", parentId).join();
     }
 
     // READ - Get pending students (for admin)
     public List<Student> findPendingStudents() {
-        return firebaseService.findByField("students", "status", StudentStatus.PENDING, Student.class).join();
+        return studentRepository.findByField("status", StudentStatus.PENDING).join();
     }
 
     // READ - Get approved students
     public List<Student> findApprovedStudents() {
-        return firebaseService.findByField("students", "status", StudentStatus.APPROVED, Student.class).join();
+        return studentRepository.findByField("status", StudentStatus.APPROVED).join();
     }
 
     // READ - Get rejected students
     public List<Student> findRejectedStudents() {
-        return firebaseService.findByField("students", "status", StudentStatus.REJECTED, Student.class).join();
+        return studentRepository.findByField("status", StudentStatus.REJECTED).join();
     }
 
     // UPDATE - General update
     public Student updateStudent(String studentId, Student updatedStudent) {
-        Student existingStudent = firebaseService.findById("students", studentId, Student.class).join();
+        Student existingStudent = studentRepository.findById(studentId).join();
         if (existingStudent != null) {
-            // Check if birth certificate ID is being changed to a duplicate
-            if (!existingStudent.getBirthCertificateId().equals(updatedStudent.getBirthCertificateId())) {
-                List<Student> duplicates = firebaseService.findByField(
-                        "students",
-                        "birthCertificateId",
-                        updatedStudent.getBirthCertificateId(),
-                        Student.class
-                ).join();
-
-                if (!duplicates.isEmpty()) {
-                    throw new RuntimeException("A student with this birth certificate ID already exists");
-                }
-            }
-
             updatedStudent.setStudentId(studentId);
             // Preserve important fields that shouldn't be overridden
             updatedStudent.setCreatedAt(existingStudent.getCreatedAt());
-            firebaseService.save("students", updatedStudent, studentId).join();
+
+            FirestoreBatch batch = firebaseService.batch();
+            studentRepository.save(batch, updatedStudent, studentId);
+            // Move the reservation when the birth certificate ID changes; a duplicate fails the whole batch
+            String oldId = existingStudent.getBirthCertificateId();
+            String newId = updatedStudent.getBirthCertificateId();
+            if (!UniqueKeys.sameKey(oldId, newId)) {
+                if (oldId != null) {
+                    uniqueKeys.release(batch, UniqueKeys.STUDENT_BIRTH_CERTIFICATE, oldId, studentId);
+                }
+                if (newId != null) {
+                    uniqueKeys.reserve(batch, UniqueKeys.STUDENT_BIRTH_CERTIFICATE, newId, studentId);
+                }
+            }
+            commitRejectingDuplicates(batch);
             return updatedStudent;
         }
         throw new RuntimeException("Student not found with ID: " + studentId);
@@ -92,11 +104,11 @@ public class StudentService {
 
     // UPDATE - Approve student
     public Student approveStudent(String studentId) {
-        Student student = firebaseService.findById("students", studentId, Student.class).join();
+        Student student = studentRepository.findById(studentId).join();
         if (student != null) {
             student.setStatus(StudentStatus.APPROVED);
             student.setRejectionReason(null); // Clear rejection reason if previously rejected
-            firebaseService.save("students", student, studentId);
+            updateFields(studentId, statusFields(student));
             return student;
         }
         throw new RuntimeException("Student not found with ID: " + studentId);
@@ -104,13 +116,16 @@ public class StudentService {
 
     // UPDATE - Approve student with class and teacher assignment
     public Student approveStudentWithClass(String studentId, String className, String teacher) {
-        Student student = firebaseService.findById("students", studentId, Student.class).join();
+        Student student = studentRepository.findById(studentId).join();
         if (student != null) {
             student.setStatus(StudentStatus.APPROVED);
             student.setRejectionReason(null); // Clear rejection reason if previously rejected
             student.setClassName(className);
             student.setTeacher(teacher);
-            firebaseService.save("students", student, studentId);
+            Map<String, Object> fields = statusFields(student);
+            fields.put("className", className);
+            fields.put("teacher", teacher);
+            updateFields(studentId, fields);
             return student;
         }
         throw new RuntimeException("Student not found with ID: " + studentId);
@@ -118,23 +133,156 @@ public class StudentService {
 
     // UPDATE - Reject student
     public Student rejectStudent(String studentId, String reason) {
-        Student student = firebaseService.findById("students", studentId, Student.class).join();
+        Student student = studentRepository.findById(studentId).join();
         if (student != null) {
             student.setStatus(StudentStatus.REJECTED);
             student.setRejectionReason(reason);
-            firebaseService.save("students", student, studentId);
+            updateFields(studentId, statusFields(student));
             return student;
         }
         throw new RuntimeException("Student not found with ID: " + studentId);
     }
 
+    // UPDATE - Approve or reject many students in batched partial updates
+    public BulkOperationResult bulkUpdateStatus(BulkStatusRequest request) {
+        StudentStatus target = BulkTransitions.parseDecision(StudentStatus.class, request.getStatus());
+        String reason = target == StudentStatus.REJECTED ? request.getReason() : null;
+        if (target == StudentStatus.REJECTED && (reason == null || reason.trim().isEmpty())) {
+            throw new IllegalArgumentException("Rejection reason is required");
+        }
+
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("status", target.name());
+        fields.put("rejectionReason", reason); // Clears any previous rejection reason on approval
+        if (target == StudentStatus.APPROVED && request.getClassName() != null) {
+            fields.put("className", request.getClassName());
+        }
+        if (target == StudentStatus.APPROVED && request.getTeacher() != null) {
+            fields.put("teacher", request.getTeacher());
+        }
+        return bulkTransitions.apply(studentRepository, request.getIds(),
+                student -> student.getStatus() == target
+                        && Objects.equals(student.getRejectionReason(), reason)
+                        && (!fields.containsKey("className") || Objects.equals(student.getClassName(), request.getClassName()))
+                        && (!fields.containsKey("teacher") || Objects.equals(student.getTeacher(), request.getTeacher())),
+                student -> null,
+                fields);
+    }
+
+    // Writes only the changed fields, in the request, so a bulk update or full save that follows cannot be overtaken
+    private void updateFields(String studentId, Map<String, Object> fields) {
+        FirestoreBatch batch = firebaseService.batch();
+        studentRepository.update(batch, studentId, fields);
+        firebaseService.commit(batch).join();
+    }
+
+    private static Map<String, Object> statusFields(Student student) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("status", student.getStatus().name());
+        fields.put("rejectionReason", student.getRejectionReason());
+        return fields;
+    }
+
     // DELETE - Delete student
     public void deleteStudent(String studentId) {
-        Student student = firebaseService.findById("students", studentId, Student.class).join();
+        Student student = studentRepository.findById(studentId).join();
         if (student != null) {
-            firebaseService.delete("students", studentId);
+            FirestoreBatch batch = firebaseService.batch();
+            studentRepository.deleteById(batch, studentId);
+            if (student.getBirthCertificateId() != null) {
+                uniqueKeys.release(batch, UniqueKeys.STUDENT_BIRTH_CERTIFICATE, student.getBirthCertificateId(), studentId);
+            }
+            firebaseService.commit(batch).join();
         } else {
             throw new RuntimeException("Student not found with ID: " + studentId);
         }
     }
-}
\ No newline at end of file
+
+    // MAINTENANCE - Reserve birth certificate IDs for students created before reservations existed.
+    // Only missing reservations are created, so running it again changes nothing
+    public Map<String, Object> backfillBirthCertificateKeys() {
+        List<Student> students = studentRepository.findAll().join();
+        Map<String, Student> ownerByReservation = new LinkedHashMap<>();
+        Map<String, List<String>> conflicts = new LinkedHashMap<>();
+        for (Student student : students) {
+            String birthCertificateId = student.getBirthCertificateId();
+            if (birthCertificateId == null) {
+                continue;
+            }
+            String reservation = UniqueKeys.documentId(UniqueKeys.STUDENT_BIRTH_CERTIFICATE, birthCertificateId);
+            Student owner = ownerByReservation.putIfAbsent(reservation, student);
+            if (owner != null) {
+                // Existing duplicates are reported for manual cleanup; the first student keeps the key
+                conflicts.computeIfAbsent(UniqueKeys.normalize(birthCertificateId),
+                        k -> new ArrayList<>(List.of(owner.getStudentId()))).add(student.getStudentId());
+            }
+        }
+
+        List<String> reservations = new ArrayList<>(ownerByReservation.keySet());
+        int reserved = 0;
+        for (int start = 0; start < reservations.size(); start += FirestoreBatch.MAX_WRITES) {
+            List<String> chunk = reservations.subList(start, Math.min(start + FirestoreBatch.MAX_WRITES, reservations.size()));
+            Set<String> existing = firebaseService.findExistingIds(UniqueKeys.COLLECTION, chunk).join();
+            List<Student> missing = chunk.stream()
+                    .filter(reservation -> !existing.contains(reservation))
+                    .map(ownerByReservation::get)
+                    .toList();
+            reserved += reserveAll(missing);
+        }
+
+        log.info("Backfilled {} birth certificate reservations for {} students, {} duplicated IDs found",
+                reserved, students.size(), conflicts.size());
+        if (!conflicts.isEmpty()) {
+            log.warn("Students sharing a birth certificate ID: {}", conflicts.values());
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("students", students.size());
+        report.put("reserved", reserved);
+        report.put("duplicates", conflicts.values());
+        return report;
+    }
+
+    // Reserves in one batch, or one at a time when a key was reserved since it was found missing
+    private int reserveAll(List<Student> students) {
+        if (students.isEmpty()) {
+            return 0;
+        }
+        FirestoreBatch batch = firebaseService.batch();
+        for (Student student : students) {
+            uniqueKeys.reserve(batch, UniqueKeys.STUDENT_BIRTH_CERTIFICATE, student.getBirthCertificateId(), student.getStudentId());
+        }
+        try {
+            firebaseService.commit(batch).join();
+            return students.size();
+        } catch (RuntimeException e) {
+            if (!FirestoreErrors.isAlreadyExists(e)) {
+                throw e;
+            }
+        }
+        int reserved = 0;
+        for (Student student : students) {
+            FirestoreBatch single = firebaseService.batch();
+            uniqueKeys.reserve(single, UniqueKeys.STUDENT_BIRTH_CERTIFICATE, student.getBirthCertificateId(), student.getStudentId());
+            try {
+                firebaseService.commit(single).join();
+                reserved++;
+            } catch (RuntimeException e) {
+                if (!FirestoreErrors.isAlreadyExists(e)) {
+                    throw e;
+                }
+            }
+        }
+        return reserved;
+    }
+
+    private void commitRejectingDuplicates(FirestoreBatch batch) {
+        try {
+            firebaseService.commit(batch).join();
+        } catch (RuntimeException e) {
+            if (FirestoreErrors.isAlreadyExists(e)) {
+                throw new RuntimeException(DUPLICATE_BIRTH_CERTIFICATE);
+            }
+            throw e;
+        }
+    }
+}
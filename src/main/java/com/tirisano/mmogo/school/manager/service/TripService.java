@@ -6,6 +6,9 @@ import com.tirisano.mmogo.school.manager.enums.PaymentStatus;
 import com.tirisano.mmogo.school.manager.model.Payment;
 import com.tirisano.mmogo.school.manager.model.Student;
 import com.tirisano.mmogo.school.manager.model.Trip;
+import com.tirisano.mmogo.school.manager.repository.PaymentRepository;
+import com.tirisano.mmogo.school.manager.repository.StudentRepository;
+import com.tirisano.mmogo.school.manager.repository.TripRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -19,12 +22,20 @@ import java.util.stream.Collectors;
 @Slf4j
 public class TripService {
 
+    private static final String ALREADY_REGISTERED = "Student already registered for this trip";
+
+    private final PaymentRepository paymentRepository;
+    private final StudentRepository studentRepository;
+    private final TripRepository tripRepository;
+    private final PaymentLedger paymentLedger;
     private final FirebaseService firebaseService;
+    private final IdempotencyService idempotencyService;
+    private final UniqueKeys uniqueKeys;
 
     // CREATE
     public Trip createTrip(Trip trip) {
         try {
-            firebaseService.save("trips", trip).join();
+            tripRepository.save(trip).join();
             log.info("Trip created successfully with ID: {}", trip.getTripId());
             return trip;
         } catch (Exception e) {
@@ -36,7 +47,7 @@ public class TripService {
     // READ - Get all trips
     public List<Trip> findAll() {
         try {
-            return firebaseService.findAll("trips", Trip.class).join();
+            return tripRepository.findAll().join();
         } catch (Exception e) {
             log.error("Error fetching all trips", e);
             throw new RuntimeException("Failed to fetch trips: " + e.getMessage());
@@ -46,7 +57,7 @@ public class TripService {
     // READ - Get trip by ID
     public Trip findById(String tripId) {
         try {
-            return firebaseService.findById("trips", tripId, Trip.class).join();
+            return tripRepository.findById(tripId).join();
         } catch (Exception e) {
             log.error("Error fetching trip by ID: {}", tripId, e);
             throw new RuntimeException("Failed to fetch trip: " + e.getMessage());
@@ -71,7 +82,7 @@ public class TripService {
                 trip.setRegisteredStudents(existingTrip.getRegisteredStudents());
             }
 
-            firebaseService.save("trips", trip, tripId).join();
+            tripRepository.save(trip, tripId).join();
             log.info("Trip updated successfully: {}", tripId);
             return trip;
         } catch (Exception e) {
@@ -88,7 +99,7 @@ public class TripService {
                 throw new RuntimeException("Trip not found with ID: " + tripId);
             }
 
-            firebaseService.delete("trips", tripId).join();
+            tripRepository.deleteById(tripId).join();
             log.info("Trip deleted successfully: {}", tripId);
         } catch (Exception e) {
             log.error("Error deleting trip: {}", tripId, e);
@@ -97,41 +108,80 @@ public class TripService {
     }
 
     // Register student for trip (with mock payment)
-    public void registerStudent(String tripId, String studentId, String parentId, String paymentMethod) {
-        try {
-            Trip trip = findById(tripId);
-            if (trip == null) {
-                throw new RuntimeException("Trip not found with ID: " + tripId);
-            }
+    public Payment registerStudent(String tripId, String studentId, String parentId, String paymentMethod) {
+        return registerStudent(tripId, studentId, parentId, paymentMethod, null);
+    }
 
-            if (trip.getRegisteredStudents().contains(studentId)) {
-                throw new RuntimeException("Student already registered for this trip");
+    // Register student for trip; a retry with the same idempotency key returns the original payment
+    public Payment registerStudent(String tripId, String studentId, String parentId, String paymentMethod,
+                                   String idempotencyKey) {
+        try {
+            Payment payment;
+            if (idempotencyKey != null && !idempotencyKey.isBlank()) {
+                payment = idempotencyService.execute("trips.register", idempotencyKey,
+                        String.join("|", tripId, studentId, parentId, paymentMethod),
+                        batch -> stageRegistration(batch, tripId, studentId, parentId, paymentMethod),
+                        Payment::getPaymentId,
+                        paymentId -> paymentRepository.findById(paymentId).join());
+            } else {
+                // Registration, payment and ledger rollups are written atomically
+                FirestoreBatch batch = firebaseService.batch();
+                payment = stageRegistration(batch, tripId, studentId, parentId, paymentMethod);
+                firebaseService.commit(batch).join();
             }
-
-            // Add student to trip
-            trip.getRegisteredStudents().add(studentId);
-            firebaseService.save("trips", trip, tripId).join();
-
-            // Create mock payment record
-            Payment payment = Payment.builder()
-                    .studentId(studentId)
-                    .tripId(tripId)
-                    .parentId(parentId)
-                    .amount(trip.getPrice())
-                    .status(PaymentStatus.COMPLETED)
-                    .paymentMethod(paymentMethod != null ? paymentMethod : "Credit Card")
-                    .transactionReference("TXN-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase())
-                    .paidAt(Timestamp.now())
-                    .build();
-
-            firebaseService.save("payments", payment).join();
             log.info("Student {} registered for trip {} with mock payment", studentId, tripId);
+            return payment;
+        } catch (IdempotencyService.ResultGoneException e) {
+            throw e;
         } catch (Exception e) {
+            if (FirestoreErrors.isAlreadyExists(e)) {
+                // Lost the race for the registration key to a concurrent registration
+                log.info("Student {} already registered for trip {}", studentId, tripId);
+                throw new RuntimeException("Failed to register student for trip: " + ALREADY_REGISTERED);
+            }
             log.error("Error registering student {} for trip {}", studentId, tripId, e);
             throw new RuntimeException("Failed to register student for trip: " + e.getMessage());
         }
     }
 
+    private Payment stageRegistration(FirestoreBatch batch, String tripId, String studentId, String parentId,
+                                      String paymentMethod) {
+        Trip trip = findById(tripId);
+        if (trip == null) {
+            throw new RuntimeException("Trip not found with ID: " + tripId);
+        }
+
+        // The trip may come from the listener replica, so this only catches registrations that are
+        // already visible; the registration key below decides between concurrent ones
+        if (trip.getRegisteredStudents().contains(studentId)) {
+            throw new RuntimeException(ALREADY_REGISTERED);
+        }
+
+        // Create mock payment record
+        Payment payment = Payment.builder()
+                .studentId(studentId)
+                .tripId(tripId)
+                .parentId(parentId)
+                .amount(trip.getPrice())
+                .status(PaymentStatus.COMPLETED)
+                .paymentMethod(paymentMethod != null ? paymentMethod : "Credit Card")
+                .transactionReference("TXN-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase())
+                .paidAt(Timestamp.now())
+                .build();
+
+        // Created, so a second registration of the student fails the batch with ALREADY_EXISTS and pays nothing
+        uniqueKeys.reserve(batch, UniqueKeys.TRIP_REGISTRATION, registrationKey(tripId, studentId), studentId);
+        // Only adds the student, so registrations for the same trip cannot overwrite each other's
+        tripRepository.update(batch, tripId, Map.of("registeredStudents", FieldValue.arrayUnion(studentId)));
+        paymentRepository.save(batch, payment);
+        paymentLedger.stage(batch, null, payment);
+        return payment;
+    }
+
+    private static String registrationKey(String tripId, String studentId) {
+        return tripId + "/" + studentId;
+    }
+
     // Unregister student from trip
     public void unregisterStudent(String tripId, String studentId) {
         try {
@@ -140,8 +190,11 @@ public class TripService {
                 throw new RuntimeException("Trip not found with ID: " + tripId);
             }
 
-            trip.getRegisteredStudents().remove(studentId);
-            firebaseService.save("trips", trip, tripId).join();
+            // Frees the registration key with the list entry, so the student can register again
+            FirestoreBatch batch = firebaseService.batch();
+            tripRepository.update(batch, tripId, Map.of("registeredStudents", FieldValue.arrayRemove(studentId)));
+            uniqueKeys.release(batch, UniqueKeys.TRIP_REGISTRATION, registrationKey(tripId, studentId), studentId);
+            firebaseService.commit(batch).join();
             log.info("Student {} unregistered from trip {}", studentId, tripId);
         } catch (Exception e) {
             log.error("Error unregistering student {} from trip {}", studentId, tripId, e);
@@ -157,7 +210,7 @@ public class TripService {
                 throw new RuntimeException("Trip not found with ID: " + tripId);
             }
             trip.setActive(false);
-            firebaseService.save("trips", trip, tripId).join();
+            tripRepository.save(trip, tripId).join();
             log.info("Trip {} put on hold", tripId);
             return trip;
         } catch (Exception e) {
@@ -174,7 +227,7 @@ public class TripService {
                 throw new RuntimeException("Trip not found with ID: " + tripId);
             }
             trip.setActive(true);
-            firebaseService.save("trips", trip, tripId).join();
+            tripRepository.save(trip, tripId).join();
             log.info("Trip {} activated", tripId);
             return trip;
         } catch (Exception e) {
@@ -191,7 +244,7 @@ public class TripService {
                 throw new RuntimeException("Trip not found with ID: " + tripId);
             }
             trip.setImageUrl(imageData);
-            firebaseService.save("trips", trip, tripId).join();
+            tripRepository.save(trip, tripId).join();
             log.info("Trip {} image updated", tripId);
             return trip;
         } catch (Exception e) {
@@ -214,7 +267,7 @@ public class TripService {
             }
 
             // Fetch all students
-            List<Student> allStudents = firebaseService.findAll("students", Student.class).join();
+            List<Student> allStudents = studentRepository.findAll().join();
 
             // Filter students who are registered for this trip
             List<Student> paidStudents = allStudents.stream()
@@ -0,0 +1,85 @@
+package com.tirisano.mmogo.school.manager.service;
+
+import com.google.cloud.Timestamp;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Reserves the birth certificate IDs of students created before reservations existed, once per
+ * database. It starts when the application is ready, retries until it succeeds, and then leaves
+ * a marker document in the uniqueKeys collection so later boots only read that marker. Until the
+ * first run completes, a new student can still take a legacy student's ID.
+ */
+@Component
+@Slf4j
+public class UniqueKeyBackfill {
+
+    // Reservation IDs are SHA-256 hex, so the marker cannot collide with one
+    static final String MARKER = "backfill:" + UniqueKeys.STUDENT_BIRTH_CERTIFICATE;
+
+    private final StudentService studentService;
+    private final FirebaseService firebaseService;
+    private final TaskScheduler scheduler;
+    private final ExecutorService executor;
+    private final boolean enabled;
+    private final Duration retryDelay;
+
+    public UniqueKeyBackfill(StudentService studentService, FirebaseService firebaseService, TaskScheduler scheduler,
+                             @Qualifier("persistenceExecutor") ExecutorService executor,
+                             @Value("${students.unique-keys.backfill-on-startup:true}") boolean enabled,
+                             @Value("${students.unique-keys.backfill-retry-delay:1m}") Duration retryDelay) {
+        this.studentService = studentService;
+        this.firebaseService = firebaseService;
+        this.scheduler = scheduler;
+        this.executor = executor;
+        this.enabled = enabled;
+        this.retryDelay = retryDelay;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            // Off the scheduler thread, which the health probe shares
+            executor.execute(this::run);
+        }
+    }
+
+    /**
+     * One attempt; true once the backfill is known to be complete
+     */
+    boolean run() {
+        try {
+            if (firebaseService.findVersionedById(UniqueKeys.COLLECTION, MARKER).join() != null) {
+                log.debug("Birth certificate reservations already backfilled");
+                return true;
+            }
+            Map<String, Object> report = studentService.backfillBirthCertificateKeys();
+
+            Map<String, Object> marker = new HashMap<>();
+            marker.put("students", report.get("students"));
+            marker.put("reserved", report.get("reserved"));
+            marker.put("duplicates", ((Collection<?>) report.get("duplicates")).size());
+            marker.put("completedAt", Timestamp.now());
+            FirestoreBatch batch = firebaseService.batch();
+            batch.save(UniqueKeys.COLLECTION, marker, MARKER);
+            firebaseService.commit(batch).join();
+            return true;
+        } catch (Exception e) {
+            log.warn("Birth certificate backfill failed, retrying in {}: {}", retryDelay, FirestoreErrors.rootMessage(e));
+            scheduler.schedule(() -> executor.execute(this::run), Instant.now().plus(retryDelay));
+            return false;
+        }
+    }
+}
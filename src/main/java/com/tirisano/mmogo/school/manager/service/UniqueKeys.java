@@ -0,0 +1,79 @@
+package com.tirisano.mmogo.school.manager.service;
+
+import com.google.cloud.Timestamp;
+import com.tirisano.mmogo.school.manager.util.Hashes;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Natural-key uniqueness through reservation documents in the uniqueKeys collection.
+ * A reservation's ID is a hash of the scope and the normalized value, and it is staged with
+ * create() in the same batch as the entity write, so a duplicate makes the whole commit fail
+ * with ALREADY_EXISTS; no query is needed beforehand and concurrent submissions cannot both win.
+ */
+@Service
+@RequiredArgsConstructor
+public class UniqueKeys {
+
+    public static final String COLLECTION = "uniqueKeys";
+
+    public static final String STUDENT_BIRTH_CERTIFICATE = "students.birthCertificateId";
+
+    // Values are "tripId/studentId"; document IDs are case-sensitive, so these are compared exactly
+    public static final String TRIP_REGISTRATION = "trips.registeredStudents";
+
+    private static final Set<String> EXACT_SCOPES = Set.of(TRIP_REGISTRATION);
+
+    private final FirebaseService firebaseService;
+
+    /**
+     * Case, surrounding whitespace and internal spaces or hyphens do not make a value distinct.
+     * This is looser than the exact equality checked before reservations existed: "ab-1234" and
+     * "AB 1234" used to be two birth certificate IDs and are now the same one, so a student whose
+     * ID differs from an existing one only in those characters is rejected as a duplicate.
+     */
+    public static String normalize(String value) {
+        return value == null ? null : value.strip().replaceAll("[\\s-]", "").toUpperCase(Locale.ROOT);
+    }
+
+    public static String documentId(String scope, String value) {
+        return Hashes.sha256Hex(scope + ":" + (EXACT_SCOPES.contains(scope) ? value : normalize(value)));
+    }
+
+    public static boolean sameKey(String a, String b) {
+        return a == null ? b == null : b != null && normalize(a).equals(normalize(b));
+    }
+
+    /**
+     * Stages a reservation that fails the batch if the value is already reserved
+     */
+    public void reserve(FirestoreBatch batch, String scope, String value, String ownerId) {
+        batch.create(COLLECTION, documentId(scope, value), fields(scope, ownerId));
+    }
+
+    /**
+     * Stages removal of the value's reservation if ownerId holds it; one held by another owner, e.g. the
+     * first of two students a backfill found sharing the value, is left alone. The delete fails the batch
+     * if the reservation changed after this read.
+     */
+    public void release(FirestoreBatch batch, String scope, String value, String ownerId) {
+        String documentId = documentId(scope, value);
+        FirebaseService.Versioned reservation = firebaseService.findVersionedById(COLLECTION, documentId).join();
+        if (reservation != null && ownerId.equals(reservation.data().get("ownerId"))) {
+            batch.deleteIfUnchanged(COLLECTION, documentId, reservation.updateTime());
+        }
+    }
+
+    private static Map<String, Object> fields(String scope, String ownerId) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("scope", scope);
+        fields.put("ownerId", ownerId);
+        fields.put("createdAt", Timestamp.now());
+        return fields;
+    }
+}
@@ -0,0 +1,34 @@
+package com.tirisano.mmogo.school.manager.util;
+
+import com.google.cloud.Timestamp;
+
+/**
+ * Millisecond-resolution time source for response envelopes.
+ * Callers within the same millisecond share one Timestamp instance, and because every value it
+ * hands out is a whole millisecond, serializers can cache its text by epoch millisecond
+ * (see ApiResponseSerializer) instead of formatting each response's timestamp afresh.
+ */
+public final class CoarseClock {
+
+    private static volatile Tick current = new Tick(System.currentTimeMillis());
+
+    private CoarseClock() {
+    }
+
+    public static Timestamp now() {
+        long millis = System.currentTimeMillis();
+        Tick tick = current;
+        if (tick.millis() != millis) {
+            tick = new Tick(millis);
+            current = tick;
+        }
+        return tick.timestamp();
+    }
+
+    private record Tick(long millis, Timestamp timestamp) {
+
+        Tick(long millis) {
+            this(millis, Timestamp.ofTimeMicroseconds(millis * 1000L));
+        }
+    }
+}
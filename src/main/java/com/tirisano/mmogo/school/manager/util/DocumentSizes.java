@@ -0,0 +1,87 @@
+package com.tirisano.mmogo.school.manager.util;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.Blob;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.GeoPoint;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Document size estimates following Firestore's storage size rules: strings are their UTF-8
+ * length plus one, numbers, booleans and timestamps fixed widths, and each document adds its
+ * name plus 32 bytes. Used for cost accounting, not for enforcing the 1 MiB limit exactly.
+ */
+public final class DocumentSizes {
+
+    private static final int DOCUMENT_OVERHEAD = 32;
+
+    private DocumentSizes() {
+    }
+
+    public static long estimate(String path, Map<String, Object> data) {
+        long size = DOCUMENT_OVERHEAD + nameSize(path);
+        return data == null ? size : size + mapSize(data);
+    }
+
+    private static long nameSize(String path) {
+        // Each path segment counts as a string, plus 16 bytes for the name itself
+        long size = 16;
+        for (String segment : path.split("/")) {
+            size += stringSize(segment);
+        }
+        return size;
+    }
+
+    private static long mapSize(Map<?, ?> map) {
+        long size = 0;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            size += stringSize(String.valueOf(entry.getKey())) + valueSize(entry.getValue());
+        }
+        return size;
+    }
+
+    private static long valueSize(Object value) {
+        if (value == null || value instanceof Boolean) {
+            return 1;
+        }
+        if (value instanceof String s) {
+            return stringSize(s);
+        }
+        if (value instanceof Number || value instanceof Timestamp) {
+            return 8;
+        }
+        if (value instanceof GeoPoint) {
+            return 16;
+        }
+        if (value instanceof Blob blob) {
+            return blob.toBytes().length;
+        }
+        if (value instanceof DocumentReference reference) {
+            return nameSize(reference.getPath());
+        }
+        if (value instanceof Map<?, ?> map) {
+            return mapSize(map);
+        }
+        if (value instanceof Collection<?> list) {
+            long size = 0;
+            for (Object element : list) {
+                size += valueSize(element);
+            }
+            return size;
+        }
+        return stringSize(value.toString());
+    }
+
+    private static long stringSize(String value) {
+        // Field names and values are mostly ASCII; avoid encoding when every char is one byte
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return value.getBytes(StandardCharsets.UTF_8).length + 1L;
+            }
+        }
+        return value.length() + 1L;
+    }
+}
@@ -0,0 +1,79 @@
+package com.tirisano.mmogo.school.manager.util;
+
+import com.google.cloud.Timestamp;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Single timestamp codec shared by Jackson and the services.
+ *
+ * Contract:
+ * - date-times with Z or an offset are taken as given
+ * - date-times without an offset (e.g. HTML datetime-local values) are school-local time
+ * - date-only values are calendar dates and map to midnight UTC
+ * - digits only are epoch milliseconds
+ * - timestamps are written as ISO-8601 instants in UTC
+ */
+@Component
+@Slf4j
+public class TimestampCodec {
+
+    private static final String SUPPORTED_FORMATS =
+            "Supported formats: 2025-10-07T01:33, 2025-10-07T01:33:00, 2025-10-07T01:33:00Z, 2025-10-07";
+
+    private final ZoneId schoolZone;
+    private final ZoneId parseZone;
+    private final DateTimeFormatter instantFormatter;
+
+    public TimestampCodec(@Value("${school.time-zone:Africa/Johannesburg}") String schoolZoneId) {
+        this.schoolZone = ZoneId.of(schoolZoneId);
+        // Fixed-offset zones take the arithmetic fast path in TimestampParser
+        this.parseZone = schoolZone.getRules().isFixedOffset()
+                ? schoolZone.getRules().getOffset(Instant.EPOCH)
+                : schoolZone;
+        this.instantFormatter = DateTimeFormatter.ISO_INSTANT;
+        log.info("Timestamp codec using school time zone {}", schoolZone);
+    }
+
+    /**
+     * Parse a timestamp value according to the codec contract.
+     * Returns null for null or empty input and throws IllegalArgumentException for unsupported formats.
+     */
+    public Timestamp parse(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        Timestamp timestamp = TimestampParser.parse(value, parseZone);
+        if (timestamp == null) {
+            throw new IllegalArgumentException("Unable to parse timestamp: '" + value + "'. " + SUPPORTED_FORMATS);
+        }
+        return timestamp;
+    }
+
+    /**
+     * Format as an ISO-8601 instant in UTC, e.g. 2025-10-07T01:33:00Z
+     */
+    public String format(Timestamp timestamp) {
+        if (timestamp == null) {
+            return null;
+        }
+        return instantFormatter.format(toInstant(timestamp));
+    }
+
+    /**
+     * The school-local calendar date of the timestamp
+     */
+    public LocalDate toLocalDate(Timestamp timestamp) {
+        return LocalDate.ofInstant(toInstant(timestamp), schoolZone);
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return Instant.ofEpochSecond(timestamp.getSeconds(), timestamp.getNanos());
+    }
+}
@@ -0,0 +1,197 @@
+package com.tirisano.mmogo.school.manager.util;
+
+import com.google.cloud.Timestamp;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Single-pass parser for the timestamp formats accepted by the API.
+ * The input is classified by its length and the characters at fixed positions
+ * and the fields are read directly, so no regex or exception-driven fallback is involved.
+ *
+ * Supported: 2025-10-11, 2025-10-11T11:50, 2025-10-11T11:50:00, 2025-10-11T11:50:00.123,
+ * any of the date-times followed by Z or an offset such as +02:00, and epoch milliseconds.
+ */
+public final class TimestampParser {
+
+    private static final int SECONDS_PER_DAY = 86_400;
+    private static final int[] NANO_SCALE = {
+            0, 100_000_000, 10_000_000, 1_000_000, 100_000, 10_000, 1_000, 100, 10, 1
+    };
+
+    private TimestampParser() {
+    }
+
+    /**
+     * Parse a timestamp value.
+     *
+     * @param value     the raw value
+     * @param localZone zone used for date-times that carry no offset; date-only values are always UTC midnight
+     * @return the parsed timestamp, or null if the value is not in a supported format
+     */
+    public static Timestamp parse(String value, ZoneId localZone) {
+        if (value == null) {
+            return null;
+        }
+        int len = value.length();
+        if (len == 0) {
+            return null;
+        }
+
+        if (isEpochMillis(value, len)) {
+            return fromEpochMillis(value);
+        }
+
+        // yyyy-MM-dd
+        if (len < 10 || value.charAt(4) != '-' || value.charAt(7) != '-') {
+            return null;
+        }
+        int year = digits(value, 0, 4);
+        int month = digits(value, 5, 2);
+        int day = digits(value, 8, 2);
+        if (year < 0 || month < 0 || day < 0) {
+            return null;
+        }
+        long epochDay;
+        try {
+            epochDay = LocalDate.of(year, month, day).toEpochDay();
+        } catch (DateTimeException e) {
+            return null;
+        }
+        if (len == 10) {
+            return Timestamp.ofTimeSecondsAndNanos(epochDay * SECONDS_PER_DAY, 0);
+        }
+
+        // THH:mm
+        char separator = value.charAt(10);
+        if ((separator != 'T' && separator != 't') || len < 16 || value.charAt(13) != ':') {
+            return null;
+        }
+        int hour = digits(value, 11, 2);
+        int minute = digits(value, 14, 2);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            return null;
+        }
+
+        // Optional :ss and .fraction
+        int pos = 16;
+        int second = 0;
+        int nanos = 0;
+        if (pos < len && value.charAt(pos) == ':') {
+            second = digits(value, pos + 1, 2);
+            if (second < 0 || second > 59) {
+                return null;
+            }
+            pos += 3;
+            if (pos < len && value.charAt(pos) == '.') {
+                int start = ++pos;
+                while (pos < len && pos - start < 9 && isDigit(value.charAt(pos))) {
+                    nanos = nanos * 10 + (value.charAt(pos) - '0');
+                    pos++;
+                }
+                int count = pos - start;
+                if (count == 0) {
+                    return null;
+                }
+                nanos *= NANO_SCALE[count];
+            }
+        }
+
+        long localSeconds = epochDay * SECONDS_PER_DAY + hour * 3600L + minute * 60L + second;
+
+        // No offset: interpret in the supplied zone
+        if (pos == len) {
+            if (localZone instanceof ZoneOffset offset) {
+                return Timestamp.ofTimeSecondsAndNanos(localSeconds - offset.getTotalSeconds(), nanos);
+            }
+            long epochSecond = LocalDateTime.of(year, month, day, hour, minute, second)
+                    .atZone(localZone)
+                    .toEpochSecond();
+            return Timestamp.ofTimeSecondsAndNanos(epochSecond, nanos);
+        }
+
+        int offsetSeconds = parseOffset(value, pos, len);
+        if (offsetSeconds == Integer.MIN_VALUE) {
+            return null;
+        }
+        return Timestamp.ofTimeSecondsAndNanos(localSeconds - offsetSeconds, nanos);
+    }
+
+    /**
+     * Parses Z, +HH:MM or +HH:MM:SS starting at pos.
+     * Returns Integer.MIN_VALUE when the remainder is not a valid offset.
+     */
+    private static int parseOffset(String value, int pos, int len) {
+        char c = value.charAt(pos);
+        if (c == 'Z' || c == 'z') {
+            return pos + 1 == len ? 0 : Integer.MIN_VALUE;
+        }
+        if (c != '+' && c != '-') {
+            return Integer.MIN_VALUE;
+        }
+        int remaining = len - pos;
+        if ((remaining != 6 && remaining != 9) || value.charAt(pos + 3) != ':') {
+            return Integer.MIN_VALUE;
+        }
+        int hours = digits(value, pos + 1, 2);
+        int minutes = digits(value, pos + 4, 2);
+        int seconds = 0;
+        if (remaining == 9) {
+            if (value.charAt(pos + 6) != ':') {
+                return Integer.MIN_VALUE;
+            }
+            seconds = digits(value, pos + 7, 2);
+        }
+        if (hours < 0 || hours > 18 || minutes < 0 || minutes > 59 || seconds < 0 || seconds > 59) {
+            return Integer.MIN_VALUE;
+        }
+        int total = hours * 3600 + minutes * 60 + seconds;
+        return c == '-' ? -total : total;
+    }
+
+    private static boolean isEpochMillis(String value, int len) {
+        int start = value.charAt(0) == '-' ? 1 : 0;
+        if (start == len || len - start > 18) {
+            return false;
+        }
+        for (int i = start; i < len; i++) {
+            if (!isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Timestamp fromEpochMillis(String value) {
+        long epochMilli = Long.parseLong(value);
+        long seconds = Math.floorDiv(epochMilli, 1000L);
+        int nanos = (int) Math.floorMod(epochMilli, 1000L) * 1_000_000;
+        return Timestamp.ofTimeSecondsAndNanos(seconds, nanos);
+    }
+
+    /**
+     * Reads count decimal digits starting at offset, or returns -1 if any character is not a digit.
+     */
+    private static int digits(String value, int offset, int count) {
+        if (offset + count > value.length()) {
+            return -1;
+        }
+        int result = 0;
+        for (int i = offset; i < offset + count; i++) {
+            char c = value.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
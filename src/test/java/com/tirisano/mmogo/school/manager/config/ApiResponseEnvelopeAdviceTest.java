@@ -0,0 +1,83 @@
+package com.tirisano.mmogo.school.manager.config;
+
+import com.tirisano.mmogo.school.manager.dto.ApiResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ApiResponseEnvelopeAdviceTest {
+
+    private final ApiResponseEnvelopeAdvice advice = new ApiResponseEnvelopeAdvice();
+    private final MockHttpServletRequest servletRequest = new MockHttpServletRequest();
+    private final MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
+    @Test
+    void handlerWithoutPayloadAnswersNoContent() throws Exception {
+        servletRequest.addHeader(ApiResponseEnvelopeAdvice.ENVELOPE_HEADER, "none");
+
+        Object body = write(ApiResponse.success(null, "Student deleted successfully"), "delete");
+
+        assertThat(body).isNull();
+        assertThat(servletResponse.getStatus()).isEqualTo(HttpStatus.NO_CONTENT.value());
+    }
+
+    @Test
+    void handlerWithPayloadKeepsItsStatusWhenTheDataIsNull() throws Exception {
+        servletRequest.addHeader(ApiResponseEnvelopeAdvice.ENVELOPE_HEADER, "none");
+
+        write(ApiResponse.success(null, "Nothing found"), "find");
+
+        assertThat(servletResponse.getStatus()).isEqualTo(HttpStatus.OK.value());
+    }
+
+    @Test
+    void bareDataIsWrittenWithoutTheEnvelope() throws Exception {
+        servletRequest.addHeader(ApiResponseEnvelopeAdvice.ENVELOPE_HEADER, "none");
+
+        assertThat(write(ApiResponse.success(List.of("a")), "find")).isEqualTo(List.of("a"));
+        assertThat(servletResponse.getHeader(ApiResponseEnvelopeAdvice.ENVELOPE_HEADER)).isEqualTo("none");
+    }
+
+    @Test
+    void errorsAndRequestsWithoutTheHeaderKeepTheEnvelope() throws Exception {
+        ApiResponse<Void> error = ApiResponse.error("Student not found");
+        ApiResponse<Void> deleted = ApiResponse.success(null, "Student deleted successfully");
+
+        assertThat(write(deleted, "delete")).isSameAs(deleted);
+        servletRequest.addHeader(ApiResponseEnvelopeAdvice.ENVELOPE_HEADER, "none");
+        assertThat(write(error, "delete")).isSameAs(error);
+        assertThat(servletResponse.getStatus()).isEqualTo(HttpStatus.OK.value());
+    }
+
+    private Object write(ApiResponse<?> body, String handler) throws Exception {
+        MethodParameter returnType = new MethodParameter(Handlers.class.getDeclaredMethod(handler), -1);
+        ServletServerHttpResponse response = new ServletServerHttpResponse(servletResponse);
+        Object written = advice.beforeBodyWrite(body, returnType, MediaType.APPLICATION_JSON,
+                MappingJackson2HttpMessageConverter.class, new ServletServerHttpRequest(servletRequest), response);
+        response.flush();
+        return written;
+    }
+
+    @SuppressWarnings("unused")
+    private static class Handlers {
+
+        ResponseEntity<ApiResponse<Void>> delete() {
+            return null;
+        }
+
+        ResponseEntity<ApiResponse<List<String>>> find() {
+            return null;
+        }
+    }
+}
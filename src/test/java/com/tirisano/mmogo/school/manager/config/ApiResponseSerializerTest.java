@@ -0,0 +1,85 @@
+package com.tirisano.mmogo.school.manager.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.Timestamp;
+import com.tirisano.mmogo.school.manager.dto.ApiResponse;
+import com.tirisano.mmogo.school.manager.model.Student;
+import com.tirisano.mmogo.school.manager.util.TimestampCodec;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class ApiResponseSerializerTest {
+
+    private final TimestampCodec timestampCodec = spy(new TimestampCodec("Africa/Johannesburg"));
+    private final ObjectMapper objectMapper = new JacksonConfig().objectMapper(timestampCodec);
+
+    @Test
+    void responsesInTheSameMillisecondShareTheFormattedText() throws Exception {
+        // Equal but distinct instances, as a cache keyed on identity would miss
+        String first = timestampOf(Timestamp.ofTimeSecondsAndNanos(1_760_000_000L, 123_000_000));
+        String second = timestampOf(Timestamp.ofTimeSecondsAndNanos(1_760_000_000L, 123_000_000));
+
+        assertThat(first).isEqualTo("2025-10-09T08:53:20.123Z").isEqualTo(second);
+        verify(timestampCodec, times(1)).format(any());
+    }
+
+    @Test
+    void nextMillisecondIsFormattedAgain() throws Exception {
+        timestampOf(Timestamp.ofTimeSecondsAndNanos(1_760_000_000L, 123_000_000));
+
+        assertThat(timestampOf(Timestamp.ofTimeSecondsAndNanos(1_760_000_000L, 124_000_000)))
+                .isEqualTo("2025-10-09T08:53:20.124Z");
+        verify(timestampCodec, times(2)).format(any());
+    }
+
+    @Test
+    void subMillisecondTimestampsKeepTheirDigits() throws Exception {
+        timestampOf(Timestamp.ofTimeSecondsAndNanos(1_760_000_000L, 123_000_000));
+
+        assertThat(timestampOf(Timestamp.ofTimeSecondsAndNanos(1_760_000_000L, 123_456_000)))
+                .isEqualTo("2025-10-09T08:53:20.123456Z");
+    }
+
+    @Test
+    void messageAndDataAreAlwaysPresent() throws Exception {
+        JsonNode error = objectMapper.readTree(objectMapper.writeValueAsString(ApiResponse.error("Student not found")));
+        JsonNode success = objectMapper.readTree(objectMapper.writeValueAsString(ApiResponse.success(List.of())));
+
+        assertThat(error.has("data")).isTrue();
+        assertThat(error.get("data").isNull()).isTrue();
+        assertThat(success.has("message")).isTrue();
+        assertThat(success.get("message").isNull()).isTrue();
+        assertThat(success.has("stale")).isFalse();
+    }
+
+    @Test
+    void nullFieldsInsideDataAreOmitted() throws Exception {
+        Student student = Student.builder().studentId("s1").build();
+
+        JsonNode data = objectMapper.readTree(objectMapper.writeValueAsString(ApiResponse.success(student))).get("data");
+
+        assertThat(data.get("studentId").textValue()).isEqualTo("s1");
+        assertThat(data.has("rejectionReason")).isFalse();
+    }
+
+    @Test
+    void envelopeIsStampedInWholeMilliseconds() {
+        Timestamp stamped = ApiResponse.success("ok").getTimestamp();
+
+        assertThat(stamped.getNanos() % 1_000_000).isZero();
+    }
+
+    private String timestampOf(Timestamp timestamp) throws Exception {
+        ApiResponse<String> response = ApiResponse.<String>builder().success(true).timestamp(timestamp).build();
+        JsonNode json = objectMapper.readTree(objectMapper.writeValueAsString(response));
+        return json.get("timestamp").textValue();
+    }
+}
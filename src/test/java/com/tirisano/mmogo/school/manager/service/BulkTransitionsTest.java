@@ -0,0 +1,109 @@
+package com.tirisano.mmogo.school.manager.service;
+
+import com.google.api.gax.grpc.GrpcStatusCode;
+import com.google.api.gax.rpc.ApiExceptionFactory;
+import com.tirisano.mmogo.school.manager.dto.BulkItemResult;
+import com.tirisano.mmogo.school.manager.dto.BulkOperationResult;
+import com.tirisano.mmogo.school.manager.enums.BulkItemOutcome;
+import com.tirisano.mmogo.school.manager.enums.MeetingStatus;
+import com.tirisano.mmogo.school.manager.enums.StudentStatus;
+import com.tirisano.mmogo.school.manager.model.Student;
+import com.tirisano.mmogo.school.manager.repository.StudentRepository;
+import io.grpc.Status;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BulkTransitionsTest {
+
+    private static final Map<String, Object> APPROVE = Map.of("status", "APPROVED");
+
+    private final FirebaseService firebaseService = mock(FirebaseService.class);
+    private final StudentRepository studentRepository = mock(StudentRepository.class);
+    private final BulkTransitions bulkTransitions = new BulkTransitions(firebaseService);
+    private final List<FirestoreBatch> batches = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(bulkTransitions, "maxIds", 1000);
+        when(studentRepository.collection()).thenReturn("students");
+        when(firebaseService.batch()).thenAnswer(invocation -> {
+            FirestoreBatch batch = mock(FirestoreBatch.class);
+            batches.add(batch);
+            return batch;
+        });
+        when(studentRepository.findAllById(anyCollection())).thenReturn(CompletableFuture.completedFuture(Map.of(
+                "s1", pending("s1"), "s2", pending("s2"), "s3", pending("s3"))));
+    }
+
+    @Test
+    void documentDeletedSinceTheReadOnlyFailsItsOwnId() {
+        // The full batch fails on s2, and so does s2's own retry
+        when(firebaseService.commit(any()))
+                .thenReturn(CompletableFuture.failedFuture(error(Status.Code.NOT_FOUND)))
+                .thenReturn(CompletableFuture.completedFuture(null))
+                .thenReturn(CompletableFuture.failedFuture(error(Status.Code.NOT_FOUND)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        BulkOperationResult result = approve("s1", "s2", "s3");
+
+        assertThat(result.getResults()).extracting(BulkItemResult::getId, BulkItemResult::getOutcome).containsExactly(
+                tuple("s1", BulkItemOutcome.UPDATED),
+                tuple("s2", BulkItemOutcome.NOT_FOUND),
+                tuple("s3", BulkItemOutcome.UPDATED));
+        assertThat(result.getUpdated()).isEqualTo(2);
+        assertThat(result.getFailed()).isZero();
+        verify(firebaseService, times(4)).commit(any());
+    }
+
+    @Test
+    void otherBatchFailuresFailEveryIdInTheBatch() {
+        when(firebaseService.commit(any())).thenReturn(CompletableFuture.failedFuture(error(Status.Code.UNAVAILABLE)));
+
+        BulkOperationResult result = approve("s1", "s2");
+
+        assertThat(result.getResults()).extracting(BulkItemResult::getOutcome)
+                .containsOnly(BulkItemOutcome.FAILED);
+        verify(firebaseService, times(1)).commit(any());
+    }
+
+    @Test
+    void decisionIsParsedIntoEitherStatusEnum() {
+        assertThat(BulkTransitions.parseDecision(StudentStatus.class, " approved ")).isEqualTo(StudentStatus.APPROVED);
+        assertThat(BulkTransitions.parseDecision(MeetingStatus.class, "Rejected")).isEqualTo(MeetingStatus.REJECTED);
+        // PENDING exists in both enums but is not a decision
+        assertThatThrownBy(() -> BulkTransitions.parseDecision(StudentStatus.class, "PENDING"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Status must be APPROVED or REJECTED");
+        assertThatThrownBy(() -> BulkTransitions.parseDecision(MeetingStatus.class, null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private BulkOperationResult approve(String... ids) {
+        return bulkTransitions.apply(studentRepository, List.of(ids),
+                student -> student.getStatus() == StudentStatus.APPROVED, student -> null, APPROVE);
+    }
+
+    private static Student pending(String id) {
+        return Student.builder().studentId(id).status(StudentStatus.PENDING).build();
+    }
+
+    private static RuntimeException error(Status.Code code) {
+        return ApiExceptionFactory.createException(code.name(), null, GrpcStatusCode.of(code), false);
+    }
+}
@@ -0,0 +1,189 @@
+package com.tirisano.mmogo.school.manager.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CollectionGuardsTest {
+
+    private static final Duration OPEN_DURATION = Duration.ofMillis(50);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // Window of 4, opening at half failed, 2 half-open trials; payments may only have one call in flight
+    private final CollectionGuards guards = new CollectionGuards(meterRegistry, 8, List.of("payments=1"),
+            Duration.ofMillis(10), 4, 4, 0.5, OPEN_DURATION, 2);
+
+    @Test
+    void staysClosedUntilMinCallsAreSeen() {
+        CollectionGuards.Guard guard = guards.acquire("students", "get");
+        guard.record(true);
+        guard.record(true);
+        guard.record(true);
+        guard.release();
+
+        assertThat(guards.state("students")).isEqualTo(CollectionGuards.State.CLOSED);
+    }
+
+    @Test
+    void opensAtTheFailureRateThenClosesAfterSuccessfulTrials() throws InterruptedException {
+        CollectionGuards.Guard guard = guards.acquire("students", "get");
+        guard.record(false);
+        guard.record(true);
+        guard.record(false);
+        assertThat(guards.state("students")).isEqualTo(CollectionGuards.State.CLOSED);
+        guard.record(true);
+        guard.release();
+        assertThat(guards.state("students")).isEqualTo(CollectionGuards.State.OPEN);
+
+        assertRejected("students", "Circuit open for students");
+        assertThat(rejected("students", "circuit_open")).isEqualTo(1);
+
+        Thread.sleep(OPEN_DURATION.toMillis() + 20);
+        CollectionGuards.Guard first = guards.acquire("students", "get");
+        assertThat(guards.state("students")).isEqualTo(CollectionGuards.State.HALF_OPEN);
+        CollectionGuards.Guard second = guards.acquire("students", "get");
+        // Both trial slots are taken until their outcomes come in
+        assertRejected("students", "Circuit open for students");
+
+        first.record(false);
+        first.release();
+        assertThat(guards.state("students")).isEqualTo(CollectionGuards.State.HALF_OPEN);
+        second.record(false);
+        second.release();
+        assertThat(guards.state("students")).isEqualTo(CollectionGuards.State.CLOSED);
+
+        // Closing starts a fresh window: three failures are below min-calls again
+        CollectionGuards.Guard after = guards.acquire("students", "get");
+        after.record(true);
+        after.record(true);
+        after.record(true);
+        after.release();
+        assertThat(guards.state("students")).isEqualTo(CollectionGuards.State.CLOSED);
+    }
+
+    @Test
+    void failedTrialOpensAgain() throws InterruptedException {
+        trip("students");
+        Thread.sleep(OPEN_DURATION.toMillis() + 20);
+
+        CollectionGuards.Guard trial = guards.acquire("students", "get");
+        assertThat(guards.state("students")).isEqualTo(CollectionGuards.State.HALF_OPEN);
+        trial.record(true);
+        trial.release();
+
+        assertThat(guards.state("students")).isEqualTo(CollectionGuards.State.OPEN);
+        assertRejected("students", "Circuit open for students");
+    }
+
+    @Test
+    void oldOutcomesLeaveTheWindow() {
+        CollectionGuards.Guard guard = guards.acquire("students", "get");
+        guard.record(true);
+        for (int i = 0; i < 4; i++) {
+            guard.record(false);
+        }
+        // The early failure has been pushed out, so one more leaves the window at 1 of 4
+        guard.record(true);
+        guard.release();
+
+        assertThat(guards.state("students")).isEqualTo(CollectionGuards.State.CLOSED);
+    }
+
+    @Test
+    void bulkheadRejectsOnceTheLimitIsInFlight() {
+        CollectionGuards.Guard held = guards.acquire("payments", "get");
+
+        assertRejected("payments", "Too many concurrent calls on payments");
+        assertThat(rejected("payments", "bulkhead_full")).isEqualTo(1);
+        assertThat(guards.usage().get("payments")).isEqualTo(
+                new CollectionGuards.Usage(CollectionGuards.State.CLOSED, 1, 1));
+
+        held.release();
+        guards.acquire("payments", "get").release();
+    }
+
+    @Test
+    void bulkheadRejectionGivesBackTheTrialSlot() throws InterruptedException {
+        CollectionGuards.Guard held = guards.acquire("payments", "get");
+        held.record(true);
+        held.record(true);
+        held.record(true);
+        held.record(true);
+        assertThat(guards.state("payments")).isEqualTo(CollectionGuards.State.OPEN);
+        Thread.sleep(OPEN_DURATION.toMillis() + 20);
+
+        // Each of these takes a trial slot, then finds the only permit still held
+        assertRejected("payments", "Too many concurrent calls on payments");
+        assertRejected("payments", "Too many concurrent calls on payments");
+        assertRejected("payments", "Too many concurrent calls on payments");
+        assertThat(guards.state("payments")).isEqualTo(CollectionGuards.State.HALF_OPEN);
+        held.release();
+
+        // Had the rejected calls kept their slots, the breaker would now refuse every call
+        CollectionGuards.Guard trial = guards.acquire("payments", "get");
+        trial.record(false);
+        trial.release();
+        CollectionGuards.Guard last = guards.acquire("payments", "get");
+        last.record(false);
+        last.release();
+        assertThat(guards.state("payments")).isEqualTo(CollectionGuards.State.CLOSED);
+    }
+
+    @Test
+    void permitOverSeveralCollectionsGivesBackWhatItTookWhenOneRejects() {
+        CollectionGuards.Guard held = guards.acquire("payments", "get");
+
+        // "parents" sorts before "payments", so its permit is taken first and must be returned
+        assertThatThrownBy(() -> guards.acquire(List.of("payments", "parents"), "commit"))
+                .isInstanceOf(PersistenceException.class)
+                .extracting(e -> ((PersistenceException) e).getKind())
+                .isEqualTo(PersistenceException.Kind.REJECTED);
+        assertThat(guards.usage().get("parents").inFlight()).isZero();
+
+        held.release();
+        CollectionGuards.Permit permit = guards.acquire(List.of("payments", "parents"), "commit");
+        assertThat(guards.usage().get("parents").inFlight()).isEqualTo(1);
+        assertThat(guards.usage().get("payments").inFlight()).isEqualTo(1);
+        permit.release();
+        assertThat(guards.usage().get("payments").inFlight()).isZero();
+    }
+
+    @Test
+    void permitOutcomeCountsAgainstEveryCollection() {
+        CollectionGuards.Permit permit = guards.acquire(List.of("students", "uniqueKeys"), "commit");
+        for (int i = 0; i < 4; i++) {
+            permit.record(true);
+        }
+        permit.release();
+
+        assertThat(guards.state("students")).isEqualTo(CollectionGuards.State.OPEN);
+        assertThat(guards.state("uniqueKeys")).isEqualTo(CollectionGuards.State.OPEN);
+    }
+
+    private void trip(String collection) {
+        CollectionGuards.Guard guard = guards.acquire(collection, "get");
+        for (int i = 0; i < 4; i++) {
+            guard.record(true);
+        }
+        guard.release();
+        assertThat(guards.state(collection)).isEqualTo(CollectionGuards.State.OPEN);
+    }
+
+    private void assertRejected(String collection, String message) {
+        assertThatThrownBy(() -> guards.acquire(collection, "get"))
+                .isInstanceOf(PersistenceException.class)
+                .hasMessage(message)
+                .extracting(e -> ((PersistenceException) e).getKind())
+                .isEqualTo(PersistenceException.Kind.REJECTED);
+    }
+
+    private double rejected(String collection, String reason) {
+        return meterRegistry.counter("firestore.rejected", "collection", collection, "reason", reason).count();
+    }
+}
@@ -0,0 +1,273 @@
+package com.tirisano.mmogo.school.manager.service;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.api.gax.grpc.GrpcStatusCode;
+import com.google.api.gax.rpc.ApiExceptionFactory;
+import io.grpc.Status;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FirestoreResilienceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // A breaker that never opens in these tests, so only the retry budget limits attempts
+    private final CollectionGuards guards = new CollectionGuards(meterRegistry, 8, List.of(),
+            Duration.ofMillis(10), 1000, 1000, 1.0, Duration.ofSeconds(10), 1);
+
+    // Up to 5 attempts, a burst of 2 retries, and half a token back per success
+    private final FirestoreResilience resilience = new FirestoreResilience(
+            new FirestoreMetrics(meterRegistry, new StaticListableBeanFactory().getBeanProvider(Tracer.class)),
+            guards, meterRegistry, Duration.ofMillis(1), Duration.ofSeconds(5), 4, 50, 5,
+            Duration.ofMillis(1), Duration.ofMillis(1), 0.5, 2, false, Duration.ofMillis(20));
+
+    // For instances built by resilience(...), so their budget gauge is not the one registered above
+    private final SimpleMeterRegistry tunedRegistry = new SimpleMeterRegistry();
+
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    @Test
+    void retriesStopOnceTheBudgetIsSpent() {
+        // The burst covers two retries; the third is throttled
+        assertFailsAfter(3, FirestoreResilience.Call.READ, failing(Status.Code.UNAVAILABLE));
+        assertThat(budget()).isZero();
+        assertThat(throttled()).isEqualTo(1);
+        assertThat(retries()).isEqualTo(2);
+
+        // With nothing left, the next failing call gets a single attempt
+        attempts.set(0);
+        assertFailsAfter(1, FirestoreResilience.Call.READ, failing(Status.Code.UNAVAILABLE));
+        assertThat(throttled()).isEqualTo(2);
+    }
+
+    @Test
+    void successesRefillTheBudget() {
+        assertFailsAfter(3, FirestoreResilience.Call.READ, failing(Status.Code.UNAVAILABLE));
+
+        assertThat(resilience.call("students", "get", FirestoreResilience.Call.READ, () -> ApiFutures.immediateFuture("ok")))
+                .isEqualTo("ok");
+        assertThat(budget()).isEqualTo(0.5);
+        resilience.call("students", "get", FirestoreResilience.Call.READ, () -> ApiFutures.immediateFuture("ok"));
+        assertThat(budget()).isEqualTo(1.0);
+
+        // One token buys one retry
+        attempts.set(0);
+        assertFailsAfter(2, FirestoreResilience.Call.READ, failing(Status.Code.UNAVAILABLE));
+        assertThat(budget()).isZero();
+    }
+
+    @Test
+    void budgetIsCappedAtTheBurst() {
+        for (int i = 0; i < 10; i++) {
+            resilience.call("students", "get", FirestoreResilience.Call.READ, () -> ApiFutures.immediateFuture("ok"));
+        }
+
+        assertThat(budget()).isEqualTo(2.0);
+    }
+
+    @Test
+    void retryThatSucceedsSpendsOneToken() {
+        Supplier<ApiFuture<String>> flaky = () -> attempts.incrementAndGet() == 1
+                ? ApiFutures.immediateFailedFuture(error(Status.Code.UNAVAILABLE))
+                : ApiFutures.immediateFuture("ok");
+
+        assertThat(resilience.call("students", "get", FirestoreResilience.Call.IDEMPOTENT_WRITE, flaky)).isEqualTo("ok");
+        assertThat(attempts).hasValue(2);
+        // One spent on the retry, half of one earned by its success
+        assertThat(budget()).isEqualTo(1.5);
+    }
+
+    @Test
+    void unrepeatableWritesAndNonTransientErrorsSpendNothing() {
+        assertFailsAfter(1, FirestoreResilience.Call.WRITE, failing(Status.Code.UNAVAILABLE));
+        attempts.set(0);
+        assertFailsAfter(1, FirestoreResilience.Call.READ, failing(Status.Code.ALREADY_EXISTS));
+
+        assertThat(budget()).isEqualTo(2.0);
+        assertThat(throttled()).isZero();
+    }
+
+    @Test
+    void coldWindowGetsTheCeiling() {
+        FirestoreResilience cold = resilience(Duration.ofMillis(30), Duration.ofMillis(300), 4, false);
+
+        assertThat(timedOutAfterMillis(cold, FirestoreResilience.Call.READ)).isBetween(300L, 1000L);
+    }
+
+    @Test
+    void fastCallsAreClampedToTheFloor() {
+        FirestoreResilience fast = resilience(Duration.ofMillis(30), Duration.ofMillis(600), 4, false);
+        warm(fast, "get", 0);
+
+        // A p99 of microseconds times 4 is far below the floor
+        assertThat(timedOutAfterMillis(fast, FirestoreResilience.Call.READ)).isBetween(30L, 400L);
+    }
+
+    @Test
+    void budgetIsTheP99TimesTheMultiplier() {
+        FirestoreResilience scaled = resilience(Duration.ofMillis(10), Duration.ofSeconds(5), 4, false);
+        warm(scaled, "get", 25);
+
+        // At least 4 x 25ms, and nowhere near the ceiling
+        assertThat(timedOutAfterMillis(scaled, FirestoreResilience.Call.READ)).isBetween(100L, 2000L);
+    }
+
+    @Test
+    void slowCallsAreClampedToTheCeiling() {
+        FirestoreResilience slow = resilience(Duration.ofMillis(10), Duration.ofMillis(300), 100, false);
+        warm(slow, "get", 10);
+
+        // 100 x at least 10ms would be over a second
+        assertThat(timedOutAfterMillis(slow, FirestoreResilience.Call.READ)).isBetween(300L, 900L);
+    }
+
+    @Test
+    void unrepeatableWriteWaitsTheFullCeilingWhateverTheWindow() {
+        FirestoreResilience fast = resilience(Duration.ofMillis(30), Duration.ofMillis(400), 4, false);
+        warm(fast, "get", 0);
+
+        // The same warm window cuts a read off at the floor, but a commit that may have landed is waited on
+        assertThat(timedOutAfterMillis(fast, FirestoreResilience.Call.READ)).isLessThan(300L);
+        assertThat(timedOutAfterMillis(fast, FirestoreResilience.Call.WRITE)).isGreaterThanOrEqualTo(400L);
+    }
+
+    @Test
+    void slowReadIsHedgedAndTheFirstResponseWins() {
+        FirestoreResilience hedging = resilience(Duration.ofMillis(500), Duration.ofSeconds(2), 4, true);
+        warm(hedging, "get", 0);
+        SettableApiFuture<String> primary = SettableApiFuture.create();
+
+        String result = hedging.call("students", "get", FirestoreResilience.Call.READ,
+                () -> attempts.incrementAndGet() == 1 ? primary : ApiFutures.immediateFuture("hedge"));
+
+        assertThat(result).isEqualTo("hedge");
+        assertThat(attempts).hasValue(2);
+        assertThat(primary.isCancelled()).isTrue();
+        assertThat(hedges("hedge")).isEqualTo(1);
+        // The hedge was paid for from the retry budget
+        assertThat(tunedRegistry.get("firestore.retry.budget").gauge().value()).isLessThan(2.0);
+    }
+
+    @Test
+    void readAnsweredBeforeTheHedgeDelayIsNotDuplicated() {
+        FirestoreResilience hedging = resilience(Duration.ofMillis(500), Duration.ofSeconds(2), 4, true);
+        warm(hedging, "get", 0);
+
+        // The hedge delay is at least the 20ms minimum
+        assertThat(hedging.call("students", "get", FirestoreResilience.Call.READ, () -> {
+            attempts.incrementAndGet();
+            return completeAfter(5);
+        })).isEqualTo("ok");
+        assertThat(attempts).hasValue(1);
+        assertThat(hedges("hedge") + hedges("primary")).isZero();
+    }
+
+    @Test
+    void readsAreNotHedgedUntilTheWindowIsWarm() {
+        FirestoreResilience hedging = resilience(Duration.ofMillis(500), Duration.ofSeconds(2), 4, true);
+
+        assertThat(hedging.call("students", "get", FirestoreResilience.Call.READ, () -> {
+            attempts.incrementAndGet();
+            return completeAfter(60);
+        })).isEqualTo("ok");
+        assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    void writesAreNeverHedged() {
+        FirestoreResilience hedging = resilience(Duration.ofMillis(500), Duration.ofSeconds(2), 4, true);
+        warm(hedging, "get", 0);
+
+        assertThat(hedging.call("students", "get", FirestoreResilience.Call.IDEMPOTENT_WRITE, () -> {
+            attempts.incrementAndGet();
+            return completeAfter(60);
+        })).isEqualTo("ok");
+        assertThat(attempts).hasValue(1);
+    }
+
+    /**
+     * Single attempts, and a window warm after 16 samples
+     */
+    private FirestoreResilience resilience(Duration floor, Duration ceiling, double multiplier, boolean hedging) {
+        return new FirestoreResilience(
+                new FirestoreMetrics(tunedRegistry, new StaticListableBeanFactory().getBeanProvider(Tracer.class)),
+                guards, tunedRegistry, floor, ceiling, multiplier, 16, 1,
+                Duration.ofMillis(1), Duration.ofMillis(1), 0.5, 2, hedging, Duration.ofMillis(20));
+    }
+
+    private static void warm(FirestoreResilience resilience, String operation, long latencyMillis) {
+        for (int i = 0; i < 16; i++) {
+            resilience.call("students", operation, FirestoreResilience.Call.READ,
+                    () -> latencyMillis == 0 ? ApiFutures.immediateFuture("ok") : completeAfter(latencyMillis));
+        }
+    }
+
+    private static long timedOutAfterMillis(FirestoreResilience resilience, FirestoreResilience.Call call) {
+        SettableApiFuture<String> never = SettableApiFuture.create();
+        long started = System.nanoTime();
+        assertThatThrownBy(() -> resilience.call("students", "get", call, () -> never))
+                .isInstanceOf(PersistenceException.class)
+                .extracting(e -> ((PersistenceException) e).getKind())
+                .isEqualTo(PersistenceException.Kind.TIMEOUT);
+        // The abandoned RPC is cancelled rather than left to run
+        assertThat(never.isCancelled()).isTrue();
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+    }
+
+    private static ApiFuture<String> completeAfter(long millis) {
+        SettableApiFuture<String> future = SettableApiFuture.create();
+        CompletableFuture.delayedExecutor(millis, TimeUnit.MILLISECONDS).execute(() -> future.set("ok"));
+        return future;
+    }
+
+    private double hedges(String winner) {
+        return tunedRegistry.counter("firestore.hedges", "collection", "students", "operation", "get",
+                "winner", winner).count();
+    }
+
+    private void assertFailsAfter(int expectedAttempts, FirestoreResilience.Call call, Supplier<ApiFuture<String>> rpc) {
+        assertThatThrownBy(() -> resilience.call("students", "get", call, rpc))
+                .isInstanceOf(PersistenceException.class)
+                .extracting(e -> ((PersistenceException) e).getAttempts())
+                .isEqualTo(expectedAttempts);
+        assertThat(attempts).hasValue(expectedAttempts);
+    }
+
+    private Supplier<ApiFuture<String>> failing(Status.Code code) {
+        return () -> {
+            attempts.incrementAndGet();
+            return ApiFutures.immediateFailedFuture(error(code));
+        };
+    }
+
+    private double budget() {
+        return meterRegistry.get("firestore.retry.budget").gauge().value();
+    }
+
+    private double throttled() {
+        return meterRegistry.counter("firestore.retries.throttled", "collection", "students", "operation", "get").count();
+    }
+
+    private double retries() {
+        return meterRegistry.counter("firestore.retries", "collection", "students", "operation", "get",
+                "reason", "unavailable").count();
+    }
+
+    private static RuntimeException error(Status.Code code) {
+        return ApiExceptionFactory.createException(code.name(), null, GrpcStatusCode.of(code), false);
+    }
+}
@@ -0,0 +1,202 @@
+package com.tirisano.mmogo.school.manager.service;
+
+import com.google.api.gax.grpc.GrpcStatusCode;
+import com.google.api.gax.rpc.ApiExceptionFactory;
+import com.google.cloud.Timestamp;
+import com.tirisano.mmogo.school.manager.util.Hashes;
+import io.grpc.Status;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotencyServiceTest {
+
+    private static final String DOCUMENT_ID = Hashes.sha256Hex("payments.mock\nkey-1");
+
+    private final FirebaseService firebaseService = mock(FirebaseService.class);
+    private final IdempotencyService idempotency = new IdempotencyService(firebaseService, 100, Duration.ofHours(24));
+    private final List<FirestoreBatch> batches = new ArrayList<>();
+    private final AtomicInteger executions = new AtomicInteger();
+    private final Map<String, String> stored = new ConcurrentHashMap<>(Map.of("r1", "payment r1"));
+
+    @BeforeEach
+    void setUp() {
+        when(firebaseService.batch()).thenAnswer(invocation -> {
+            FirestoreBatch batch = mock(FirestoreBatch.class);
+            batches.add(batch);
+            return batch;
+        });
+        when(firebaseService.commit(any())).thenReturn(CompletableFuture.completedFuture(null));
+        keyDocument(null);
+    }
+
+    @Test
+    void firstUseRunsTheOperationAndCreatesTheKeyInItsBatch() {
+        assertThat(execute("body", "r1")).isEqualTo("payment r1");
+
+        assertThat(executions).hasValue(1);
+        verify(batches.get(0)).create(eq(IdempotencyService.COLLECTION), eq(DOCUMENT_ID), anyMap());
+        verify(firebaseService).commit(batches.get(0));
+    }
+
+    @Test
+    void retryOnThisInstanceIsReplayedFromMemory() {
+        execute("body", "r1");
+
+        assertThat(execute("body", "r2")).isEqualTo("payment r1");
+        assertThat(executions).hasValue(1);
+        verify(firebaseService, times(1)).findVersionedById(IdempotencyService.COLLECTION, DOCUMENT_ID);
+    }
+
+    @Test
+    void retryOnAnotherInstanceIsReplayedFromTheKeyDocument() {
+        keyDocument(record("r1", "body", Duration.ofHours(1)));
+
+        assertThat(execute("body", "r2")).isEqualTo("payment r1");
+        assertThat(executions).hasValue(0);
+        verify(firebaseService, never()).commit(any());
+    }
+
+    @Test
+    void keyReusedForADifferentBodyIsRejected() {
+        keyDocument(record("r1", "body", Duration.ofHours(1)));
+
+        assertThatThrownBy(() -> execute("other body", "r2"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Idempotency-Key has already been used for a different request");
+    }
+
+    @Test
+    void replayOfADeletedResultFails() {
+        keyDocument(record("gone", "body", Duration.ofHours(1)));
+
+        assertThatThrownBy(() -> execute("body", "r2"))
+                .isInstanceOf(IdempotencyService.ResultGoneException.class)
+                .hasMessageContaining("gone");
+        assertThat(executions).hasValue(0);
+    }
+
+    @Test
+    void concurrentRequestWithTheSameKeyWaitsForTheFirst() throws Exception {
+        CountDownLatch staging = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> idempotency.execute("payments.mock", "key-1",
+                "body", batch -> {
+                    executions.incrementAndGet();
+                    staging.countDown();
+                    await(release);
+                    return "r1";
+                }, Function.identity(), this::load));
+        assertThat(staging.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> execute("body", "r2"));
+        Thread.sleep(50);
+        assertThat(second).isNotDone();
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("r1");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("payment r1");
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void concurrentRequestOnAnotherInstanceThatCommitsFirstWins() {
+        // Both read no key; the other instance's create commits first and this batch is discarded
+        when(firebaseService.commit(any())).thenReturn(CompletableFuture.failedFuture(error(Status.Code.ALREADY_EXISTS)));
+        when(firebaseService.findVersionedById(IdempotencyService.COLLECTION, DOCUMENT_ID))
+                .thenReturn(CompletableFuture.completedFuture(null))
+                .thenReturn(CompletableFuture.completedFuture(record("r1", "body", Duration.ofHours(1))));
+
+        assertThat(execute("body", "r2")).isEqualTo("payment r1");
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void expiredKeyIsReclaimedOnlyIfUnchanged() {
+        FirebaseService.Versioned expired = record("old", "old body", Duration.ofHours(-1));
+        keyDocument(expired);
+
+        assertThat(execute("body", "r1")).isEqualTo("payment r1");
+
+        verify(batches.get(0)).updateIfUnchanged(eq(IdempotencyService.COLLECTION), eq(DOCUMENT_ID), anyMap(),
+                eq(expired.updateTime()));
+        verify(batches.get(0), never()).create(any(), any(), anyMap());
+    }
+
+    @Test
+    void expiredKeyReclaimedByAnotherRequestFirstIsReplayed() {
+        when(firebaseService.commit(any())).thenReturn(CompletableFuture.failedFuture(error(Status.Code.FAILED_PRECONDITION)));
+        when(firebaseService.findVersionedById(IdempotencyService.COLLECTION, DOCUMENT_ID))
+                .thenReturn(CompletableFuture.completedFuture(record("old", "old body", Duration.ofHours(-1))))
+                .thenReturn(CompletableFuture.completedFuture(record("r1", "body", Duration.ofHours(24))));
+
+        assertThat(execute("body", "r2")).isEqualTo("payment r1");
+    }
+
+    @Test
+    void failedCommitForAnotherReasonIsNotReplayed() {
+        when(firebaseService.commit(any())).thenReturn(CompletableFuture.failedFuture(error(Status.Code.UNAVAILABLE)));
+
+        assertThatThrownBy(() -> execute("body", "r1")).hasRootCauseMessage("UNAVAILABLE");
+        // Nothing was recorded, so the retry runs the operation again
+        when(firebaseService.commit(any())).thenReturn(CompletableFuture.completedFuture(null));
+        assertThat(execute("body", "r1")).isEqualTo("payment r1");
+        assertThat(executions).hasValue(2);
+    }
+
+    private String execute(String body, String newResultId) {
+        return idempotency.execute("payments.mock", "key-1", body, batch -> {
+            executions.incrementAndGet();
+            stored.put(newResultId, "payment " + newResultId);
+            return "payment " + newResultId;
+        }, result -> result.substring("payment ".length()), this::load);
+    }
+
+    private String load(String resultId) {
+        return stored.get(resultId);
+    }
+
+    private void keyDocument(FirebaseService.Versioned document) {
+        when(firebaseService.findVersionedById(IdempotencyService.COLLECTION, DOCUMENT_ID))
+                .thenReturn(CompletableFuture.completedFuture(document));
+    }
+
+    private static FirebaseService.Versioned record(String resultId, String body, Duration expiresIn) {
+        Timestamp expiresAt = Timestamp.ofTimeMicroseconds((System.currentTimeMillis() + expiresIn.toMillis()) * 1000);
+        return new FirebaseService.Versioned(Map.of("resultId", resultId, "requestHash", Hashes.sha256Hex(body),
+                "expiresAt", expiresAt), Timestamp.ofTimeMicroseconds(1_000_000));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static RuntimeException error(Status.Code code) {
+        return ApiExceptionFactory.createException(code.name(), null, GrpcStatusCode.of(code), false);
+    }
+}
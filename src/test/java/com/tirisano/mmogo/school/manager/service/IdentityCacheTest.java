@@ -0,0 +1,69 @@
+package com.tirisano.mmogo.school.manager.service;
+
+import com.tirisano.mmogo.school.manager.model.Parent;
+import com.tirisano.mmogo.school.manager.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdentityCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final IdentityCache cache = new IdentityCache(100, Duration.ofMinutes(5), now::get);
+
+    @Test
+    void emailIsMatchedIgnoringCaseAndSurroundingSpace() {
+        cache.putUser(user("u1", " Thabo@Example.com "));
+
+        assertThat(cache.findUserByEmail("thabo@example.com")).map(User::getUid).contains("u1");
+        assertThat(cache.findUserByEmail("THABO@EXAMPLE.COM  ")).map(User::getUid).contains("u1");
+    }
+
+    @Test
+    void entriesExpireAfterTheTtl() {
+        cache.putUser(user("u1", "thabo@example.com"));
+        cache.putParent(Parent.builder().uid("u1").parentId("p1").build());
+
+        now.addAndGet(Duration.ofMinutes(5).toNanos() - 1);
+        assertThat(cache.findUserByEmail("thabo@example.com")).isPresent();
+        assertThat(cache.findParentIdByUid("u1")).contains("p1");
+
+        now.incrementAndGet();
+        assertThat(cache.findUserByEmail("thabo@example.com")).isEmpty();
+        assertThat(cache.findParentIdByUid("u1")).isEmpty();
+    }
+
+    @Test
+    void rewritingAnEntryRestartsItsTtl() {
+        cache.putUser(user("u1", "thabo@example.com"));
+        now.addAndGet(Duration.ofMinutes(4).toNanos());
+        cache.putUser(user("u1", "thabo@example.com"));
+        now.addAndGet(Duration.ofMinutes(4).toNanos());
+
+        assertThat(cache.findUserByEmail("thabo@example.com")).isPresent();
+    }
+
+    @Test
+    void changedEmailNoLongerResolvesTheOldOneInAnyCase() {
+        cache.putUser(user("u1", "Old@Example.com"));
+        cache.putUser(user("u1", "new@example.com"));
+
+        assertThat(cache.findUserByEmail("old@example.com")).isEmpty();
+        assertThat(cache.findUserByEmail("New@Example.com")).map(User::getUid).contains("u1");
+    }
+
+    @Test
+    void blankEmailIsNeverIndexed() {
+        cache.putUser(user("u1", "  "));
+
+        assertThat(cache.findUserByEmail("  ")).isEmpty();
+        assertThat(cache.findUserByEmail(null)).isEmpty();
+    }
+
+    private static User user(String uid, String email) {
+        return User.builder().uid(uid).email(email).build();
+    }
+}
@@ -0,0 +1,196 @@
+package com.tirisano.mmogo.school.manager.service;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.FieldValue;
+import com.tirisano.mmogo.school.manager.enums.PaymentStatus;
+import com.tirisano.mmogo.school.manager.model.Payment;
+import com.tirisano.mmogo.school.manager.repository.PaymentRepository;
+import com.tirisano.mmogo.school.manager.util.TimestampCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PaymentLedgerTest {
+
+    // 2026-03-14 22:30 UTC is already the 15th in Johannesburg
+    private static final Timestamp PAID_AT = Timestamp.ofTimeSecondsAndNanos(
+            Instant.parse("2026-03-14T22:30:00Z").getEpochSecond(), 0);
+
+    private final FirebaseService firebaseService = mock(FirebaseService.class);
+    private final PaymentRepository paymentRepository = mock(PaymentRepository.class);
+    private final PaymentLedger ledger = new PaymentLedger(firebaseService, paymentRepository,
+            new TimestampCodec("Africa/Johannesburg"));
+
+    // Ledger documents as the staged merges would leave them, and the last merge staged per document
+    private final Map<String, Map<String, Long>> applied = new TreeMap<>();
+    private final Map<String, Map<String, Object>> merged = new HashMap<>();
+    private final FirestoreBatch batch = mock(FirestoreBatch.class);
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        doAnswer(invocation -> {
+            String key = invocation.getArgument(1);
+            Map<String, Object> fields = invocation.getArgument(2);
+            merged.put(key, fields);
+            Map<String, Long> document = applied.computeIfAbsent(key, k -> new TreeMap<>());
+            fields.forEach((field, value) -> {
+                if (value instanceof Map<?, ?> byMethod) {
+                    byMethod.forEach((method, increment) -> document.merge(
+                            field + "." + method, operand((FieldValue) increment), Long::sum));
+                } else if (!field.equals("key") && !field.equals("updatedAt")) {
+                    document.merge(field, operand((FieldValue) value), Long::sum);
+                }
+            });
+            return batch;
+        }).when(batch).merge(eq(PaymentLedger.COLLECTION), anyString(), anyMap());
+    }
+
+    @Test
+    void createAddsToEveryRollup() {
+        ledger.stage(batch, null, completed("pay1", "150.00"));
+
+        assertThat(merged).containsOnlyKeys("trip_t1", "parent_p1", "day_2026-03-15", "month_2026-03");
+        assertThat(merged.get("trip_t1"))
+                .containsEntry("collectedCents", FieldValue.increment(15000L))
+                .containsEntry("completedCount", FieldValue.increment(1L))
+                .doesNotContainKey("outstandingCents");
+        assertThat(merged.get("day_2026-03-15"))
+                .containsEntry("collectedCentsByMethod", Map.of("Card", FieldValue.increment(15000L)));
+    }
+
+    @Test
+    void amountChangeStagesOnlyTheDifference() {
+        Payment before = completed("pay1", "150.00");
+        Payment after = before.toBuilder().amount(new BigDecimal("199.99")).build();
+
+        ledger.stage(batch, before, after);
+
+        // The count is unchanged, so it is not written at all
+        assertThat(merged.get("trip_t1"))
+                .containsEntry("collectedCents", FieldValue.increment(4999L))
+                .doesNotContainKey("completedCount");
+        assertThat(merged.get("month_2026-03"))
+                .containsEntry("collectedCentsByMethod", Map.of("Card", FieldValue.increment(4999L)));
+    }
+
+    @Test
+    void completingAPendingPaymentMovesItFromOutstandingToCollected() {
+        Payment pending = payment("pay1", "80.00", PaymentStatus.PENDING).paidAt(null).build();
+        Payment completed = pending.toBuilder().status(PaymentStatus.COMPLETED).paidAt(PAID_AT).build();
+
+        ledger.stage(batch, pending, completed);
+
+        assertThat(merged.get("parent_p1"))
+                .containsEntry("outstandingCents", FieldValue.increment(-8000L))
+                .containsEntry("pendingCount", FieldValue.increment(-1L))
+                .containsEntry("collectedCents", FieldValue.increment(8000L))
+                .containsEntry("completedCount", FieldValue.increment(1L));
+        // Only completed payments count towards a day
+        assertThat(merged.get("day_2026-03-15")).containsEntry("collectedCents", FieldValue.increment(8000L));
+    }
+
+    @Test
+    void deleteSubtractsWhatCreateAdded() {
+        Payment payment = completed("pay1", "150.00");
+        ledger.stage(batch, null, payment);
+        ledger.stage(batch, payment, null);
+
+        assertThat(merged.get("trip_t1")).containsEntry("collectedCents", FieldValue.increment(-15000L));
+        assertThat(applied.values()).allSatisfy(document -> assertThat(document.values()).containsOnly(0L));
+    }
+
+    @Test
+    void failedPaymentsAreNotCounted() {
+        ledger.stage(batch, null, payment("pay1", "50.00", PaymentStatus.FAILED).build());
+
+        verify(batch, never()).merge(any(), any(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void rebuildMatchesTheIncrementalTotals() {
+        Payment first = completed("pay1", "150.00");
+        Payment second = payment("pay2", "80.00", PaymentStatus.PENDING).paidAt(null).build();
+        Payment third = payment("pay3", "20.50", PaymentStatus.COMPLETED).tripId("t2").paymentMethod("Cash").build();
+        Payment removed = payment("pay4", "999.00", PaymentStatus.COMPLETED).parentId("p2").build();
+        ledger.stage(batch, null, first);
+        ledger.stage(batch, null, second);
+        ledger.stage(batch, null, third);
+        ledger.stage(batch, null, removed);
+        Payment firstRaised = first.toBuilder().amount(new BigDecimal("175.25")).build();
+        ledger.stage(batch, first, firstRaised);
+        Payment secondPaid = second.toBuilder().status(PaymentStatus.COMPLETED).paidAt(PAID_AT).build();
+        ledger.stage(batch, second, secondPaid);
+        ledger.stage(batch, removed, null);
+
+        FirestoreBatch rebuildBatch = mock(FirestoreBatch.class);
+        Map<String, Map<String, Long>> rebuilt = new TreeMap<>();
+        doAnswer(invocation -> {
+            Map<String, Object> fields = invocation.getArgument(1);
+            Map<String, Long> document = new TreeMap<>();
+            fields.forEach((field, value) -> {
+                if (value instanceof Map<?, ?> byMethod) {
+                    byMethod.forEach((method, cents) -> document.put(field + "." + method, (Long) cents));
+                } else if (value instanceof Long cents) {
+                    document.put(field, cents);
+                }
+            });
+            rebuilt.put(invocation.getArgument(2), document);
+            return rebuildBatch;
+        }).when(rebuildBatch).save(eq(PaymentLedger.COLLECTION), any(), anyString());
+        when(firebaseService.batch()).thenReturn(rebuildBatch);
+        when(firebaseService.commit(rebuildBatch)).thenReturn(CompletableFuture.completedFuture(null));
+        when(paymentRepository.findAll()).thenReturn(CompletableFuture.completedFuture(
+                List.of(firstRaised, secondPaid, third)));
+        when(firebaseService.findAll(PaymentLedger.COLLECTION, Map.class)).thenReturn(CompletableFuture.completedFuture(
+                List.of(Map.of("key", "trip_t1"), Map.of("key", "parent_p2"))));
+
+        assertThat(ledger.rebuild()).containsEntry("payments", 3).containsEntry("documentsRemoved", 1);
+
+        // Increments leave zeroed fields and documents behind; the rebuild writes only what is non-zero
+        applied.values().forEach(document -> document.values().removeIf(value -> value == 0));
+        applied.values().removeIf(Map::isEmpty);
+        assertThat(rebuilt).isEqualTo(applied);
+        verify(rebuildBatch).delete(PaymentLedger.COLLECTION, "parent_p2");
+    }
+
+    private static Payment completed(String id, String amount) {
+        return payment(id, amount, PaymentStatus.COMPLETED).build();
+    }
+
+    private static Payment.PaymentBuilder payment(String id, String amount, PaymentStatus status) {
+        return Payment.builder().paymentId(id).tripId("t1").parentId("p1").studentId("s1")
+                .amount(new BigDecimal(amount)).status(status).paymentMethod("Card").paidAt(PAID_AT);
+    }
+
+    // FieldValue.increment hides its operand
+    private static long operand(FieldValue increment) {
+        try {
+            Field operand = increment.getClass().getDeclaredField("operand");
+            operand.setAccessible(true);
+            return ((Number) operand.get(increment)).longValue();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
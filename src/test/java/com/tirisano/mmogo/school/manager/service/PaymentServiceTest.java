@@ -0,0 +1,98 @@
+package com.tirisano.mmogo.school.manager.service;
+
+import com.tirisano.mmogo.school.manager.enums.PaymentStatus;
+import com.tirisano.mmogo.school.manager.model.Payment;
+import com.tirisano.mmogo.school.manager.repository.PaymentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class PaymentServiceTest {
+
+    private final PaymentRepository paymentRepository = mock(PaymentRepository.class);
+    private final PaymentLedger paymentLedger = mock(PaymentLedger.class);
+    private final FirebaseService firebaseService = mock(FirebaseService.class);
+    private final FirestoreTransaction transaction = mock(FirestoreTransaction.class);
+    private final FirestoreBatch writes = mock(FirestoreBatch.class);
+
+    private final PaymentService paymentService = new PaymentService(paymentRepository, paymentLedger,
+            firebaseService, mock(IdempotencyService.class));
+
+    private final Payment stored = Payment.builder().paymentId("pay1").tripId("t1").parentId("p1")
+            .amount(new BigDecimal("80.00")).status(PaymentStatus.PENDING).build();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(paymentRepository.collection()).thenReturn("payments");
+        when(transaction.writes()).thenReturn(writes);
+        when(transaction.get("payments", "pay1", Payment.class)).thenReturn(stored);
+        when(firebaseService.transaction(eq("payments"), any())).thenAnswer(invocation ->
+                CompletableFuture.completedFuture(
+                        ((Function<FirestoreTransaction, Object>) invocation.getArgument(1)).apply(transaction)));
+        when(firebaseService.batch()).thenReturn(writes);
+        when(firebaseService.commit(writes)).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    void createStagesTheLedgerInTheSameBatch() {
+        Payment payment = Payment.builder().tripId("t1").amount(new BigDecimal("150.00")).build();
+
+        paymentService.createMockPayment(payment);
+
+        verify(paymentRepository).save(writes, payment);
+        verify(paymentLedger).stage(writes, null, payment);
+        assertThat(payment.getStatus()).isEqualTo(PaymentStatus.COMPLETED);
+    }
+
+    @Test
+    void statusChangeStagesTheDeltaFromTheTransactionalRead() {
+        Payment updated = paymentService.updatePaymentStatus("pay1", PaymentStatus.COMPLETED);
+
+        ArgumentCaptor<Payment> before = ArgumentCaptor.forClass(Payment.class);
+        verify(paymentLedger).stage(eq(writes), before.capture(), eq(updated));
+        assertThat(before.getValue().getStatus()).isEqualTo(PaymentStatus.PENDING);
+        assertThat(updated.getStatus()).isEqualTo(PaymentStatus.COMPLETED);
+        assertThat(updated.getPaidAt()).isNotNull();
+    }
+
+    @Test
+    void updateStagesTheDeltaBetweenStoredAndNewPayment() {
+        Payment changed = stored.toBuilder().amount(new BigDecimal("95.00")).build();
+
+        paymentService.updatePayment("pay1", changed);
+
+        verify(paymentRepository).save(writes, changed, "pay1");
+        verify(paymentLedger).stage(writes, stored, changed);
+    }
+
+    @Test
+    void deleteSubtractsTheStoredPayment() {
+        paymentService.deletePayment("pay1");
+
+        verify(paymentRepository).deleteById(writes, "pay1");
+        verify(paymentLedger).stage(writes, stored, null);
+    }
+
+    @Test
+    void missingPaymentStagesNothing() {
+        when(transaction.get("payments", "pay1", Payment.class)).thenReturn(null);
+
+        assertThatThrownBy(() -> paymentService.deletePayment("pay1"))
+                .hasMessageContaining("Payment not found with ID: pay1");
+        verifyNoInteractions(paymentLedger);
+    }
+}
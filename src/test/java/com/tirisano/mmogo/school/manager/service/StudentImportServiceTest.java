@@ -0,0 +1,288 @@
+package com.tirisano.mmogo.school.manager.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.api.gax.grpc.GrpcStatusCode;
+import com.google.api.gax.rpc.ApiExceptionFactory;
+import com.tirisano.mmogo.school.manager.config.JacksonConfig;
+import com.tirisano.mmogo.school.manager.dto.BulkImportReport;
+import com.tirisano.mmogo.school.manager.dto.ImportRowResult;
+import com.tirisano.mmogo.school.manager.enums.ImportRowStatus;
+import com.tirisano.mmogo.school.manager.enums.StudentStatus;
+import com.tirisano.mmogo.school.manager.model.Student;
+import com.tirisano.mmogo.school.manager.repository.StudentRepository;
+import com.tirisano.mmogo.school.manager.util.TimestampCodec;
+import io.grpc.Status;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StudentImportServiceTest {
+
+    private static final String CSV = "text/csv";
+    private static final String HEADER = "name,surname,dateOfBirth,birthCertificateId,nationality,grade\n";
+
+    private final StudentRepository studentRepository = mock(StudentRepository.class);
+    private final FirebaseService firebaseService = mock(FirebaseService.class);
+    private final UniqueKeys uniqueKeys = mock(UniqueKeys.class);
+    private final AtomicInteger ids = new AtomicInteger();
+
+    private StudentImportService service;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new JacksonConfig().objectMapper(new TimestampCodec("Africa/Johannesburg"));
+        Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+        service = new StudentImportService(studentRepository, firebaseService, uniqueKeys, objectMapper, validator);
+        ReflectionTestUtils.setField(service, "maxRows", 10);
+
+        when(firebaseService.batch()).thenAnswer(invocation -> mock(FirestoreBatch.class));
+        when(studentRepository.save(any(FirestoreBatch.class), any(Student.class))).thenAnswer(invocation -> {
+            String id = "student-" + ids.incrementAndGet();
+            invocation.<Student>getArgument(1).setStudentId(id);
+            return id;
+        });
+        when(firebaseService.findExistingIds(eq(UniqueKeys.COLLECTION), anySet()))
+                .thenReturn(CompletableFuture.completedFuture(Set.of()));
+        when(firebaseService.commit(any())).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    void everyRowGetsItsOwnOutcome() {
+        when(firebaseService.findExistingIds(eq(UniqueKeys.COLLECTION), anySet()))
+                .thenReturn(CompletableFuture.completedFuture(Set.of(reservation("EXISTING-1"))));
+
+        BulkImportReport report = importCsv(HEADER
+                + "Thabo,Mokoena,2015-03-04,AB-1001,South African,3\n"
+                + ",Dlamini,2015-05-06,AB-1002,South African,3\n"
+                + "Lerato,Mokoena,2015-03-04,ab 1001,South African,3\n"
+                + "Neo,Khumalo,2014-01-02,existing-1,South African,4\n"
+                + "Too,Few,Fields\n"
+                + "Kea,Molefe,not-a-date,AB-1003,South African,2\n"
+                + "Naledi,Sithole,2016-07-08,AB-1004,South African,1\n");
+
+        assertThat(report.getRows()).extracting(ImportRowResult::getRow, ImportRowResult::getStatus).containsExactly(
+                tuple(1, ImportRowStatus.CREATED),
+                tuple(2, ImportRowStatus.INVALID),
+                tuple(3, ImportRowStatus.DUPLICATE_IN_FILE),
+                tuple(4, ImportRowStatus.ALREADY_EXISTS),
+                tuple(5, ImportRowStatus.INVALID),
+                tuple(6, ImportRowStatus.INVALID),
+                tuple(7, ImportRowStatus.CREATED));
+        assertThat(report.getTotal()).isEqualTo(7);
+        assertThat(report.getCreated()).isEqualTo(2);
+        assertThat(report.getRejected()).isEqualTo(5);
+
+        assertThat(report.getRows().get(0).getStudentId()).isEqualTo("student-1");
+        assertThat(report.getRows().get(0).getBirthCertificateId()).isEqualTo("AB-1001");
+        assertThat(report.getRows().get(1).getErrors()).containsExactly("name must not be blank");
+        assertThat(report.getRows().get(4).getErrors()).containsExactly("Expected 6 fields but found 3");
+        assertThat(report.getRows().get(5).getErrors().get(0)).startsWith("Unable to parse timestamp: 'not-a-date'");
+        assertThat(report.getRows().get(1).getStudentId()).isNull();
+
+        // Both creations fit one batch, each with its reservation
+        verify(firebaseService, times(1)).commit(any());
+        verify(uniqueKeys).reserve(any(), eq(UniqueKeys.STUDENT_BIRTH_CERTIFICATE), eq("AB-1001"), eq("student-1"));
+        verify(uniqueKeys).reserve(any(), eq(UniqueKeys.STUDENT_BIRTH_CERTIFICATE), eq("AB-1004"), eq("student-2"));
+    }
+
+    @Test
+    void existingReservationsAreLookedUpInOneRead() {
+        importCsv(HEADER
+                + "Thabo,Mokoena,2015-03-04,AB-1001,South African,3\n"
+                + "Naledi,Sithole,2016-07-08,AB-1004,South African,1\n");
+
+        verify(firebaseService).findExistingIds(UniqueKeys.COLLECTION, Set.of(reservation("AB-1001"), reservation("AB-1004")));
+    }
+
+    @Test
+    void failedBatchMarksItsRowsFailed() {
+        when(firebaseService.commit(any()))
+                .thenReturn(CompletableFuture.failedFuture(error(Status.Code.UNAVAILABLE, "backend down")));
+
+        BulkImportReport report = importCsv(HEADER
+                + "Thabo,Mokoena,2015-03-04,AB-1001,South African,3\n"
+                + ",Dlamini,2015-05-06,AB-1002,South African,3\n"
+                + "Naledi,Sithole,2016-07-08,AB-1004,South African,1\n");
+
+        assertThat(report.getRows()).extracting(ImportRowResult::getStatus).containsExactly(
+                ImportRowStatus.FAILED, ImportRowStatus.INVALID, ImportRowStatus.FAILED);
+        assertThat(report.getRows().get(0).getErrors()).containsExactly("Write failed: backend down");
+        assertThat(report.getCreated()).isZero();
+    }
+
+    @Test
+    void concurrentDuplicateIsIsolatedRowByRow() {
+        // The batch loses a race on one reservation; retried alone, only that row is rejected
+        when(firebaseService.commit(any()))
+                .thenReturn(CompletableFuture.failedFuture(error(Status.Code.ALREADY_EXISTS, "exists")))
+                .thenReturn(CompletableFuture.completedFuture(null))
+                .thenReturn(CompletableFuture.failedFuture(error(Status.Code.ALREADY_EXISTS, "exists")));
+
+        BulkImportReport report = importCsv(HEADER
+                + "Thabo,Mokoena,2015-03-04,AB-1001,South African,3\n"
+                + "Naledi,Sithole,2016-07-08,AB-1004,South African,1\n");
+
+        assertThat(report.getRows()).extracting(ImportRowResult::getStatus).containsExactly(
+                ImportRowStatus.CREATED, ImportRowStatus.ALREADY_EXISTS);
+        assertThat(report.getRows().get(0).getStudentId()).isEqualTo("student-1");
+        assertThat(report.getRows().get(1).getStudentId()).isNull();
+        verify(studentRepository).save(any(FirestoreBatch.class), any(Student.class), eq("student-1"));
+        verify(studentRepository).save(any(FirestoreBatch.class), any(Student.class), eq("student-2"));
+    }
+
+    @Test
+    void ndjsonRowsAreParsedLineByLine() {
+        BulkImportReport report = importRows("application/x-ndjson", """
+                {"name":"Thabo","surname":"Mokoena","birthCertificateId":"AB-1001","nationality":"South African","grade":"3"}
+
+                {"name":"Broken",
+                {"name":"Naledi","surname":"Sithole","birthCertificateId":"AB-1004","nationality":"South African"}
+                """);
+
+        assertThat(report.getRows()).extracting(ImportRowResult::getRow, ImportRowResult::getStatus).containsExactly(
+                tuple(1, ImportRowStatus.CREATED),
+                tuple(2, ImportRowStatus.INVALID),
+                tuple(3, ImportRowStatus.INVALID));
+        assertThat(report.getRows().get(2).getErrors()).containsExactly("grade must not be blank");
+    }
+
+    @Test
+    void importedStudentsAlwaysAwaitApproval() {
+        BulkImportReport report = importRows("application/x-ndjson", """
+                {"name":"Thabo","surname":"Mokoena","birthCertificateId":"AB-1001","nationality":"South African","grade":"3","status":"APPROVED"}
+                {"name":"Naledi","surname":"Sithole","birthCertificateId":"AB-1004","nationality":"South African","grade":"1","status":"REJECTED","rejectionReason":"x"}
+                """);
+
+        assertThat(report.getCreated()).isEqualTo(2);
+        ArgumentCaptor<Student> saved = ArgumentCaptor.forClass(Student.class);
+        verify(studentRepository, times(2)).save(any(FirestoreBatch.class), saved.capture());
+        assertThat(saved.getAllValues()).extracting(Student::getStatus, Student::getRejectionReason)
+                .containsOnly(tuple(StudentStatus.PENDING, null));
+    }
+
+    @Test
+    void statusIsNotAnImportColumn() {
+        assertThatThrownBy(() -> importCsv("name,surname,birthCertificateId,nationality,grade,status\n"
+                + "Thabo,Mokoena,AB-1001,South African,3,APPROVED\n"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Unknown CSV columns [status]");
+        verify(firebaseService, never()).commit(any());
+    }
+
+    @Test
+    void headerOnlyFileImportsNothing() {
+        BulkImportReport report = importCsv(HEADER);
+
+        assertThat(report.getTotal()).isZero();
+        verify(firebaseService, never()).commit(any());
+    }
+
+    @Test
+    void unknownColumnRejectsTheFile() {
+        assertThatThrownBy(() -> importCsv("name,surname,shoeSize\nThabo,Mokoena,7\n"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("[shoeSize]");
+    }
+
+    @Test
+    void readingStopsAtMaxRows() {
+        BulkImportReport report = importCsv(rows(11));
+
+        assertThat(report.isTruncated()).isTrue();
+        assertThat(report.getTotal()).isEqualTo(10);
+        assertThat(report.getCreated()).isEqualTo(10);
+        verify(studentRepository, times(10)).save(any(FirestoreBatch.class), any(Student.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void bodyIsProcessedOneBatchOfRowsAtATime() {
+        ReflectionTestUtils.setField(service, "maxRows", 1000);
+
+        BulkImportReport report = importCsv(rows(600));
+
+        assertThat(report.isTruncated()).isFalse();
+        assertThat(report.getCreated()).isEqualTo(600);
+        // 250 students (500 writes with their reservations) per lookup and per batch
+        ArgumentCaptor<Set<String>> lookups = ArgumentCaptor.forClass(Set.class);
+        verify(firebaseService, times(3)).findExistingIds(eq(UniqueKeys.COLLECTION), lookups.capture());
+        assertThat(lookups.getAllValues()).extracting(Set::size).containsExactly(250, 250, 100);
+        verify(firebaseService, times(3)).commit(any());
+    }
+
+    @Test
+    void duplicatesAreFoundAcrossChunks() {
+        ReflectionTestUtils.setField(service, "maxRows", 1000);
+
+        BulkImportReport report = importCsv(rows(300) + "Lerato,Mokoena,2015-03-04,ab 1,South African,3\n");
+
+        assertThat(report.getRows().get(300).getStatus()).isEqualTo(ImportRowStatus.DUPLICATE_IN_FILE);
+        assertThat(report.getCreated()).isEqualTo(300);
+    }
+
+    @Test
+    void unreadableTailEndsTheImportWithoutUndoingEarlierRows() {
+        BulkImportReport report = importCsv(HEADER
+                + "Thabo,Mokoena,2015-03-04,AB-1001,South African,3\n"
+                + "Naledi,\"Sithole,2016-07-08,AB-1004,South African,1\n");
+
+        assertThat(report.getRows()).extracting(ImportRowResult::getRow, ImportRowResult::getStatus).containsExactly(
+                tuple(1, ImportRowStatus.CREATED),
+                tuple(2, ImportRowStatus.INVALID));
+        assertThat(report.getRows().get(1).getErrors()).containsExactly("Unterminated quoted field");
+    }
+
+    @Test
+    void unsupportedContentTypeRejectsTheFile() {
+        assertThatThrownBy(() -> importRows("application/json", "[]"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Unsupported content type");
+        verify(firebaseService, never()).findExistingIds(anyString(), anySet());
+    }
+
+    private static String rows(int count) {
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 0; i < count; i++) {
+            csv.append("Thabo,Mokoena,2015-03-04,AB-").append(i).append(",South African,3\n");
+        }
+        return csv.toString();
+    }
+
+    private BulkImportReport importCsv(String body) {
+        return importRows(CSV, body);
+    }
+
+    private BulkImportReport importRows(String contentType, String body) {
+        return service.importStudents(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), contentType);
+    }
+
+    private static String reservation(String birthCertificateId) {
+        return UniqueKeys.documentId(UniqueKeys.STUDENT_BIRTH_CERTIFICATE, birthCertificateId);
+    }
+
+    private static RuntimeException error(Status.Code code, String message) {
+        return ApiExceptionFactory.createException(message, null, GrpcStatusCode.of(code), false);
+    }
+}
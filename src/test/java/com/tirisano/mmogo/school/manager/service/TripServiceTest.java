@@ -0,0 +1,92 @@
+package com.tirisano.mmogo.school.manager.service;
+
+import com.google.api.gax.grpc.GrpcStatusCode;
+import com.google.api.gax.rpc.ApiExceptionFactory;
+import com.tirisano.mmogo.school.manager.model.Trip;
+import com.tirisano.mmogo.school.manager.repository.PaymentRepository;
+import com.tirisano.mmogo.school.manager.repository.StudentRepository;
+import com.tirisano.mmogo.school.manager.repository.TripRepository;
+import io.grpc.Status;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TripServiceTest {
+
+    private final PaymentRepository paymentRepository = mock(PaymentRepository.class);
+    private final TripRepository tripRepository = mock(TripRepository.class);
+    private final FirebaseService firebaseService = mock(FirebaseService.class);
+    private final UniqueKeys uniqueKeys = mock(UniqueKeys.class);
+    private final List<FirestoreBatch> batches = new ArrayList<>();
+
+    private final TripService tripService = new TripService(paymentRepository, mock(StudentRepository.class),
+            tripRepository, mock(PaymentLedger.class), firebaseService, mock(IdempotencyService.class), uniqueKeys);
+
+    @BeforeEach
+    void setUp() {
+        when(firebaseService.batch()).thenAnswer(invocation -> {
+            FirestoreBatch batch = mock(FirestoreBatch.class);
+            batches.add(batch);
+            return batch;
+        });
+        when(firebaseService.commit(any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(tripRepository.findById("t1")).thenReturn(CompletableFuture.completedFuture(
+                Trip.builder().tripId("t1").price(new BigDecimal("150.00")).registeredStudents(new ArrayList<>()).build()));
+    }
+
+    @Test
+    void registrationReservesTheTripStudentPairInTheSameBatch() {
+        tripService.registerStudent("t1", "s1", "p1", "Card");
+
+        verify(uniqueKeys).reserve(batches.get(0), UniqueKeys.TRIP_REGISTRATION, "t1/s1", "s1");
+        verify(paymentRepository).save(any(FirestoreBatch.class), any());
+    }
+
+    @Test
+    void registrationThatLosesTheRaceIsReportedAsAlreadyRegistered() {
+        // Both requests saw the student unregistered; the other one's key was committed first
+        when(firebaseService.commit(any())).thenReturn(CompletableFuture.failedFuture(
+                ApiExceptionFactory.createException("exists", null, GrpcStatusCode.of(Status.Code.ALREADY_EXISTS), false)));
+
+        assertThatThrownBy(() -> tripService.registerStudent("t1", "s1", "p1", "Card"))
+                .hasMessage("Failed to register student for trip: Student already registered for this trip");
+    }
+
+    @Test
+    void visibleRegistrationIsRejectedWithoutWriting() {
+        when(tripRepository.findById("t1")).thenReturn(CompletableFuture.completedFuture(
+                Trip.builder().tripId("t1").registeredStudents(new ArrayList<>(List.of("s1"))).build()));
+
+        assertThatThrownBy(() -> tripService.registerStudent("t1", "s1", "p1", "Card"))
+                .hasMessageContaining("Student already registered for this trip");
+        verify(firebaseService, never()).commit(any());
+    }
+
+    @Test
+    void unregisteringReleasesTheKey() {
+        tripService.unregisterStudent("t1", "s1");
+
+        verify(uniqueKeys).release(batches.get(0), UniqueKeys.TRIP_REGISTRATION, "t1/s1", "s1");
+        verify(firebaseService).commit(batches.get(0));
+    }
+
+    @Test
+    void registrationKeysAreCaseSensitive() {
+        assertThat(UniqueKeys.documentId(UniqueKeys.TRIP_REGISTRATION, "aB/c"))
+                .isNotEqualTo(UniqueKeys.documentId(UniqueKeys.TRIP_REGISTRATION, "Ab/c"));
+        assertThat(UniqueKeys.documentId(UniqueKeys.STUDENT_BIRTH_CERTIFICATE, "aB-1"))
+                .isEqualTo(UniqueKeys.documentId(UniqueKeys.STUDENT_BIRTH_CERTIFICATE, "AB 1"));
+    }
+}
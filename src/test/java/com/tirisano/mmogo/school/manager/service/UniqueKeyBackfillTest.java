@@ -0,0 +1,147 @@
+package com.tirisano.mmogo.school.manager.service;
+
+import com.google.api.gax.grpc.GrpcStatusCode;
+import com.google.api.gax.rpc.ApiExceptionFactory;
+import com.tirisano.mmogo.school.manager.model.Student;
+import com.tirisano.mmogo.school.manager.repository.StudentRepository;
+import io.grpc.Status;
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class UniqueKeyBackfillTest {
+
+    private final StudentRepository studentRepository = mock(StudentRepository.class);
+    private final FirebaseService firebaseService = mock(FirebaseService.class);
+    private final UniqueKeys uniqueKeys = mock(UniqueKeys.class);
+    private final TaskScheduler scheduler = mock(TaskScheduler.class);
+    private final List<FirestoreBatch> batches = new ArrayList<>();
+
+    private final StudentService studentService =
+            new StudentService(studentRepository, firebaseService, uniqueKeys, mock(BulkTransitions.class));
+    private final UniqueKeyBackfill backfill = new UniqueKeyBackfill(studentService, firebaseService, scheduler,
+            mock(ExecutorService.class), true, Duration.ofMinutes(1));
+
+    @BeforeEach
+    void setUp() {
+        when(firebaseService.batch()).thenAnswer(invocation -> {
+            FirestoreBatch batch = mock(FirestoreBatch.class);
+            batches.add(batch);
+            return batch;
+        });
+        when(firebaseService.commit(any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(firebaseService.findVersionedById(UniqueKeys.COLLECTION, UniqueKeyBackfill.MARKER))
+                .thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    void reservesOnlyMissingKeysAndReportsDuplicates() {
+        students(student("s1", "AB-1"), student("s2", "ab 1"), student("s3", "CD-2"), student("s4", null), student("s5", "EF-3"));
+        when(firebaseService.findExistingIds(eq(UniqueKeys.COLLECTION), anyCollection()))
+                .thenReturn(CompletableFuture.completedFuture(Set.of(reservation("CD-2"))));
+
+        Map<String, Object> report = studentService.backfillBirthCertificateKeys();
+
+        assertThat(report).containsEntry("students", 5).containsEntry("reserved", 2);
+        assertThat(report.get("duplicates")).asInstanceOf(InstanceOfAssertFactories.ITERABLE).containsExactly(List.of("s1", "s2"));
+        // Created, never overwritten, so a key taken meanwhile fails the write instead of changing hands
+        verify(uniqueKeys).reserve(batches.get(0), UniqueKeys.STUDENT_BIRTH_CERTIFICATE, "AB-1", "s1");
+        verify(uniqueKeys).reserve(batches.get(0), UniqueKeys.STUDENT_BIRTH_CERTIFICATE, "EF-3", "s5");
+        verify(uniqueKeys, times(2)).reserve(any(), any(), any(), any());
+    }
+
+    @Test
+    void secondRunChangesNothing() {
+        students(student("s1", "AB-1"));
+        when(firebaseService.findExistingIds(eq(UniqueKeys.COLLECTION), anyCollection()))
+                .thenReturn(CompletableFuture.completedFuture(Set.of(reservation("AB-1"))));
+
+        assertThat(studentService.backfillBirthCertificateKeys()).containsEntry("reserved", 0);
+        verify(uniqueKeys, never()).reserve(any(), any(), any(), any());
+        verify(firebaseService, never()).commit(any());
+    }
+
+    @Test
+    void keyReservedMeanwhileIsSkippedOneByOne() {
+        students(student("s1", "AB-1"), student("s2", "CD-2"));
+        when(firebaseService.findExistingIds(eq(UniqueKeys.COLLECTION), anyCollection()))
+                .thenReturn(CompletableFuture.completedFuture(Set.of()));
+        when(firebaseService.commit(any()))
+                .thenReturn(CompletableFuture.failedFuture(alreadyExists()))
+                .thenReturn(CompletableFuture.failedFuture(alreadyExists()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        assertThat(studentService.backfillBirthCertificateKeys()).containsEntry("reserved", 1);
+        verify(firebaseService, times(3)).commit(any());
+    }
+
+    @Test
+    void completedRunLeavesAMarker() {
+        students(student("s1", "AB-1"));
+        when(firebaseService.findExistingIds(eq(UniqueKeys.COLLECTION), anyCollection()))
+                .thenReturn(CompletableFuture.completedFuture(Set.of()));
+
+        assertThat(backfill.run()).isTrue();
+
+        FirestoreBatch markerBatch = batches.get(batches.size() - 1);
+        verify(markerBatch).save(eq(UniqueKeys.COLLECTION), anyMap(), eq(UniqueKeyBackfill.MARKER));
+        verifyNoInteractions(scheduler);
+    }
+
+    @Test
+    void markerSkipsTheBackfill() {
+        when(firebaseService.findVersionedById(UniqueKeys.COLLECTION, UniqueKeyBackfill.MARKER))
+                .thenReturn(CompletableFuture.completedFuture(new FirebaseService.Versioned(Map.of(), null)));
+
+        assertThat(backfill.run()).isTrue();
+        verifyNoInteractions(studentRepository);
+    }
+
+    @Test
+    void failedRunIsRetriedLater() {
+        when(studentRepository.findAll()).thenReturn(CompletableFuture.failedFuture(
+                ApiExceptionFactory.createException("down", null, GrpcStatusCode.of(Status.Code.UNAVAILABLE), true)));
+
+        assertThat(backfill.run()).isFalse();
+        verify(scheduler).schedule(any(Runnable.class), any(Instant.class));
+        verify(firebaseService, never()).commit(any());
+    }
+
+    private void students(Student... students) {
+        when(studentRepository.findAll()).thenReturn(CompletableFuture.completedFuture(List.of(students)));
+    }
+
+    private static Student student(String id, String birthCertificateId) {
+        return Student.builder().studentId(id).birthCertificateId(birthCertificateId).build();
+    }
+
+    private static String reservation(String birthCertificateId) {
+        return UniqueKeys.documentId(UniqueKeys.STUDENT_BIRTH_CERTIFICATE, birthCertificateId);
+    }
+
+    private static RuntimeException alreadyExists() {
+        return ApiExceptionFactory.createException("exists", null, GrpcStatusCode.of(Status.Code.ALREADY_EXISTS), false);
+    }
+}
@@ -0,0 +1,48 @@
+package com.tirisano.mmogo.school.manager.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UniqueKeysTest {
+
+    @Test
+    void normalizeIgnoresCaseSurroundingWhitespaceSpacesAndHyphens() {
+        assertThat(UniqueKeys.normalize("  ab-12 34\tcd ")).isEqualTo("AB1234CD");
+        assertThat(UniqueKeys.normalize("AB1234CD")).isEqualTo("AB1234CD");
+    }
+
+    @Test
+    void normalizeKeepsOtherPunctuation() {
+        assertThat(UniqueKeys.normalize("ab/12.34")).isEqualTo("AB/12.34");
+    }
+
+    @Test
+    void normalizeIsNullSafe() {
+        assertThat(UniqueKeys.normalize(null)).isNull();
+    }
+
+    @Test
+    void normalizeUsesRootLocale() {
+        // Dotted capital I under a Turkish locale would make these differ
+        assertThat(UniqueKeys.normalize("idi")).isEqualTo("IDI");
+    }
+
+    @Test
+    void equivalentValuesShareADocumentId() {
+        String id = UniqueKeys.documentId(UniqueKeys.STUDENT_BIRTH_CERTIFICATE, "ab-1234");
+
+        assertThat(UniqueKeys.documentId(UniqueKeys.STUDENT_BIRTH_CERTIFICATE, " AB 1234 ")).isEqualTo(id);
+        assertThat(UniqueKeys.documentId(UniqueKeys.STUDENT_BIRTH_CERTIFICATE, "AB1235")).isNotEqualTo(id);
+        assertThat(UniqueKeys.documentId("other.scope", "ab-1234")).isNotEqualTo(id);
+    }
+
+    @Test
+    void sameKeyComparesNormalizedValues() {
+        assertThat(UniqueKeys.sameKey("ab-1234", "AB 1234")).isTrue();
+        assertThat(UniqueKeys.sameKey("ab-1234", "AB1235")).isFalse();
+        assertThat(UniqueKeys.sameKey(null, null)).isTrue();
+        assertThat(UniqueKeys.sameKey("ab", null)).isFalse();
+        assertThat(UniqueKeys.sameKey(null, "ab")).isFalse();
+    }
+}
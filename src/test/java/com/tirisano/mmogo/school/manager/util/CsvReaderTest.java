@@ -0,0 +1,94 @@
+package com.tirisano.mmogo.school.manager.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CsvReaderTest {
+
+    @Test
+    void readsPlainFieldsRecordByRecord() throws IOException {
+        assertThat(records("a,b,c\nd,e,f\n")).containsExactly(
+                List.of("a", "b", "c"),
+                List.of("d", "e", "f"));
+    }
+
+    @Test
+    void lastRecordNeedsNoLineEnding() throws IOException {
+        assertThat(records("a,b\nc,d")).containsExactly(List.of("a", "b"), List.of("c", "d"));
+    }
+
+    @Test
+    void crlfLfAndBareCrAllEndARecord() throws IOException {
+        assertThat(records("a,b\r\nc,d\ne,f\rg,h")).containsExactly(
+                List.of("a", "b"),
+                List.of("c", "d"),
+                List.of("e", "f"),
+                List.of("g", "h"));
+    }
+
+    @Test
+    void crlfIsOneLineEndingSoOnlyABlankLineMakesAnEmptyRecord() throws IOException {
+        assertThat(records("a\r\n\r\nb\r\n")).containsExactly(List.of("a"), List.of(""), List.of("b"));
+    }
+
+    @Test
+    void quotedFieldMaySpanLines() throws IOException {
+        assertThat(records("\"line one\nline two\",x\r\n\"a\r\nb\",y\n")).containsExactly(
+                List.of("line one\nline two", "x"),
+                List.of("a\r\nb", "y"));
+    }
+
+    @Test
+    void doubledQuoteIsAnEscapedQuote() throws IOException {
+        assertThat(records("\"say \"\"hi\"\"\",\"\"\"\",\"\"\n")).containsExactly(
+                List.of("say \"hi\"", "\"", ""));
+    }
+
+    @Test
+    void quotedFieldKeepsCommas() throws IOException {
+        assertThat(records("\"Smith, J\",b\n")).containsExactly(List.of("Smith, J", "b"));
+    }
+
+    @Test
+    void quoteInsideUnquotedFieldIsLiteral() throws IOException {
+        assertThat(records("a\"b,c\n")).containsExactly(List.of("a\"b", "c"));
+    }
+
+    @Test
+    void trailingCommaYieldsEmptyLastField() throws IOException {
+        assertThat(records("a,b,\n,,\n")).containsExactly(
+                List.of("a", "b", ""),
+                List.of("", "", ""));
+    }
+
+    @Test
+    void emptyInputHasNoRecords() throws IOException {
+        assertThat(new CsvReader(new StringReader("")).next()).isNull();
+    }
+
+    @Test
+    void unterminatedQuoteFails() {
+        CsvReader reader = new CsvReader(new StringReader("a,\"never closed\nb,c\n"));
+
+        assertThatThrownBy(reader::next)
+                .isInstanceOf(IOException.class)
+                .hasMessage("Unterminated quoted field");
+    }
+
+    private static List<List<String>> records(String input) throws IOException {
+        CsvReader reader = new CsvReader(new StringReader(input));
+        List<List<String>> records = new ArrayList<>();
+        List<String> record;
+        while ((record = reader.next()) != null) {
+            records.add(record);
+        }
+        return records;
+    }
+}